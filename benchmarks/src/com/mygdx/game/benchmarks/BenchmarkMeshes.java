@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.benchmarks;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g3d.loader.G3dModelLoader;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelData;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.UBJsonReader;
+import com.mygdx.game.pathfinding.NavMesh;
+import com.mygdx.game.pathfinding.NavMeshGraph;
+import com.mygdx.game.pathfinding.Triangle;
+import com.mygdx.game.scene.SceneGenerator;
+
+/**
+ * The navmeshes the benchmarks are run on, selected by name with a JMH {@code @Param}.
+ * <p/>
+ * {@code scene0} is the navmesh model shipped with the game, read from the assets directory without a GL context.
+ * The {@code gridN} meshes are generated height fields of about N triangles, with holes cut in them so that
+ * paths have to go around obstacles. The {@code maze}, {@code building} and {@code obstacles} meshes are made by the
+ * {@link SceneGenerator}, and are not in the default parameters of the benchmarks, select them with
+ * {@code -p mesh=maze100k}.
+ *
+ * @author jsjolund
+ */
+class BenchmarkMeshes {
+
+	public static final String SCENE0 = "scene0";
+	public static final String GRID_1K = "grid1k";
+	public static final String GRID_10K = "grid10k";
+	public static final String GRID_100K = "grid100k";
+	public static final String GRID_500K = "grid500k";
+	public static final String MAZE_100K = "maze100k";
+	public static final String BUILDING_100K = "building100k";
+	public static final String OBSTACLES_100K = "obstacles100k";
+
+	/**
+	 * Number of start and goal pairs each benchmark cycles through, fewer than the paths kept by the path cache
+	 * of the navmesh so that cached paths are never evicted
+	 */
+	static final int PAIR_COUNT = 128;
+
+	private static final String SCENE0_PATH = "models/g3db/scene0_navmesh.g3db";
+	private static final long SEED = 0x5EED;
+	/**
+	 * Fraction of grid cells left out of the generated meshes
+	 */
+	private static final float HOLE_FRACTION = 0.1f;
+	private static final float OBSTACLE_FRACTION = 0.2f;
+	private static final int BUILDING_FLOORS = 4;
+
+	/**
+	 * The source data of a navmesh. The graph is created from it by the benchmarks, so that graph construction
+	 * can be measured on its own.
+	 */
+	static class Mesh {
+		final ModelData modelData;
+		final float[] vertexPositions;
+		final int[] indices;
+		final int[] meshPartIndexOffsets;
+
+		Mesh(ModelData modelData) {
+			this.modelData = modelData;
+			this.vertexPositions = null;
+			this.indices = null;
+			this.meshPartIndexOffsets = null;
+		}
+
+		Mesh(float[] vertexPositions, int[] indices, int[] meshPartIndexOffsets) {
+			this.modelData = null;
+			this.vertexPositions = vertexPositions;
+			this.indices = indices;
+			this.meshPartIndexOffsets = meshPartIndexOffsets;
+		}
+
+		Mesh(SceneGenerator.Level level) {
+			this(level.vertexPositions, level.indices, level.meshPartIndexOffsets);
+		}
+
+		NavMeshGraph createGraph() {
+			if (modelData != null) {
+				return new NavMeshGraph(modelData, 0);
+			}
+			// The graph welds the indices in place
+			return new NavMeshGraph(vertexPositions, indices.clone(), meshPartIndexOffsets, 0);
+		}
+	}
+
+	private BenchmarkMeshes() {
+	}
+
+	/**
+	 * Sets up the parts of libGDX needed by the navmesh, such as {@code Gdx.app} for logging.
+	 */
+	static synchronized void initHeadless() {
+		if (Gdx.app == null) {
+			// The main loop is not needed, stop it right away so it does not run during the benchmarks
+			new HeadlessApplication(new ApplicationAdapter() {
+			}).exit();
+		}
+	}
+
+	static Mesh load(String name) {
+		initHeadless();
+		if (SCENE0.equals(name)) {
+			ModelData modelData = new G3dModelLoader(new UBJsonReader()).loadModelData(new FileHandle(SCENE0_PATH));
+			return new Mesh(modelData);
+		} else if (GRID_1K.equals(name)) {
+			return createGrid(1000);
+		} else if (GRID_10K.equals(name)) {
+			return createGrid(10000);
+		} else if (GRID_100K.equals(name)) {
+			return createGrid(100000);
+		} else if (GRID_500K.equals(name)) {
+			return createGrid(500000);
+		} else if (MAZE_100K.equals(name)) {
+			return new Mesh(SceneGenerator.createMaze(100000, SEED));
+		} else if (BUILDING_100K.equals(name)) {
+			return new Mesh(SceneGenerator.createBuilding(BUILDING_FLOORS, 100000, SEED));
+		} else if (OBSTACLES_100K.equals(name)) {
+			return new Mesh(SceneGenerator.createObstacleField(100000, OBSTACLE_FRACTION, SEED));
+		}
+		throw new GdxRuntimeException("Unknown benchmark mesh: " + name);
+	}
+
+	/**
+	 * Generate a square grid with about the given number of triangles, two for each cell, over gentle hills.
+	 * Some cells are left out at random.
+	 *
+	 * @param triangleCount Approximate number of triangles, before the holes are cut
+	 * @return
+	 */
+	static Mesh createGrid(int triangleCount) {
+		int n = Math.max(1, Math.round((float) Math.sqrt(triangleCount / 2f)));
+		float[] vertexPositions = new float[(n + 1) * (n + 1) * 3];
+		for (int z = 0; z <= n; z++) {
+			for (int x = 0; x <= n; x++) {
+				int i = (z * (n + 1) + x) * 3;
+				vertexPositions[i] = x;
+				vertexPositions[i + 1] = 2 * MathUtils.sin(x * 0.1f) * MathUtils.cos(z * 0.07f);
+				vertexPositions[i + 2] = z;
+			}
+		}
+		RandomXS128 random = new RandomXS128(SEED);
+		IntArray indices = new IntArray(n * n * 6);
+		for (int z = 0; z < n; z++) {
+			for (int x = 0; x < n; x++) {
+				if (random.nextFloat() < HOLE_FRACTION) {
+					continue;
+				}
+				int a = z * (n + 1) + x;
+				int b = a + 1;
+				int c = a + n + 1;
+				int d = c + 1;
+				indices.add(a);
+				indices.add(c);
+				indices.add(b);
+				indices.add(b);
+				indices.add(c);
+				indices.add(d);
+			}
+		}
+		return new Mesh(vertexPositions, indices.toArray(), new int[]{0});
+	}
+
+	/**
+	 * Pick pairs of random points on the navmesh which are connected to each other, so that a path exists between
+	 * them. The same pairs are picked every time for the same navmesh.
+	 *
+	 * @param navMesh    The navmesh
+	 * @param fromTris   Output for the start triangles
+	 * @param fromPoints Output for the start points
+	 * @param toTris     Output for the goal triangles
+	 * @param toPoints   Output for the goal points
+	 */
+	static void pickConnectedPairs(NavMesh navMesh, Triangle[] fromTris, Vector3[] fromPoints,
+								   Triangle[] toTris, Vector3[] toPoints) {
+		MathUtils.random.setSeed(SEED);
+		int i = 0;
+		while (i < fromTris.length) {
+			Triangle fromTri = navMesh.getRandomTriangle();
+			Triangle toTri = navMesh.getRandomTriangle();
+			if (!navMesh.graph.isConnected(fromTri, toTri)) {
+				continue;
+			}
+			fromTris[i] = fromTri;
+			toTris[i] = toTri;
+			fromPoints[i] = fromTri.getRandomPoint(new Vector3());
+			toPoints[i] = toTri.getRandomPoint(new Vector3());
+			i++;
+		}
+	}
+
+}
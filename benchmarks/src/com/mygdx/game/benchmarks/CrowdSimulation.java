@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.benchmarks;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.PerformanceCounter;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.mygdx.game.GameEngine;
+import com.mygdx.game.GameScreen;
+import com.mygdx.game.GdxDemo3D;
+import com.mygdx.game.objects.DogCharacter;
+import com.mygdx.game.objects.HumanCharacter;
+import com.mygdx.game.objects.SteerableBody;
+import com.mygdx.game.pathfinding.NavMesh;
+import com.mygdx.game.pathfinding.Triangle;
+import com.mygdx.game.scene.GameScene;
+import com.mygdx.game.scene.SceneGenerator;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+
+/**
+ * Headless crowd simulation scenario, for measuring how the simulation scales with the number of characters.
+ * <p/>
+ * Loads {@code scene0} like the game does, or switches to a level made by the {@link SceneGenerator}. Spawns a
+ * number of humans, each with a dog, at random points on the navmesh, and runs the game engine for a fixed number
+ * of steps. Every human is ordered to walk to a random point
+ * at a regular interval, the dogs run their behavior trees. Nothing is rendered, a {@link HeadlessGL} stands in for
+ * the GL, so only the simulation is measured.
+ * <p/>
+ * The time of each subsystem of {@link GameEngine#update(float)} is reported as percentiles over the steps, along
+ * with heap usage and garbage collection counts. Run from the assets directory, with the Bullet natives on the
+ * class path:
+ * <pre>
+ * CrowdSimulation [humans] [steps] [warmup steps] [level] [level triangles]
+ * </pre>
+ * The level is one of {@code scene0}, {@code grid}, {@code obstacles}, {@code maze} and {@code building}.
+ *
+ * @author jsjolund
+ */
+public class CrowdSimulation extends ApplicationAdapter {
+
+	private static final String TAG = "CrowdSimulation";
+
+	private static final float STEP_DELTA = 1f / 60f;
+	private static final long SEED = 0x5EED;
+	/**
+	 * Steps between the movement orders of each human. The orders are spread out over the steps.
+	 */
+	private static final int ORDER_INTERVAL_STEPS = 300;
+	/**
+	 * Height above the navmesh at which characters are spawned, as in {@link GameScreen}
+	 */
+	private static final float HUMAN_SPAWN_HEIGHT = 1;
+	private static final float DOG_SPAWN_HEIGHT = 0.5f;
+	private static final float[] PERCENTILES = {0.5f, 0.9f, 0.99f};
+
+	private static final String SCENE0 = "scene0";
+	private static final float LEVEL_OBSTACLE_FRACTION = 0.2f;
+	private static final int LEVEL_BUILDING_FLOORS = 4;
+
+	private final int humanCount;
+	private final int steps;
+	private final int warmupSteps;
+	private final String levelName;
+	private final int levelTriangles;
+
+	private final Array<HumanCharacter> humans = new Array<HumanCharacter>();
+	// Garbage collections since the warmup
+	private long gcCount;
+	private long gcTime;
+
+	// Temporary memory used by various methods for calculations
+	private final Vector3 tmpTargetPoint = new Vector3();
+
+	public CrowdSimulation(int humanCount, int steps, int warmupSteps, String levelName, int levelTriangles) {
+		this.humanCount = humanCount;
+		this.steps = steps;
+		this.warmupSteps = warmupSteps;
+		this.levelName = levelName;
+		this.levelTriangles = levelTriangles;
+	}
+
+	public static void main(String[] args) {
+		int humanCount = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+		int steps = (args.length > 1) ? Integer.parseInt(args[1]) : 3000;
+		int warmupSteps = (args.length > 2) ? Integer.parseInt(args[2]) : 300;
+		String levelName = (args.length > 3) ? args[3] : SCENE0;
+		int levelTriangles = (args.length > 4) ? Integer.parseInt(args[4]) : 100000;
+		new HeadlessApplication(new CrowdSimulation(humanCount, steps, warmupSteps, levelName, levelTriangles));
+	}
+
+	@Override
+	public void create() {
+		Gdx.app.setLogLevel(Application.LOG_INFO);
+		HeadlessGL.install();
+		MathUtils.random.setSeed(SEED);
+
+		long startTime = TimeUtils.millis();
+		GdxDemo3D game = new GdxDemo3D();
+		GameScreen screen = new GameScreen(game);
+		game.getAssetManager().finishLoading();
+		screen.loadingFinished();
+		if (!SCENE0.equals(levelName)) {
+			// The characters of the game screen are left behind in scene0, which is no longer needed
+			GameScene scene = screen.getSceneManager().open(levelName);
+			scene.spawnGameObjectsFromLevel(createLevel(levelName, levelTriangles));
+			screen.engine.setScene(scene);
+			screen.getSceneManager().dispose(SCENE0);
+		}
+		Gdx.app.log(TAG, "Loaded " + levelName + " in " + TimeUtils.timeSinceMillis(startTime) + " ms, "
+				+ screen.engine.getScene().navMesh.graph.getNodeCount() + " navmesh triangles");
+
+		spawnCrowd(screen.engine);
+		run(screen.engine);
+
+		screen.dispose();
+		game.dispose();
+		Gdx.app.exit();
+	}
+
+	private static SceneGenerator.Level createLevel(String name, int triangleCount) {
+		if (name.equals("grid")) {
+			return SceneGenerator.createGrid(triangleCount);
+		} else if (name.equals("obstacles")) {
+			return SceneGenerator.createObstacleField(triangleCount, LEVEL_OBSTACLE_FRACTION, SEED);
+		} else if (name.equals("maze")) {
+			return SceneGenerator.createMaze(triangleCount, SEED);
+		} else if (name.equals("building")) {
+			return SceneGenerator.createBuilding(LEVEL_BUILDING_FLOORS, triangleCount, SEED);
+		}
+		throw new GdxRuntimeException("Unknown level: " + name);
+	}
+
+	/**
+	 * Spawn the humans and dogs, in addition to the ones spawned by the game screen.
+	 */
+	private void spawnCrowd(GameEngine engine) {
+		GameScene scene = engine.getScene();
+		for (int i = 0; i < humanCount; i++) {
+			HumanCharacter human = scene.spawnHuman("human", getRandomPoint(scene.navMesh, HUMAN_SPAWN_HEIGHT));
+			DogCharacter dog = scene.spawnDog("dog", "Dog " + i, getRandomPoint(scene.navMesh, DOG_SPAWN_HEIGHT));
+			human.assignDog(dog);
+			engine.addEntity(human);
+			engine.addEntity(dog);
+			engine.characters.add(human);
+			engine.characters.add(dog);
+		}
+		for (SteerableBody character : engine.characters) {
+			if (character instanceof HumanCharacter) {
+				humans.add((HumanCharacter) character);
+			}
+		}
+		Gdx.app.log(TAG, "Simulating " + humans.size + " humans and "
+				+ (engine.characters.size - humans.size) + " dogs");
+	}
+
+	private static Vector3 getRandomPoint(NavMesh navMesh, float height) {
+		return navMesh.getRandomTriangle().getRandomPoint(new Vector3()).add(0, height, 0);
+	}
+
+	private void run(GameEngine engine) {
+		NavMesh navMesh = engine.getScene().navMesh;
+		Array<PerformanceCounter> counters = engine.getPerformanceCounters().counters;
+		// Step time of each engine counter, then of the movement orders, then the total
+		int ordersIndex = counters.size;
+		int totalIndex = counters.size + 1;
+		long[][] times = new long[counters.size + 2][steps];
+
+		for (int step = -warmupSteps; step < steps; step++) {
+			if (step == 0) {
+				startMemoryStats();
+			}
+			long orderTime = TimeUtils.nanoTime();
+			for (int i = 0; i < humans.size; i++) {
+				if ((step + warmupSteps + i) % ORDER_INTERVAL_STEPS == 0) {
+					Triangle targetTriangle = navMesh.getRandomTriangle();
+					humans.get(i).handleMovementRequest(targetTriangle, targetTriangle.getRandomPoint(tmpTargetPoint));
+				}
+			}
+			long updateTime = TimeUtils.nanoTime();
+			engine.update(STEP_DELTA);
+			long endTime = TimeUtils.nanoTime();
+
+			if (step >= 0) {
+				for (int i = 0; i < counters.size; i++) {
+					times[i][step] = (long) (counters.get(i).time.latest * 1e9);
+				}
+				times[ordersIndex][step] = updateTime - orderTime;
+				times[totalIndex][step] = endTime - orderTime;
+			}
+		}
+
+		Gdx.app.log(TAG, String.format("Step times in ms over %d steps, after %d warmup steps:", steps, warmupSteps));
+		Gdx.app.log(TAG, String.format("%-10s %9s %9s %9s %9s %9s", "", "mean", "p50", "p90", "p99", "max"));
+		for (int i = 0; i < counters.size; i++) {
+			logTimes(counters.get(i).name, times[i]);
+		}
+		logTimes("orders", times[ordersIndex]);
+		logTimes("total", times[totalIndex]);
+		logMemoryStats();
+	}
+
+	private static void logTimes(String name, long[] times) {
+		if (times.length == 0) {
+			return;
+		}
+		Arrays.sort(times);
+		long sum = 0;
+		for (long time : times) {
+			sum += time;
+		}
+		StringBuilder sb = new StringBuilder(String.format("%-10s %9.3f", name, sum / 1e6 / times.length));
+		for (float percentile : PERCENTILES) {
+			int index = Math.min(times.length - 1, (int) (percentile * times.length));
+			sb.append(String.format(" %9.3f", times[index] / 1e6));
+		}
+		sb.append(String.format(" %9.3f", times[times.length - 1] / 1e6));
+		Gdx.app.log(TAG, sb.toString());
+	}
+
+	private void startMemoryStats() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+		gcCount = 0;
+		gcTime = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcCount -= gc.getCollectionCount();
+			gcTime -= gc.getCollectionTime();
+		}
+	}
+
+	private void logMemoryStats() {
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcCount += gc.getCollectionCount();
+			gcTime += gc.getCollectionTime();
+		}
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+		long usedHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		Gdx.app.log(TAG, String.format("Heap used %.1f MB, peak %.1f MB (sum of pool peaks)",
+				usedHeap / 1048576.0, peakHeap / 1048576.0));
+		Gdx.app.log(TAG, "Garbage collections: " + gcCount + ", " + gcTime + " ms");
+	}
+
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.benchmarks;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+
+/**
+ * A {@link GL20} which does nothing, for running the game with the headless backend, which has no GL.
+ * <p/>
+ * Every call succeeds: shaders compile, frame buffers are complete and no errors are reported. Queries return a
+ * small positive number, both as return value and in any {@link IntBuffer} argument, so that handles are never
+ * zero. Textures, meshes and shaders can be created this way, but nothing is drawn.
+ *
+ * @author jsjolund
+ */
+class HeadlessGL implements InvocationHandler {
+
+	/**
+	 * Returned by queries, e.g. as handles, sizes and counts
+	 */
+	private static final int QUERY_VALUE = 16;
+
+	private HeadlessGL() {
+	}
+
+	/**
+	 * Set {@code Gdx.gl} and {@code Gdx.gl20} to a GL which does nothing.
+	 */
+	static void install() {
+		GL20 gl = (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[]{GL20.class},
+				new HeadlessGL());
+		Gdx.gl = gl;
+		Gdx.gl20 = gl;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) {
+		if (args != null) {
+			for (Object arg : args) {
+				if (arg instanceof IntBuffer) {
+					IntBuffer buffer = (IntBuffer) arg;
+					if (buffer.hasRemaining()) {
+						buffer.put(buffer.position(), QUERY_VALUE);
+					}
+				}
+			}
+		}
+		Class<?> returnType = method.getReturnType();
+		if (returnType == int.class) {
+			if ("glCheckFramebufferStatus".equals(method.getName())) {
+				return GL20.GL_FRAMEBUFFER_COMPLETE;
+			}
+			if ("glGetError".equals(method.getName())) {
+				return GL20.GL_NO_ERROR;
+			}
+			return QUERY_VALUE;
+		} else if (returnType == boolean.class) {
+			return false;
+		} else if (returnType == float.class) {
+			return 0f;
+		} else if (returnType == String.class) {
+			return "";
+		}
+		return null;
+	}
+
+}
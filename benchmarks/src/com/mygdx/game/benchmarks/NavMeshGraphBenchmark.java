@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.benchmarks;
+
+import com.mygdx.game.pathfinding.NavMeshGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the construction of a {@link NavMeshGraph} from mesh data, including vertex welding,
+ * triangle connections and connected components.
+ *
+ * @author jsjolund
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NavMeshGraphBenchmark {
+
+	@Param({BenchmarkMeshes.SCENE0, BenchmarkMeshes.GRID_1K, BenchmarkMeshes.GRID_10K,
+			BenchmarkMeshes.GRID_100K, BenchmarkMeshes.GRID_500K})
+	public String mesh;
+
+	private BenchmarkMeshes.Mesh meshData;
+
+	@Setup
+	public void setup() {
+		meshData = BenchmarkMeshes.load(mesh);
+	}
+
+	@Benchmark
+	public NavMeshGraph createGraph() {
+		return meshData.createGraph();
+	}
+
+}
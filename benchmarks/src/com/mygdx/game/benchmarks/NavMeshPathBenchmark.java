@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.benchmarks;
+
+import com.badlogic.gdx.math.Vector3;
+import com.mygdx.game.pathfinding.NavMesh;
+import com.mygdx.game.pathfinding.NavMeshGraphPath;
+import com.mygdx.game.pathfinding.Triangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link NavMesh#getPath(Triangle, Vector3, Triangle, Vector3, NavMeshGraphPath)} between random
+ * connected points, with each of the search strategies of the navmesh.
+ *
+ * @author jsjolund
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NavMeshPathBenchmark {
+
+	public static final String SEARCH_TRIANGLES = "triangles";
+	public static final String SEARCH_CLUSTERS = "clusters";
+	public static final String SEARCH_POLYGONS = "polygons";
+
+	@Param({BenchmarkMeshes.SCENE0, BenchmarkMeshes.GRID_1K, BenchmarkMeshes.GRID_10K,
+			BenchmarkMeshes.GRID_100K, BenchmarkMeshes.GRID_500K})
+	public String mesh;
+
+	@Param({SEARCH_TRIANGLES, SEARCH_CLUSTERS, SEARCH_POLYGONS})
+	public String search;
+
+	private NavMesh navMesh;
+	private final Triangle[] fromTris = new Triangle[BenchmarkMeshes.PAIR_COUNT];
+	private final Vector3[] fromPoints = new Vector3[BenchmarkMeshes.PAIR_COUNT];
+	private final Triangle[] toTris = new Triangle[BenchmarkMeshes.PAIR_COUNT];
+	private final Vector3[] toPoints = new Vector3[BenchmarkMeshes.PAIR_COUNT];
+	private final NavMeshGraphPath path = new NavMeshGraphPath();
+	private int pairIndex;
+
+	@Setup
+	public void setup() {
+		navMesh = new NavMesh(BenchmarkMeshes.load(mesh).createGraph());
+		navMesh.setHierarchicalPathfinding(SEARCH_CLUSTERS.equals(search));
+		navMesh.setPolygonPathfinding(SEARCH_POLYGONS.equals(search));
+		BenchmarkMeshes.pickConnectedPairs(navMesh, fromTris, fromPoints, toTris, toPoints);
+		// Fill the path cache, on large meshes a round of searches may take longer than a benchmark iteration
+		for (int i = 0; i < BenchmarkMeshes.PAIR_COUNT; i++) {
+			navMesh.getPath(fromTris[i], fromPoints[i], toTris[i], toPoints[i], path);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		navMesh.dispose();
+	}
+
+	/**
+	 * A full search, the path cache is cleared first.
+	 */
+	@Benchmark
+	public boolean getPath() {
+		int i = pairIndex++ % BenchmarkMeshes.PAIR_COUNT;
+		navMesh.getPathCache().clear();
+		return navMesh.getPath(fromTris[i], fromPoints[i], toTris[i], toPoints[i], path);
+	}
+
+	/**
+	 * Every path is taken from the path cache. Polygon paths are not cached, so they are searched every time.
+	 */
+	@Benchmark
+	public boolean getPathCached() {
+		int i = pairIndex++ % BenchmarkMeshes.PAIR_COUNT;
+		return navMesh.getPath(fromTris[i], fromPoints[i], toTris[i], toPoints[i], path);
+	}
+
+}
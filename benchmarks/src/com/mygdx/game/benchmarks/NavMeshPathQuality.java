@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.benchmarks;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.math.Vector3;
+import com.mygdx.game.pathfinding.HierarchicalPathFinder;
+import com.mygdx.game.pathfinding.NavMesh;
+import com.mygdx.game.pathfinding.NavMeshClusterGraph;
+import com.mygdx.game.pathfinding.NavMeshGraph;
+import com.mygdx.game.pathfinding.NavMeshGraphPath;
+import com.mygdx.game.pathfinding.NavMeshHeuristic;
+import com.mygdx.game.pathfinding.NavMeshPointPath;
+import com.mygdx.game.pathfinding.NavMeshPolygons;
+import com.mygdx.game.pathfinding.NavMeshPortalPathFinder;
+import com.mygdx.game.pathfinding.Triangle;
+
+/**
+ * Compares the path finding strategies of the navmesh by how many nodes they visit, how long they take and how
+ * long the resulting point paths are, over the same random pairs of connected points:
+ * <ul>
+ * <li>{@code triangles}, A* over the triangles with the centroid to centroid connection costs</li>
+ * <li>{@code portals}, A* over the shared edges with midpoint to midpoint costs, see
+ * {@link NavMeshPortalPathFinder}</li>
+ * <li>{@code clusters}, hierarchical A* over clusters of about 64 triangles, see {@link HierarchicalPathFinder}</li>
+ * <li>{@code polygons}, A* over the portals between convex polygons merged from coplanar triangles, see
+ * {@link NavMeshPolygons}</li>
+ * </ul>
+ * The triangle and cluster searches visit triangles and clusters, the portal and polygon searches visit
+ * connections.
+ * The length is that of the string pulled {@link NavMeshPointPath}, and is also given relative to the straight
+ * distance between the points, which no path can be shorter than. Run from the assets directory:
+ * <pre>
+ * NavMeshPathQuality [mesh...]
+ * </pre>
+ * The meshes are those of {@link BenchmarkMeshes}, by default {@code scene0}, {@code grid10k}, {@code maze100k}
+ * and {@code building100k}.
+ *
+ * @author jsjolund
+ */
+public class NavMeshPathQuality {
+
+	private static final String TAG = "NavMeshPathQuality";
+
+	private static final String[] DEFAULT_MESHES = {BenchmarkMeshes.SCENE0, BenchmarkMeshes.GRID_10K,
+			BenchmarkMeshes.MAZE_100K, BenchmarkMeshes.BUILDING_100K};
+	private static final String[] SEARCHES = {"triangles", "portals", "clusters", "polygons"};
+	/**
+	 * Same as the clusters created by {@link NavMesh#setHierarchicalPathfinding(boolean)}
+	 */
+	private static final int TRIANGLES_PER_CLUSTER = 64;
+	/**
+	 * Same as the polygons created by {@link NavMesh#setPolygonPathfinding(boolean)}
+	 */
+	private static final int MAX_POLYGON_VERTICES = 6;
+	/**
+	 * Rounds over all pairs are repeated for at least this long when warming up, and again when measuring the time
+	 */
+	private static final long ROUNDS_NANOS = 2000000000L;
+
+	private final NavMesh navMesh;
+	private final Triangle[] fromTris = new Triangle[BenchmarkMeshes.PAIR_COUNT];
+	private final Vector3[] fromPoints = new Vector3[BenchmarkMeshes.PAIR_COUNT];
+	private final Triangle[] toTris = new Triangle[BenchmarkMeshes.PAIR_COUNT];
+	private final Vector3[] toPoints = new Vector3[BenchmarkMeshes.PAIR_COUNT];
+
+	private final IndexedAStarPathFinder<Triangle> trianglePathFinder;
+	private final NavMeshHeuristic heuristic = new NavMeshHeuristic();
+	private final NavMeshPortalPathFinder portalPathFinder;
+	private final HierarchicalPathFinder hierarchicalPathFinder;
+	private final NavMeshPortalPathFinder polygonPathFinder;
+
+	private final NavMeshGraphPath path = new NavMeshGraphPath();
+	private final NavMeshPointPath pointPath = new NavMeshPointPath();
+
+	NavMeshPathQuality(String mesh) {
+		NavMeshGraph graph = BenchmarkMeshes.load(mesh).createGraph();
+		navMesh = new NavMesh(graph);
+		BenchmarkMeshes.pickConnectedPairs(navMesh, fromTris, fromPoints, toTris, toPoints);
+		trianglePathFinder = new IndexedAStarPathFinder<Triangle>(graph, true);
+		portalPathFinder = new NavMeshPortalPathFinder(graph);
+		float totalArea = 0;
+		for (int i = 0; i < graph.getNodeCount(); i++) {
+			totalArea += graph.getTriangleArea(i);
+		}
+		float clusterSize = (float) Math.sqrt(totalArea / graph.getNodeCount() * TRIANGLES_PER_CLUSTER);
+		hierarchicalPathFinder = new HierarchicalPathFinder(new NavMeshClusterGraph(graph, clusterSize), true);
+		polygonPathFinder = new NavMeshPortalPathFinder(new NavMeshPolygons(graph, MAX_POLYGON_VERTICES));
+	}
+
+	/**
+	 * @return Number of nodes visited by the search
+	 */
+	private int search(String search, int i) {
+		if ("triangles".equals(search)) {
+			trianglePathFinder.searchConnectionPath(fromTris[i], toTris[i], heuristic, path);
+			return trianglePathFinder.metrics.visitedNodes;
+		} else if ("portals".equals(search)) {
+			portalPathFinder.searchConnectionPath(fromTris[i], fromTris[i].centroid, toTris[i], toTris[i].centroid,
+					path);
+			return portalPathFinder.getVisitedNodes();
+		} else if ("polygons".equals(search)) {
+			polygonPathFinder.searchConnectionPath(fromTris[i], fromPoints[i], toTris[i], toPoints[i], path);
+			return polygonPathFinder.getVisitedNodes();
+		}
+		hierarchicalPathFinder.searchConnectionPath(fromTris[i], toTris[i], heuristic, path);
+		return hierarchicalPathFinder.getVisitedNodes();
+	}
+
+	/**
+	 * Search all pairs, over and over until {@link #ROUNDS_NANOS} have passed.
+	 *
+	 * @return Number of rounds
+	 */
+	private int searchRounds(String search) {
+		long start = System.nanoTime();
+		int rounds = 0;
+		do {
+			for (int i = 0; i < BenchmarkMeshes.PAIR_COUNT; i++) {
+				path.clear();
+				search(search, i);
+			}
+			rounds++;
+		} while (System.nanoTime() - start < ROUNDS_NANOS);
+		return rounds;
+	}
+
+	private void report(String mesh, String search) {
+		long visited = 0;
+		double length = 0;
+		double straight = 0;
+		for (int i = 0; i < BenchmarkMeshes.PAIR_COUNT; i++) {
+			path.clear();
+			visited += search(search, i);
+			path.startTri = fromTris[i];
+			path.setPoints(fromPoints[i], toPoints[i]);
+			pointPath.calculateForGraphPath(path);
+			for (int j = 1; j < pointPath.getSize(); j++) {
+				length += pointPath.getVector(j - 1).dst(pointPath.getVector(j));
+			}
+			straight += fromPoints[i].dst(toPoints[i]);
+		}
+		long start = System.nanoTime();
+		int rounds = searchRounds(search);
+		double micros = (System.nanoTime() - start) / 1000.0 / rounds / BenchmarkMeshes.PAIR_COUNT;
+		int n = BenchmarkMeshes.PAIR_COUNT;
+		Gdx.app.log(TAG, String.format("%-13s %-10s visited %9.1f   time %9.1f us   length %8.2f   vs straight %.4f",
+				mesh, search, (double) visited / n, micros, length / n, length / straight));
+	}
+
+	public static void main(String[] args) {
+		String[] meshes = (args.length > 0) ? args : DEFAULT_MESHES;
+		BenchmarkMeshes.initHeadless();
+		for (String mesh : meshes) {
+			NavMeshPathQuality quality = new NavMeshPathQuality(mesh);
+			for (String search : SEARCHES) {
+				// Warm up
+				quality.searchRounds(search);
+			}
+			for (String search : SEARCHES) {
+				quality.report(mesh, search);
+			}
+			quality.navMesh.dispose();
+		}
+	}
+
+}
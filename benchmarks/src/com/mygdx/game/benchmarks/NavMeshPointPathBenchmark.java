@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.benchmarks;
+
+import com.badlogic.gdx.math.Vector3;
+import com.mygdx.game.pathfinding.NavMesh;
+import com.mygdx.game.pathfinding.NavMeshGraphPath;
+import com.mygdx.game.pathfinding.NavMeshPointPath;
+import com.mygdx.game.pathfinding.Triangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link NavMeshPointPath#calculateForGraphPath(NavMeshGraphPath)}, the string pulling of triangle paths
+ * which are searched once before the benchmark.
+ *
+ * @author jsjolund
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NavMeshPointPathBenchmark {
+
+	@Param({BenchmarkMeshes.SCENE0, BenchmarkMeshes.GRID_1K, BenchmarkMeshes.GRID_10K,
+			BenchmarkMeshes.GRID_100K, BenchmarkMeshes.GRID_500K})
+	public String mesh;
+
+	private NavMesh navMesh;
+	private final NavMeshGraphPath[] graphPaths = new NavMeshGraphPath[BenchmarkMeshes.PAIR_COUNT];
+	private final NavMeshPointPath pointPath = new NavMeshPointPath();
+	private int pathIndex;
+
+	@Setup
+	public void setup() {
+		navMesh = new NavMesh(BenchmarkMeshes.load(mesh).createGraph());
+		Triangle[] fromTris = new Triangle[BenchmarkMeshes.PAIR_COUNT];
+		Vector3[] fromPoints = new Vector3[BenchmarkMeshes.PAIR_COUNT];
+		Triangle[] toTris = new Triangle[BenchmarkMeshes.PAIR_COUNT];
+		Vector3[] toPoints = new Vector3[BenchmarkMeshes.PAIR_COUNT];
+		BenchmarkMeshes.pickConnectedPairs(navMesh, fromTris, fromPoints, toTris, toPoints);
+		for (int i = 0; i < graphPaths.length; i++) {
+			graphPaths[i] = new NavMeshGraphPath();
+			navMesh.getPath(fromTris[i], fromPoints[i], toTris[i], toPoints[i], graphPaths[i]);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		navMesh.dispose();
+	}
+
+	@Benchmark
+	public int calculateForGraphPath() {
+		pointPath.calculateForGraphPath(graphPaths[pathIndex++ % graphPaths.length]);
+		return pointPath.getSize();
+	}
+
+}
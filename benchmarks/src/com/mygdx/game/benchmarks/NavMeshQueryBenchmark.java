@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.benchmarks;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Bits;
+import com.mygdx.game.pathfinding.NavMesh;
+import com.mygdx.game.pathfinding.Triangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the point queries of {@link NavMesh}, {@link NavMesh#getClosestTriangle(Vector3, Vector3, Bits)} and
+ * {@link NavMesh#getRandomTriangle()}.
+ *
+ * @author jsjolund
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NavMeshQueryBenchmark {
+
+	/**
+	 * Max distance the test points are moved from the navmesh, in each direction
+	 */
+	private static final float POINT_OFFSET = 2;
+
+	@Param({BenchmarkMeshes.SCENE0, BenchmarkMeshes.GRID_1K, BenchmarkMeshes.GRID_10K,
+			BenchmarkMeshes.GRID_100K, BenchmarkMeshes.GRID_500K})
+	public String mesh;
+
+	private NavMesh navMesh;
+	private final Vector3[] points = new Vector3[BenchmarkMeshes.PAIR_COUNT];
+	private final Bits allMeshParts = new Bits();
+	private final Vector3 closestPoint = new Vector3();
+	private int pointIndex;
+
+	@Setup
+	public void setup() {
+		navMesh = new NavMesh(BenchmarkMeshes.load(mesh).createGraph());
+		Triangle[] fromTris = new Triangle[BenchmarkMeshes.PAIR_COUNT];
+		Triangle[] toTris = new Triangle[BenchmarkMeshes.PAIR_COUNT];
+		Vector3[] toPoints = new Vector3[BenchmarkMeshes.PAIR_COUNT];
+		BenchmarkMeshes.pickConnectedPairs(navMesh, fromTris, points, toTris, toPoints);
+		// Points near the navmesh, but usually not on it
+		for (Vector3 point : points) {
+			point.add(MathUtils.random(-POINT_OFFSET, POINT_OFFSET), MathUtils.random(0, POINT_OFFSET),
+					MathUtils.random(-POINT_OFFSET, POINT_OFFSET));
+		}
+		for (int i = 0; i < navMesh.graph.getMeshPartCount(); i++) {
+			allMeshParts.set(i);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		navMesh.dispose();
+	}
+
+	/**
+	 * Vertical ray tests on each mesh part, and a closest point search if none of them hit.
+	 */
+	@Benchmark
+	public Triangle getClosestTriangle() {
+		return navMesh.getClosestTriangle(points[pointIndex++ % points.length], closestPoint, allMeshParts);
+	}
+
+	/**
+	 * Closest point search only.
+	 */
+	@Benchmark
+	public Triangle getClosestTriangleSearch() {
+		return navMesh.getClosestTriangle(points[pointIndex++ % points.length], closestPoint, null);
+	}
+
+	@Benchmark
+	public Triangle getRandomTriangle() {
+		return navMesh.getRandomTriangle();
+	}
+
+}
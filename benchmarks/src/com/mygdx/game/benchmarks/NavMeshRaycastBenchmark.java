@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.benchmarks;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+import com.badlogic.gdx.physics.bullet.Bullet;
+import com.mygdx.game.pathfinding.NavMesh;
+import com.mygdx.game.pathfinding.Triangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Bullet and Java implementations of {@link NavMesh#rayTest}, see {@link NavMesh.RaycastEngine}.
+ *
+ * @author jsjolund
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NavMeshRaycastBenchmark {
+
+	/**
+	 * Length of the rays from the camera like origins to the points on the navmesh
+	 */
+	private static final float PICK_DISTANCE = 20;
+
+	@Param({BenchmarkMeshes.SCENE0, BenchmarkMeshes.GRID_10K, BenchmarkMeshes.GRID_100K,
+			BenchmarkMeshes.BUILDING_100K})
+	public String mesh;
+
+	@Param({"BULLET", "JAVA"})
+	public NavMesh.RaycastEngine engine;
+
+	private NavMesh navMesh;
+	private final Ray[] downRays = new Ray[BenchmarkMeshes.PAIR_COUNT];
+	private final Ray[] pickRays = new Ray[BenchmarkMeshes.PAIR_COUNT];
+	private final Vector3 hitPoint = new Vector3();
+	private int rayIndex;
+
+	@Setup
+	public void setup() {
+		BenchmarkMeshes.initHeadless();
+		Bullet.init();
+		navMesh = new NavMesh(BenchmarkMeshes.load(mesh).createGraph(), true);
+		navMesh.setRaycastEngine(engine);
+		Triangle[] fromTris = new Triangle[BenchmarkMeshes.PAIR_COUNT];
+		Triangle[] toTris = new Triangle[BenchmarkMeshes.PAIR_COUNT];
+		Vector3[] fromPoints = new Vector3[BenchmarkMeshes.PAIR_COUNT];
+		Vector3[] toPoints = new Vector3[BenchmarkMeshes.PAIR_COUNT];
+		BenchmarkMeshes.pickConnectedPairs(navMesh, fromTris, fromPoints, toTris, toPoints);
+		for (int i = 0; i < BenchmarkMeshes.PAIR_COUNT; i++) {
+			Vector3 point = fromPoints[i];
+			downRays[i] = new Ray(new Vector3(point).add(0, 1, 0), new Vector3(0, -1, 0));
+			// From above and behind the point, as when picking with the mouse
+			Vector3 origin = new Vector3(point).add(0, 10, 10);
+			pickRays[i] = new Ray(origin, new Vector3(point).sub(origin).nor());
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		navMesh.dispose();
+	}
+
+	/**
+	 * Short downward rays onto the navmesh.
+	 */
+	@Benchmark
+	public Triangle rayTestDown() {
+		return navMesh.rayTest(downRays[rayIndex++ % downRays.length], 2, null, hitPoint);
+	}
+
+	/**
+	 * Long slanted rays, which pass over many triangles before hitting one.
+	 */
+	@Benchmark
+	public Triangle rayTestPick() {
+		return navMesh.rayTest(pickRays[rayIndex++ % pickRays.length], PICK_DISTANCE, null, hitPoint);
+	}
+
+}
@@ -22,6 +22,7 @@ import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.g3d.ModelCache;
 import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
 import com.badlogic.gdx.math.collision.Ray;
 import com.badlogic.gdx.physics.bullet.DebugDrawer;
 import com.badlogic.gdx.physics.bullet.collision.*;
@@ -31,6 +32,8 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Bits;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.PerformanceCounter;
+import com.badlogic.gdx.utils.PerformanceCounters;
 import com.mygdx.game.objects.*;
 import com.mygdx.game.pathfinding.Triangle;
 import com.mygdx.game.scene.GameScene;
@@ -146,6 +149,25 @@ public class GameEngine extends Engine implements Disposable, Observer {
 	private Bits visibleLayers = new Bits();
 
 	public Array<SteerableBody> characters = new Array<SteerableBody>();
+	// Bodies with a navmesh obstacle
+	private final Array<GameModelBody> obstacleBodies = new Array<GameModelBody>();
+
+	// Arrays for the batched character ground test, grown when needed
+	private float[] groundTestPoints = new float[0];
+	private float[] groundTestDistances = new float[0];
+	private int[] groundTestStartTriIndices = new int[0];
+	private int[] groundTestTriIndices = new int[0];
+
+	// Time spent in each part of update, see getPerformanceCounters
+	private final PerformanceCounters performanceCounters = new PerformanceCounters();
+	private final PerformanceCounter messagesCounter = performanceCounters.add("messages");
+	private final PerformanceCounter physicsCounter = performanceCounters.add("physics");
+	private final PerformanceCounter navMeshCounter = performanceCounters.add("navmesh");
+	private final PerformanceCounter objectsCounter = performanceCounters.add("objects");
+
+	private final Vector3 tmpObstacleMin = new Vector3();
+	private final Vector3 tmpObstacleMax = new Vector3();
+	private final Vector3 tmpClosestPoint = new Vector3();
 
 	public GameEngine() {
 		collisionConfig = new btDefaultCollisionConfiguration();
@@ -194,13 +216,43 @@ public class GameEngine extends Engine implements Disposable, Observer {
 		return visibleLayers;
 	}
 
-	public void setScene(GameScene scene) {
-		// TODO: Remove any previous scene
+	/**
+	 * Time spent in each part of {@link #update(float)}. Ticked at the end of each update, so the time of the last
+	 * update is found in {@code counter.time.latest}, in seconds.
+	 *
+	 * @return The counters, which are ticked by the engine and must not be modified
+	 */
+	public PerformanceCounters getPerformanceCounters() {
+		return performanceCounters;
+	}
+
+	/**
+	 * Add the entities of a scene to the engine, after removing those of the previous scene. The previous scene is
+	 * not disposed, it is handed back to the caller, which must dispose it when nothing refers to its objects any
+	 * more, e.g. with {@link com.mygdx.game.scene.GameSceneManager#dispose(String)}.
+	 *
+	 * @param scene The new scene
+	 * @return The previous scene, or null
+	 */
+	public GameScene setScene(GameScene scene) {
+		GameScene previousScene = this.scene;
+		Array<GameObject> objs = new Array<GameObject>();
+		if (previousScene != null) {
+			previousScene.getGameObjects(objs);
+			for (GameObject obj : objs) {
+				removeEntity(obj);
+				// Characters added by others, not from the scene, are kept
+				if (obj instanceof SteerableBody) {
+					characters.removeValue((SteerableBody) obj, true);
+				}
+			}
+			removeEntity(previousScene.navmeshBody);
+			objs.clear();
+		}
 		this.scene = scene;
 
 		addEntity(scene.navmeshBody);
 
-		Array<GameObject> objs = new Array<GameObject>();
 		scene.getGameObjects(objs);
 		for (GameObject obj : objs) {
 			addEntity(obj);
@@ -211,15 +263,17 @@ public class GameEngine extends Engine implements Disposable, Observer {
 				characters.add((SteerableBody) obj);
 			}
 		}
+		return previousScene;
 	}
 
 	@Override
 	public void dispose() {
-		collisionConfig.dispose();
-		dispatcher.dispose();
+		// The world refers to the others, so it goes first
 		dynamicsWorld.dispose();
-		broadphase.dispose();
 		constraintSolver.dispose();
+		broadphase.dispose();
+		dispatcher.dispose();
+		collisionConfig.dispose();
 		contactListener.dispose();
 		debugDrawer.dispose();
 		callback.dispose();
@@ -295,6 +349,12 @@ public class GameEngine extends Engine implements Disposable, Observer {
 				isStaticBody = false;
 				dynamicModels.add(gameObj);
 			}
+			if (gameObj.navMeshObstacle != null && scene != null && scene.navMesh != null) {
+				gameObj.body.getAabb(tmpObstacleMin, tmpObstacleMax);
+				gameObj.navMeshObstacle.bounds.set(tmpObstacleMin, tmpObstacleMax);
+				scene.navMesh.obstacles.add(gameObj.navMeshObstacle);
+				obstacleBodies.add(gameObj);
+			}
 
 		} else if (entity instanceof InvisibleBody) {
 			InvisibleBody gameObj = (InvisibleBody) entity;
@@ -333,6 +393,9 @@ public class GameEngine extends Engine implements Disposable, Observer {
 			for (btTypedConstraint constraint : gameObj.constraints) {
 				dynamicsWorld.removeConstraint(constraint);
 			}
+			if (obstacleBodies.removeValue(gameObj, true)) {
+				scene.navMesh.obstacles.remove(gameObj.navMeshObstacle);
+			}
 
 		} else if (entity instanceof InvisibleBody) {
 			InvisibleBody gameObj = (InvisibleBody) entity;
@@ -366,22 +429,103 @@ public class GameEngine extends Engine implements Disposable, Observer {
 	}
 
 	public void update(float deltaTime) {
+		messagesCounter.start();
 		// Update AI time
 		GdxAI.getTimepiece().update(deltaTime);
 
 		// Dispatch delayed messages
 		MessageManager.getInstance().update();
+		messagesCounter.stop();
 
+		physicsCounter.start();
 		// Update Bullet simulation
 		// On default fixedTimeStep = 1/60, small objects (the stick) will fall through 
 		// the ground (the ground has relatively big triangles).
 		dynamicsWorld.stepSimulation(deltaTime, 10, 1f / 240f);
+		physicsCounter.stop();
+
+		navMeshCounter.start();
+		updateCharacterTriangles();
+		updateNavMeshObstacles();
 
+		if (scene != null && scene.navMesh != null) {
+			scene.navMesh.pathRequestQueue.process(GameSettings.PATH_REQUEST_TIME_BUDGET_MICROS);
+			// Sync point for paths searched by the worker threads
+			scene.navMesh.deliverPathResults();
+		}
+		navMeshCounter.stop();
+
+		objectsCounter.start();
 		for (GameObject object : objectsById.values()) {
 			if (object != null) {
 				object.update(deltaTime);
 			}
 		}
+		objectsCounter.stop();
+
+		performanceCounters.tick(deltaTime);
+	}
+
+	/**
+	 * Moves the navmesh obstacles of the bodies which have moved noticeably. Sleeping bodies are skipped.
+	 */
+	private void updateNavMeshObstacles() {
+		for (int i = 0; i < obstacleBodies.size; i++) {
+			GameModelBody obj = obstacleBodies.get(i);
+			if (!obj.body.isActive()) {
+				continue;
+			}
+			BoundingBox bounds = obj.navMeshObstacle.bounds;
+			obj.body.getAabb(tmpObstacleMin, tmpObstacleMax);
+			if (tmpObstacleMin.epsilonEquals(bounds.min, GameSettings.NAVMESH_OBSTACLE_UPDATE_DISTANCE)
+					&& tmpObstacleMax.epsilonEquals(bounds.max, GameSettings.NAVMESH_OBSTACLE_UPDATE_DISTANCE)) {
+				continue;
+			}
+			bounds.set(tmpObstacleMin, tmpObstacleMax);
+			scene.navMesh.obstacles.update(obj.navMeshObstacle);
+		}
+	}
+
+	/**
+	 * Finds the navmesh triangle below each character in a single batched ground test, walking from the triangle
+	 * each character was on the previous frame, see
+	 * {@link com.mygdx.game.pathfinding.NavMesh#groundWalkTest(int[], float[], float[], int, int, int[])}.
+	 * Characters which are not above the navmesh get their closest triangle.
+	 */
+	private void updateCharacterTriangles() {
+		if (scene == null || scene.navMesh == null || characters.size == 0) {
+			return;
+		}
+		int count = characters.size;
+		if (groundTestDistances.length < count) {
+			groundTestPoints = new float[count * 3];
+			groundTestDistances = new float[count];
+			groundTestStartTriIndices = new int[count];
+			groundTestTriIndices = new int[count];
+		}
+		for (int i = 0; i < count; i++) {
+			SteerableBody character = characters.get(i);
+			Vector3 pos = character.getPosition();
+			groundTestPoints[i * 3] = pos.x;
+			groundTestPoints[i * 3 + 1] = pos.y;
+			groundTestPoints[i * 3 + 2] = pos.z;
+			groundTestDistances[i] = character.halfExtents.y + .2f;
+			Triangle lastTriangle = character.getLastTriangle();
+			groundTestStartTriIndices[i] = (lastTriangle == null) ? -1 : lastTriangle.triIndex;
+		}
+		scene.navMesh.groundWalkTest(groundTestStartTriIndices, groundTestPoints, groundTestDistances, count,
+				SteerableBody.TRIANGLE_WALK_MAX_STEPS, groundTestTriIndices);
+		for (int i = 0; i < count; i++) {
+			SteerableBody character = characters.get(i);
+			int triIndex = groundTestTriIndices[i];
+			if (triIndex != -1) {
+				character.setCurrentTriangle(scene.navMesh.graph.getTriangleFromGraphIndex(triIndex));
+			} else {
+				// E.g. knocked off the navmesh
+				character.setCurrentTriangle(scene.navMesh.getClosestTriangle(character.getPosition(),
+						tmpClosestPoint, null));
+			}
+		}
 	}
 
 	@Override
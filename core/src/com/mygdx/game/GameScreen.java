@@ -311,6 +311,15 @@ public class GameScreen extends LoadableGdxScreen<GdxDemo3D> {
 		stage.resize(width, height);
 	}
 
+	/**
+	 * The scene manager which owns the scenes opened by this screen, and the blueprints shared between them.
+	 *
+	 * @return The scene manager, which stays owned by this screen
+	 */
+	public GameSceneManager getSceneManager() {
+		return sceneManager;
+	}
+
 }
 
 
@@ -254,12 +254,7 @@ public class BlenderAssetManager implements Disposable {
 		String filePath = null;
 
 		if (type == Model.class) {
-			try {
-				String fileName = sceneData.models.getByName(assetId).first().model_file_name;
-				filePath = modelPath + fileName + modelExt;
-			} catch (Exception e) {
-				throw new GdxRuntimeException("Could not find asset type:'" + type + "', name:'" + assetId + "'");
-			}
+			filePath = getModelFilePath(assetId);
 
 		} else if (type == Texture.class) {
 			try {
@@ -280,6 +275,21 @@ public class BlenderAssetManager implements Disposable {
 		return assetManager.get(filePath, type);
 	}
 	
+	/**
+	 * Get the internal file path of a model asset.
+	 *
+	 * @param assetId Name of the model
+	 * @return
+	 */
+	public String getModelFilePath(String assetId) {
+		try {
+			String fileName = sceneData.models.getByName(assetId).first().model_file_name;
+			return modelPath + fileName + modelExt;
+		} catch (Exception e) {
+			throw new GdxRuntimeException("Could not find asset type:'" + Model.class + "', name:'" + assetId + "'");
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	private <S extends BlenderObjectMap<T>, T extends BlenderObject> S getTypeMap(Class<T> objClass) {
 		S map = null;
@@ -148,7 +148,16 @@ public class DogCharacter extends GameCharacter implements Telegraph {
 	}
 
 	public boolean followPath(Triangle targetTriangle, Vector3 targetPoint) {
-		return followPathSteerer.calculateNewPath(targetTriangle, targetPoint);
+		// Dogs heading for the same stick or human share the search, once there are enough of them
+		return followPathSteerer.followFlowField(targetTriangle, targetPoint);
+	}
+
+	/**
+	 * Follow a path to a target which keeps moving. The current path is repaired if the target has only moved
+	 * a short distance, otherwise a new path is calculated.
+	 */
+	public boolean followMovingTarget(Triangle targetTriangle, Vector3 targetPoint) {
+		return followPathSteerer.repairPath(targetTriangle, targetPoint) || followPath(targetTriangle, targetPoint);
 	}
 
 	@Override
@@ -27,6 +27,7 @@ import com.badlogic.gdx.physics.bullet.dynamics.btRigidBody;
 import com.badlogic.gdx.physics.bullet.dynamics.btTypedConstraint;
 import com.badlogic.gdx.physics.bullet.linearmath.btMotionState;
 import com.badlogic.gdx.utils.Array;
+import com.mygdx.game.pathfinding.NavMeshObstacle;
 
 /**
  * @author jsjolund
@@ -87,6 +88,10 @@ public class GameModelBody extends GameModel {
 	 * Physics constraints belonging to this rigid body
 	 */
 	public Array<btTypedConstraint> constraints = new Array<btTypedConstraint>();
+	/**
+	 * Footprint of the body on the navmesh, or null if the body does not affect path finding
+	 */
+	public NavMeshObstacle navMeshObstacle;
 
 	/**
 	 * Creates a model with rigid body
@@ -34,6 +34,7 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Bits;
 import com.mygdx.game.GameScreen;
 import com.mygdx.game.blender.objects.BlenderEmpty;
+import com.mygdx.game.pathfinding.Triangle;
 import com.mygdx.game.settings.GameSettings;
 import com.mygdx.game.steerers.FollowPathSteerer;
 import com.mygdx.game.utilities.AnimationListener;
@@ -482,7 +483,21 @@ public class HumanCharacter extends Ragdoll {
 		// For instance, the movement request will be ignored if the man is throwing the stick
 		HumanState state = stateMachine.getCurrentState();
 		if (state.isIdleState() || state.isMovementState()) {
-			followPathSteerer.calculateNewPath(ray, visibleLayers);
+			followPathSteerer.requestNewPath(ray, visibleLayers);
+		}
+	}
+
+	/**
+	 * Order the man to move to a point on the navmesh. The path is searched on a path worker thread.
+	 * Ignored unless the man is idle or already moving, like {@link #handleMovementRequest(Ray, Bits)}.
+	 *
+	 * @param targetTriangle The navmesh triangle of the target point
+	 * @param targetPoint    The target point
+	 */
+	public void handleMovementRequest(Triangle targetTriangle, Vector3 targetPoint) {
+		HumanState state = stateMachine.getCurrentState();
+		if (state.isIdleState() || state.isMovementState()) {
+			followPathSteerer.requestNewPath(targetTriangle, targetPoint);
 		}
 	}
 
@@ -135,8 +135,9 @@ public abstract class Ragdoll extends GameCharacter {
 	@Override
 	public void dispose() {
 		super.dispose();
-		for (btRigidBody body : bodyPartMap.keys) {
-			body.dispose();
+		// The keys array is untyped and longer than the map
+		for (int i = 0; i < bodyPartMap.size; i++) {
+			bodyPartMap.getKeyAt(i).dispose();
 		}
 		bodyPartMap.clear();
 	}
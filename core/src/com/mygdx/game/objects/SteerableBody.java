@@ -56,6 +56,11 @@ public class SteerableBody extends GameModelBody implements Steerable<Vector3> {
 		float getIdleFriction();
 	}
 
+	/**
+	 * Max number of triangle edges crossed when looking for the current triangle from the one of the previous frame.
+	 */
+	public static final int TRIANGLE_WALK_MAX_STEPS = 8;
+
 	public final SteerSettings steerSettings;
 
 	private Triangle currentTriangle;
@@ -436,6 +441,23 @@ public class SteerableBody extends GameModelBody implements Steerable<Vector3> {
 		return modelTransform.getRotation(tmpQuat, true).transform(out.set(Vector3.Z));
 	}
 	
+	/**
+	 * Sets the triangle which the steerable is standing on for the current frame, e.g. from a batched ground test,
+	 * so that {@link #getCurrentTriangle(GameScene)} does not have to look it up.
+	 */
+	public void setCurrentTriangle(Triangle triangle) {
+		currentTriangle = triangle;
+		currentTriangleFrameId = Gdx.graphics.getFrameId();
+	}
+
+	/**
+	 * Returns the triangle found the last time the current triangle was set or looked up, without looking it up
+	 * again, e.g. to start a batched walk from.
+	 */
+	public Triangle getLastTriangle() {
+		return currentTriangle;
+	}
+
 	/**
 	 * Returns the triangle which the steerable is standing on
 	 */
@@ -449,12 +471,20 @@ public class SteerableBody extends GameModelBody implements Steerable<Vector3> {
 		if (currentTriangleFrameId != frameId) {
 			currentTriangleFrameId = frameId;
 			final Vector3 pos = getPosition();
-			// This test is O(1) and, according to the coherence assumption, it should succeed most of the times
-			// since the entity is usually not far from where it was in the previous frame
-			currentTriangle = scene.navMesh.groundRayTest(pos, halfExtents.y + .2f, null);
+			// According to the coherence assumption, the entity is usually on the same triangle as in the previous
+			// frame, or a neighbour of it, so start by walking from there
+			Triangle previousTriangle = currentTriangle;
+			currentTriangle = null;
+			if (previousTriangle != null) {
+				currentTriangle = scene.navMesh.groundWalkTest(previousTriangle, pos, halfExtents.y + .2f,
+						TRIANGLE_WALK_MAX_STEPS);
+			}
+			if (currentTriangle == null) {
+				// E.g. after a teleport, or on another floor
+				currentTriangle = scene.navMesh.groundRayTest(pos, halfExtents.y + .2f, null);
+			}
 			if (currentTriangle == null) {
 				//Gdx.app.log(tag, "Frame " + frameId + ": Finding closest navigation mesh position for " + this);
-				// This test is O(n) where n is the number of meshes.
 				currentTriangle = scene.navMesh.getClosestTriangle(pos, tmpVec, null);
 			}
 			else {
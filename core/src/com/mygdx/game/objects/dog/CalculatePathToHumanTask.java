@@ -54,7 +54,7 @@ public class CalculatePathToHumanTask extends LeafTask<DogCharacter> {
 				targetDogDistanceToHuman,
 				dogTargetPoint, human.visibleOnLayers);
 
-		return  dog.followPath(dogTargetTri, dogTargetPoint) ? Status.SUCCEEDED : Status.FAILED;
+		return dog.followMovingTarget(dogTargetTri, dogTargetPoint) ? Status.SUCCEEDED : Status.FAILED;
 	}
 
 	@Override
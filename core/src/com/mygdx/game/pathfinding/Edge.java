@@ -20,6 +20,10 @@ import com.badlogic.gdx.ai.pfa.Connection;
 import com.badlogic.gdx.math.Vector3;
 
 /**
+ * A connection between two triangles through their shared edge. The cost of the connection is the distance from the
+ * centroid of the from triangle, through the midpoint of the edge, to the centroid of the to triangle. The distance
+ * within each triangle is scaled by the cost scale of the triangle in the graph, if any.
+ *
  * @author jsjolund
  */
 public class Edge implements Connection<Triangle> {
@@ -30,17 +34,41 @@ public class Edge implements Connection<Triangle> {
 	public Triangle fromNode;
 	public Triangle toNode;
 
+	private float cost;
+
 	public Edge(Triangle fromNode, Triangle toNode,
 				Vector3 rightVertex, Vector3 leftVertex) {
+		this(fromNode, toNode, rightVertex, leftVertex, (toNode == null) ? 0 : NavMeshGraphData.getTraversalCost(
+				fromNode.centroid.x, fromNode.centroid.y, fromNode.centroid.z,
+				(rightVertex.x + leftVertex.x) * 0.5f,
+				(rightVertex.y + leftVertex.y) * 0.5f,
+				(rightVertex.z + leftVertex.z) * 0.5f,
+				toNode.centroid.x, toNode.centroid.y, toNode.centroid.z));
+	}
+
+	/**
+	 * @param cost Precomputed cost, see {@link NavMeshGraphData#getTraversalCost}
+	 */
+	Edge(Triangle fromNode, Triangle toNode,
+		 Vector3 rightVertex, Vector3 leftVertex, float cost) {
 		this.fromNode = fromNode;
 		this.toNode = toNode;
 		this.rightVertex = rightVertex;
 		this.leftVertex = leftVertex;
+		this.cost = cost;
 	}
 
 	@Override
 	public float getCost() {
-		return 1;
+		return cost;
+	}
+
+	/**
+	 * Set by the graph when the cost of a triangle changes, see {@link NavMeshGraph#getTriangleCostScale(int)}.
+	 * Searches on other threads see the new cost after they read {@link NavMeshGraph#getVersion()}.
+	 */
+	void setCost(float cost) {
+		this.cost = cost;
 	}
 
 	@Override
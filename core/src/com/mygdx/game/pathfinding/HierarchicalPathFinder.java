@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedGraph;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Hierarchical path finder over a {@link NavMeshClusterGraph}.
+ * <p/>
+ * A path is first found over the clusters, using the precomputed portal costs between them. The triangle path is
+ * then refined with A* over only the triangles in the clusters along that route, the corridor, instead of the whole
+ * navmesh. Since every cluster is connected and neighbouring clusters share edges, a triangle path through the
+ * corridor exists whenever the cluster path does.
+ * <p/>
+ * The resulting path is usually slightly longer than the optimal one, but long queries expand far fewer nodes.
+ *
+ * @author jsjolund
+ */
+public class HierarchicalPathFinder {
+
+	/**
+	 * The triangle graph restricted to the clusters in the current corridor.
+	 */
+	private static class CorridorGraph implements IndexedGraph<Triangle> {
+		final NavMeshClusterGraph clusterGraph;
+		final Array<Connection<Triangle>> connections = new Array<Connection<Triangle>>();
+		// A cluster is in the corridor when its stamp equals the current search id
+		final int[] clusterStamps;
+		int searchId;
+
+		CorridorGraph(NavMeshClusterGraph clusterGraph) {
+			this.clusterGraph = clusterGraph;
+			this.clusterStamps = new int[clusterGraph.getNodeCount()];
+		}
+
+		@Override
+		public int getIndex(Triangle node) {
+			return node.triIndex;
+		}
+
+		@Override
+		public int getNodeCount() {
+			return clusterGraph.graph.getNodeCount();
+		}
+
+		@Override
+		public Array<Connection<Triangle>> getConnections(Triangle fromNode) {
+			// The path finder is done with the previous connections before asking for new ones
+			connections.clear();
+			Array<Connection<Triangle>> all = clusterGraph.graph.getConnections(fromNode);
+			for (int i = 0; i < all.size; i++) {
+				Connection<Triangle> connection = all.get(i);
+				if (clusterStamps[clusterGraph.getClusterIndex(connection.getToNode().triIndex)] == searchId) {
+					connections.add(connection);
+				}
+			}
+			return connections;
+		}
+	}
+
+	public final NavMeshClusterGraph clusterGraph;
+
+	private final CorridorGraph corridorGraph;
+	private final IndexedAStarPathFinder<NavMeshClusterGraph.Cluster> clusterPathFinder;
+	private final IndexedAStarPathFinder<Triangle> corridorPathFinder;
+	private final NavMeshClusterGraph.ClusterHeuristic clusterHeuristic = new NavMeshClusterGraph.ClusterHeuristic();
+	private final DefaultGraphPath<NavMeshClusterGraph.Cluster> clusterPath =
+			new DefaultGraphPath<NavMeshClusterGraph.Cluster>();
+
+	public HierarchicalPathFinder(NavMeshClusterGraph clusterGraph) {
+		this(clusterGraph, false);
+	}
+
+	/**
+	 * @param clusterGraph     The cluster graph
+	 * @param calculateMetrics If true, count the nodes visited by each search, see {@link #getVisitedNodes()}
+	 */
+	public HierarchicalPathFinder(NavMeshClusterGraph clusterGraph, boolean calculateMetrics) {
+		this.clusterGraph = clusterGraph;
+		corridorGraph = new CorridorGraph(clusterGraph);
+		clusterPathFinder = new IndexedAStarPathFinder<NavMeshClusterGraph.Cluster>(clusterGraph, calculateMetrics);
+		corridorPathFinder = new IndexedAStarPathFinder<Triangle>(corridorGraph, calculateMetrics);
+	}
+
+	/**
+	 * Find a triangle path between two triangles, first over clusters and then over the triangles of the
+	 * clusters along the way.
+	 *
+	 * @param fromTri   Start triangle
+	 * @param toTri     Goal triangle
+	 * @param heuristic Heuristic for the triangle search
+	 * @param out       Output path
+	 * @return True if a path was found
+	 */
+	public boolean searchConnectionPath(Triangle fromTri, Triangle toTri,
+										Heuristic<Triangle> heuristic, NavMeshGraphPath out) {
+		clusterPath.clear();
+		if (!clusterPathFinder.searchNodePath(clusterGraph.getCluster(fromTri), clusterGraph.getCluster(toTri),
+				clusterHeuristic, clusterPath)) {
+			return false;
+		}
+		corridorGraph.searchId++;
+		for (int i = 0; i < clusterPath.getCount(); i++) {
+			corridorGraph.clusterStamps[clusterPath.get(i).index] = corridorGraph.searchId;
+		}
+		return corridorPathFinder.searchConnectionPath(fromTri, toTri, heuristic, out);
+	}
+
+	/**
+	 * @return Number of clusters and triangles visited by the last search, if metrics are calculated.
+	 */
+	public int getVisitedNodes() {
+		int visited = 0;
+		if (clusterPathFinder.metrics != null) {
+			visited += clusterPathFinder.metrics.visitedNodes;
+		}
+		if (corridorPathFinder.metrics != null) {
+			visited += corridorPathFinder.metrics.visitedNodes;
+		}
+		return visited;
+	}
+
+	/**
+	 * @return Number of clusters on the route of the last search
+	 */
+	public int getCorridorLength() {
+		return clusterPath.getCount();
+	}
+
+}
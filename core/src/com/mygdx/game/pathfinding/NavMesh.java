@@ -18,22 +18,17 @@
 package com.mygdx.game.pathfinding;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.ai.pfa.Heuristic;
 import com.badlogic.gdx.graphics.g3d.Model;
 import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.math.collision.Ray;
-import com.badlogic.gdx.physics.bullet.collision.btBvhTriangleMeshShape;
 import com.badlogic.gdx.physics.bullet.collision.btCollisionShape;
-import com.badlogic.gdx.physics.bullet.collision.btTriangleIndexVertexArray;
 import com.badlogic.gdx.physics.bullet.collision.btTriangleRaycastCallback;
-import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Bits;
 import com.badlogic.gdx.utils.Disposable;
-import com.badlogic.gdx.utils.FloatArray;
-import com.mygdx.game.utilities.Constants;
-import com.mygdx.game.utilities.GeometryUtils;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 
 /**
  * @author jsjolund
@@ -42,46 +37,343 @@ public class NavMesh implements Disposable {
 
 	private static final String TAG = "NavMesh";
 
+	/**
+	 * Roughly how many triangles to put in each cluster for hierarchical path finding.
+	 */
+	private static final int TRIANGLES_PER_CLUSTER = 64;
+
+	/**
+	 * Max number of outline vertices of the polygons merged from triangles for polygon path finding.
+	 */
+	private static final int MAX_POLYGON_VERTICES = 6;
+
+	/**
+	 * Max number of triangle paths to keep in the path cache.
+	 */
+	private static final int PATH_CACHE_SIZE = 256;
+
+	/**
+	 * Which implementation to use for ray testing the navmesh.
+	 */
+	public enum RaycastEngine {
+		/**
+		 * Ray test the Bullet collision shape through {@link NavMeshRaycastCallback}.
+		 */
+		BULLET,
+		/**
+		 * Ray test a {@link NavMeshBvh} in Java, avoiding the JNI calls of the Bullet callback.
+		 */
+		JAVA
+	}
+
 	public final NavMeshGraph graph;
 
-	private final btBvhTriangleMeshShape collisionShape;
+	/**
+	 * Queue for path requests which are searched over several frames, see {@link NavMeshPathRequestQueue#process(long)}.
+	 */
+	public final NavMeshPathRequestQueue pathRequestQueue;
+
+	/**
+	 * Dynamic obstacles which block or raise the cost of the triangles below them.
+	 */
+	public final NavMeshObstacles obstacles;
+
+	/**
+	 * Shared flow fields for agents heading for the same goal.
+	 */
+	public final NavMeshFlowFields flowFields;
+
+	private final NavMeshCollisionShape collisionShape;
 	private final NavMeshRaycastCallback raycastCallback;
-	private final NavMeshHeuristic heuristic;
-	private final IndexedAStarPathFinder<Triangle> pathFinder;
+	private final NavMeshBvh bvh;
+	private RaycastEngine raycastEngine;
+	private final NavMeshSpatialIndex spatialIndex;
+	private NavMeshClusterGraph clusterGraph;
+	private boolean hierarchicalPathfinding = false;
+	private NavMeshPolygons polygons;
+	private boolean polygonPathfinding = false;
+	private final NavMeshPathCache pathCache = new NavMeshPathCache(PATH_CACHE_SIZE);
+	private NavMeshPathWorkerPool pathWorkerPool;
+	private NavMeshLandmarks landmarks;
+	private Heuristic<Triangle> heuristic = new NavMeshHeuristic();
+
+	/**
+	 * Query context for searches made on the game thread
+	 */
+	private final NavMeshQuery query;
+
+	/**
+	 * Cumulative triangle areas within each mesh part, indexed by graph triangle index. The total area
+	 * of a mesh part is found at the index of its last triangle.
+	 */
+	private final float[] triangleAreaSums;
 
 	// Temporary memory used by various methods for calculations
-	private final FloatArray tmpFloatArrayGetRandomTriangle = new FloatArray();
-	private final Array<Triangle> tmpTriArrayGetRandomTriangle = new Array<Triangle>();
 	private final Bits tmpBitsGetRandomTriangle = new Bits();
 	private final Bits tmpBitsVerticalRayTest = new Bits();
 	private final Vector3 tmpGetClosestTriangle = new Vector3();
-	private final Vector3 tmpVerticalRayTest1 = new Vector3();
-	private final Vector3 tmpVerticalRayTest2 = new Vector3();
-	private final Ray tmpRayVerticalRayTest = new Ray();
 	private final Vector3 tmpVecgetClosestValidPointAt = new Vector3();
 	private final Vector3 tmpRayTestRayTo = new Vector3();
 	private final Vector3 tmpRayTestRayFrom = new Vector3();
+	private final Ray tmpRayBatchRayTest = new Ray();
+	private final Vector3 tmpVecBatchRayTest = new Vector3();
 	private final Vector3 navMeshRayFrom = new Vector3();
 	private final Vector3 navMeshRayTo = new Vector3();
 
 	public NavMesh(Model model) {
-		btTriangleIndexVertexArray vertexArray = new btTriangleIndexVertexArray(model.meshParts);
-		collisionShape = new btBvhTriangleMeshShape(vertexArray, true);
-		raycastCallback = new NavMeshRaycastCallback(navMeshRayFrom, navMeshRayTo);
-		raycastCallback.setFlags(btTriangleRaycastCallback.EFlags.kF_FilterBackfaces);
-		graph = new NavMeshGraph(model);
-		pathFinder = new IndexedAStarPathFinder<Triangle>(graph);
-		heuristic = new NavMeshHeuristic();
+		this(model, 0);
+	}
+
+	/**
+	 * @param model       The navigation mesh model
+	 * @param weldEpsilon Vertices closer to each other than this distance are treated as the same vertex
+	 *                    when connecting the triangles in the graph.
+	 */
+	public NavMesh(Model model, float weldEpsilon) {
+		this(new NavMeshGraph(model, weldEpsilon), true);
+	}
+
+	/**
+	 * Creates a navmesh without a Bullet collision shape, e.g. for headless tools and benchmarks.
+	 * Only the {@link RaycastEngine#JAVA} ray test engine can be used.
+	 *
+	 * @param graph The triangle graph
+	 */
+	public NavMesh(NavMeshGraph graph) {
+		this(graph, false);
+	}
+
+	/**
+	 * Creates a navmesh, optionally with a Bullet collision shape created from the graph data. The shape is
+	 * split into several 16-bit indexed meshes when needed, so graphs with more than 65536 vertices can have
+	 * one, see {@link NavMeshCollisionShape}. Bullet must be initialized if a shape is created.
+	 *
+	 * @param graph       The triangle graph, e.g. read from a {@link NavMeshCache}
+	 * @param createShape Whether to create the Bullet collision shape
+	 */
+	public NavMesh(NavMeshGraph graph, boolean createShape) {
+		if (createShape) {
+			collisionShape = new NavMeshCollisionShape(graph.getData());
+			raycastCallback = new NavMeshRaycastCallback(collisionShape, navMeshRayFrom, navMeshRayTo);
+			raycastCallback.setFlags(btTriangleRaycastCallback.EFlags.kF_FilterBackfaces);
+			raycastEngine = RaycastEngine.BULLET;
+		} else {
+			collisionShape = null;
+			raycastCallback = null;
+			raycastEngine = RaycastEngine.JAVA;
+		}
+		this.graph = graph;
+		spatialIndex = new NavMeshSpatialIndex(graph);
+		bvh = new NavMeshBvh(graph);
+		triangleAreaSums = createTriangleAreaSums(graph);
+		query = new NavMeshQuery(this);
+		pathRequestQueue = new NavMeshPathRequestQueue(graph, heuristic, pathCache);
+		obstacles = new NavMeshObstacles(this);
+		flowFields = new NavMeshFlowFields(graph);
 	}
 
+	private static float[] createTriangleAreaSums(NavMeshGraph graph) {
+		float[] areaSums = new float[graph.getNodeCount()];
+		for (int mpIndex = 0; mpIndex < graph.getMeshPartCount(); mpIndex++) {
+			int triOffset = graph.getTriangleOffset(mpIndex);
+			float areaSum = 0;
+			for (int i = triOffset; i < triOffset + graph.getTriangleCount(mpIndex); i++) {
+				areaSum += graph.getTriangleArea(i);
+				areaSums[i] = areaSum;
+			}
+		}
+		return areaSums;
+	}
+
+	private float getMeshPartArea(int meshPartIndex) {
+		int triCount = graph.getTriangleCount(meshPartIndex);
+		return (triCount == 0) ? 0 : triangleAreaSums[graph.getTriangleOffset(meshPartIndex) + triCount - 1];
+	}
+
+	/**
+	 * @return The Bullet collision shape, or null if the navmesh was created without one
+	 */
 	public btCollisionShape getShape() {
-		return collisionShape;
+		return (collisionShape != null) ? collisionShape.getShape() : null;
+	}
+
+	public boolean isHierarchicalPathfinding() {
+		return hierarchicalPathfinding;
+	}
+
+	/**
+	 * Set whether {@link #getPath} should search over clusters of triangles first, and then only over the
+	 * triangles along the found route. Faster for long paths, but the path may be slightly longer.
+	 * The clusters are created the first time this is enabled.
+	 *
+	 * @param hierarchicalPathfinding
+	 */
+	public void setHierarchicalPathfinding(boolean hierarchicalPathfinding) {
+		if (this.hierarchicalPathfinding != hierarchicalPathfinding) {
+			pathCache.clear();
+		}
+		this.hierarchicalPathfinding = hierarchicalPathfinding;
+		if (hierarchicalPathfinding && clusterGraph == null) {
+			float totalArea = 0;
+			for (int i = 0; i < graph.getNodeCount(); i++) {
+				totalArea += graph.getTriangleArea(i);
+			}
+			float clusterSize = (float) Math.sqrt(totalArea / Math.max(1, graph.getNodeCount()) * TRIANGLES_PER_CLUSTER);
+			clusterGraph = new NavMeshClusterGraph(graph, Math.max(clusterSize, 0.01f));
+			Gdx.app.debug(TAG, "Created " + clusterGraph.getNodeCount()
+					+ " clusters of size " + clusterSize);
+		}
+	}
+
+	public boolean isPolygonPathfinding() {
+		return polygonPathfinding;
+	}
+
+	/**
+	 * Set whether {@link #getPath} should search over convex polygons merged from coplanar triangles, see
+	 * {@link NavMeshPolygons}, instead of over the triangles. Meshes made of large flat areas have far fewer
+	 * polygons than triangles to search, and the point path is string pulled through the portals between the
+	 * polygons. Takes precedence over hierarchical path finding.
+	 * <p/>
+	 * Polygon paths are not cached, and can not be repaired, see {@link NavMeshGraphPath#polygons}. An obstacle on
+	 * part of a polygon affects the cost of the whole polygon, so this is best suited for meshes with few obstacles.
+	 * The polygons are created the first time this is enabled.
+	 *
+	 * @param polygonPathfinding
+	 */
+	public void setPolygonPathfinding(boolean polygonPathfinding) {
+		this.polygonPathfinding = polygonPathfinding;
+		if (polygonPathfinding && polygons == null) {
+			polygons = new NavMeshPolygons(graph, MAX_POLYGON_VERTICES);
+		}
+	}
+
+	/**
+	 * @return The polygons for polygon path finding, or null if it has never been enabled
+	 */
+	public NavMeshPolygons getPolygons() {
+		return polygons;
+	}
+
+	public NavMeshLandmarks getLandmarks() {
+		return landmarks;
+	}
+
+	/**
+	 * Set landmark tables for the path finding heuristic, see {@link NavMeshLandmarks}. The landmarks must have
+	 * been created for the graph of this navmesh. Searches started from now on use the new heuristic.
+	 *
+	 * @param landmarks The landmarks, or null to use the straight distance heuristic
+	 */
+	public void setLandmarks(NavMeshLandmarks landmarks) {
+		if (landmarks != null && landmarks.graph != graph) {
+			throw new IllegalArgumentException("Landmarks were created for another graph");
+		}
+		this.landmarks = landmarks;
+		heuristic = (landmarks != null) ? landmarks.getHeuristic() : new NavMeshHeuristic();
+		pathRequestQueue.setHeuristic(heuristic);
+	}
+
+	/**
+	 * @return The heuristic used for path finding. Has no state, so it can be used from any thread.
+	 */
+	public Heuristic<Triangle> getHeuristic() {
+		return heuristic;
+	}
+
+	/**
+	 * Triangle paths found by {@link #getPath}, keyed by start and goal triangle.
+	 * Must be cleared if the graph is modified.
+	 *
+	 * @return
+	 */
+	public NavMeshPathCache getPathCache() {
+		return pathCache;
+	}
+
+	/**
+	 * Worker threads for path requests which are searched in parallel, created the first time this is called.
+	 * Results are delivered by {@link #deliverPathResults()}.
+	 *
+	 * @return
+	 */
+	public NavMeshPathWorkerPool getPathWorkerPool() {
+		if (pathWorkerPool == null) {
+			pathWorkerPool = new NavMeshPathWorkerPool(this, Runtime.getRuntime().availableProcessors() - 1);
+		}
+		return pathWorkerPool;
+	}
+
+	/**
+	 * Deliver the paths found by the worker pool since the last call, if it has been created.
+	 * Must be called on the game thread, once per frame.
+	 */
+	public void deliverPathResults() {
+		if (pathWorkerPool != null) {
+			pathWorkerPool.deliverResults();
+		}
+	}
+
+	/**
+	 * Cancel a path request, whether it is pending in the path request queue or in the worker pool.
+	 *
+	 * @param request
+	 */
+	public void cancelPathRequest(NavMeshPathRequest request) {
+		if (request.workerPool != null) {
+			request.workerPool.cancel(request);
+		} else {
+			pathRequestQueue.cancel(request);
+		}
+	}
+
+	/**
+	 * Create a new query context, for path finding and ray tests on another thread.
+	 *
+	 * @return
+	 */
+	public NavMeshQuery createQuery() {
+		return new NavMeshQuery(this);
+	}
+
+	NavMeshBvh getBvh() {
+		return bvh;
+	}
+
+	NavMeshSpatialIndex getSpatialIndex() {
+		return spatialIndex;
+	}
+
+	NavMeshClusterGraph getClusterGraph() {
+		return clusterGraph;
+	}
+
+	public RaycastEngine getRaycastEngine() {
+		return raycastEngine;
+	}
+
+	/**
+	 * Set which implementation {@link #rayTest} should use. Both return the same triangles. The default is
+	 * {@link RaycastEngine#BULLET} if the navmesh has a collision shape, otherwise {@link RaycastEngine#JAVA}.
+	 *
+	 * @param raycastEngine
+	 */
+	public void setRaycastEngine(RaycastEngine raycastEngine) {
+		if (raycastEngine == RaycastEngine.BULLET && collisionShape == null) {
+			throw new GdxRuntimeException("Navmesh has no collision shape");
+		}
+		this.raycastEngine = raycastEngine;
 	}
 
 	@Override
 	public void dispose() {
-		collisionShape.dispose();
-		raycastCallback.dispose();
+		if (pathWorkerPool != null) {
+			pathWorkerPool.dispose();
+		}
+		if (collisionShape != null) {
+			collisionShape.dispose();
+			raycastCallback.dispose();
+		}
 	}
 
 	/**
@@ -93,19 +385,40 @@ public class NavMesh implements Disposable {
 	 * @return
 	 */
 	public Triangle rayTest(Ray ray, float distance, Bits allowedMeshParts) {
+		return rayTest(ray, distance, allowedMeshParts, null);
+	}
+
+	/**
+	 * Get the triangle which this ray intersects, and the point of intersection.
+	 * Returns null if no triangle is intersected.
+	 *
+	 * @param ray
+	 * @param distance
+	 * @param allowedMeshParts
+	 * @param out              Output for the point of intersection, can be null.
+	 * @return
+	 */
+	public Triangle rayTest(Ray ray, float distance, Bits allowedMeshParts, Vector3 out) {
 		Triangle hitTriangle = null;
 
 		tmpRayTestRayFrom.set(ray.origin);
 		tmpRayTestRayTo.set(ray.direction).scl(distance).add(tmpRayTestRayFrom);
+		if (raycastEngine == RaycastEngine.JAVA) {
+			return bvh.rayTest(tmpRayTestRayFrom, tmpRayTestRayTo, allowedMeshParts, out);
+		}
 		raycastCallback.setHitFraction(1);
 		raycastCallback.clearReport();
 		raycastCallback.setFrom(tmpRayTestRayFrom);
 		raycastCallback.setTo(tmpRayTestRayTo);
 		raycastCallback.setAllowedMeshPartIndices(allowedMeshParts);
-		collisionShape.performRaycast(raycastCallback, tmpRayTestRayFrom, tmpRayTestRayTo);
+		collisionShape.getShape().performRaycast(raycastCallback, tmpRayTestRayFrom, tmpRayTestRayTo);
 
 		if (raycastCallback.triangleIndex != -1) {
-			hitTriangle = graph.getTriangleFromMeshPart(raycastCallback.partId, raycastCallback.triangleIndex);
+			hitTriangle = graph.getTriangleFromGraphIndex(
+					collisionShape.getTriangleIndex(raycastCallback.partId, raycastCallback.triangleIndex));
+			if (out != null) {
+				out.set(tmpRayTestRayTo).sub(tmpRayTestRayFrom).scl(raycastCallback.hitFraction).add(tmpRayTestRayFrom);
+			}
 		}
 		return hitTriangle;
 	}
@@ -159,7 +472,9 @@ public class NavMesh implements Disposable {
 	}
 
 	/**
-	 * Calculate a triangle graph path between two triangles.
+	 * Calculate a triangle graph path between two triangles. Paths between the same pair of triangles
+	 * are taken from the path cache, so that only the point path has to be calculated again.
+	 * With polygon path finding, a polygon path is searched instead, see {@link #setPolygonPathfinding(boolean)}.
 	 *
 	 * @param fromTri
 	 * @param fromPoint
@@ -172,9 +487,24 @@ public class NavMesh implements Disposable {
 						   Triangle toTri, Vector3 toPoint,
 						   NavMeshGraphPath path) {
 		path.clear();
-		if (pathFinder.searchConnectionPath(fromTri, toTri, heuristic, path)) {
-			path.start = new Vector3(fromPoint);
-			path.end = new Vector3(toPoint);
+		if (!graph.isConnected(fromTri, toTri)) {
+			Gdx.app.debug(TAG, "To triangle not reachable.");
+			return false;
+		}
+		boolean found;
+		if (polygonPathfinding) {
+			found = query.searchPolygonPath(fromTri, fromPoint, toTri, toPoint, polygons, path);
+		} else {
+			found = pathCache.get(fromTri, toTri, path);
+			if (!found) {
+				found = query.searchConnectionPath(fromTri, toTri, hierarchicalPathfinding, path);
+				if (found) {
+					pathCache.put(fromTri, toTri, path);
+				}
+			}
+		}
+		if (found) {
+			path.setPoints(fromPoint, toPoint);
 			path.startTri = fromTri;
 			return true;
 		}
@@ -182,6 +512,29 @@ public class NavMesh implements Disposable {
 		return false;
 	}
 
+	/**
+	 * Repair a path after its goal has moved a short distance, see {@link NavMeshQuery#repairPath}.
+	 * If the path can not be repaired it is not modified, and a new path should be calculated with
+	 * {@link #getPath(Triangle, Vector3, Triangle, Vector3, NavMeshGraphPath)}.
+	 *
+	 * @param fromTri         The triangle of the agent following the path
+	 * @param fromPoint       The position of the agent
+	 * @param toTri           The new goal triangle
+	 * @param toPoint         The new goal point
+	 * @param maxGoalDistance Max distance the goal may have moved
+	 * @param path            The path to repair
+	 * @return True if the path was repaired
+	 */
+	public boolean repairPath(Triangle fromTri, Vector3 fromPoint,
+							  Triangle toTri, Vector3 toPoint,
+							  float maxGoalDistance, NavMeshGraphPath path) {
+		if (query.repairPath(fromTri, toTri, toPoint, maxGoalDistance, path)) {
+			path.setPoints(fromPoint, toPoint);
+			return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Get a random triangle anywhere on the navigation mesh.
 	 * The probability distribution is even in world space, as opposed to triangle index,
@@ -211,37 +564,42 @@ public class NavMesh implements Disposable {
 	 * @return A random triangle.
 	 */
 	public Triangle getRandomTriangle(Bits allowedMeshParts) {
-		tmpFloatArrayGetRandomTriangle.clear();
-		tmpFloatArrayGetRandomTriangle.ordered = true;
-		tmpTriArrayGetRandomTriangle.clear();
-		tmpTriArrayGetRandomTriangle.ordered = true;
-
 		// To get a uniform distribution over the triangles in the mesh parts
 		// we must take areas of the triangles into account.
+		// First pick a mesh part weighted by its total area, then a triangle in it.
+		float totalArea = 0;
+		int lastMeshPart = -1;
 		for (int mpIndex = 0; mpIndex < graph.getMeshPartCount(); mpIndex++) {
-			if (allowedMeshParts.get(mpIndex)) {
-				for (int triIndex = 0; triIndex < graph.getTriangleCount(mpIndex); triIndex++) {
-					Triangle tri = graph.getTriangleFromMeshPart(mpIndex, triIndex);
-					float integratedArea = 0;
-					if (tmpFloatArrayGetRandomTriangle.size > 0) {
-						integratedArea = tmpFloatArrayGetRandomTriangle.get(tmpFloatArrayGetRandomTriangle.size - 1);
-					}
-					tmpFloatArrayGetRandomTriangle.add(integratedArea + tri.area());
-					tmpTriArrayGetRandomTriangle.add(tri);
-				}
+			if (allowedMeshParts.get(mpIndex) && getMeshPartArea(mpIndex) > 0) {
+				totalArea += getMeshPartArea(mpIndex);
+				lastMeshPart = mpIndex;
 			}
 		}
-		if (tmpFloatArrayGetRandomTriangle.size == 0) {
+		if (lastMeshPart == -1) {
 			return null;
 		}
-		float r = MathUtils.random(0f, tmpFloatArrayGetRandomTriangle.get(tmpFloatArrayGetRandomTriangle.size - 1));
-		int i;
-		for (i = 0; i < tmpFloatArrayGetRandomTriangle.size; i++) {
-			if (r <= tmpFloatArrayGetRandomTriangle.get(i)) {
-				break;
+		float r = MathUtils.random(0f, totalArea);
+		int mpIndex;
+		for (mpIndex = 0; mpIndex < lastMeshPart; mpIndex++) {
+			if (allowedMeshParts.get(mpIndex) && getMeshPartArea(mpIndex) > 0) {
+				if (r < getMeshPartArea(mpIndex)) {
+					break;
+				}
+				r -= getMeshPartArea(mpIndex);
+			}
+		}
+		// Binary search for the first triangle whose cumulative area is larger than r
+		int low = graph.getTriangleOffset(mpIndex);
+		int high = low + graph.getTriangleCount(mpIndex) - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (r < triangleAreaSums[mid]) {
+				high = mid;
+			} else {
+				low = mid + 1;
 			}
 		}
-		return tmpTriArrayGetRandomTriangle.get(i);
+		return graph.getTriangleFromGraphIndex(low);
 	}
 
 	/**
@@ -268,19 +626,13 @@ public class NavMesh implements Disposable {
 	 * @return The triangle, or null if ray did not hit any triangles.
 	 */
 	public Triangle verticalRayTest(Vector3 testPoint, Vector3 out, Bits allowedMeshParts) {
-		tmpRayVerticalRayTest.set(
-				tmpVerticalRayTest1.set(Constants.V3_UP).scl(500).add(testPoint),
-				tmpVerticalRayTest2.set(Constants.V3_DOWN));
-		Triangle hitTri = rayTest(tmpRayVerticalRayTest, 1000, allowedMeshParts);
+		Triangle hitTri = spatialIndex.getTriangleBelow(testPoint.x, testPoint.z,
+				testPoint.y - 500, testPoint.y + 500, allowedMeshParts, out);
 		if (hitTri == null) {
 			// TODO: Perhaps this should be Nan?
 			out.set(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
-			return null;
-		} else {
-
-			Intersector.intersectRayTriangle(tmpRayVerticalRayTest, hitTri.a, hitTri.b, hitTri.c, out);
-			return hitTri;
 		}
+		return hitTri;
 	}
 
 	/**
@@ -293,22 +645,156 @@ public class NavMesh implements Disposable {
 	 * @return The triangle, or null if ray did not hit any triangles.
 	 */
 	public Triangle groundRayTest(Vector3 testPoint, float distance, Bits allowedMeshParts) {
-		tmpRayVerticalRayTest.set(
-				tmpVerticalRayTest1.set(testPoint),
-				tmpVerticalRayTest2.set(Constants.V3_DOWN));
-		return rayTest(tmpRayVerticalRayTest, distance, allowedMeshParts);
+		return spatialIndex.getTriangleBelow(testPoint.x, testPoint.z,
+				testPoint.y - distance, testPoint.y, allowedMeshParts, null);
 	}
 
 	/**
-	 * Ray tests the navmesh along up/down axis, if no triangles are found, it makes an
-	 * exhaustive search of all triangles on the navmesh.
+	 * Same as {@link #groundRayTest(Vector3, float, Bits)}, but the triangle is found by walking across shared edges
+	 * from a triangle near the point, see {@link NavMeshSpatialIndex#walkToTriangleBelow}.
 	 *
-	 * TODO: Exhaustive search is somewhat expensive depending on amount of
-	 * triangles in navmesh, maybe something like quadtrees can be used?
+	 * @param startTri  Triangle to start from, e.g. the one found for the same agent the previous frame
+	 * @param testPoint The origin to the ray
+	 * @param distance  The length of the ray toward the ground
+	 * @param maxSteps  Max number of edges to cross
+	 * @return The triangle, or null if the walk did not find it.
+	 */
+	public Triangle groundWalkTest(Triangle startTri, Vector3 testPoint, float distance, int maxSteps) {
+		return spatialIndex.walkToTriangleBelow(startTri, testPoint.x, testPoint.z,
+				testPoint.y - distance, testPoint.y, maxSteps, null);
+	}
+
+	/**
+	 * Ray test a batch of rays in one call. Rays are read from, and results are written to, flat arrays
+	 * provided by the caller, so nothing is allocated per ray.
+	 *
+	 * @param origins          Ray origins, three floats per ray
+	 * @param directions       Normalized ray directions, three floats per ray
+	 * @param distances        Length of each ray
+	 * @param allowedMeshParts Which mesh parts each ray should test. Null, or a null element,
+	 *                         if all mesh parts should be tested.
+	 * @param count            Number of rays
+	 * @param outTriIndices    Output for the graph index of the hit triangle of each ray, or -1 if nothing was hit
+	 * @param outHitPoints     Output for the points of intersection, three floats per ray. Can be null.
+	 * @return The number of rays which hit a triangle
+	 */
+	public int rayTest(float[] origins, float[] directions, float[] distances, Bits[] allowedMeshParts,
+					   int count, int[] outTriIndices, float[] outHitPoints) {
+		int hits = 0;
+		for (int i = 0; i < count; i++) {
+			int v = i * 3;
+			Bits meshParts = (allowedMeshParts == null) ? null : allowedMeshParts[i];
+			int triIndex;
+			if (raycastEngine == RaycastEngine.JAVA) {
+				float distance = distances[i];
+				triIndex = bvh.rayTest(origins[v], origins[v + 1], origins[v + 2],
+						origins[v] + directions[v] * distance,
+						origins[v + 1] + directions[v + 1] * distance,
+						origins[v + 2] + directions[v + 2] * distance,
+						meshParts, outHitPoints, v);
+			} else {
+				tmpRayBatchRayTest.origin.set(origins[v], origins[v + 1], origins[v + 2]);
+				tmpRayBatchRayTest.direction.set(directions[v], directions[v + 1], directions[v + 2]);
+				Triangle tri = rayTest(tmpRayBatchRayTest, distances[i], meshParts, tmpVecBatchRayTest);
+				triIndex = (tri == null) ? -1 : tri.triIndex;
+				if (tri != null && outHitPoints != null) {
+					outHitPoints[v] = tmpVecBatchRayTest.x;
+					outHitPoints[v + 1] = tmpVecBatchRayTest.y;
+					outHitPoints[v + 2] = tmpVecBatchRayTest.z;
+				}
+			}
+			outTriIndices[i] = triIndex;
+			if (triIndex != -1) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Make a batch of ray tests along the up/down axis, each with origin at a given point and spanning down
+	 * toward the ground for the specified distance. Points are read from, and results are written to,
+	 * flat arrays provided by the caller, so nothing is allocated per point.
+	 *
+	 * @param points           Ray origins, three floats per ray
+	 * @param distances        The length of each ray toward the ground
+	 * @param allowedMeshParts Which mesh parts each ray should test. Null, or a null element,
+	 *                         if all mesh parts should be tested.
+	 * @param count            Number of rays
+	 * @param outTriIndices    Output for the graph index of the hit triangle of each ray, or -1 if nothing was hit
+	 * @param outHitPoints     Output for the points of intersection, three floats per ray. Can be null.
+	 * @return The number of rays which hit a triangle
+	 */
+	public int groundRayTest(float[] points, float[] distances, Bits[] allowedMeshParts,
+							 int count, int[] outTriIndices, float[] outHitPoints) {
+		int hits = 0;
+		for (int i = 0; i < count; i++) {
+			int v = i * 3;
+			Bits meshParts = (allowedMeshParts == null) ? null : allowedMeshParts[i];
+			Triangle tri = spatialIndex.getTriangleBelow(points[v], points[v + 2],
+					points[v + 1] - distances[i], points[v + 1], meshParts, tmpVecBatchRayTest);
+			if (tri == null) {
+				outTriIndices[i] = -1;
+				continue;
+			}
+			outTriIndices[i] = tri.triIndex;
+			if (outHitPoints != null) {
+				outHitPoints[v] = tmpVecBatchRayTest.x;
+				outHitPoints[v + 1] = tmpVecBatchRayTest.y;
+				outHitPoints[v + 2] = tmpVecBatchRayTest.z;
+			}
+			hits++;
+		}
+		return hits;
+	}
+
+	/**
+	 * Same as {@link #groundRayTest(float[], float[], Bits[], int, int[], float[])}, but each triangle is first
+	 * searched for by walking across shared edges from a start triangle, see {@link #groundWalkTest}. Only the
+	 * points whose walk fails are looked up in the spatial index.
+	 *
+	 * @param startTriIndices Graph index of the triangle to start each walk from, e.g. the one found for the same
+	 *                        agent the previous frame, or -1 to only look up the point
+	 * @param points          Ray origins, three floats per ray
+	 * @param distances       The length of each ray toward the ground
+	 * @param count           Number of rays
+	 * @param maxSteps        Max number of edges to cross in each walk
+	 * @param outTriIndices   Output for the graph index of the hit triangle of each ray, or -1 if nothing was hit
+	 * @return The number of rays which hit a triangle
+	 */
+	public int groundWalkTest(int[] startTriIndices, float[] points, float[] distances, int count, int maxSteps,
+							  int[] outTriIndices) {
+		int hits = 0;
+		for (int i = 0; i < count; i++) {
+			int v = i * 3;
+			float x = points[v];
+			float z = points[v + 2];
+			float minY = points[v + 1] - distances[i];
+			float maxY = points[v + 1];
+			Triangle tri = null;
+			if (startTriIndices[i] != -1) {
+				tri = spatialIndex.walkToTriangleBelow(graph.getTriangleFromGraphIndex(startTriIndices[i]),
+						x, z, minY, maxY, maxSteps, null);
+			}
+			if (tri == null) {
+				tri = spatialIndex.getTriangleBelow(x, z, minY, maxY, null, null);
+			}
+			outTriIndices[i] = (tri == null) ? -1 : tri.triIndex;
+			if (tri != null) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Ray tests the navmesh along up/down axis, if no triangles are found, it searches
+	 * the spatial index for the closest point on any of the allowed triangles.
 	 *
 	 * @param fromPoint        Test point
 	 * @param closestPoint     Output for closest point on closest triangle
-	 * @param allowedMeshParts Indices of which mesh parts to ray test. If null, do only an exhaustive search.
+	 * @param allowedMeshParts Indices of which mesh parts to test. If null, do only a closest point search
+	 *                         over all mesh parts.
 	 * @return The closest triangle
 	 */
 	public Triangle getClosestTriangle(Vector3 fromPoint,
@@ -332,22 +818,25 @@ public class NavMesh implements Disposable {
 			}
 		}
 
-		// Exhaustive scan through all the tris to find the closest tri and point
 		if (fromTri == null) {
-			for (int i = 0; i < graph.getNodeCount(); i++) {
-				Triangle tri = graph.getTriangleFromGraphIndex(i);
-				float dst2 = GeometryUtils.getClosestPointOnTriangle(tri.a, tri.b, tri.c, fromPoint, tmpGetClosestTriangle);
-
-				if (dst2 < minDst2) {
-					minDst2 = dst2;
-					fromTri = tri;
-					closestPoint.set(tmpGetClosestTriangle);
-				}
-			}
+			fromTri = spatialIndex.getClosestTriangle(fromPoint, allowedMeshParts, closestPoint);
 		}
 		return fromTri;
 	}
 
+	/**
+	 * Get the closest point to a target which can be reached from a triangle, e.g. when the target is on a part
+	 * of the navmesh which is not connected to the triangle. Obstacles are not taken into account.
+	 *
+	 * @param fromTri      The triangle to reach the point from
+	 * @param targetPoint  The target point
+	 * @param closestPoint Output for the closest reachable point
+	 * @return The triangle of the closest reachable point
+	 */
+	public Triangle getClosestReachablePoint(Triangle fromTri, Vector3 targetPoint, Vector3 closestPoint) {
+		return spatialIndex.getClosestTriangle(targetPoint, null, graph.getComponent(fromTri.triIndex), closestPoint);
+	}
+
 	/**
 	 * Find a valid point on the navmesh, between the reference point and a target
 	 * point 'radius' distance from it, in the reference direction.
@@ -356,8 +845,8 @@ public class NavMesh implements Disposable {
 	 * @param referenceDirection The direction from the reference point to set target point at
 	 * @param radius             The distance from the reference point to the target point
 	 * @param out                The closest triangle
-	 * @param allowedMeshParts   Indices of which mesh parts to ray test. If null, an exhaustive check
-	 *                           of all triangles is always done.
+	 * @param allowedMeshParts   Indices of which mesh parts to test. If null, the closest point
+	 *                           on any triangle is used.
 	 * @return
 	 */
 	public Triangle getClosestValidPointAt(Vector3 referencePoint,
@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Bits;
+
+/**
+ * Bounding volume hierarchy over the navmesh triangles, for ray testing the navmesh without going through Bullet.
+ * There is one tree for each mesh part, so that mesh parts which are not allowed in a query can be skipped entirely.
+ * <p/>
+ * The nodes are stored in flat arrays in depth first order. Each node stores the index of the node following its
+ * subtree, so the tree can be traversed without a stack. Ray tests do not allocate or use any temporary fields,
+ * which makes them safe to call from several threads at once.
+ * <p/>
+ * Ray/triangle intersection follows Bullet's btTriangleRaycastCallback with back faces filtered, so the same
+ * triangle is hit as with {@link NavMeshRaycastCallback}.
+ *
+ * @author jsjolund
+ */
+public class NavMeshBvh {
+
+	/**
+	 * Max number of triangles in a leaf node.
+	 */
+	private static final int MAX_LEAF_TRIANGLES = 4;
+
+	private final NavMeshGraph graph;
+
+	// Node data, indexed by node
+	private final float[] nodeBounds; // minX, minY, minZ, maxX, maxY, maxZ
+	private final int[] nodeTriStart;
+	private final int[] nodeTriCount; // Zero for inner nodes
+	private final int[] nodeSkip; // Index of the node following the subtree
+	private int nodeCount;
+
+	// Triangle data, sorted in leaf order
+	private final int[] triIndices;
+	private final float[] triVertices; // ax, ay, az, bx, by, bz, cx, cy, cz
+
+	// Root node index and node count for each mesh part
+	private final int[] meshPartRoots;
+	private final int[] meshPartNodeCounts;
+
+	// Only used while building
+	private float[] centroids;
+
+	public NavMeshBvh(NavMeshGraph graph) {
+		this.graph = graph;
+		int triCount = graph.getNodeCount();
+		// A binary tree with at most one triangle per leaf has fewer than 2n nodes, per mesh part
+		int maxNodes = 2 * triCount + graph.getMeshPartCount();
+		nodeBounds = new float[maxNodes * 6];
+		nodeTriStart = new int[maxNodes];
+		nodeTriCount = new int[maxNodes];
+		nodeSkip = new int[maxNodes];
+
+		triIndices = new int[triCount];
+		centroids = new float[triCount * 3];
+		for (int i = 0; i < triCount; i++) {
+			triIndices[i] = i;
+			Vector3 centroid = graph.getTriangleFromGraphIndex(i).centroid;
+			centroids[i * 3] = centroid.x;
+			centroids[i * 3 + 1] = centroid.y;
+			centroids[i * 3 + 2] = centroid.z;
+		}
+
+		meshPartRoots = new int[graph.getMeshPartCount()];
+		meshPartNodeCounts = new int[graph.getMeshPartCount()];
+		for (int mpIndex = 0; mpIndex < graph.getMeshPartCount(); mpIndex++) {
+			meshPartRoots[mpIndex] = nodeCount;
+			int triOffset = graph.getTriangleOffset(mpIndex);
+			int meshPartTriCount = graph.getTriangleCount(mpIndex);
+			if (meshPartTriCount > 0) {
+				buildNode(triOffset, meshPartTriCount);
+			}
+			meshPartNodeCounts[mpIndex] = nodeCount - meshPartRoots[mpIndex];
+		}
+		centroids = null;
+
+		triVertices = new float[triCount * 9];
+		for (int i = 0; i < triCount; i++) {
+			Triangle tri = graph.getTriangleFromGraphIndex(triIndices[i]);
+			setVertex(triVertices, i * 9, tri.a);
+			setVertex(triVertices, i * 9 + 3, tri.b);
+			setVertex(triVertices, i * 9 + 6, tri.c);
+		}
+	}
+
+	private static void setVertex(float[] array, int offset, Vector3 v) {
+		array[offset] = v.x;
+		array[offset + 1] = v.y;
+		array[offset + 2] = v.z;
+	}
+
+	/**
+	 * Recursively create a node and its children for a range of the triangle index array.
+	 * The triangles are split at the median centroid along the longest axis of the centroid bounds.
+	 */
+	private void buildNode(int start, int count) {
+		int node = nodeCount++;
+		int b = node * 6;
+		nodeBounds[b] = nodeBounds[b + 1] = nodeBounds[b + 2] = Float.POSITIVE_INFINITY;
+		nodeBounds[b + 3] = nodeBounds[b + 4] = nodeBounds[b + 5] = Float.NEGATIVE_INFINITY;
+		float cMinX = Float.POSITIVE_INFINITY, cMinY = Float.POSITIVE_INFINITY, cMinZ = Float.POSITIVE_INFINITY;
+		float cMaxX = Float.NEGATIVE_INFINITY, cMaxY = Float.NEGATIVE_INFINITY, cMaxZ = Float.NEGATIVE_INFINITY;
+		for (int i = start; i < start + count; i++) {
+			Triangle tri = graph.getTriangleFromGraphIndex(triIndices[i]);
+			includeInBounds(b, tri.a);
+			includeInBounds(b, tri.b);
+			includeInBounds(b, tri.c);
+			int c = triIndices[i] * 3;
+			cMinX = Math.min(cMinX, centroids[c]);
+			cMinY = Math.min(cMinY, centroids[c + 1]);
+			cMinZ = Math.min(cMinZ, centroids[c + 2]);
+			cMaxX = Math.max(cMaxX, centroids[c]);
+			cMaxY = Math.max(cMaxY, centroids[c + 1]);
+			cMaxZ = Math.max(cMaxZ, centroids[c + 2]);
+		}
+		nodeTriStart[node] = start;
+		if (count <= MAX_LEAF_TRIANGLES) {
+			nodeTriCount[node] = count;
+			nodeSkip[node] = nodeCount;
+			return;
+		}
+		int axis = 0;
+		float extent = cMaxX - cMinX;
+		if (cMaxY - cMinY > extent) {
+			axis = 1;
+			extent = cMaxY - cMinY;
+		}
+		if (cMaxZ - cMinZ > extent) {
+			axis = 2;
+		}
+		int half = count / 2;
+		selectMedian(start, start + count - 1, start + half, axis);
+		nodeTriCount[node] = 0;
+		buildNode(start, half);
+		buildNode(start + half, count - half);
+		nodeSkip[node] = nodeCount;
+	}
+
+	private void includeInBounds(int b, Vector3 v) {
+		nodeBounds[b] = Math.min(nodeBounds[b], v.x);
+		nodeBounds[b + 1] = Math.min(nodeBounds[b + 1], v.y);
+		nodeBounds[b + 2] = Math.min(nodeBounds[b + 2], v.z);
+		nodeBounds[b + 3] = Math.max(nodeBounds[b + 3], v.x);
+		nodeBounds[b + 4] = Math.max(nodeBounds[b + 4], v.y);
+		nodeBounds[b + 5] = Math.max(nodeBounds[b + 5], v.z);
+	}
+
+	/**
+	 * Partially sorts the triangle indices in [left, right] so that the triangle at index k has the
+	 * k:th smallest centroid along the axis, with smaller ones before it and larger ones after.
+	 */
+	private void selectMedian(int left, int right, int k, int axis) {
+		while (right > left) {
+			float pivot = centroids[triIndices[(left + right) >>> 1] * 3 + axis];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (centroids[triIndices[i] * 3 + axis] < pivot) {
+					i++;
+				}
+				while (centroids[triIndices[j] * 3 + axis] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					int tmp = triIndices[i];
+					triIndices[i] = triIndices[j];
+					triIndices[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Find the closest triangle intersected by the line segment between two points.
+	 * Triangles facing away from the segment start point are ignored.
+	 *
+	 * @param from             Start of the segment
+	 * @param to               End of the segment
+	 * @param allowedMeshParts Which mesh parts to test. Null if all mesh parts should be tested.
+	 * @param out              Output for the point of intersection, can be null.
+	 * @return The triangle, or null if no triangle was intersected.
+	 */
+	public Triangle rayTest(Vector3 from, Vector3 to, Bits allowedMeshParts, Vector3 out) {
+		float dirX = to.x - from.x, dirY = to.y - from.y, dirZ = to.z - from.z;
+		int hitTri = findClosestHit(from.x, from.y, from.z, dirX, dirY, dirZ, allowedMeshParts);
+		if (hitTri == -1) {
+			return null;
+		}
+		if (out != null) {
+			float fraction = intersect(triVertices, hitTri * 9, from.x, from.y, from.z, dirX, dirY, dirZ, 1);
+			out.set(from.x + dirX * fraction, from.y + dirY * fraction, from.z + dirZ * fraction);
+		}
+		return graph.getTriangleFromGraphIndex(triIndices[hitTri]);
+	}
+
+	/**
+	 * Find the closest triangle intersected by the line segment between two points, without using any objects.
+	 * Triangles facing away from the segment start point are ignored.
+	 *
+	 * @param fromX            Start of the segment
+	 * @param fromY            Start of the segment
+	 * @param fromZ            Start of the segment
+	 * @param toX              End of the segment
+	 * @param toY              End of the segment
+	 * @param toZ              End of the segment
+	 * @param allowedMeshParts Which mesh parts to test. Null if all mesh parts should be tested.
+	 * @param out              Output for the point of intersection, can be null.
+	 * @param outOffset        Index in the output array where the x coordinate of the point is written.
+	 * @return The graph index of the triangle, or -1 if no triangle was intersected.
+	 */
+	public int rayTest(float fromX, float fromY, float fromZ,
+					   float toX, float toY, float toZ,
+					   Bits allowedMeshParts, float[] out, int outOffset) {
+		float dirX = toX - fromX, dirY = toY - fromY, dirZ = toZ - fromZ;
+		int hitTri = findClosestHit(fromX, fromY, fromZ, dirX, dirY, dirZ, allowedMeshParts);
+		if (hitTri == -1) {
+			return -1;
+		}
+		if (out != null) {
+			float fraction = intersect(triVertices, hitTri * 9, fromX, fromY, fromZ, dirX, dirY, dirZ, 1);
+			out[outOffset] = fromX + dirX * fraction;
+			out[outOffset + 1] = fromY + dirY * fraction;
+			out[outOffset + 2] = fromZ + dirZ * fraction;
+		}
+		return triIndices[hitTri];
+	}
+
+	/**
+	 * @return Index of the closest hit triangle in the leaf ordered triangle arrays, or -1 if none was hit.
+	 */
+	private int findClosestHit(float fromX, float fromY, float fromZ,
+							   float dirX, float dirY, float dirZ,
+							   Bits allowedMeshParts) {
+		float invDirX = 1f / dirX, invDirY = 1f / dirY, invDirZ = 1f / dirZ;
+
+		float hitFraction = 1;
+		int hitTri = -1;
+
+		for (int mpIndex = 0; mpIndex < meshPartRoots.length; mpIndex++) {
+			if (allowedMeshParts != null && !allowedMeshParts.get(mpIndex)) {
+				continue;
+			}
+			int node = meshPartRoots[mpIndex];
+			int end = node + meshPartNodeCounts[mpIndex];
+			while (node < end) {
+				int b = node * 6;
+				// Slab test of the segment against the node bounds
+				float t1 = (nodeBounds[b] - fromX) * invDirX;
+				float t2 = (nodeBounds[b + 3] - fromX) * invDirX;
+				float tMin = Math.min(t1, t2);
+				float tMax = Math.max(t1, t2);
+				t1 = (nodeBounds[b + 1] - fromY) * invDirY;
+				t2 = (nodeBounds[b + 4] - fromY) * invDirY;
+				tMin = Math.max(tMin, Math.min(t1, t2));
+				tMax = Math.min(tMax, Math.max(t1, t2));
+				t1 = (nodeBounds[b + 2] - fromZ) * invDirZ;
+				t2 = (nodeBounds[b + 5] - fromZ) * invDirZ;
+				tMin = Math.max(tMin, Math.min(t1, t2));
+				tMax = Math.min(tMax, Math.max(t1, t2));
+				// A NaN from a zero direction component fails all comparisons, so the node is visited
+				if (tMax < tMin || tMax < 0 || tMin > hitFraction) {
+					node = nodeSkip[node];
+					continue;
+				}
+				int count = nodeTriCount[node];
+				if (count > 0) {
+					int start = nodeTriStart[node];
+					for (int i = start; i < start + count; i++) {
+						float fraction = intersect(triVertices, i * 9, fromX, fromY, fromZ, dirX, dirY, dirZ, hitFraction);
+						if (fraction < hitFraction) {
+							hitFraction = fraction;
+							hitTri = i;
+						}
+					}
+				}
+				node++;
+			}
+		}
+		return hitTri;
+	}
+
+	/**
+	 * Segment/triangle intersection as done in btTriangleRaycastCallback, with back faces filtered.
+	 *
+	 * @return The hit fraction along the segment, or maxFraction if the triangle was not hit closer than it.
+	 */
+	private static float intersect(float[] v, int o,
+								   float fromX, float fromY, float fromZ,
+								   float dirX, float dirY, float dirZ,
+								   float maxFraction) {
+		float ax = v[o], ay = v[o + 1], az = v[o + 2];
+		float bx = v[o + 3], by = v[o + 4], bz = v[o + 5];
+		float cx = v[o + 6], cy = v[o + 7], cz = v[o + 8];
+
+		// Triangle normal (b - a) x (c - a)
+		float e1x = bx - ax, e1y = by - ay, e1z = bz - az;
+		float e2x = cx - ax, e2y = cy - ay, e2z = cz - az;
+		float nx = e1y * e2z - e1z * e2y;
+		float ny = e1z * e2x - e1x * e2z;
+		float nz = e1x * e2y - e1y * e2x;
+
+		float distA = nx * (fromX - ax) + ny * (fromY - ay) + nz * (fromZ - az);
+		// Segment starts behind the triangle, or on its plane
+		if (distA <= 0) {
+			return maxFraction;
+		}
+		float distB = distA + nx * dirX + ny * dirY + nz * dirZ;
+		// Segment ends in front of the triangle
+		if (distB >= 0) {
+			return maxFraction;
+		}
+		float fraction = distA / (distA - distB);
+		if (fraction >= maxFraction) {
+			return maxFraction;
+		}
+		float px = fromX + dirX * fraction;
+		float py = fromY + dirY * fraction;
+		float pz = fromZ + dirZ * fraction;
+
+		float edgeTolerance = -0.0001f * (nx * nx + ny * ny + nz * nz);
+		float v0x = ax - px, v0y = ay - py, v0z = az - pz;
+		float v1x = bx - px, v1y = by - py, v1z = bz - pz;
+		float v2x = cx - px, v2y = cy - py, v2z = cz - pz;
+		if (tripleProduct(v0x, v0y, v0z, v1x, v1y, v1z, nx, ny, nz) < edgeTolerance
+				|| tripleProduct(v1x, v1y, v1z, v2x, v2y, v2z, nx, ny, nz) < edgeTolerance
+				|| tripleProduct(v2x, v2y, v2z, v0x, v0y, v0z, nx, ny, nz) < edgeTolerance) {
+			return maxFraction;
+		}
+		return fraction;
+	}
+
+	/**
+	 * @return (u x v) . n
+	 */
+	private static float tripleProduct(float ux, float uy, float uz,
+									   float vx, float vy, float vz,
+									   float nx, float ny, float nz) {
+		return (uy * vz - uz * vy) * nx + (uz * vx - ux * vz) * ny + (ux * vy - uy * vx) * nz;
+	}
+
+}
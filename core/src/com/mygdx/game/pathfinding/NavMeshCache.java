@@ -0,0 +1,343 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes a compact binary version of a {@link NavMeshGraph}, so that the triangle topology does not
+ * have to be calculated from the navmesh model every time it is loaded.
+ * <p/>
+ * The file stores a hash of the source data it was created from, and is only used if the hash matches. It also
+ * stores a CRC-32 checksum of everything after the header, so that truncated or corrupt files are not used.
+ * <p/>
+ * Files are read whole into heap buffers rather than memory mapped. Every value is copied out into the arrays of
+ * {@link NavMeshGraphData} anyway, so a mapping would only save one temporary byte array, while a mapped buffer
+ * keeps the file open until it happens to be garbage collected. On Windows that open mapping makes the file
+ * impossible to overwrite, which is exactly what happens when a stale cache is rebuilt right after reading it.
+ * All values are little endian. The layout is:
+ * <pre>
+ * int   magic, version
+ * long  source hash
+ * long  checksum
+ * int   vertex count V, triangle count T, mesh part count P, connection count C
+ * float vertex positions [V * 3]
+ * int   triangle vertex indices [T * 3]
+ * int   mesh part triangle offsets [P], mesh part triangle counts [P]
+ * float triangle centroids [T * 3], triangle areas [T]
+ * int   connection offsets [T + 1], connection triangles [C], connection vertices (right, left) [C * 2]
+ * </pre>
+ * This is the same layout as the arrays of {@link NavMeshGraphData}.
+ * <p/>
+ * {@link NavMeshLandmarks} are stored in a separate file, since they are optional. The layout is:
+ * <pre>
+ * int   magic, version
+ * long  source hash
+ * long  checksum
+ * int   triangle count T, landmark count K
+ * int   landmark triangles [K]
+ * float landmark costs [T * K]
+ * </pre>
+ *
+ * @author jsjolund
+ */
+public final class NavMeshCache {
+
+	private static final String TAG = "NavMeshCache";
+
+	private static final int MAGIC = 0x4E41564D;
+	private static final int VERSION = 3;
+	/**
+	 * Size of the magic, version, source hash and checksum, which are not covered by the checksum.
+	 */
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+	private static final int COUNTS_SIZE = 4 * 4;
+	private static final int LANDMARKS_MAGIC = 0x4E41564C;
+	private static final int LANDMARKS_COUNTS_SIZE = 2 * 4;
+
+	private NavMeshCache() {
+	}
+
+	/**
+	 * Calculates a 64-bit FNV-1a hash of the source file and any parameters which affect the navmesh graph,
+	 * such as the model transform.
+	 * <p/>
+	 * The contents of the source file are not read, only its length and modification time are hashed. Hashing the
+	 * contents would read the whole model file a second time on every start, after the asset manager has already
+	 * loaded it. Editing or re-exporting a model changes its modification time, so the key still changes when the
+	 * source does. A source replaced by a file of the same length with its modification time
+	 * preserved is not detected, and neither is a changed file of the same length packed in a jar, where the
+	 * modification time is zero. In those cases the cache file has to be deleted, or the cache version bumped.
+	 *
+	 * @param source The source model file, e.g. the g3db
+	 * @param params Additional values to include in the hash
+	 * @return The hash
+	 */
+	public static long hash(FileHandle source, float... params) {
+		long hash = 0xcbf29ce484222325L;
+		hash = hash(hash, source.length());
+		hash = hash(hash, source.lastModified());
+		for (float param : params) {
+			hash = hash(hash, Float.floatToIntBits(param));
+		}
+		return hash ^ VERSION;
+	}
+
+	private static long hash(long hash, long value) {
+		for (int i = 0; i < 8; i++) {
+			hash = (hash ^ ((value >>> (i * 8)) & 0xFF)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Write the navmesh graph to a file.
+	 *
+	 * @param graph      The graph to write
+	 * @param sourceHash Hash of the source data the graph was created from
+	 * @param file       Output file
+	 */
+	public static void write(NavMeshGraph graph, long sourceHash, FileHandle file) {
+		NavMeshGraphData data = graph.getData();
+		int size = HEADER_SIZE + COUNTS_SIZE + (int) data.getSerializedSizeInBytes();
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(sourceHash);
+		buffer.putLong(0);
+		buffer.putInt(data.getVertexCount());
+		buffer.putInt(data.getTriangleCount());
+		buffer.putInt(data.getMeshPartCount());
+		buffer.putInt(data.getConnectionCount());
+
+		putFloats(buffer, data.vertices);
+		putInts(buffer, data.triangleVertices);
+		putInts(buffer, data.meshPartTriIndexOffsets);
+		putInts(buffer, data.meshPartTriCounts);
+		putFloats(buffer, data.centroids);
+		putFloats(buffer, data.areas);
+		putInts(buffer, data.connectionOffsets);
+		putInts(buffer, data.connectionTriangles);
+		putInts(buffer, data.connectionVertices);
+		writeWithChecksum(buffer, file);
+	}
+
+	/**
+	 * Stores the checksum of the data after the header in the header, and writes the buffer to the file.
+	 */
+	private static void writeWithChecksum(ByteBuffer buffer, FileHandle file) {
+		buffer.putLong(HEADER_SIZE - 8, checksum(buffer.array(), HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+		file.writeBytes(buffer.array(), false);
+	}
+
+	private static long checksum(byte[] bytes, int offset, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		return crc.getValue();
+	}
+
+	private static void putFloats(ByteBuffer buffer, float[] values) {
+		buffer.asFloatBuffer().put(values);
+		buffer.position(buffer.position() + values.length * 4);
+	}
+
+	private static void putInts(ByteBuffer buffer, int[] values) {
+		buffer.asIntBuffer().put(values);
+		buffer.position(buffer.position() + values.length * 4);
+	}
+
+	/**
+	 * Reads the navmesh graph from a cache file.
+	 *
+	 * @param file       The cache file
+	 * @param sourceHash Hash of the source data the graph should have been created from
+	 * @return The graph, or null if the file does not exist, is corrupt or was created from other source data.
+	 */
+	public static NavMeshGraph read(FileHandle file, long sourceHash) {
+		ByteBuffer buffer = readBuffer(file);
+		if (buffer == null) {
+			return null;
+		}
+		try {
+			return read(buffer, sourceHash);
+		} catch (RuntimeException e) {
+			Gdx.app.error(TAG, "Corrupt navmesh cache " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads a whole file into a heap buffer, which is released with the arrays read from it. The file is not
+	 * memory mapped, see the class documentation.
+	 *
+	 * @return The buffer, or null if the file does not exist or could not be read.
+	 */
+	private static ByteBuffer readBuffer(FileHandle file) {
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			return ByteBuffer.wrap(file.readBytes());
+		} catch (GdxRuntimeException e) {
+			Gdx.app.error(TAG, "Could not read navmesh cache " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the header of a cache file, and verifies the checksum of the data after it.
+	 *
+	 * @return False if the data was created by another version or from other source data
+	 * @throws GdxRuntimeException If the data is not a cache of the expected type, or is corrupt
+	 */
+	private static boolean readHeader(ByteBuffer buffer, int magic, long sourceHash) {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		int start = buffer.position();
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != magic) {
+			throw new GdxRuntimeException("Not a navmesh cache");
+		}
+		if (buffer.getInt() != VERSION || buffer.getLong() != sourceHash) {
+			return false;
+		}
+		long checksum = buffer.getLong();
+		int length = buffer.limit() - start - HEADER_SIZE;
+		long actual;
+		if (buffer.hasArray()) {
+			actual = checksum(buffer.array(), buffer.arrayOffset() + start + HEADER_SIZE, length);
+		} else {
+			byte[] bytes = new byte[length];
+			buffer.duplicate().get(bytes);
+			actual = checksum(bytes, 0, length);
+		}
+		if (actual != checksum) {
+			throw new GdxRuntimeException("Wrong navmesh cache checksum");
+		}
+		return true;
+	}
+
+	/**
+	 * Reads a navmesh graph from a buffer containing the cache data.
+	 *
+	 * @param buffer     Buffer holding the cache data, from its current position to its limit.
+	 * @param sourceHash Hash of the source data the graph should have been created from
+	 * @return The graph, or null if the buffer was created from other source data.
+	 * @throws GdxRuntimeException If the buffer does not hold a navmesh cache, or the data is corrupt
+	 */
+	public static NavMeshGraph read(ByteBuffer buffer, long sourceHash) {
+		if (!readHeader(buffer, MAGIC, sourceHash)) {
+			return null;
+		}
+		int numVertices = buffer.getInt();
+		int numTris = buffer.getInt();
+		int numMeshParts = buffer.getInt();
+		int numConnections = buffer.getInt();
+
+		float[] vertices = getFloats(buffer, numVertices * 3);
+		int[] triangleVertices = getInts(buffer, numTris * 3);
+		int[] meshPartTriIndexOffsets = getInts(buffer, numMeshParts);
+		int[] meshPartTriCounts = getInts(buffer, numMeshParts);
+		float[] centroids = getFloats(buffer, numTris * 3);
+		float[] areas = getFloats(buffer, numTris);
+		int[] connectionOffsets = getInts(buffer, numTris + 1);
+		int[] connectionTriangles = getInts(buffer, numConnections);
+		int[] connectionVertices = getInts(buffer, numConnections * 2);
+
+		return new NavMeshGraph(new NavMeshGraphData(vertices, triangleVertices, centroids, areas,
+				meshPartTriIndexOffsets, meshPartTriCounts, connectionOffsets, connectionTriangles, connectionVertices));
+	}
+
+	/**
+	 * Write landmark tables to a file.
+	 *
+	 * @param landmarks  The landmarks to write
+	 * @param sourceHash Hash of the source data the graph of the landmarks was created from
+	 * @param file       Output file
+	 */
+	public static void write(NavMeshLandmarks landmarks, long sourceHash, FileHandle file) {
+		int size = HEADER_SIZE + LANDMARKS_COUNTS_SIZE
+				+ 4 * landmarks.landmarks.length + 4 * landmarks.distances.length;
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(LANDMARKS_MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(sourceHash);
+		buffer.putLong(0);
+		buffer.putInt(landmarks.graph.getNodeCount());
+		buffer.putInt(landmarks.landmarks.length);
+		putInts(buffer, landmarks.landmarks);
+		putFloats(buffer, landmarks.distances);
+		writeWithChecksum(buffer, file);
+	}
+
+	/**
+	 * Reads the landmark tables from a landmarks file.
+	 *
+	 * @param file          The landmarks file
+	 * @param sourceHash    Hash of the source data the graph should have been created from
+	 * @param graph         The graph the landmarks were created for
+	 * @param landmarkCount The number of landmarks the tables should have
+	 * @return The landmarks, or null if the file does not exist, is corrupt or does not match the graph.
+	 */
+	public static NavMeshLandmarks readLandmarks(FileHandle file, long sourceHash,
+												 NavMeshGraph graph, int landmarkCount) {
+		ByteBuffer buffer = readBuffer(file);
+		if (buffer == null) {
+			return null;
+		}
+		try {
+			if (!readHeader(buffer, LANDMARKS_MAGIC, sourceHash)) {
+				return null;
+			}
+			int numTris = buffer.getInt();
+			int k = buffer.getInt();
+			if (numTris != graph.getNodeCount() || k != Math.min(landmarkCount, numTris)) {
+				return null;
+			}
+			int[] landmarks = getInts(buffer, k);
+			float[] distances = getFloats(buffer, numTris * k);
+			return new NavMeshLandmarks(graph, landmarks, distances);
+		} catch (RuntimeException e) {
+			Gdx.app.error(TAG, "Corrupt navmesh landmarks " + file, e);
+			return null;
+		}
+	}
+
+	private static float[] getFloats(ByteBuffer buffer, int count) {
+		float[] out = new float[count];
+		FloatBuffer floats = buffer.asFloatBuffer();
+		floats.get(out);
+		buffer.position(buffer.position() + count * 4);
+		return out;
+	}
+
+	private static int[] getInts(ByteBuffer buffer, int count) {
+		int[] out = new int[count];
+		IntBuffer ints = buffer.asIntBuffer();
+		ints.get(out);
+		buffer.position(buffer.position() + count * 4);
+		return out;
+	}
+
+}
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedGraph;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+
+import java.util.Arrays;
+
+/**
+ * Abstract graph over clusters of navmesh triangles, used for hierarchical path finding.
+ * <p/>
+ * Triangles are grouped by mesh part and by a square XZ grid cell of the cluster size. Triangles in the same
+ * cell which are not connected to each other are put in different clusters, so that every cluster is connected.
+ * Two clusters are connected by a {@link Portal} when any of their triangles share an edge.
+ *
+ * @author jsjolund
+ */
+public class NavMeshClusterGraph implements IndexedGraph<NavMeshClusterGraph.Cluster> {
+
+	/**
+	 * A connected group of triangles.
+	 */
+	public static class Cluster {
+		public final int index;
+		public final int meshPartIndex;
+		/**
+		 * Area weighted centroid of the triangles in the cluster.
+		 */
+		public final Vector3 centroid = new Vector3();
+		public int triangleCount;
+
+		final Array<Connection<Cluster>> portals = new Array<Connection<Cluster>>();
+		float area;
+
+		Cluster(int index, int meshPartIndex) {
+			this.index = index;
+			this.meshPartIndex = meshPartIndex;
+		}
+	}
+
+	/**
+	 * The shared triangle edges between two clusters.
+	 */
+	public static class Portal implements Connection<Cluster> {
+		public final Cluster fromNode;
+		public final Cluster toNode;
+		/**
+		 * Average of the midpoints of the shared edges.
+		 */
+		public final Vector3 midpoint = new Vector3();
+		public int edgeCount;
+		float cost;
+
+		Portal(Cluster fromNode, Cluster toNode) {
+			this.fromNode = fromNode;
+			this.toNode = toNode;
+		}
+
+		/**
+		 * Distance from the centroid of the from cluster, through the portal midpoint, to the centroid of the to cluster.
+		 */
+		@Override
+		public float getCost() {
+			return cost;
+		}
+
+		@Override
+		public Cluster getFromNode() {
+			return fromNode;
+		}
+
+		@Override
+		public Cluster getToNode() {
+			return toNode;
+		}
+	}
+
+	/**
+	 * Estimates the distance between two clusters as the distance between their centroids.
+	 */
+	public static class ClusterHeuristic implements Heuristic<Cluster> {
+		@Override
+		public float estimate(Cluster node, Cluster endNode) {
+			return node.centroid.dst(endNode.centroid);
+		}
+	}
+
+	public final NavMeshGraph graph;
+	public final float clusterSize;
+
+	private final Array<Cluster> clusters = new Array<Cluster>();
+	private final int[] triangleClusters;
+
+	/**
+	 * @param graph       The triangle graph
+	 * @param clusterSize Side of the square XZ area which the triangles of a cluster are taken from
+	 */
+	public NavMeshClusterGraph(NavMeshGraph graph, float clusterSize) {
+		this.graph = graph;
+		this.clusterSize = clusterSize;
+		int triCount = graph.getNodeCount();
+
+		// Grid cell of each triangle centroid
+		long[] cellKeys = new long[triCount];
+		for (int i = 0; i < triCount; i++) {
+			Triangle tri = graph.getTriangleFromGraphIndex(i);
+			long cellX = (long) Math.floor(tri.centroid.x / clusterSize) & 0x1FFFFF;
+			long cellZ = (long) Math.floor(tri.centroid.z / clusterSize) & 0x1FFFFF;
+			cellKeys[i] = ((long) tri.meshPartIndex << 42) | (cellX << 21) | cellZ;
+		}
+
+		// Flood fill connected triangles within the same cell into clusters
+		triangleClusters = new int[triCount];
+		Arrays.fill(triangleClusters, -1);
+		IntArray open = new IntArray();
+		for (int i = 0; i < triCount; i++) {
+			if (triangleClusters[i] != -1) {
+				continue;
+			}
+			Cluster cluster = new Cluster(clusters.size, graph.getTriangleFromGraphIndex(i).meshPartIndex);
+			clusters.add(cluster);
+			triangleClusters[i] = cluster.index;
+			open.add(i);
+			while (open.size > 0) {
+				int triIndex = open.pop();
+				Triangle tri = graph.getTriangleFromGraphIndex(triIndex);
+				float area = graph.getTriangleArea(triIndex);
+				cluster.centroid.mulAdd(tri.centroid, area);
+				cluster.area += area;
+				cluster.triangleCount++;
+				Array<Edge> edges = graph.getSharedEdges(triIndex);
+				for (int j = 0; j < edges.size; j++) {
+					int toIndex = edges.get(j).toNode.triIndex;
+					if (triangleClusters[toIndex] == -1 && cellKeys[toIndex] == cellKeys[i]) {
+						triangleClusters[toIndex] = cluster.index;
+						open.add(toIndex);
+					}
+				}
+			}
+			if (cluster.area > 0) {
+				cluster.centroid.scl(1f / cluster.area);
+			} else {
+				cluster.centroid.set(graph.getTriangleFromGraphIndex(i).centroid);
+			}
+		}
+
+		// Create a portal for each pair of clusters with shared triangle edges
+		LongMap<Portal> portals = new LongMap<Portal>();
+		for (int i = 0; i < triCount; i++) {
+			Cluster from = clusters.get(triangleClusters[i]);
+			Array<Edge> edges = graph.getSharedEdges(i);
+			for (int j = 0; j < edges.size; j++) {
+				Edge edge = edges.get(j);
+				Cluster to = clusters.get(triangleClusters[edge.toNode.triIndex]);
+				if (from == to) {
+					continue;
+				}
+				long key = ((long) from.index << 32) | to.index;
+				Portal portal = portals.get(key);
+				if (portal == null) {
+					portal = new Portal(from, to);
+					portals.put(key, portal);
+					from.portals.add(portal);
+				}
+				portal.midpoint.add(edge.leftVertex).add(edge.rightVertex);
+				portal.edgeCount++;
+			}
+		}
+		for (Portal portal : portals.values()) {
+			portal.midpoint.scl(0.5f / portal.edgeCount);
+			portal.cost = portal.fromNode.centroid.dst(portal.midpoint) + portal.midpoint.dst(portal.toNode.centroid);
+		}
+	}
+
+	/**
+	 * @param triIndex Graph index of a triangle
+	 * @return Index of the cluster which the triangle belongs to
+	 */
+	public int getClusterIndex(int triIndex) {
+		return triangleClusters[triIndex];
+	}
+
+	public Cluster getCluster(int clusterIndex) {
+		return clusters.get(clusterIndex);
+	}
+
+	public Cluster getCluster(Triangle triangle) {
+		return clusters.get(triangleClusters[triangle.triIndex]);
+	}
+
+	@Override
+	public int getIndex(Cluster node) {
+		return node.index;
+	}
+
+	@Override
+	public int getNodeCount() {
+		return clusters.size;
+	}
+
+	@Override
+	public Array<Connection<Cluster>> getConnections(Cluster fromNode) {
+		return fromNode.portals;
+	}
+
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.physics.bullet.collision.btBvhTriangleMeshShape;
+import com.badlogic.gdx.physics.bullet.collision.btIndexedMesh;
+import com.badlogic.gdx.physics.bullet.collision.btTriangleIndexVertexArray;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A Bullet collision shape created from the flat arrays of a {@link NavMeshGraphData}, so that graphs with
+ * 32-bit vertex indices can be ray tested by Bullet as well.
+ * <p/>
+ * Bullet meshes created from libGDX mesh parts use 16-bit indices, so the triangles are split into chunks with
+ * at most 65536 vertices each, which are added to the shape as separate indexed meshes. A chunk never contains
+ * triangles from more than one mesh part. The part id reported by Bullet is the index of the chunk, and can be
+ * mapped back to the graph with {@link #getMeshPartIndex(int)} and {@link #getTriangleIndex(int, int)}.
+ *
+ * @author jsjolund
+ */
+public class NavMeshCollisionShape implements Disposable {
+
+	private static final String TAG = "NavMeshCollisionShape";
+
+	/**
+	 * Max number of vertices which can be addressed by the 16-bit indices of a chunk.
+	 */
+	static final int MAX_CHUNK_VERTICES = 1 << 16;
+
+	private final btTriangleIndexVertexArray vertexArray;
+	private final btIndexedMesh[] indexedMeshes;
+	private final btBvhTriangleMeshShape shape;
+	/**
+	 * The vertex and index buffers of each chunk. Bullet reads the direct buffers in place,
+	 * so they are referenced here for as long as the shape exists.
+	 */
+	private final FloatBuffer[] vertexBuffers;
+	private final ShortBuffer[] indexBuffers;
+	/**
+	 * Graph index of the first triangle in each chunk.
+	 */
+	private final int[] chunkTriIndexOffsets;
+	/**
+	 * Index of the graph mesh part which each chunk belongs to.
+	 */
+	private final int[] chunkMeshParts;
+
+	public NavMeshCollisionShape(NavMeshGraphData data) {
+		IntArray triOffsets = new IntArray();
+		IntArray meshParts = new IntArray();
+		splitChunks(data, triOffsets, meshParts);
+		int numChunks = triOffsets.size;
+		chunkTriIndexOffsets = new int[numChunks + 1];
+		System.arraycopy(triOffsets.items, 0, chunkTriIndexOffsets, 0, numChunks);
+		chunkTriIndexOffsets[numChunks] = data.getTriangleCount();
+		chunkMeshParts = meshParts.toArray();
+
+		vertexBuffers = new FloatBuffer[numChunks];
+		indexBuffers = new ShortBuffer[numChunks];
+		indexedMeshes = new btIndexedMesh[numChunks];
+		vertexArray = new btTriangleIndexVertexArray();
+		IntIntMap localIndices = new IntIntMap();
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			int triStart = chunkTriIndexOffsets[chunk];
+			int triEnd = chunkTriIndexOffsets[chunk + 1];
+			localIndices.clear();
+			for (int i = triStart * 3; i < triEnd * 3; i++) {
+				int vertexIndex = data.triangleVertices[i];
+				if (!localIndices.containsKey(vertexIndex)) {
+					localIndices.put(vertexIndex, localIndices.size);
+				}
+			}
+			FloatBuffer vertices = BufferUtils.newFloatBuffer(localIndices.size * 3);
+			ShortBuffer indices = BufferUtils.newShortBuffer((triEnd - triStart) * 3);
+			for (IntIntMap.Entry entry : localIndices.entries()) {
+				vertices.position(entry.value * 3);
+				vertices.put(data.vertices, entry.key * 3, 3);
+			}
+			vertices.position(0);
+			for (int i = triStart * 3; i < triEnd * 3; i++) {
+				indices.put((short) localIndices.get(data.triangleVertices[i], -1));
+			}
+			indices.position(0);
+			vertexBuffers[chunk] = vertices;
+			indexBuffers[chunk] = indices;
+
+			indexedMeshes[chunk] = new btIndexedMesh(vertices, 3 * 4, localIndices.size, 0,
+					indices, 0, indices.capacity());
+			vertexArray.addIndexedMesh(indexedMeshes[chunk]);
+		}
+		shape = new btBvhTriangleMeshShape(vertexArray, true);
+		Gdx.app.debug(TAG, "Chunks: " + numChunks + ", Triangles: " + data.getTriangleCount());
+	}
+
+	/**
+	 * Find the triangles of each chunk. Consecutive triangles of the same mesh part are added to a chunk until
+	 * the next triangle would make it reference more than {@link #MAX_CHUNK_VERTICES} distinct vertices.
+	 */
+	private static void splitChunks(NavMeshGraphData data, IntArray triOffsets, IntArray meshParts) {
+		IntIntMap chunkVertices = new IntIntMap();
+		for (int mpIndex = 0; mpIndex < data.meshPartTriIndexOffsets.length; mpIndex++) {
+			int triStart = data.meshPartTriIndexOffsets[mpIndex];
+			int triEnd = triStart + data.meshPartTriCounts[mpIndex];
+			if (triStart == triEnd) {
+				continue;
+			}
+			chunkVertices.clear();
+			triOffsets.add(triStart);
+			meshParts.add(mpIndex);
+			for (int triIndex = triStart; triIndex < triEnd; triIndex++) {
+				int newVertices = 0;
+				for (int k = 0; k < 3; k++) {
+					if (!chunkVertices.containsKey(data.triangleVertices[triIndex * 3 + k])) {
+						newVertices++;
+					}
+				}
+				if (chunkVertices.size + newVertices > MAX_CHUNK_VERTICES) {
+					chunkVertices.clear();
+					triOffsets.add(triIndex);
+					meshParts.add(mpIndex);
+				}
+				for (int k = 0; k < 3; k++) {
+					chunkVertices.put(data.triangleVertices[triIndex * 3 + k], 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The Bullet collision shape
+	 */
+	public btBvhTriangleMeshShape getShape() {
+		return shape;
+	}
+
+	/**
+	 * @return Number of indexed meshes in the shape
+	 */
+	public int getChunkCount() {
+		return chunkMeshParts.length;
+	}
+
+	/**
+	 * @param partId Part id reported by Bullet
+	 * @return Index of the graph mesh part which the triangles of the Bullet part belong to
+	 */
+	public int getMeshPartIndex(int partId) {
+		return chunkMeshParts[partId];
+	}
+
+	/**
+	 * @param partId        Part id reported by Bullet
+	 * @param triangleIndex Triangle index within the part, reported by Bullet
+	 * @return Index of the triangle in the graph
+	 */
+	public int getTriangleIndex(int partId, int triangleIndex) {
+		return chunkTriIndexOffsets[partId] + triangleIndex;
+	}
+
+	@Override
+	public void dispose() {
+		shape.dispose();
+		vertexArray.dispose();
+		// Only disposed by the vertex array if Bullet uses reference counting
+		for (btIndexedMesh indexedMesh : indexedMeshes) {
+			if (!indexedMesh.isDisposed()) {
+				indexedMesh.dispose();
+			}
+		}
+	}
+}
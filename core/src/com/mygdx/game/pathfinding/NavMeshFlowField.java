@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BinaryHeap;
+
+import java.util.Arrays;
+
+/**
+ * The lowest cost connection toward a goal triangle, for every triangle in a {@link NavMeshGraph}.
+ * <p/>
+ * Created by a single reverse Dijkstra search from the goal, after which the path from any triangle is found by
+ * following the next connection of each triangle, one lookup per step. Useful when many agents head for the same
+ * goal, since they share one search instead of making one each. Fields are shared and recycled by
+ * {@link NavMeshFlowFields}, which counts the agents heading for the goal of a field and only searches it when
+ * there are enough of them, see {@link #isCreated()}.
+ * <p/>
+ * The search runs backwards, but each step adds the cost of the neighbour's own connection toward the goal, so the
+ * field holds the cost from each triangle to the goal without assuming that a connection costs the same both ways.
+ * They do not always: a blocked triangle can be left but not entered, and the cost of a connection depends on the
+ * cost scales of both its triangles, see {@link NavMeshGraph#getTriangleCostScale(int)}.
+ *
+ * @author jsjolund
+ */
+public class NavMeshFlowField {
+
+	static class DijkstraNode extends BinaryHeap.Node {
+		final int triIndex;
+		boolean open;
+
+		DijkstraNode(int triIndex) {
+			super(0);
+			this.triIndex = triIndex;
+		}
+	}
+
+	public final NavMeshGraph graph;
+
+	// Created by the first search
+	private float[] costs;
+	private Edge[] nextEdges;
+	private boolean created;
+	private Triangle goalTri;
+	private final Vector3 goalPoint = new Vector3();
+	private int graphVersion;
+	int references;
+
+	NavMeshFlowField(NavMeshGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Set the goal of the field. The field is not searched until {@link #create} is called.
+	 *
+	 * @param goalTri   The goal triangle
+	 * @param goalPoint The goal point, in the goal triangle
+	 */
+	void setGoal(Triangle goalTri, Vector3 goalPoint) {
+		this.goalTri = goalTri;
+		this.goalPoint.set(goalPoint);
+		created = false;
+	}
+
+	/**
+	 * Search the lowest cost connections toward the goal from all triangles.
+	 *
+	 * @param nodes    One search node for each triangle, only used during the call
+	 * @param openList Open list, only used during the call
+	 */
+	void create(DijkstraNode[] nodes, BinaryHeap<DijkstraNode> openList) {
+		if (costs == null) {
+			costs = new float[graph.getNodeCount()];
+			nextEdges = new Edge[graph.getNodeCount()];
+		}
+		created = true;
+		graphVersion = graph.getVersion();
+		Arrays.fill(costs, Float.POSITIVE_INFINITY);
+		Arrays.fill(nextEdges, null);
+
+		openList.clear();
+		costs[goalTri.triIndex] = 0;
+		nodes[goalTri.triIndex].open = true;
+		openList.add(nodes[goalTri.triIndex], 0);
+		while (openList.size > 0) {
+			DijkstraNode node = openList.pop();
+			node.open = false;
+			// Nothing can move into a blocked triangle
+			if (graph.isTriangleBlocked(node.triIndex)) {
+				continue;
+			}
+			float cost = costs[node.triIndex];
+			Array<Edge> edges = graph.getSharedEdges(node.triIndex);
+			for (int i = 0; i < edges.size; i++) {
+				int fromIndex = edges.get(i).toNode.triIndex;
+				// The connection the other way, from the neighbour toward the goal
+				Edge edge = getEdge(fromIndex, node.triIndex);
+				float fromCost = cost + edge.getCost();
+				if (fromCost >= costs[fromIndex]) {
+					continue;
+				}
+				costs[fromIndex] = fromCost;
+				nextEdges[fromIndex] = edge;
+				DijkstraNode fromNode = nodes[fromIndex];
+				if (fromNode.open) {
+					openList.setValue(fromNode, fromCost);
+				} else {
+					fromNode.open = true;
+					openList.add(fromNode, fromCost);
+				}
+			}
+		}
+	}
+
+	private Edge getEdge(int fromIndex, int toIndex) {
+		Array<Edge> edges = graph.getSharedEdges(fromIndex);
+		for (int i = 0; i < edges.size; i++) {
+			Edge edge = edges.get(i);
+			if (edge.toNode.triIndex == toIndex) {
+				return edge;
+			}
+		}
+		throw new IllegalStateException("Connection " + fromIndex + " -> " + toIndex + " is not mirrored");
+	}
+
+	/**
+	 * @return True if the field has been searched. Otherwise too few agents have been heading for its goal for a
+	 * search of the whole graph to pay off, and the methods which get costs and paths must not be used.
+	 */
+	public boolean isCreated() {
+		return created;
+	}
+
+	/**
+	 * @param fromTri
+	 * @return The lowest cost connection from the triangle toward the goal, or null if the triangle is the goal,
+	 * or the goal can not be reached from it.
+	 */
+	public Edge getNextEdge(Triangle fromTri) {
+		return nextEdges[fromTri.triIndex];
+	}
+
+	/**
+	 * @param fromTri
+	 * @return The path cost from the triangle to the goal, or positive infinity if the goal can not be reached.
+	 */
+	public float getCost(Triangle fromTri) {
+		return costs[fromTri.triIndex];
+	}
+
+	public boolean isReachable(Triangle fromTri) {
+		return costs[fromTri.triIndex] != Float.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Get the triangle path from a triangle to the goal, by following the next connections.
+	 *
+	 * @param fromTri Start triangle
+	 * @param out     Output path, only modified if the goal can be reached. The start and end points are not set.
+	 * @return True if the goal can be reached
+	 */
+	public boolean getPath(Triangle fromTri, NavMeshGraphPath out) {
+		if (!isReachable(fromTri)) {
+			return false;
+		}
+		out.clear();
+		out.startTri = fromTri;
+		Edge edge = nextEdges[fromTri.triIndex];
+		while (edge != null) {
+			out.add(edge);
+			edge = nextEdges[edge.toNode.triIndex];
+		}
+		return true;
+	}
+
+	public Triangle getGoalTriangle() {
+		return goalTri;
+	}
+
+	/**
+	 * @param out Output vector
+	 * @return Output for chaining
+	 */
+	public Vector3 getGoalPoint(Vector3 out) {
+		return out.set(goalPoint);
+	}
+
+	/**
+	 * @return False if the cost of any triangle has changed after the field was created, see
+	 * {@link NavMeshGraph#getVersion()}. True if the field has not been created.
+	 */
+	public boolean isValid() {
+		return !created || graphVersion == graph.getVersion();
+	}
+
+	/**
+	 * @return Number of agents heading for the goal of the field
+	 */
+	public int getReferenceCount() {
+		return references;
+	}
+
+	/**
+	 * Check if the field can be used for a goal.
+	 *
+	 * @param goalTri       The goal triangle
+	 * @param goalPoint     The goal point
+	 * @param goalTolerance Max distance between the goal point of the field and the given one
+	 * @return
+	 */
+	boolean hasGoal(Triangle goalTri, Vector3 goalPoint, float goalTolerance) {
+		return this.goalTri == goalTri && this.goalPoint.dst2(goalPoint) <= goalTolerance * goalTolerance;
+	}
+
+	void reset() {
+		goalTri = null;
+		created = false;
+		references = 0;
+	}
+
+}
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BinaryHeap;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Reference counted {@link NavMeshFlowField}s, shared by agents heading for the same goal.
+ * <p/>
+ * A field is {@link #acquire acquired} for a goal, and {@link #release released} when no longer followed. Agents
+ * whose goal is in the same triangle, and within the goal tolerance of an existing field, share it. Fields which
+ * are no longer used are recycled. When the goal of an agent moves, {@link #update} keeps the field until the goal
+ * has moved beyond the tolerance. Fields are created again if the graph costs have changed, e.g. by
+ * {@link NavMeshObstacles}.
+ * <p/>
+ * A field searches the whole graph, which only pays off when enough agents share it. Until as many agents as
+ * {@link #getMinReferences()} have acquired a field, it only counts them and is not searched, see
+ * {@link NavMeshFlowField#isCreated()}. Those agents should search their own paths meanwhile.
+ * <p/>
+ * Must only be used from the game thread.
+ *
+ * @author jsjolund
+ */
+public class NavMeshFlowFields {
+
+	private static final String TAG = "NavMeshFlowFields";
+
+	/**
+	 * Default max distance between the goal points of agents sharing a field.
+	 */
+	public static final float DEFAULT_GOAL_TOLERANCE = 1;
+	/**
+	 * Default number of agents heading for a goal before a field is created for it.
+	 */
+	public static final int DEFAULT_MIN_REFERENCES = 4;
+
+	private final NavMeshGraph graph;
+	private final Array<NavMeshFlowField> fields = new Array<NavMeshFlowField>();
+	private final Array<NavMeshFlowField> freeFields = new Array<NavMeshFlowField>();
+	private float goalTolerance = DEFAULT_GOAL_TOLERANCE;
+	private int minReferences = DEFAULT_MIN_REFERENCES;
+
+	// Search memory shared by all fields, created when first needed
+	private NavMeshFlowField.DijkstraNode[] nodes;
+	private final BinaryHeap<NavMeshFlowField.DijkstraNode> openList = new BinaryHeap<NavMeshFlowField.DijkstraNode>();
+
+	private final Vector3 tmpGoalPoint = new Vector3();
+
+	public NavMeshFlowFields(NavMeshGraph graph) {
+		this.graph = graph;
+	}
+
+	public float getGoalTolerance() {
+		return goalTolerance;
+	}
+
+	/**
+	 * @param goalTolerance Max distance between the goal points of agents sharing a field
+	 */
+	public void setGoalTolerance(float goalTolerance) {
+		this.goalTolerance = goalTolerance;
+	}
+
+	public int getMinReferences() {
+		return minReferences;
+	}
+
+	/**
+	 * @param minReferences Number of agents heading for a goal before a field is created for it. At most one
+	 *                      to always create fields.
+	 */
+	public void setMinReferences(int minReferences) {
+		this.minReferences = minReferences;
+	}
+
+	/**
+	 * Get a field toward a goal, shared with others with nearby goals in the same triangle if possible.
+	 * The field is only created once enough agents have acquired it, see {@link NavMeshFlowField#isCreated()}.
+	 * Must be {@link #release released} when no longer used.
+	 *
+	 * @param goalTri   The goal triangle
+	 * @param goalPoint The goal point, in the goal triangle
+	 * @return The field
+	 */
+	public NavMeshFlowField acquire(Triangle goalTri, Vector3 goalPoint) {
+		NavMeshFlowField field = null;
+		for (int i = 0; i < fields.size; i++) {
+			if (fields.get(i).hasGoal(goalTri, goalPoint, goalTolerance)) {
+				field = fields.get(i);
+				break;
+			}
+		}
+		if (field == null) {
+			field = (freeFields.size > 0) ? freeFields.pop() : new NavMeshFlowField(graph);
+			field.setGoal(goalTri, goalPoint);
+			fields.add(field);
+		} else if (!field.isValid()) {
+			// The graph costs have changed, the field is searched again once enough agents use it
+			field.setGoal(field.getGoalTriangle(), field.getGoalPoint(tmpGoalPoint));
+		}
+		field.references++;
+		if (field.references >= minReferences && !field.isCreated()) {
+			create(field);
+		}
+		return field;
+	}
+
+	/**
+	 * Get a field toward a goal which may have moved. Keeps the current field if it is still valid and its goal
+	 * is within the goal tolerance, otherwise releases it and acquires another.
+	 *
+	 * @param field     The current field, or null
+	 * @param goalTri   The goal triangle
+	 * @param goalPoint The goal point, in the goal triangle
+	 * @return The field toward the goal
+	 */
+	public NavMeshFlowField update(NavMeshFlowField field, Triangle goalTri, Vector3 goalPoint) {
+		if (field != null) {
+			if (field.isValid() && field.hasGoal(goalTri, goalPoint, goalTolerance)) {
+				return field;
+			}
+			release(field);
+		}
+		return acquire(goalTri, goalPoint);
+	}
+
+	/**
+	 * Stop using a field. It is recycled when it has no more users.
+	 *
+	 * @param field The field
+	 */
+	public void release(NavMeshFlowField field) {
+		if (field.references <= 0) {
+			throw new IllegalStateException("Flow field already released");
+		}
+		field.references--;
+		if (field.references == 0) {
+			fields.removeValue(field, true);
+			field.reset();
+			freeFields.add(field);
+		}
+	}
+
+	/**
+	 * @return Number of fields in use
+	 */
+	public int size() {
+		return fields.size;
+	}
+
+	/**
+	 * Remove the recycled fields, freeing their memory.
+	 */
+	public void clearFreeFields() {
+		freeFields.clear();
+	}
+
+	private void create(NavMeshFlowField field) {
+		long startTime = TimeUtils.nanoTime();
+		if (nodes == null) {
+			nodes = new NavMeshFlowField.DijkstraNode[graph.getNodeCount()];
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i] = new NavMeshFlowField.DijkstraNode(i);
+			}
+		}
+		field.create(nodes, openList);
+		Gdx.app.debug(TAG, "Created flow field to triangle " + field.getGoalTriangle().triIndex + " for "
+				+ field.references + " agents in "
+				+ TimeUtils.timeSinceNanos(startTime) / 1000 + " us");
+	}
+
+}
@@ -23,12 +23,17 @@ import com.badlogic.gdx.graphics.Mesh;
 import com.badlogic.gdx.graphics.VertexAttributes;
 import com.badlogic.gdx.graphics.g3d.Model;
 import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelData;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMesh;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMeshPart;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.ArrayMap;
-import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.LongMap;
 
 import java.nio.FloatBuffer;
+import java.util.Arrays;
 
 /**
  * Creates a bidirectional graph over the triangles in the model, which can be used for A* pathfinding.
@@ -38,9 +43,11 @@ import java.nio.FloatBuffer;
  * <p/>
  * All meshes should be made up of one or more triangles, and should not have any isolated edges or vertices.
  * <p/>
- * Each vertex which has a unique position is stored in a Vector3. Triangle objects map which of these vertices
- * form a triangle according to the winding order in the mesh indices buffer. The winding order is assumed to
- * be the same for each triangle and is read from left to right in the indices buffer.
+ * The graph is stored in flat arrays, see {@link NavMeshGraphData}, and as the Triangle and Edge objects which the
+ * path finders and the rest of the game use, see createTriangles. Each vertex which has a unique position is also
+ * stored in a Vector3. Triangle objects map which of these vertices form a triangle according to the winding order
+ * in the mesh indices buffer. The winding order is assumed to be the same for each triangle and is read from left
+ * to right in the indices buffer.
  * <p/>
  * Each triangle A which shares an edge with another triangle B is associated with an Edge/Connection object. In
  * this object, triangle A is stored as the fromNode, B as toNode. The object also stores the vertices which
@@ -50,6 +57,9 @@ import java.nio.FloatBuffer;
  * The reason the winding order is important is because each edge in the triangle must have the correct vertices
  * defined as left/right in order for path smoothing to work correctly. Left/right is defined from the perspective
  * of the centroid of the triangle when "looking" at the edge.
+ * <p/>
+ * The cost of triangles can be raised, or triangles blocked, without recreating the graph, see
+ * {@link NavMeshObstacles}. The connections into a blocked triangle are left out by {@link #getConnections}.
  *
  * @author jsjolund
  */
@@ -60,14 +70,14 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 	 */
 	private static class IndexConnection {
 		// The vertex indices which makes up the edge shared between two triangles.
-		short edgeVertexIndex1;
-		short edgeVertexIndex2;
+		int edgeVertexIndex1;
+		int edgeVertexIndex2;
 		// The indices of the two triangles sharing this edge.
-		short fromTriIndex;
-		short toTriIndex;
+		int fromTriIndex;
+		int toTriIndex;
 
-		public IndexConnection(short sharedEdgeVertex1Index, short edgeVertexIndex2,
-							   short fromTriIndex, short toTriIndex) {
+		public IndexConnection(int sharedEdgeVertex1Index, int edgeVertexIndex2,
+							   int fromTriIndex, int toTriIndex) {
 			this.edgeVertexIndex1 = sharedEdgeVertex1Index;
 			this.edgeVertexIndex2 = edgeVertexIndex2;
 			this.fromTriIndex = fromTriIndex;
@@ -77,253 +87,538 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 
 	private static final String TAG = "NavMeshGraph";
 
-	private final ArrayMap<Triangle, Array<Edge>> sharedEdges;
-	private final ArrayMap<Triangle, Array<Edge>> isolatedEdgesMap;
+	/**
+	 * Size of the hash cells used to find vertices with the same position.
+	 */
+	private static final float WELD_CELL_SIZE = 0.01f;
 
-	private int[] meshPartTriIndexOffsets;
-	private int[] meshPartTriCounts;
+	private final NavMeshGraphData data;
+	private final Triangle[] triangles;
+	// Created when first asked for
+	private final Array<Edge>[] isolatedEdges;
 
 	private int numDisconnectedEdges;
 	private int numConnectedEdges;
 	private int numTotalEdges;
 
+	// Connected component of each triangle
+	private final int[] componentLabels;
+	private final int numComponents;
 
-	public NavMeshGraph(Model model) {
-		short[] indices = getUniquePositionVertexIndices(model.meshes.first());
-		Array<IndexConnection> indexConnections = getIndexConnections(indices);
-		Vector3[] vertexVectors = createVertexVectors(model.meshes.first(), indices);
+	// Cost state of the triangles, created when a cost is first changed
+	private volatile CostState costState;
+	private int numBlockedTriangles;
+	// Written last when a cost changes, see getVersion()
+	private volatile int version;
+	// Connections which are not blocked, reused by each call on the same thread
+	private final ThreadLocal<Array<Connection<Triangle>>> openConnections =
+			new ThreadLocal<Array<Connection<Triangle>>>() {
+				@Override
+				protected Array<Connection<Triangle>> initialValue() {
+					return new Array<Connection<Triangle>>();
+				}
+			};
 
-		// The triangle graph uses consecutive indices for each unique triangle in the whole model.
-		// The Bullet raycast uses MeshPart index combined with triangle index inside the MeshPart,
-		// so we need to be able to convert between them.
-		int[] meshPartIndexOffsets = new int[model.meshParts.size];
-		meshPartTriIndexOffsets = new int[model.meshParts.size];
-		for (int i = 0; i < model.meshParts.size; i++) {
-			MeshPart meshPart = model.meshParts.get(i);
-			meshPartIndexOffsets[i] = meshPart.offset;
-			meshPartTriIndexOffsets[i] = meshPart.offset / 3;
-		}
-		meshPartTriCounts = new int[model.meshParts.size];
-		Array<Triangle> triangles = createTriangles(vertexVectors, indices,
-				meshPartIndexOffsets, meshPartTriCounts);
 
-		sharedEdges = createSharedEdgesMap(indexConnections, triangles, vertexVectors);
-		isolatedEdgesMap = createIsolatedEdgesMap(sharedEdges);
+	/**
+	 * The cost state of all triangles. Published through a volatile field, so the arrays, filled in the
+	 * constructor, are seen fully initialized by any thread which sees the state.
+	 */
+	private static class CostState {
+		final float[] scales;
+		final int[] blockedNeighbourCounts;
+		final int[] versions;
 
-		// Count edges of different types
-		for (Array<Edge> edges : isolatedEdgesMap.values()) {
-			numDisconnectedEdges += edges.size;
+		CostState(int triangleCount) {
+			scales = new float[triangleCount];
+			Arrays.fill(scales, 1);
+			blockedNeighbourCounts = new int[triangleCount];
+			versions = new int[triangleCount];
 		}
-		for (Array<Edge> edges : sharedEdges.values()) {
-			numConnectedEdges += edges.size;
-		}
-		numConnectedEdges /= 2;
-		numTotalEdges = numConnectedEdges + numDisconnectedEdges;
-		Gdx.app.debug(TAG, "MeshParts: total=" + getMeshPartCount() + ", Triangles: total=" + getNodeCount()
-			+ ", Edges: connected=" + getEdgeCountShared() + ", disconnected=" + getEdgeCountIsolated() + ", total=%s"
-			+ getEdgeCountTotal());
 	}
 
+	public NavMeshGraph(Model model) {
+		this(model, 0);
+	}
 
 	/**
-	 * Map the isolated edges for each triangle which does not have all three edges connected to other triangles.
-	 *
-	 * @param connectionMap
-	 * @return
+	 * @param model       The navigation mesh model
+	 * @param weldEpsilon Vertices closer to each other than this distance are treated as the same vertex when
+	 *                    connecting triangles. Use zero to only weld vertices with exactly the same position.
 	 */
-	private static ArrayMap<Triangle, Array<Edge>> createIsolatedEdgesMap(ArrayMap<Triangle, Array<Edge>> connectionMap) {
+	public NavMeshGraph(Model model, float weldEpsilon) {
+		this(getVertexPositions(model.meshes.first()), getIndices(model.meshes.first()),
+				getMeshPartIndexOffsets(model), weldEpsilon);
+	}
 
-		ArrayMap<Triangle, Array<Edge>> disconnectionMap = new ArrayMap<Triangle, Array<Edge>>();
+	/**
+	 * Creates the graph from the data of a model, without loading the model itself. Unlike a {@link Model}, this
+	 * does not need a GL context, so it can be used by headless tools and benchmarks.
+	 *
+	 * @param modelData   The navigation mesh model data, e.g. from {@code G3dModelLoader.loadModelData}
+	 * @param weldEpsilon Vertices closer to each other than this distance are treated as the same vertex when
+	 *                    connecting triangles. Use zero to only weld vertices with exactly the same position.
+	 */
+	public NavMeshGraph(ModelData modelData, float weldEpsilon) {
+		this(getVertexPositions(modelData.meshes.first()), getIndices(modelData.meshes.first()),
+				getMeshPartIndexOffsets(modelData.meshes.first()), weldEpsilon);
+	}
 
-		for (int i = 0; i < connectionMap.size; i++) {
-			Triangle tri = connectionMap.getKeyAt(i);
-			Array<Edge> connectedEdges = connectionMap.getValueAt(i);
+	/**
+	 * Creates the graph from raw vertex and index data, which does not have to fit in a 16-bit index {@link Mesh}.
+	 *
+	 * @param vertexPositions      The x, y and z coordinates of each vertex, packed.
+	 * @param indices              Vertex indices, three for each triangle. This array is modified in place so that
+	 *                             vertices with the same position share index.
+	 * @param meshPartIndexOffsets The offset in the index array where each mesh part starts, in increasing order.
+	 * @param weldEpsilon          Vertices closer to each other than this distance are treated as the same vertex
+	 *                             when connecting triangles. Use zero to only weld vertices with exactly the same
+	 *                             position.
+	 */
+	public NavMeshGraph(float[] vertexPositions, int[] indices, int[] meshPartIndexOffsets, float weldEpsilon) {
+		this(createData(vertexPositions, indices, meshPartIndexOffsets, weldEpsilon));
+	}
 
-			Array<Edge> disconnectedEdges = new Array<Edge>();
-			disconnectionMap.put(tri, disconnectedEdges);
+	/**
+	 * Creates the graph from its flat array data, e.g. read from a {@link NavMeshCache}.
+	 *
+	 * @param data The triangles and connections of the graph
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	NavMeshGraph(NavMeshGraphData data) {
+		this.data = data;
+		triangles = createTriangles(data);
+		isolatedEdges = new Array[triangles.length];
+		countEdges();
+		componentLabels = new int[triangles.length];
+		numComponents = labelComponents(data, componentLabels);
+		Gdx.app.debug(TAG, "Connected components: " + numComponents);
+	}
 
-			if (connectedEdges.size < 3) {
-				// This triangle does not have all edges connected to other triangles
-				boolean ab = true;
-				boolean bc = true;
-				boolean ca = true;
-				for (Edge edge : connectedEdges) {
-					if (edge.rightVertex == tri.a && edge.leftVertex == tri.b) ab = false;
-					else if (edge.rightVertex == tri.b && edge.leftVertex == tri.c) bc = false;
-					else if (edge.rightVertex == tri.c && edge.leftVertex == tri.a) ca = false;
+	/**
+	 * Label the triangles which are connected to each other, directly or through other triangles,
+	 * with the same component index.
+	 *
+	 * @return The number of components
+	 */
+	private static int labelComponents(NavMeshGraphData data, int[] out) {
+		Arrays.fill(out, -1);
+		IntArray open = new IntArray();
+		int numComponents = 0;
+		for (int i = 0; i < out.length; i++) {
+			if (out[i] != -1) {
+				continue;
+			}
+			out[i] = numComponents;
+			open.add(i);
+			while (open.size > 0) {
+				int triIndex = open.pop();
+				for (int j = data.connectionOffsets[triIndex]; j < data.connectionOffsets[triIndex + 1]; j++) {
+					int toIndex = data.connectionTriangles[j];
+					if (out[toIndex] == -1) {
+						out[toIndex] = numComponents;
+						open.add(toIndex);
+					}
 				}
-				if (ab) disconnectedEdges.add(new Edge(tri, null, tri.a, tri.b));
-				if (bc) disconnectedEdges.add(new Edge(tri, null, tri.b, tri.c));
-				if (ca) disconnectedEdges.add(new Edge(tri, null, tri.c, tri.a));
 			}
-			int totalEdges = (connectedEdges.size + disconnectedEdges.size);
+			numComponents++;
+		}
+		return numComponents;
+	}
+
+	private void countEdges() {
+		// Count edges of different types
+		for (int i = 0; i < triangles.length; i++) {
+			int isolated = countIsolatedEdges(i);
+			int totalEdges = getSharedEdges(i).size + isolated;
 			if (totalEdges != 3) {
-				Gdx.app.debug(TAG, "Wrong number of edges (" + totalEdges + ") in triangle " + tri.getIndex());
+				Gdx.app.debug(TAG, "Wrong number of edges (" + totalEdges + ") in triangle " + i);
 			}
+			numDisconnectedEdges += isolated;
 		}
-		return disconnectionMap;
+		numConnectedEdges = data.getConnectionCount() / 2;
+		numTotalEdges = numConnectedEdges + numDisconnectedEdges;
+		Gdx.app.debug(TAG, "MeshParts: total=" + getMeshPartCount() + ", Triangles: total=" + getNodeCount()
+			+ ", Edges: connected=" + getEdgeCountShared() + ", disconnected=" + getEdgeCountIsolated() + ", total="
+			+ getEdgeCountTotal());
 	}
 
+	private int countIsolatedEdges(int triIndex) {
+		int[] v = data.triangleVertices;
+		int i = triIndex * 3;
+		int isolated = 0;
+		if (!data.isSharedEdge(triIndex, v[i], v[i + 1])) isolated++;
+		if (!data.isSharedEdge(triIndex, v[i + 1], v[i + 2])) isolated++;
+		if (!data.isSharedEdge(triIndex, v[i + 2], v[i])) isolated++;
+		return isolated;
+	}
 
 	/**
-	 * Creates a map over each triangle and its Edge connections to other triangles. Each edge must follow the
-	 * vertex winding order of the triangle associated with it. Since all triangles are assumed to have the same
-	 * winding order, this means if two triangles connect, each must have its own edge connection data, where the
-	 * edge follows the same winding order as the triangle which owns the edge data.
+	 * Create the isolated edges of a triangle, the edges which are not connected to another triangle.
 	 *
-	 * @param indexConnections
-	 * @param triangles
-	 * @param vertexVectors
+	 * @param tri
 	 * @return
 	 */
-	private static ArrayMap<Triangle, Array<Edge>> createSharedEdgesMap(
-			Array<IndexConnection> indexConnections, Array<Triangle> triangles, Vector3[] vertexVectors) {
+	private Array<Edge> createIsolatedEdges(Triangle tri) {
+		int[] v = data.triangleVertices;
+		int i = tri.triIndex * 3;
+		Array<Edge> disconnectedEdges = new Array<Edge>(countIsolatedEdges(tri.triIndex));
+		if (!data.isSharedEdge(tri.triIndex, v[i], v[i + 1])) disconnectedEdges.add(new Edge(tri, null, tri.a, tri.b));
+		if (!data.isSharedEdge(tri.triIndex, v[i + 1], v[i + 2])) disconnectedEdges.add(new Edge(tri, null, tri.b, tri.c));
+		if (!data.isSharedEdge(tri.triIndex, v[i + 2], v[i])) disconnectedEdges.add(new Edge(tri, null, tri.c, tri.a));
+		return disconnectedEdges;
+	}
 
-		ArrayMap<Triangle, Array<Edge>> connectionMap = new ArrayMap<Triangle, Array<Edge>>();
-		connectionMap.ordered = true;
+	/**
+	 * Creates the flat array data of the graph from a triangle mesh.
+	 *
+	 * @param vertexPositions
+	 * @param indices
+	 * @param meshPartIndexOffsets
+	 * @param weldEpsilon
+	 * @return
+	 */
+	private static NavMeshGraphData createData(float[] vertexPositions, int[] indices,
+											   int[] meshPartIndexOffsets, float weldEpsilon) {
+		weldUniquePositionVertexIndices(vertexPositions, indices, weldEpsilon);
+		Array<IndexConnection> indexConnections = getIndexConnections(indices);
+		int numTris = indices.length / 3;
 
-		for (Triangle tri : triangles) {
-			connectionMap.put(tri, new Array<Edge>());
+		// Only keep the vertices referenced by the triangles, renumbered in order of first use
+		int[] vertexRemap = new int[vertexPositions.length / 3];
+		Arrays.fill(vertexRemap, -1);
+		int[] triangleVertices = new int[indices.length];
+		int numVertices = 0;
+		for (int i = 0; i < indices.length; i++) {
+			int index = indices[i];
+			if (vertexRemap[index] == -1) {
+				vertexRemap[index] = numVertices++;
+			}
+			triangleVertices[i] = vertexRemap[index];
+		}
+		float[] vertices = new float[numVertices * 3];
+		for (int i = 0; i < vertexRemap.length; i++) {
+			if (vertexRemap[i] != -1) {
+				System.arraycopy(vertexPositions, i * 3, vertices, vertexRemap[i] * 3, 3);
+			}
 		}
 
-		for (IndexConnection i : indexConnections) {
-			Triangle fromNode = triangles.get(i.fromTriIndex);
-			Triangle toNode = triangles.get(i.toTriIndex);
-			Vector3 edgeVertexA = vertexVectors[i.edgeVertexIndex1];
-			Vector3 edgeVertexB = vertexVectors[i.edgeVertexIndex2];
+		// The triangle graph uses consecutive indices for each unique triangle in the whole model.
+		// The Bullet raycast uses MeshPart index combined with triangle index inside the MeshPart,
+		// so we need to be able to convert between them.
+		int[] meshPartTriIndexOffsets = new int[meshPartIndexOffsets.length];
+		int[] meshPartTriCounts = new int[meshPartIndexOffsets.length];
+		for (int i = 0; i < meshPartIndexOffsets.length; i++) {
+			meshPartTriIndexOffsets[i] = meshPartIndexOffsets[i] / 3;
+		}
+		for (int i = 0; i < meshPartIndexOffsets.length; i++) {
+			int end = (i + 1 < meshPartIndexOffsets.length) ? meshPartTriIndexOffsets[i + 1] : numTris;
+			meshPartTriCounts[i] = end - meshPartTriIndexOffsets[i];
+		}
+
+		float[] centroids = new float[numTris * 3];
+		float[] areas = new float[numTris];
+		for (int i = 0; i < numTris; i++) {
+			int a = triangleVertices[i * 3] * 3;
+			int b = triangleVertices[i * 3 + 1] * 3;
+			int c = triangleVertices[i * 3 + 2] * 3;
+			for (int k = 0; k < 3; k++) {
+				centroids[i * 3 + k] = (vertices[a + k] + vertices[b + k] + vertices[c + k]) * (1f / 3f);
+			}
+			areas[i] = Triangle.area(vertices[a], vertices[a + 1], vertices[a + 2],
+					vertices[b], vertices[b + 1], vertices[b + 2],
+					vertices[c], vertices[c + 1], vertices[c + 2]);
+		}
 
-			Edge edge = new Edge(fromNode, toNode, edgeVertexA, edgeVertexB);
-			connectionMap.get(fromNode).add(edge);
-			fromNode.connections.add(edge);
+		// Group the connections by the triangle they start from, keeping their order
+		int[] connectionOffsets = new int[numTris + 1];
+		for (IndexConnection connection : indexConnections) {
+			connectionOffsets[connection.fromTriIndex + 1]++;
+		}
+		for (int i = 0; i < numTris; i++) {
+			connectionOffsets[i + 1] += connectionOffsets[i];
+		}
+		int[] connectionTriangles = new int[indexConnections.size];
+		int[] connectionVertices = new int[indexConnections.size * 2];
+		int[] next = Arrays.copyOf(connectionOffsets, numTris);
+		for (IndexConnection connection : indexConnections) {
+			int j = next[connection.fromTriIndex]++;
+			connectionTriangles[j] = connection.toTriIndex;
+			connectionVertices[j * 2] = vertexRemap[connection.edgeVertexIndex1];
+			connectionVertices[j * 2 + 1] = vertexRemap[connection.edgeVertexIndex2];
 		}
-		return connectionMap;
+		return new NavMeshGraphData(vertices, triangleVertices, centroids, areas,
+				meshPartTriIndexOffsets, meshPartTriCounts, connectionOffsets, connectionTriangles, connectionVertices);
 	}
 
 	/**
-	 * Get an array of the vertex indices from the mesh. Any vertices which share the same position will be counted
-	 * as a single vertex and share the same index. That is, position duplicates will be filtered out.
+	 * Get the packed x, y and z coordinates of each vertex in the mesh.
 	 *
 	 * @param mesh
 	 * @return
 	 */
-	private static short[] getUniquePositionVertexIndices(Mesh mesh) {
+	private static float[] getVertexPositions(Mesh mesh) {
 		FloatBuffer verticesBuffer = mesh.getVerticesBuffer();
 		int positionOffset = mesh.getVertexAttributes().findByUsage(VertexAttributes.Usage.Position).offset / 4;
 		// Number of array elements which make up a vertex
 		int vertexSize = mesh.getVertexSize() / 4;
-		// The indices tell us which vertices are part of a triangle.
-		short[] indices = new short[mesh.getNumIndices()];
-		mesh.getIndices(indices);
-		// Marks true if an index has already been compared to avoid unnecessary comparisons
-		Bits handledIndices = new Bits(mesh.getNumIndices());
+		float[] positions = new float[mesh.getNumVertices() * 3];
+		for (int i = 0; i < mesh.getNumVertices(); i++) {
+			int a = i * vertexSize + positionOffset;
+			positions[i * 3] = verticesBuffer.get(a++);
+			positions[i * 3 + 1] = verticesBuffer.get(a++);
+			positions[i * 3 + 2] = verticesBuffer.get(a);
+		}
+		return positions;
+	}
 
-		for (int i = 0; i < indices.length; i++) {
-			short indexI = indices[i];
-			if (handledIndices.get(indexI)) {
-				// Index handled in an earlier iteration
-				continue;
-			}
-			int vBufIndexI = indexI * vertexSize + positionOffset;
-			float xi = verticesBuffer.get(vBufIndexI++);
-			float yi = verticesBuffer.get(vBufIndexI++);
-			float zi = verticesBuffer.get(vBufIndexI++);
-			for (int j = i + 1; j < indices.length; j++) {
-				short indexJ = indices[j];
-				int vBufIndexJ = indexJ * vertexSize + positionOffset;
-				float xj = verticesBuffer.get(vBufIndexJ++);
-				float yj = verticesBuffer.get(vBufIndexJ++);
-				float zj = verticesBuffer.get(vBufIndexJ++);
-				if (xi == xj && yi == yj && zi == zj) {
-					indices[j] = indexI;
-				}
-			}
-			handledIndices.set(indexI);
+	private static float[] getVertexPositions(ModelMesh mesh) {
+		VertexAttributes attributes = new VertexAttributes(mesh.attributes);
+		int positionOffset = attributes.findByUsage(VertexAttributes.Usage.Position).offset / 4;
+		int vertexSize = attributes.vertexSize / 4;
+		int numVertices = mesh.vertices.length / vertexSize;
+		float[] positions = new float[numVertices * 3];
+		for (int i = 0; i < numVertices; i++) {
+			System.arraycopy(mesh.vertices, i * vertexSize + positionOffset, positions, i * 3, 3);
 		}
-		return indices;
+		return positions;
 	}
 
+	/**
+	 * Get the vertex indices of the mesh. Mesh indices are stored as 16-bit values, which are read as unsigned,
+	 * so meshes with up to 65536 vertices and any number of triangles are supported.
+	 *
+	 * @param mesh
+	 * @return
+	 */
+	private static int[] getIndices(Mesh mesh) {
+		short[] shortIndices = new short[mesh.getNumIndices()];
+		mesh.getIndices(shortIndices);
+		int[] indices = new int[shortIndices.length];
+		for (int i = 0; i < shortIndices.length; i++) {
+			indices[i] = shortIndices[i] & 0xFFFF;
+		}
+		return indices;
+	}
 
 	/**
-	 * Creates triangle objects according to the index array, using Vector3 objects from the provided vector array.
+	 * Get the vertex indices of all parts of the mesh, in the order the parts are put in the index buffer of a
+	 * loaded {@link Mesh}.
 	 *
-	 * @param vertexVectors
-	 * @param indices
-	 * @param meshPartIndexOffsets
-	 * @param meshPartTriCounts
+	 * @param mesh
 	 * @return
 	 */
-	private static Array<Triangle> createTriangles(Vector3[] vertexVectors, short[] indices,
-												   int[] meshPartIndexOffsets, int[] meshPartTriCounts) {
-		Array<Triangle> triangles = new Array<Triangle>();
-		triangles.ordered = true;
-		short i = 0;
-		short j = 0;
-		int triIndex = 0;
-		int meshPartIndex = -1;
-		while (i < indices.length) {
-			if (j < meshPartIndexOffsets.length && i >= meshPartIndexOffsets[j]) {
-				meshPartIndex++;
-				j++;
+	private static int[] getIndices(ModelMesh mesh) {
+		IntArray indices = new IntArray();
+		for (ModelMeshPart part : mesh.parts) {
+			for (short index : part.indices) {
+				indices.add(index & 0xFFFF);
 			}
-			triangles.add(new Triangle(
-					vertexVectors[indices[i++]],
-					vertexVectors[indices[i++]],
-					vertexVectors[indices[i++]],
-					triIndex, meshPartIndex));
-			meshPartTriCounts[meshPartIndex]++;
-			triIndex++;
 		}
-		return triangles;
+		return indices.toArray();
+	}
+
+	private static int[] getMeshPartIndexOffsets(ModelMesh mesh) {
+		int[] meshPartIndexOffsets = new int[mesh.parts.length];
+		int offset = 0;
+		for (int i = 0; i < mesh.parts.length; i++) {
+			meshPartIndexOffsets[i] = offset;
+			offset += mesh.parts[i].indices.length;
+		}
+		return meshPartIndexOffsets;
 	}
 
 	/**
-	 * Creates Vector3 objects from the vertices of the mesh. The resulting array follows the ordering of the provided
-	 * index array.
+	 * Get the offset in the index buffer where each mesh part of the model starts.
 	 *
-	 * @param mesh
-	 * @param indices
+	 * @param model
 	 * @return
 	 */
-	private static Vector3[] createVertexVectors(Mesh mesh, short[] indices) {
-		FloatBuffer verticesBuffer = mesh.getVerticesBuffer();
-		int positionOffset = mesh.getVertexAttributes().findByUsage(VertexAttributes.Usage.Position).offset / 4;
-		int vertexSize = mesh.getVertexSize() / 4;
-		Vector3[] vertexVectors = new Vector3[mesh.getNumIndices()];
+	private static int[] getMeshPartIndexOffsets(Model model) {
+		int[] meshPartIndexOffsets = new int[model.meshParts.size];
+		for (int i = 0; i < model.meshParts.size; i++) {
+			MeshPart meshPart = model.meshParts.get(i);
+			meshPartIndexOffsets[i] = meshPart.offset;
+		}
+		return meshPartIndexOffsets;
+	}
+
+	/**
+	 * Modify the vertex indices so that any vertices which share the same position will be counted
+	 * as a single vertex and share the same index. That is, position duplicates will be filtered out.
+	 * <p/>
+	 * Vertex positions are hashed into a uniform grid of cells, so only vertices in the same (or, when welding with
+	 * an epsilon, neighbouring) cells need to be compared. The first index in the index buffer at a given position
+	 * becomes the index used by all of its duplicates.
+	 *
+	 * @param vertexPositions The packed vertex positions
+	 * @param indices         The vertex indices, which are modified in place
+	 * @param weldEpsilon     Vertices closer to each other than this are welded together. If zero, positions must
+	 *                        match exactly.
+	 */
+	static void weldUniquePositionVertexIndices(float[] vertexPositions, int[] indices, float weldEpsilon) {
+		// Maps each vertex index to the index it was welded with, so each vertex is only hashed once
+		IntIntMap weldedIndices = new IntIntMap(indices.length);
+		// The unique position vertex indices in each hash cell
+		LongMap<IntArray> cells = new LongMap<IntArray>(indices.length);
+
+		float cellSize = Math.max(weldEpsilon * 2, WELD_CELL_SIZE);
+		float epsilon2 = weldEpsilon * weldEpsilon;
+		int searchRadius = (weldEpsilon > 0) ? 1 : 0;
+
 		for (int i = 0; i < indices.length; i++) {
-			short index = indices[i];
-			int a = index * vertexSize + positionOffset;
-			float x = verticesBuffer.get(a++);
-			float y = verticesBuffer.get(a++);
-			float z = verticesBuffer.get(a);
-			vertexVectors[index] = new Vector3(x, y, z);
+			int indexI = indices[i];
+			int welded = weldedIndices.get(indexI, -1);
+			if (welded != -1) {
+				// Index handled in an earlier iteration
+				indices[i] = welded;
+				continue;
+			}
+			float xi = vertexPositions[indexI * 3];
+			float yi = vertexPositions[indexI * 3 + 1];
+			float zi = vertexPositions[indexI * 3 + 2];
+			int cx = (int) Math.floor(xi / cellSize);
+			int cy = (int) Math.floor(yi / cellSize);
+			int cz = (int) Math.floor(zi / cellSize);
+
+			search:
+			for (int dx = -searchRadius; dx <= searchRadius; dx++) {
+				for (int dy = -searchRadius; dy <= searchRadius; dy++) {
+					for (int dz = -searchRadius; dz <= searchRadius; dz++) {
+						IntArray cell = cells.get(cellKey(cx + dx, cy + dy, cz + dz));
+						if (cell == null) {
+							continue;
+						}
+						for (int k = 0; k < cell.size; k++) {
+							int indexJ = cell.get(k);
+							float ddx = xi - vertexPositions[indexJ * 3];
+							float ddy = yi - vertexPositions[indexJ * 3 + 1];
+							float ddz = zi - vertexPositions[indexJ * 3 + 2];
+							if ((ddx == 0 && ddy == 0 && ddz == 0) || ddx * ddx + ddy * ddy + ddz * ddz <= epsilon2) {
+								welded = indexJ;
+								break search;
+							}
+						}
+					}
+				}
+			}
+			if (welded == -1) {
+				// First vertex at this position
+				welded = indexI;
+				long key = cellKey(cx, cy, cz);
+				IntArray cell = cells.get(key);
+				if (cell == null) {
+					cell = new IntArray(4);
+					cells.put(key, cell);
+				}
+				cell.add(indexI);
+			}
+			weldedIndices.put(indexI, welded);
+			indices[i] = welded;
+		}
+	}
+
+	/**
+	 * Packs the coordinates of a vertex hash cell into a key. Coordinates are wrapped to 21 bits each, which may
+	 * cause distant cells to collide, but since positions are always compared this only costs a few comparisons.
+	 */
+	private static long cellKey(int cx, int cy, int cz) {
+		return ((long) (cx & 0x1FFFFF) << 42) | ((long) (cy & 0x1FFFFF) << 21) | (long) (cz & 0x1FFFFF);
+	}
+
+	/**
+	 * Creates the triangle objects and their edge connections from the graph data. Triangles share the Vector3
+	 * objects of their vertices, and edges share those of the triangles.
+	 * <p/>
+	 * The objects are created up front and kept next to the arrays on purpose. gdx-ai path finders keep references
+	 * to the nodes between searches, and the rest of the game compares triangles and edges by identity, so they must
+	 * be the same objects every time. Creating them on demand would either allocate in every query, or need a cache
+	 * which holds most of them anyway. Searches and lookups which visit many triangles read the arrays instead.
+	 *
+	 * @param data
+	 * @return
+	 */
+	private static Triangle[] createTriangles(NavMeshGraphData data) {
+		float[] v = data.vertices;
+		Vector3[] vertexVectors = new Vector3[data.getVertexCount()];
+		for (int i = 0; i < vertexVectors.length; i++) {
+			vertexVectors[i] = new Vector3(v[i * 3], v[i * 3 + 1], v[i * 3 + 2]);
+		}
+		int numTris = data.getTriangleCount();
+		Triangle[] triangles = new Triangle[numTris];
+		int[] triVertices = data.triangleVertices;
+		float[] centroids = data.centroids;
+		for (int i = 0; i < numTris; i++) {
+			triangles[i] = new Triangle(
+					vertexVectors[triVertices[i * 3]],
+					vertexVectors[triVertices[i * 3 + 1]],
+					vertexVectors[triVertices[i * 3 + 2]],
+					i, data.getMeshPartIndex(i),
+					new Vector3(centroids[i * 3], centroids[i * 3 + 1], centroids[i * 3 + 2]),
+					data.connectionOffsets[i + 1] - data.connectionOffsets[i]);
+		}
+		for (int i = 0; i < numTris; i++) {
+			Triangle tri = triangles[i];
+			for (int j = data.connectionOffsets[i]; j < data.connectionOffsets[i + 1]; j++) {
+				tri.connections.add(new Edge(tri, triangles[data.connectionTriangles[j]],
+						vertexVectors[data.connectionVertices[j * 2]], vertexVectors[data.connectionVertices[j * 2 + 1]],
+						data.connectionCosts[j]));
+			}
 		}
-		return vertexVectors;
+		return triangles;
 	}
 
 	/**
 	 * Loops through each triangle among the indices and searches for edges shared with other triangles.
-	 * TODO: Can be optimized by removing triangles which have all their sides connected at some point.
+	 * <p/>
+	 * Each edge is hashed by its (unordered) vertex indices, so that only triangles which actually share
+	 * an edge are compared. Connections are created in order of increasing triangle index, for both the
+	 * from and the to triangle.
 	 *
 	 * @param indices
 	 * @return
 	 */
-	private static Array<IndexConnection> getIndexConnections(short[] indices) {
+	private static Array<IndexConnection> getIndexConnections(int[] indices) {
+		int numTriangles = indices.length / 3;
+		// Maps each edge to the triangles which have that edge
+		LongMap<IntArray> edgeTriangles = new LongMap<IntArray>(indices.length);
+		for (int i = 0; i < indices.length; i += 3) {
+			int triIndex = i / 3;
+			addEdgeTriangle(edgeTriangles, indices[i], indices[i + 1], triIndex);
+			addEdgeTriangle(edgeTriangles, indices[i + 1], indices[i + 2], triIndex);
+			addEdgeTriangle(edgeTriangles, indices[i + 2], indices[i], triIndex);
+		}
+
 		Array<IndexConnection> indexConnections = new Array<IndexConnection>();
 		indexConnections.ordered = true;
-		short[] edge = {-1, -1};
-		short i = 0;
-		short j, a0, a1, a2, b0, b1, b2, triAIndex, triBIndex;
-		while (i < indices.length) {
-			triAIndex = (short) (i / 3);
-			a0 = indices[i++];
-			a1 = indices[i++];
-			a2 = indices[i++];
-			j = i;
-			while (j < indices.length) {
-				triBIndex = (short) (j / 3);
-				b0 = indices[j++];
-				b1 = indices[j++];
-				b2 = indices[j++];
+		int[] edge = {-1, -1};
+		IntArray neighbours = new IntArray();
+		int a0, a1, a2, b0, b1, b2;
+		for (int triAIndex = 0; triAIndex < numTriangles; triAIndex++) {
+			int i = triAIndex * 3;
+			a0 = indices[i];
+			a1 = indices[i + 1];
+			a2 = indices[i + 2];
+
+			// Find the triangles with a higher index which share an edge with this one
+			neighbours.clear();
+			addEdgeNeighbours(edgeTriangles.get(edgeKey(a0, a1)), triAIndex, neighbours);
+			addEdgeNeighbours(edgeTriangles.get(edgeKey(a1, a2)), triAIndex, neighbours);
+			addEdgeNeighbours(edgeTriangles.get(edgeKey(a2, a0)), triAIndex, neighbours);
+			neighbours.sort();
+
+			int previous = -1;
+			for (int n = 0; n < neighbours.size; n++) {
+				int triBIndex = neighbours.get(n);
+				if (triBIndex == previous) {
+					// Triangles sharing more than one edge are only connected once
+					continue;
+				}
+				previous = triBIndex;
+				int j = triBIndex * 3;
+				b0 = indices[j];
+				b1 = indices[j + 1];
+				b2 = indices[j + 2];
 				if (hasSharedEdgeIndices(a0, a1, a2, b0, b1, b2, edge)) {
 					indexConnections.add(new IndexConnection(edge[0], edge[1], triAIndex, triBIndex));
 					indexConnections.add(new IndexConnection(edge[1], edge[0], triBIndex, triAIndex));
@@ -335,6 +630,35 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 		return indexConnections;
 	}
 
+	/**
+	 * Key for an edge between two vertex indices, independent of the winding order.
+	 */
+	private static long edgeKey(int vertexIndex1, int vertexIndex2) {
+		int min = Math.min(vertexIndex1, vertexIndex2);
+		int max = Math.max(vertexIndex1, vertexIndex2);
+		return ((long) min << 32) | (max & 0xFFFFFFFFL);
+	}
+
+	private static void addEdgeTriangle(LongMap<IntArray> edgeTriangles,
+										int vertexIndex1, int vertexIndex2, int triIndex) {
+		long key = edgeKey(vertexIndex1, vertexIndex2);
+		IntArray triangles = edgeTriangles.get(key);
+		if (triangles == null) {
+			triangles = new IntArray(2);
+			edgeTriangles.put(key, triangles);
+		}
+		triangles.add(triIndex);
+	}
+
+	private static void addEdgeNeighbours(IntArray edgeTriangles, int triIndex, IntArray out) {
+		for (int i = 0; i < edgeTriangles.size; i++) {
+			int neighbour = edgeTriangles.get(i);
+			if (neighbour > triIndex) {
+				out.add(neighbour);
+			}
+		}
+	}
+
 	/**
 	 * Checks if the two triangles have shared vertex indices. The edge will always follow the vertex winding order
 	 * of the triangle A. Since all triangles have the same winding order, triangle A should have the opposite
@@ -349,8 +673,8 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 	 * @param edge Output, the indices of the shared vertices in the winding order of triangle A.
 	 * @return True if the triangles share an edge.
 	 */
-	private static boolean hasSharedEdgeIndices(short a0, short a1, short a2,
-												short b0, short b1, short b2, short[] edge) {
+	private static boolean hasSharedEdgeIndices(int a0, int a1, int a2,
+												int b0, int b1, int b2, int[] edge) {
 		boolean match0 = (a0 == b0 || a0 == b1 || a0 == b2);
 		boolean match1 = (a1 == b0 || a1 == b1 || a1 == b2);
 		if (!match0 && !match1) {
@@ -375,7 +699,16 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 
 	@Override
 	public int getNodeCount() {
-		return sharedEdges.size;
+		return triangles.length;
+	}
+
+	/**
+	 * The flat array data which the triangles and edges of the graph were created from.
+	 *
+	 * @return
+	 */
+	public NavMeshGraphData getData() {
+		return data;
 	}
 
 	/**
@@ -385,7 +718,17 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 	 * @return
 	 */
 	public int getTriangleCount(int meshPartIndex) {
-		return meshPartTriCounts[meshPartIndex];
+		return data.meshPartTriCounts[meshPartIndex];
+	}
+
+	/**
+	 * The graph index of the first triangle in specified MeshPart.
+	 *
+	 * @param meshPartIndex
+	 * @return
+	 */
+	public int getTriangleOffset(int meshPartIndex) {
+		return data.meshPartTriIndexOffsets[meshPartIndex];
 	}
 
 	@Override
@@ -393,10 +736,205 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 		return node.getIndex();
 	}
 
+	/**
+	 * The connected component of a triangle. There is a path between two triangles only if they are in the
+	 * same component.
+	 *
+	 * @param triIndex
+	 * @return The component index
+	 */
+	public int getComponent(int triIndex) {
+		return componentLabels[triIndex];
+	}
+
+	/**
+	 * @return The number of connected components, parts of the graph with no connections between them
+	 */
+	public int getComponentCount() {
+		return numComponents;
+	}
+
+	/**
+	 * Check in constant time if there can be a path between two triangles. Blocked triangles are not taken into
+	 * account, so a path is not guaranteed to exist if they are connected.
+	 *
+	 * @param fromTri
+	 * @param toTri
+	 * @return False if there is no path between the triangles
+	 */
+	public boolean isConnected(Triangle fromTri, Triangle toTri) {
+		return componentLabels[fromTri.triIndex] == componentLabels[toTri.triIndex];
+	}
+
+	/**
+	 * Get the connections from a triangle, except those into blocked triangles. If any neighbour is blocked, the
+	 * returned array is reused by the next call on the same thread.
+	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	public Array<Connection<Triangle>> getConnections(Triangle fromNode) {
-		return (Array<Connection<Triangle>>) (Array<?>) sharedEdges.getValueAt(fromNode.triIndex);
+		CostState state = costState;
+		if (state == null || state.blockedNeighbourCounts[fromNode.triIndex] == 0) {
+			return fromNode.connections;
+		}
+		Array<Connection<Triangle>> open = openConnections.get();
+		open.clear();
+		Array<Connection<Triangle>> all = fromNode.connections;
+		for (int i = 0; i < all.size; i++) {
+			Connection<Triangle> connection = all.get(i);
+			if (!isTriangleBlocked(connection.getToNode().triIndex)) {
+				open.add(connection);
+			}
+		}
+		return open;
+	}
+
+	/**
+	 * The factor which distances within a triangle are scaled by in the connection costs, one by default.
+	 *
+	 * @param triIndex
+	 * @return The scale, or positive infinity if the triangle is blocked
+	 */
+	public float getTriangleCostScale(int triIndex) {
+		CostState state = costState;
+		return (state == null) ? 1 : state.scales[triIndex];
+	}
+
+	public boolean isTriangleBlocked(int triIndex) {
+		return getTriangleCostScale(triIndex) == Float.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return The number of blocked triangles
+	 */
+	public int getBlockedTriangleCount() {
+		return numBlockedTriangles;
+	}
+
+	/**
+	 * Incremented each time the cost of a triangle changes, after the new costs have been written. Reading the
+	 * version from another thread makes the costs written up to that version visible to it.
+	 * <p/>
+	 * A search on another thread may or may not see costs which change while it runs, so its result should be
+	 * checked with {@link #isPathChanged} against the version from before the search started.
+	 *
+	 * @return
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @param triIndex
+	 * @return The graph version when the cost of the triangle last changed, or zero if it never has.
+	 */
+	public int getTriangleVersion(int triIndex) {
+		CostState state = costState;
+		return (state == null) ? 0 : state.versions[triIndex];
+	}
+
+	/**
+	 * Check if the cost of any triangle along a path has changed after a graph version.
+	 *
+	 * @param path    The path
+	 * @param version The graph version the path was found at
+	 * @return
+	 */
+	public boolean isPathChanged(NavMeshGraphPath path, int version) {
+		if (this.version == version) {
+			return false;
+		}
+		NavMeshPolygons polygons = path.polygons;
+		if (polygons != null) {
+			// Any triangle of the polygons along the path may be crossed
+			if (path.startTri != null && polygons.isChanged(polygons.getPolygonIndex(path.startTri.triIndex), version)) {
+				return true;
+			}
+			for (int i = 0; i < path.nodes.size; i++) {
+				if (polygons.isChanged(polygons.getPolygonIndex(path.nodes.get(i).getToNode().triIndex), version)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if (path.startTri != null && getTriangleVersion(path.startTri.triIndex) > version) {
+			return true;
+		}
+		for (int i = 0; i < path.nodes.size; i++) {
+			if (getTriangleVersion(path.nodes.get(i).getToNode().triIndex) > version) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Set the factor which distances within a triangle are scaled by, and update the cost of the connections
+	 * from and to the triangle. Scales less than one would make the path finding heuristics overestimate.
+	 *
+	 * @param triIndex
+	 * @param scale    At least one, or positive infinity to block the triangle
+	 * @return True if the scale changed
+	 */
+	boolean setTriangleCostScale(int triIndex, float scale) {
+		// Only written on the game thread
+		CostState state = costState;
+		if (state == null) {
+			state = new CostState(triangles.length);
+			costState = state;
+		}
+		float oldScale = state.scales[triIndex];
+		if (oldScale == scale) {
+			return false;
+		}
+		int newVersion = version + 1;
+		state.scales[triIndex] = scale;
+		state.versions[triIndex] = newVersion;
+
+		boolean blocked = scale == Float.POSITIVE_INFINITY;
+		if (blocked != (oldScale == Float.POSITIVE_INFINITY)) {
+			numBlockedTriangles += blocked ? 1 : -1;
+			for (int i = data.connectionOffsets[triIndex]; i < data.connectionOffsets[triIndex + 1]; i++) {
+				state.blockedNeighbourCounts[data.connectionTriangles[i]] += blocked ? 1 : -1;
+			}
+		}
+		Triangle tri = triangles[triIndex];
+		for (int i = data.connectionOffsets[triIndex]; i < data.connectionOffsets[triIndex + 1]; i++) {
+			Edge edge = (Edge) tri.connections.get(i - data.connectionOffsets[triIndex]);
+			edge.setCost(getConnectionCost(state, triIndex, i));
+			// The mirrored connection back to this triangle
+			int toIndex = data.connectionTriangles[i];
+			Triangle toTri = triangles[toIndex];
+			for (int j = data.connectionOffsets[toIndex]; j < data.connectionOffsets[toIndex + 1]; j++) {
+				if (data.connectionTriangles[j] == triIndex) {
+					((Edge) toTri.connections.get(j - data.connectionOffsets[toIndex]))
+							.setCost(getConnectionCost(state, toIndex, j));
+				}
+			}
+		}
+		// Publishes the changes above to threads which read the version
+		version = newVersion;
+		return true;
+	}
+
+	/**
+	 * A blocked triangle can not be entered, but leaving it costs the same as if it was not scaled.
+	 */
+	private float getConnectionCost(CostState state, int fromTriIndex, int connectionIndex) {
+		float fromScale = state.scales[fromTriIndex];
+		float toScale = state.scales[data.connectionTriangles[connectionIndex]];
+		return data.getConnectionCost(connectionIndex, fromTriIndex,
+				(fromScale == Float.POSITIVE_INFINITY) ? 1 : fromScale,
+				(toScale == Float.POSITIVE_INFINITY) ? 1 : toScale);
+	}
+
+	/**
+	 * The area of a triangle, calculated when the graph was created.
+	 *
+	 * @param triIndex
+	 * @return
+	 */
+	public float getTriangleArea(int triIndex) {
+		return data.areas[triIndex];
 	}
 
 	/**
@@ -406,7 +944,12 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 	 * @return
 	 */
 	public Array<Edge> getIsolatedEdges(int triIndex) {
-		return isolatedEdgesMap.getValueAt(triIndex);
+		Array<Edge> edges = isolatedEdges[triIndex];
+		if (edges == null) {
+			edges = createIsolatedEdges(triangles[triIndex]);
+			isolatedEdges[triIndex] = edges;
+		}
+		return edges;
 	}
 
 	/**
@@ -416,8 +959,9 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 	 * @param triIndex
 	 * @return
 	 */
+	@SuppressWarnings("unchecked")
 	public Array<Edge> getSharedEdges(int triIndex) {
-		return sharedEdges.getValueAt(triIndex);
+		return (Array<Edge>) (Array<?>) triangles[triIndex].connections;
 	}
 
 
@@ -428,7 +972,7 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 	 * @return
 	 */
 	public Triangle getTriangleFromGraphIndex(int graphTriIndex) {
-		return sharedEdges.getKeyAt(graphTriIndex);
+		return triangles[graphTriIndex];
 	}
 
 	/**
@@ -439,7 +983,7 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 	 * @return
 	 */
 	public Triangle getTriangleFromMeshPart(int meshPartIndex, int meshPartTriIndex) {
-		return sharedEdges.getKeyAt(meshPartTriIndexOffsets[meshPartIndex] + meshPartTriIndex);
+		return triangles[data.meshPartTriIndexOffsets[meshPartIndex] + meshPartTriIndex];
 	}
 
 	/**
@@ -448,7 +992,7 @@ public class NavMeshGraph implements IndexedGraph<Triangle> {
 	 * @return
 	 */
 	public int getMeshPartCount() {
-		return meshPartTriIndexOffsets.length;
+		return data.meshPartTriIndexOffsets.length;
 	}
 
 	/**
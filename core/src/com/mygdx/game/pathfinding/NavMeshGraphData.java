@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.math.Vector3;
+
+/**
+ * The triangles and connections of a {@link NavMeshGraph}, stored in flat arrays.
+ * <p/>
+ * The connections of all triangles are stored one after the other, in compressed sparse row form. The connections
+ * of triangle i are found at the indices from {@code connectionOffsets[i]} up to {@code connectionOffsets[i + 1]},
+ * and each connection stores the index of the triangle it leads to and the vertices of the shared edge.
+ * <p/>
+ * The {@link Triangle} and {@link Edge} objects of the graph are created from this data, and share the vertex
+ * vectors. The arrays must not be modified.
+ *
+ * @author jsjolund
+ */
+public class NavMeshGraphData {
+
+	/**
+	 * The x, y and z coordinates of each unique vertex, packed.
+	 */
+	final float[] vertices;
+	/**
+	 * Three vertex indices for each triangle, in the winding order of the mesh.
+	 */
+	final int[] triangleVertices;
+	/**
+	 * The x, y and z coordinates of the centroid of each triangle, packed.
+	 */
+	final float[] centroids;
+	final float[] areas;
+	/**
+	 * Index of the first triangle, and number of triangles, in each mesh part.
+	 */
+	final int[] meshPartTriIndexOffsets;
+	final int[] meshPartTriCounts;
+	/**
+	 * Index of the first connection of each triangle, with one extra element holding the total number of connections.
+	 */
+	final int[] connectionOffsets;
+	/**
+	 * The triangle which each connection leads to.
+	 */
+	final int[] connectionTriangles;
+	/**
+	 * The right and left vertex index of the edge shared by the triangles of each connection,
+	 * in the winding order of the triangle the connection starts from.
+	 */
+	final int[] connectionVertices;
+	/**
+	 * The midpoint of the shared edge of each connection, packed. Calculated from the other data.
+	 */
+	final float[] connectionMidpoints;
+	/**
+	 * The cost of each connection, calculated from the other data, see {@link #getTraversalCost}.
+	 */
+	final float[] connectionCosts;
+
+	NavMeshGraphData(float[] vertices, int[] triangleVertices, float[] centroids, float[] areas,
+					 int[] meshPartTriIndexOffsets, int[] meshPartTriCounts,
+					 int[] connectionOffsets, int[] connectionTriangles, int[] connectionVertices) {
+		this.vertices = vertices;
+		this.triangleVertices = triangleVertices;
+		this.centroids = centroids;
+		this.areas = areas;
+		this.meshPartTriIndexOffsets = meshPartTriIndexOffsets;
+		this.meshPartTriCounts = meshPartTriCounts;
+		this.connectionOffsets = connectionOffsets;
+		this.connectionTriangles = connectionTriangles;
+		this.connectionVertices = connectionVertices;
+
+		int numConnections = connectionTriangles.length;
+		connectionMidpoints = new float[numConnections * 3];
+		connectionCosts = new float[numConnections];
+		for (int triIndex = 0; triIndex < areas.length; triIndex++) {
+			for (int i = connectionOffsets[triIndex]; i < connectionOffsets[triIndex + 1]; i++) {
+				int right = connectionVertices[i * 2] * 3;
+				int left = connectionVertices[i * 2 + 1] * 3;
+				for (int k = 0; k < 3; k++) {
+					connectionMidpoints[i * 3 + k] = (vertices[right + k] + vertices[left + k]) * 0.5f;
+				}
+				int from = triIndex * 3;
+				int to = connectionTriangles[i] * 3;
+				connectionCosts[i] = getTraversalCost(
+						centroids[from], centroids[from + 1], centroids[from + 2],
+						connectionMidpoints[i * 3], connectionMidpoints[i * 3 + 1], connectionMidpoints[i * 3 + 2],
+						centroids[to], centroids[to + 1], centroids[to + 2]);
+			}
+		}
+	}
+
+	/**
+	 * The cost of moving between two triangles, as the distance from the centroid of the first triangle to the
+	 * midpoint of the shared edge, plus the distance from there to the centroid of the second triangle.
+	 * This is never shorter than the distance between the centroids, so the distance between centroids can be
+	 * used as a consistent A* heuristic, see {@link NavMeshHeuristic}.
+	 *
+	 * @return The cost
+	 */
+	static float getTraversalCost(float fromX, float fromY, float fromZ,
+								  float midX, float midY, float midZ,
+								  float toX, float toY, float toZ) {
+		return (float) (dst(fromX, fromY, fromZ, midX, midY, midZ) + dst(midX, midY, midZ, toX, toY, toZ));
+	}
+
+	/**
+	 * The cost of a connection, with the distance travelled within each of the two triangles scaled.
+	 * Never less than the unscaled cost if both scales are at least one.
+	 *
+	 * @param connectionIndex Index of the connection
+	 * @param fromTriIndex    The triangle the connection starts from
+	 * @param fromScale       Cost scale of the from triangle
+	 * @param toScale         Cost scale of the to triangle
+	 * @return The cost
+	 */
+	float getConnectionCost(int connectionIndex, int fromTriIndex, float fromScale, float toScale) {
+		if (fromScale == 1 && toScale == 1) {
+			return connectionCosts[connectionIndex];
+		}
+		int from = fromTriIndex * 3;
+		int mid = connectionIndex * 3;
+		int to = connectionTriangles[connectionIndex] * 3;
+		float[] m = connectionMidpoints;
+		return (float) (dst(centroids[from], centroids[from + 1], centroids[from + 2], m[mid], m[mid + 1], m[mid + 2])
+				* fromScale
+				+ dst(m[mid], m[mid + 1], m[mid + 2], centroids[to], centroids[to + 1], centroids[to + 2]) * toScale);
+	}
+
+	private static double dst(float x1, float y1, float z1, float x2, float y2, float z2) {
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		float dz = z2 - z1;
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	public int getVertexCount() {
+		return vertices.length / 3;
+	}
+
+	public int getTriangleCount() {
+		return areas.length;
+	}
+
+	public int getMeshPartCount() {
+		return meshPartTriIndexOffsets.length;
+	}
+
+	/**
+	 * @return The number of connections, two for each edge shared by two triangles
+	 */
+	public int getConnectionCount() {
+		return connectionTriangles.length;
+	}
+
+	/**
+	 * Get the mesh part of a triangle, by searching the mesh part offsets.
+	 *
+	 * @param triIndex
+	 * @return
+	 */
+	public int getMeshPartIndex(int triIndex) {
+		int low = 0;
+		int high = meshPartTriIndexOffsets.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (meshPartTriIndexOffsets[mid] <= triIndex) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Check if an edge of a triangle is shared with another triangle.
+	 *
+	 * @param triIndex    The triangle
+	 * @param rightVertex Index of the first edge vertex, in the winding order of the triangle
+	 * @param leftVertex  Index of the second edge vertex
+	 * @return
+	 */
+	public boolean isSharedEdge(int triIndex, int rightVertex, int leftVertex) {
+		for (int i = connectionOffsets[triIndex]; i < connectionOffsets[triIndex + 1]; i++) {
+			if (connectionVertices[i * 2] == rightVertex && connectionVertices[i * 2 + 1] == leftVertex) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return The size of the arrays in bytes
+	 */
+	public long getSizeInBytes() {
+		return getSerializedSizeInBytes() + 4L * (connectionMidpoints.length + connectionCosts.length);
+	}
+
+	/**
+	 * @return The size of the arrays which are not calculated from the others, in bytes
+	 */
+	long getSerializedSizeInBytes() {
+		return 4L * (vertices.length + triangleVertices.length + centroids.length + areas.length
+				+ meshPartTriIndexOffsets.length + meshPartTriCounts.length
+				+ connectionOffsets.length + connectionTriangles.length + connectionVertices.length);
+	}
+
+	/**
+	 * Get the midpoint of the shared edge of a connection.
+	 *
+	 * @param connectionIndex Index of the connection, between the connection offsets of its triangle
+	 * @param out             Output vector
+	 * @return Output for chaining
+	 */
+	public Vector3 getConnectionMidpoint(int connectionIndex, Vector3 out) {
+		int i = connectionIndex * 3;
+		return out.set(connectionMidpoints[i], connectionMidpoints[i + 1], connectionMidpoints[i + 2]);
+	}
+
+}
@@ -33,11 +33,51 @@ public class NavMeshGraphPath extends DefaultGraphPath<Connection<Triangle>> {
 	 * If the triangle path is empty, the point path will span this triangle
 	 */
 	public Triangle startTri;
+	/**
+	 * The goal triangle of a polygon path, see {@link #polygons}, where the last portal may lead to another
+	 * triangle of the goal polygon. Null for a triangle path, which ends in the triangle its last edge leads to.
+	 */
+	public Triangle endTri;
+	/**
+	 * The polygons of a path found over {@link NavMeshPolygons}, or null for a triangle path. The connections of a
+	 * polygon path are portals between polygons, and the triangles they lead to are not a chain of neighbours,
+	 * so it can not be cached or repaired like a triangle path.
+	 */
+	public NavMeshPolygons polygons;
+
+	// Vectors owned by this path, see setPoints
+	private final Vector3 ownStart = new Vector3();
+	private final Vector3 ownEnd = new Vector3();
+
+	/**
+	 * Set the start and end points to copies of the given points, held in vectors owned by this path. Unlike
+	 * assigning {@link #start} and {@link #end}, later changes to the given vectors do not move the path.
+	 *
+	 * @param startPoint The start point
+	 * @param endPoint   The end point
+	 */
+	public void setPoints(Vector3 startPoint, Vector3 endPoint) {
+		float x = endPoint.x;
+		float y = endPoint.y;
+		float z = endPoint.z;
+		start = ownStart.set(startPoint);
+		end = ownEnd.set(x, y, z);
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		endTri = null;
+		polygons = null;
+	}
 
 	/**
 	 * @return Last triangle in the path.
 	 */
 	public Triangle getEndTriangle() {
+		if (endTri != null) {
+			return endTri;
+		}
 		return (getCount() > 0) ? get(getCount() - 1).getToNode() : startTri;
 	}
 }
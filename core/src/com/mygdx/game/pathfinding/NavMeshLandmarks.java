@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.utils.BinaryHeap;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.Arrays;
+
+/**
+ * Landmark distance tables for the A*, landmarks and triangle inequality (ALT) heuristic.
+ * <p/>
+ * The shortest path cost from a few landmark triangles to every triangle is calculated once. For any triangles
+ * v and t and landmark L, the triangle inequality gives {@code cost(v, t) >= |cost(L, t) - cost(L, v)|}, which is
+ * often a much better estimate than the straight distance, e.g. between floors connected by stairs.
+ * <p/>
+ * Landmarks are selected far apart: each new landmark is the triangle farthest from the ones already selected.
+ * Triangles which cannot be reached from any landmark are selected first, so every connected part of the
+ * navmesh gets a landmark if there are enough of them. The tables can be saved with {@link NavMeshCache}.
+ *
+ * @author jsjolund
+ */
+public class NavMeshLandmarks {
+
+	private static final String TAG = "NavMeshLandmarks";
+
+	/**
+	 * Estimates the cost between two triangles as the largest of the landmark lower bounds and the straight
+	 * distance between the centroids. Has no state, so it can be shared between threads.
+	 */
+	private class LandmarkHeuristic implements Heuristic<Triangle> {
+		@Override
+		public float estimate(Triangle node, Triangle endNode) {
+			float estimate = node.centroid.dst(endNode.centroid);
+			int k = landmarks.length;
+			int from = node.triIndex * k;
+			int to = endNode.triIndex * k;
+			for (int i = 0; i < k; i++) {
+				float d1 = distances[from + i];
+				float d2 = distances[to + i];
+				if (d1 == Float.POSITIVE_INFINITY || d2 == Float.POSITIVE_INFINITY) {
+					continue;
+				}
+				float diff = (d1 > d2) ? d1 - d2 : d2 - d1;
+				if (diff > estimate) {
+					estimate = diff;
+				}
+			}
+			return estimate;
+		}
+	}
+
+	private static class DijkstraNode extends BinaryHeap.Node {
+		final int triIndex;
+		boolean open;
+
+		DijkstraNode(int triIndex) {
+			super(0);
+			this.triIndex = triIndex;
+		}
+	}
+
+	public final NavMeshGraph graph;
+
+	/**
+	 * Graph index of each landmark triangle.
+	 */
+	final int[] landmarks;
+	/**
+	 * Path cost from each landmark to each triangle, or infinity if there is no path.
+	 * The costs of triangle i are found from index {@code i * landmarks.length}.
+	 */
+	final float[] distances;
+
+	private final LandmarkHeuristic heuristic = new LandmarkHeuristic();
+
+	NavMeshLandmarks(NavMeshGraph graph, int[] landmarks, float[] distances) {
+		this.graph = graph;
+		this.landmarks = landmarks;
+		this.distances = distances;
+	}
+
+	/**
+	 * Select landmarks and calculate the path cost from each of them to every triangle in the graph.
+	 * Takes one Dijkstra search over the graph per landmark.
+	 *
+	 * @param graph         The graph
+	 * @param landmarkCount Number of landmarks, limited to the number of triangles
+	 * @return
+	 */
+	public static NavMeshLandmarks create(NavMeshGraph graph, int landmarkCount) {
+		long startTime = TimeUtils.millis();
+		int numTris = graph.getNodeCount();
+		int k = Math.min(landmarkCount, numTris);
+		int[] landmarks = new int[k];
+		float[] distances = new float[numTris * k];
+
+		DijkstraNode[] nodes = new DijkstraNode[numTris];
+		for (int i = 0; i < numTris; i++) {
+			nodes[i] = new DijkstraNode(i);
+		}
+		BinaryHeap<DijkstraNode> openList = new BinaryHeap<DijkstraNode>();
+		float[] costs = new float[numTris];
+		// Cost from each triangle to the closest landmark selected so far
+		float[] minCosts = new float[numTris];
+
+		// Start from the triangle farthest from an arbitrary one
+		if (k > 0) {
+			searchCosts(graph, 0, nodes, openList, costs);
+			landmarks[0] = getFarthest(costs);
+		}
+		Arrays.fill(minCosts, Float.POSITIVE_INFINITY);
+		for (int i = 0; i < k; i++) {
+			if (i > 0) {
+				landmarks[i] = getFarthest(minCosts);
+			}
+			searchCosts(graph, landmarks[i], nodes, openList, costs);
+			for (int tri = 0; tri < numTris; tri++) {
+				distances[tri * k + i] = costs[tri];
+				if (costs[tri] < minCosts[tri]) {
+					minCosts[tri] = costs[tri];
+				}
+			}
+		}
+		Gdx.app.debug(TAG, "Created " + k + " landmarks in " + TimeUtils.timeSinceMillis(startTime) + " ms");
+		return new NavMeshLandmarks(graph, landmarks, distances);
+	}
+
+	/**
+	 * @return Index of the largest value, where infinity is larger than any finite value
+	 */
+	private static int getFarthest(float[] costs) {
+		int farthest = 0;
+		for (int i = 1; i < costs.length; i++) {
+			if (costs[i] > costs[farthest]) {
+				farthest = i;
+			}
+		}
+		return farthest;
+	}
+
+	/**
+	 * Dijkstra search for the lowest path cost from one triangle to all others. Uses the connection costs the graph
+	 * was created with, which obstacles never lower, so the tables stay valid when obstacles change.
+	 */
+	private static void searchCosts(NavMeshGraph graph, int source, DijkstraNode[] nodes,
+									BinaryHeap<DijkstraNode> openList, float[] out) {
+		NavMeshGraphData data = graph.getData();
+		Arrays.fill(out, Float.POSITIVE_INFINITY);
+		openList.clear();
+		out[source] = 0;
+		nodes[source].open = true;
+		openList.add(nodes[source], 0);
+		while (openList.size > 0) {
+			DijkstraNode node = openList.pop();
+			node.open = false;
+			float cost = out[node.triIndex];
+			for (int i = data.connectionOffsets[node.triIndex]; i < data.connectionOffsets[node.triIndex + 1]; i++) {
+				int toIndex = data.connectionTriangles[i];
+				float toCost = cost + data.connectionCosts[i];
+				if (toCost >= out[toIndex]) {
+					continue;
+				}
+				out[toIndex] = toCost;
+				DijkstraNode toNode = nodes[toIndex];
+				if (toNode.open) {
+					openList.setValue(toNode, toCost);
+				} else {
+					toNode.open = true;
+					openList.add(toNode, toCost);
+				}
+			}
+		}
+	}
+
+	public int getLandmarkCount() {
+		return landmarks.length;
+	}
+
+	public Triangle getLandmark(int landmarkIndex) {
+		return graph.getTriangleFromGraphIndex(landmarks[landmarkIndex]);
+	}
+
+	/**
+	 * @param landmarkIndex
+	 * @param triIndex
+	 * @return The path cost from a landmark to a triangle, or infinity if there is no path between them.
+	 */
+	public float getCost(int landmarkIndex, int triIndex) {
+		return distances[triIndex * landmarks.length + landmarkIndex];
+	}
+
+	/**
+	 * Heuristic using the landmark tables, which never estimates less than {@link NavMeshHeuristic}.
+	 *
+	 * @return
+	 */
+	public Heuristic<Triangle> getHeuristic() {
+		return heuristic;
+	}
+
+}
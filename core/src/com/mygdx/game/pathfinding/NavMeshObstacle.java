@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * The footprint of an object which blocks, or slows down, movement over the navmesh triangles below it,
+ * e.g. a closed door. Obstacles are added to the navmesh with {@link NavMeshObstacles}.
+ *
+ * @author jsjolund
+ */
+public class NavMeshObstacle {
+
+	/**
+	 * Cost scale which blocks the triangles below the obstacle.
+	 */
+	public static final float BLOCKED = Float.POSITIVE_INFINITY;
+
+	/**
+	 * World space bounds of the obstacle. Call {@link NavMeshObstacles#update} after changing them.
+	 */
+	public final BoundingBox bounds = new BoundingBox();
+
+	float costScale;
+	boolean added;
+	/**
+	 * Graph indices of the triangles below the obstacle, when it was last added or updated.
+	 */
+	final IntArray triangles = new IntArray();
+
+	/**
+	 * @param costScale Factor which the cost of moving over the triangles below the obstacle is scaled by,
+	 *                  at least one, or {@link #BLOCKED}.
+	 */
+	public NavMeshObstacle(float costScale) {
+		setCostScale(costScale);
+	}
+
+	public float getCostScale() {
+		return costScale;
+	}
+
+	/**
+	 * Call {@link NavMeshObstacles#update} after changing the cost scale of an added obstacle.
+	 *
+	 * @param costScale At least one, or {@link #BLOCKED}
+	 */
+	public void setCostScale(float costScale) {
+		if (!(costScale >= 1)) {
+			throw new IllegalArgumentException("Cost scale must be at least one: " + costScale);
+		}
+		this.costScale = costScale;
+	}
+
+	public boolean isBlocking() {
+		return costScale == BLOCKED;
+	}
+
+	/**
+	 * @return Number of navmesh triangles below the obstacle
+	 */
+	public int getTriangleCount() {
+		return triangles.size;
+	}
+
+	/**
+	 * @param index
+	 * @return Graph index of a triangle below the obstacle
+	 */
+	public int getTriangle(int index) {
+		return triangles.get(index);
+	}
+
+}
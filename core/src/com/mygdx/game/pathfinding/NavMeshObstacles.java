@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Dynamic obstacles on a {@link NavMesh}, which block or raise the cost of the triangles below them.
+ * <p/>
+ * The triangles are not cut by the obstacles. Instead, each triangle below an obstacle gets the highest cost
+ * scale of the obstacles above it, see {@link NavMeshGraph#getTriangleCostScale(int)}. Only the connections to and
+ * from the changed triangles are updated, the graph is not recreated.
+ * <p/>
+ * When the cost of triangles change, only path results which pass through them are invalidated:
+ * <ul>
+ * <li>Cached paths through them are removed, or the whole path cache is cleared if a cost was lowered, since
+ * a shorter path may exist for any pair of triangles.</li>
+ * <li>The search of the path request queue is restarted if it has reached them.</li>
+ * <li>Worker pool results through them are searched again before they are delivered.</li>
+ * </ul>
+ * Paths which have already been delivered are checked with {@link NavMeshGraph#isPathChanged}.
+ * <p/>
+ * Costs are only ever raised above those the graph was created with, so the path finding heuristics,
+ * including {@link NavMeshLandmarks}, stay admissible.
+ * <p/>
+ * Must only be used from the game thread.
+ *
+ * @author jsjolund
+ */
+public class NavMeshObstacles {
+
+	/**
+	 * Triangles this far below the bounds of an obstacle are also covered, since objects rest on, or slightly
+	 * above, the navmesh.
+	 */
+	public static final float MAX_GROUND_DISTANCE = 0.5f;
+
+	private final NavMesh navMesh;
+	private final Array<NavMeshObstacle> obstacles = new Array<NavMeshObstacle>();
+
+	// Temporary memory used by various methods for calculations
+	private final IntArray tmpTriangles = new IntArray();
+	private final IntArray tmpChangedTriangles = new IntArray();
+	private final Bits tmpChangedTriangleBits = new Bits();
+
+	public NavMeshObstacles(NavMesh navMesh) {
+		this.navMesh = navMesh;
+	}
+
+	/**
+	 * Add an obstacle, covering the triangles below its current bounds.
+	 *
+	 * @param obstacle
+	 */
+	public void add(NavMeshObstacle obstacle) {
+		if (obstacle.added) {
+			throw new IllegalArgumentException("Obstacle already added");
+		}
+		obstacle.added = true;
+		obstacles.add(obstacle);
+		update(obstacle);
+	}
+
+	/**
+	 * Update the covered triangles after the bounds or cost scale of an obstacle has changed.
+	 *
+	 * @param obstacle
+	 */
+	public void update(NavMeshObstacle obstacle) {
+		if (!obstacle.added) {
+			return;
+		}
+		// Previously covered triangles may be uncovered
+		tmpTriangles.clear();
+		tmpTriangles.addAll(obstacle.triangles);
+		obstacle.triangles.clear();
+		navMesh.getSpatialIndex().getTrianglesInBox(
+				obstacle.bounds.min.x, obstacle.bounds.min.y - MAX_GROUND_DISTANCE, obstacle.bounds.min.z,
+				obstacle.bounds.max.x, obstacle.bounds.max.y, obstacle.bounds.max.z,
+				obstacle.triangles);
+		tmpTriangles.addAll(obstacle.triangles);
+		updateTriangles(tmpTriangles);
+	}
+
+	/**
+	 * Remove an obstacle, restoring the cost of the triangles below it.
+	 *
+	 * @param obstacle
+	 */
+	public void remove(NavMeshObstacle obstacle) {
+		if (!obstacle.added) {
+			return;
+		}
+		obstacle.added = false;
+		obstacles.removeValue(obstacle, true);
+		tmpTriangles.clear();
+		tmpTriangles.addAll(obstacle.triangles);
+		obstacle.triangles.clear();
+		updateTriangles(tmpTriangles);
+	}
+
+	public int size() {
+		return obstacles.size;
+	}
+
+	public NavMeshObstacle get(int index) {
+		return obstacles.get(index);
+	}
+
+	/**
+	 * Set the cost scale of triangles to the highest one of the obstacles above them, and invalidate the paths
+	 * through the triangles which changed.
+	 */
+	private void updateTriangles(IntArray triIndices) {
+		NavMeshGraph graph = navMesh.graph;
+		tmpChangedTriangles.clear();
+		boolean costLowered = false;
+		for (int i = 0; i < triIndices.size; i++) {
+			int triIndex = triIndices.get(i);
+			float scale = 1;
+			for (int j = 0; j < obstacles.size; j++) {
+				NavMeshObstacle obstacle = obstacles.get(j);
+				if (obstacle.costScale > scale && obstacle.triangles.contains(triIndex)) {
+					scale = obstacle.costScale;
+				}
+			}
+			float oldScale = graph.getTriangleCostScale(triIndex);
+			if (graph.setTriangleCostScale(triIndex, scale)) {
+				tmpChangedTriangles.add(triIndex);
+				costLowered |= scale < oldScale;
+			}
+		}
+		if (tmpChangedTriangles.size == 0) {
+			return;
+		}
+		if (costLowered) {
+			navMesh.getPathCache().clear();
+		} else {
+			tmpChangedTriangleBits.clear();
+			for (int i = 0; i < tmpChangedTriangles.size; i++) {
+				tmpChangedTriangleBits.set(tmpChangedTriangles.get(i));
+			}
+			navMesh.getPathCache().removePaths(tmpChangedTriangleBits);
+		}
+		navMesh.pathRequestQueue.invalidate(tmpChangedTriangles);
+	}
+
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Bounded cache of triangle paths between pairs of triangles, with least recently used eviction.
+ * <p/>
+ * The cached paths are only valid for the graph they were searched on, so the cache must be
+ * {@link #clear() cleared} whenever the graph changes. When the cost of some triangles is raised, only the paths
+ * through them need to be {@link #removePaths(Bits) removed}.
+ *
+ * @author jsjolund
+ */
+public class NavMeshPathCache {
+
+	private static class Entry {
+		long key;
+		final Array<Connection<Triangle>> connections = new Array<Connection<Triangle>>();
+		Entry newer;
+		Entry older;
+	}
+
+	private final int capacity;
+	private final LongMap<Entry> entries;
+	// Most and least recently used entries
+	private Entry newest;
+	private Entry oldest;
+
+	private int hits;
+	private int misses;
+
+	/**
+	 * @param capacity Max number of paths to keep
+	 */
+	public NavMeshPathCache(int capacity) {
+		this.capacity = capacity;
+		entries = new LongMap<Entry>(capacity);
+	}
+
+	private static long key(Triangle fromTri, Triangle toTri) {
+		return ((long) fromTri.triIndex << 32) | (toTri.triIndex & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Get a cached path between two triangles.
+	 *
+	 * @param fromTri Start triangle
+	 * @param toTri   Goal triangle
+	 * @param out     Output for the cached path. Only modified if a path was cached.
+	 * @return True if a path between the triangles was cached
+	 */
+	public boolean get(Triangle fromTri, Triangle toTri, NavMeshGraphPath out) {
+		Entry entry = entries.get(key(fromTri, toTri));
+		if (entry == null) {
+			misses++;
+			return false;
+		}
+		hits++;
+		moveToNewest(entry);
+		out.clear();
+		out.nodes.addAll(entry.connections);
+		return true;
+	}
+
+	/**
+	 * Store a path between two triangles, evicting the least recently used path if the cache is full.
+	 *
+	 * @param fromTri Start triangle
+	 * @param toTri   Goal triangle
+	 * @param path    The path found between the triangles
+	 */
+	public void put(Triangle fromTri, Triangle toTri, NavMeshGraphPath path) {
+		if (capacity <= 0) {
+			return;
+		}
+		long key = key(fromTri, toTri);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			if (entries.size >= capacity) {
+				// Reuse the least recently used entry
+				entry = oldest;
+				unlink(entry);
+				entries.remove(entry.key);
+			} else {
+				entry = new Entry();
+			}
+			entry.key = key;
+			entries.put(key, entry);
+		} else {
+			unlink(entry);
+		}
+		link(entry);
+		entry.connections.clear();
+		entry.connections.addAll(path.nodes);
+	}
+
+	/**
+	 * Remove all cached paths. Must be called whenever the navmesh graph changes.
+	 */
+	public void clear() {
+		entries.clear();
+		newest = null;
+		oldest = null;
+	}
+
+	/**
+	 * Remove the cached paths which start in, or pass through, any of the given triangles.
+	 * Enough when the cost of the triangles has been raised, since paths which do not pass through them
+	 * are still the shortest ones.
+	 *
+	 * @param triangles Graph indices of the triangles
+	 * @return The number of removed paths
+	 */
+	public int removePaths(Bits triangles) {
+		int removed = 0;
+		Entry entry = newest;
+		while (entry != null) {
+			Entry next = entry.older;
+			if (passesThrough(entry, triangles)) {
+				unlink(entry);
+				entries.remove(entry.key);
+				removed++;
+			}
+			entry = next;
+		}
+		return removed;
+	}
+
+	private static boolean passesThrough(Entry entry, Bits triangles) {
+		if (triangles.get((int) (entry.key >>> 32))) {
+			return true;
+		}
+		for (int i = 0; i < entry.connections.size; i++) {
+			if (triangles.get(entry.connections.get(i).getToNode().triIndex)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+
+	public void resetCounters() {
+		hits = 0;
+		misses = 0;
+	}
+
+	public int size() {
+		return entries.size;
+	}
+
+	private void moveToNewest(Entry entry) {
+		if (entry != newest) {
+			unlink(entry);
+			link(entry);
+		}
+	}
+
+	private void link(Entry entry) {
+		entry.older = newest;
+		entry.newer = null;
+		if (newest != null) {
+			newest.newer = entry;
+		}
+		newest = entry;
+		if (oldest == null) {
+			oldest = entry;
+		}
+	}
+
+	private void unlink(Entry entry) {
+		if (entry.newer != null) {
+			entry.newer.older = entry.older;
+		} else {
+			newest = entry.older;
+		}
+		if (entry.older != null) {
+			entry.older.newer = entry.newer;
+		} else {
+			oldest = entry.newer;
+		}
+		entry.newer = null;
+		entry.older = null;
+	}
+
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.math.Vector3;
+
+/**
+ * A request for a triangle path, to be processed over one or more frames by a {@link NavMeshPathRequestQueue}
+ * or a {@link NavMeshPathWorkerPool}. Requests are meant to be reused by their owner, resubmitting a request
+ * replaces the pending search, also if it was pending in the other one.
+ *
+ * @author jsjolund
+ */
+public class NavMeshPathRequest {
+
+	/**
+	 * Receives the result of a path request.
+	 */
+	public interface Listener {
+		/**
+		 * Called when the search is done, and also with a partial path when the search could not finish within
+		 * the time budget of a frame, if {@link #allowPartialPath} is set. Check {@link #pathFound} and
+		 * {@link #partial} for the result.
+		 *
+		 * @param request The request
+		 */
+		void pathRequestDone(NavMeshPathRequest request);
+	}
+
+	public Triangle fromTri;
+	public final Vector3 fromPoint = new Vector3();
+	public Triangle toTri;
+	public final Vector3 toPoint = new Vector3();
+
+	/**
+	 * Requests with higher priority are processed first.
+	 */
+	public int priority;
+
+	/**
+	 * If true, the listener is given the path to the triangle closest to the goal found so far,
+	 * when the search runs out of time the first time.
+	 */
+	public boolean allowPartialPath;
+
+	/**
+	 * Output for the triangle path.
+	 */
+	public NavMeshGraphPath path;
+
+	public Listener listener;
+
+	/**
+	 * True if a complete or partial path was written to the output path.
+	 */
+	public boolean pathFound;
+
+	/**
+	 * True if the path does not reach the goal since the search is not done yet.
+	 */
+	public boolean partial;
+
+	/**
+	 * Number of frames the search has been running.
+	 */
+	public int executionFrames;
+
+	boolean queued;
+	boolean partialDelivered;
+	// Set while queued in a worker pool, the generation tells results of cancelled searches apart
+	NavMeshPathWorkerPool workerPool;
+	int generation;
+
+	public NavMeshPathRequest() {
+	}
+
+	public NavMeshPathRequest(NavMeshGraphPath path, Listener listener) {
+		this.path = path;
+		this.listener = listener;
+	}
+
+	/**
+	 * @return True if the request is waiting in a queue or being searched.
+	 */
+	public boolean isQueued() {
+		return queued;
+	}
+
+	/**
+	 * Set the start and goal of the search.
+	 *
+	 * @return This request for chaining
+	 */
+	public NavMeshPathRequest set(Triangle fromTri, Vector3 fromPoint, Triangle toTri, Vector3 toPoint) {
+		this.fromTri = fromTri;
+		this.fromPoint.set(fromPoint);
+		this.toTri = toTri;
+		this.toPoint.set(toPoint);
+		return this;
+	}
+}
@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BinaryHeap;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Priority queue of {@link NavMeshPathRequest}s, which are searched within a time budget each frame.
+ * <p/>
+ * The search is the same A* as gdx-ai's IndexedAStarPathFinder, but it can be suspended between frames,
+ * and can produce a partial path to the triangle closest to the goal which has been reached so far.
+ * Only one request is searched at a time, higher priority requests are started first.
+ *
+ * @author jsjolund
+ */
+public class NavMeshPathRequestQueue {
+
+	private static final int UNVISITED = 0;
+	private static final int OPEN = 1;
+	private static final int CLOSED = 2;
+
+	/**
+	 * Number of expanded nodes between checks of the time budget.
+	 */
+	private static final int NODES_PER_TIME_CHECK = 16;
+
+	private static class NodeRecord extends BinaryHeap.Node {
+		final Triangle node;
+		Connection<Triangle> connection;
+		float costSoFar;
+		float heuristic;
+		int category;
+		int searchId;
+
+		NodeRecord(Triangle node) {
+			super(0);
+			this.node = node;
+		}
+	}
+
+	private final NavMeshGraph graph;
+	private Heuristic<Triangle> heuristic;
+	private final NavMeshPathCache pathCache;
+
+	private final Array<NavMeshPathRequest> requests = new Array<NavMeshPathRequest>();
+	private final NodeRecord[] nodeRecords;
+	private final BinaryHeap<NodeRecord> openList = new BinaryHeap<NodeRecord>();
+
+	// State of the current search
+	private NavMeshPathRequest currentRequest;
+	private NodeRecord startRecord;
+	private NodeRecord bestRecord;
+	private NodeRecord goalRecord;
+	private Heuristic<Triangle> searchHeuristic;
+	private int searchId;
+
+	/**
+	 * @param graph     The graph to search
+	 * @param heuristic Heuristic for the search
+	 * @param pathCache Cache to look up and store paths in, can be null.
+	 */
+	public NavMeshPathRequestQueue(NavMeshGraph graph, Heuristic<Triangle> heuristic, NavMeshPathCache pathCache) {
+		this.graph = graph;
+		this.heuristic = heuristic;
+		this.pathCache = pathCache;
+		this.nodeRecords = new NodeRecord[graph.getNodeCount()];
+	}
+
+	/**
+	 * Set the heuristic for searches started from now on.
+	 *
+	 * @param heuristic
+	 */
+	public void setHeuristic(Heuristic<Triangle> heuristic) {
+		this.heuristic = heuristic;
+	}
+
+	/**
+	 * Queue a request, after any pending requests of the same or higher priority.
+	 * If the request is already queued, its previous search is cancelled.
+	 *
+	 * @param request The request
+	 */
+	public void submit(NavMeshPathRequest request) {
+		if (request.workerPool != null) {
+			request.workerPool.cancel(request);
+		}
+		cancel(request);
+		int i = 0;
+		// The request being searched stays first
+		if (currentRequest != null) {
+			i = 1;
+		}
+		while (i < requests.size && requests.get(i).priority >= request.priority) {
+			i++;
+		}
+		requests.insert(i, request);
+		request.queued = true;
+		request.pathFound = false;
+		request.partial = false;
+		request.partialDelivered = false;
+		request.executionFrames = 0;
+	}
+
+	/**
+	 * Remove a request from the queue. Its listener will not be called.
+	 *
+	 * @param request The request
+	 */
+	public void cancel(NavMeshPathRequest request) {
+		if (!request.queued || request.workerPool != null) {
+			return;
+		}
+		if (request == currentRequest) {
+			currentRequest = null;
+		}
+		requests.removeValue(request, true);
+		request.queued = false;
+	}
+
+	/**
+	 * Remove all requests. Must be called if the graph changes.
+	 */
+	public void clear() {
+		for (NavMeshPathRequest request : requests) {
+			request.queued = false;
+		}
+		requests.clear();
+		currentRequest = null;
+	}
+
+	/**
+	 * Restart the current search if it has reached any of the given triangles, since the costs it has found may
+	 * no longer be valid. The request keeps its place in the queue. Requests which have not been started are not
+	 * affected, neither are paths which have already been delivered.
+	 *
+	 * @param triangles Graph indices of the triangles which costs have changed
+	 */
+	public void invalidate(IntArray triangles) {
+		if (currentRequest == null) {
+			return;
+		}
+		for (int i = 0; i < triangles.size; i++) {
+			NodeRecord record = nodeRecords[triangles.get(i)];
+			if (record != null && record.searchId == searchId && record.category != UNVISITED) {
+				// Started again by the next call to process
+				currentRequest = null;
+				return;
+			}
+		}
+	}
+
+	public int size() {
+		return requests.size;
+	}
+
+	/**
+	 * Search pending requests until the time budget runs out. Listeners are called from this method.
+	 *
+	 * @param timeBudgetMicros Time budget in microseconds
+	 */
+	public void process(long timeBudgetMicros) {
+		long deadline = TimeUtils.nanoTime() + timeBudgetMicros * 1000;
+		while (requests.size > 0) {
+			NavMeshPathRequest request = requests.first();
+			if (request != currentRequest) {
+				if (!graph.isConnected(request.fromTri, request.toTri)) {
+					finish(request, false, false);
+					continue;
+				}
+				if (pathCache != null && pathCache.get(request.fromTri, request.toTri, request.path)) {
+					finish(request, true, false);
+					continue;
+				}
+				initSearch(request);
+			}
+			request.executionFrames++;
+			if (search(deadline)) {
+				boolean found = goalRecord != null;
+				if (found) {
+					generatePath(goalRecord, request.path);
+					if (pathCache != null) {
+						pathCache.put(request.fromTri, request.toTri, request.path);
+					}
+				}
+				currentRequest = null;
+				finish(request, found, false);
+			} else {
+				// Out of time. A partial path is only delivered if the search has got closer to the goal than the
+				// start triangle, otherwise it would be empty.
+				if (request.allowPartialPath && !request.partialDelivered && bestRecord != null
+						&& bestRecord != startRecord) {
+					request.partialDelivered = true;
+					generatePath(bestRecord, request.path);
+					deliver(request, true, true);
+				}
+				return;
+			}
+		}
+	}
+
+	private void initSearch(NavMeshPathRequest request) {
+		currentRequest = request;
+		goalRecord = null;
+		searchHeuristic = heuristic;
+		searchId++;
+		openList.clear();
+		startRecord = getNodeRecord(request.fromTri);
+		startRecord.connection = null;
+		startRecord.costSoFar = 0;
+		startRecord.heuristic = searchHeuristic.estimate(request.fromTri, request.toTri);
+		startRecord.category = OPEN;
+		openList.add(startRecord, startRecord.heuristic);
+		bestRecord = startRecord;
+	}
+
+	/**
+	 * Run the current search until it is done or the deadline has passed.
+	 *
+	 * @return True if the search is done. The goal record is then set, if the goal was found.
+	 */
+	private boolean search(long deadline) {
+		NavMeshPathRequest request = currentRequest;
+		int expanded = 0;
+		while (openList.size > 0) {
+			if (++expanded % NODES_PER_TIME_CHECK == 0 && TimeUtils.nanoTime() > deadline) {
+				return false;
+			}
+			NodeRecord record = openList.pop();
+			record.category = CLOSED;
+			if (record.node == request.toTri) {
+				goalRecord = record;
+				return true;
+			}
+			if (record.heuristic < bestRecord.heuristic) {
+				bestRecord = record;
+			}
+			visitChildren(record, request.toTri);
+		}
+		return true;
+	}
+
+	private void visitChildren(NodeRecord record, Triangle endNode) {
+		Array<Connection<Triangle>> connections = graph.getConnections(record.node);
+		for (int i = 0; i < connections.size; i++) {
+			Connection<Triangle> connection = connections.get(i);
+			Triangle node = connection.getToNode();
+			float cost = record.costSoFar + connection.getCost();
+			NodeRecord nodeRecord = getNodeRecord(node);
+			float nodeHeuristic;
+			if (nodeRecord.category == CLOSED) {
+				if (nodeRecord.costSoFar <= cost) {
+					continue;
+				}
+				nodeHeuristic = nodeRecord.heuristic;
+			} else if (nodeRecord.category == OPEN) {
+				if (nodeRecord.costSoFar <= cost) {
+					continue;
+				}
+				openList.remove(nodeRecord);
+				nodeHeuristic = nodeRecord.heuristic;
+			} else {
+				nodeHeuristic = searchHeuristic.estimate(node, endNode);
+			}
+			nodeRecord.costSoFar = cost;
+			nodeRecord.connection = connection;
+			nodeRecord.heuristic = nodeHeuristic;
+			nodeRecord.category = OPEN;
+			openList.add(nodeRecord, cost + nodeHeuristic);
+		}
+	}
+
+	private NodeRecord getNodeRecord(Triangle node) {
+		NodeRecord record = nodeRecords[node.triIndex];
+		if (record == null) {
+			record = new NodeRecord(node);
+			nodeRecords[node.triIndex] = record;
+		}
+		if (record.searchId != searchId) {
+			record.searchId = searchId;
+			record.category = UNVISITED;
+		}
+		return record;
+	}
+
+	private void generatePath(NodeRecord endRecord, NavMeshGraphPath out) {
+		out.clear();
+		NodeRecord record = endRecord;
+		while (record.connection != null) {
+			out.add(record.connection);
+			record = nodeRecords[record.connection.getFromNode().triIndex];
+		}
+		out.reverse();
+	}
+
+	private void finish(NavMeshPathRequest request, boolean found, boolean partial) {
+		requests.removeValue(request, true);
+		request.queued = false;
+		deliver(request, found, partial);
+	}
+
+	private void deliver(NavMeshPathRequest request, boolean found, boolean partial) {
+		request.pathFound = found;
+		request.partial = partial;
+		if (found) {
+			// The start triangle is needed to find the end triangle of an empty path
+			request.path.startTri = request.fromTri;
+			request.path.setPoints(request.fromPoint,
+					partial ? request.path.getEndTriangle().centroid : request.toPoint);
+		}
+		if (request.listener != null) {
+			request.listener.pathRequestDone(request);
+		}
+	}
+
+}
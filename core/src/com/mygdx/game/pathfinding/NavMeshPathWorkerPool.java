@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Fixed pool of worker threads which search {@link NavMeshPathRequest}s in parallel, each with its own
+ * {@link NavMeshQuery}.
+ * <p/>
+ * Requests are submitted, and their results delivered, on the game thread. The workers only search copies of the
+ * start and goal triangles and write to paths owned by the pool, so the output path of a request is not touched
+ * until {@link #deliverResults()} is called, usually once per frame. Listeners are called from that method.
+ * The workers only use the thread-safe parts of the navmesh, see {@link NavMeshQuery}.
+ * <p/>
+ * Requests are never partial, {@link NavMeshPathRequest#allowPartialPath} is ignored.
+ * <p/>
+ * If the cost of triangles along a result changes while it is searched, see {@link NavMeshObstacles}, the request
+ * is searched again before it is delivered. When no path was found, the worker also collects the blocked triangles
+ * around the area the search could reach, see {@link NavMeshQuery#getBlockedBorder}. The request is only searched
+ * again if one of those has been unblocked, so costs changing elsewhere do not hold back the result.
+ *
+ * @author jsjolund
+ */
+public class NavMeshPathWorkerPool implements Disposable {
+
+	private static final String TAG = "NavMeshPathWorkerPool";
+
+	/**
+	 * A snapshot of a request, passed to a worker and back.
+	 */
+	private static class Job {
+		NavMeshPathRequest request;
+		int generation;
+		Triangle fromTri;
+		Triangle toTri;
+		int priority;
+		long sequence;
+		boolean hierarchical;
+		// The clusters searched first if hierarchical, read on the game thread
+		NavMeshClusterGraph clusterGraph;
+		Heuristic<Triangle> heuristic;
+		int epoch;
+		// Graph version when the search was started
+		int graphVersion;
+		boolean found;
+		final NavMeshGraphPath path = new NavMeshGraphPath();
+		// If no path was found, the blocked triangles which kept the search from the goal
+		final IntArray blockedBorder = new IntArray();
+		// If no path was found, whether the goal could be reached when the blocked triangles were collected
+		boolean goalReachable;
+	}
+
+	private static final Comparator<Job> JOB_ORDER = new Comparator<Job>() {
+		@Override
+		public int compare(Job a, Job b) {
+			if (a.priority != b.priority) {
+				return a.priority > b.priority ? -1 : 1;
+			}
+			return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+		}
+	};
+
+	private class Worker extends Thread {
+		final NavMeshQuery query = new NavMeshQuery(navMesh);
+
+		Worker(int index) {
+			super(TAG + "-" + index);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Job job = pendingJobs.take();
+					try {
+						job.found = query.searchConnectionPath(job.fromTri, job.toTri, job.heuristic, job.clusterGraph, job.path);
+						if (!job.found) {
+							job.goalReachable = query.getBlockedBorder(job.fromTri, job.toTri, job.blockedBorder);
+						}
+					} catch (RuntimeException e) {
+						Gdx.app.error(TAG, "Path search failed", e);
+						job.found = false;
+					}
+					doneJobs.add(job);
+				}
+			} catch (InterruptedException e) {
+				// Disposed
+			}
+		}
+	}
+
+	private final NavMesh navMesh;
+	private final Worker[] workers;
+	private final PriorityBlockingQueue<Job> pendingJobs = new PriorityBlockingQueue<Job>(64, JOB_ORDER);
+	private final ConcurrentLinkedQueue<Job> doneJobs = new ConcurrentLinkedQueue<Job>();
+
+	// Only used on the game thread
+	private final Array<Job> activeJobs = new Array<Job>();
+	private final Pool<Job> jobPool = new Pool<Job>() {
+		@Override
+		protected Job newObject() {
+			return new Job();
+		}
+	};
+	private final ArrayList<Job> tmpDrainedJobs = new ArrayList<Job>();
+	private long sequence;
+	// Incremented when all requests are cancelled, results of older searches are not cached
+	private int epoch;
+
+	/**
+	 * @param navMesh     The navmesh to search
+	 * @param threadCount Number of worker threads
+	 */
+	public NavMeshPathWorkerPool(NavMesh navMesh, int threadCount) {
+		this.navMesh = navMesh;
+		workers = new Worker[Math.max(1, threadCount)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker(i);
+			workers[i].start();
+		}
+		Gdx.app.debug(TAG, "Started " + workers.length + " path workers");
+	}
+
+	public int getThreadCount() {
+		return workers.length;
+	}
+
+	/**
+	 * Queue a request to be searched by the next free worker, after any pending requests of the same or higher
+	 * priority. If the request is already queued, its previous search is cancelled.
+	 *
+	 * @param request The request
+	 */
+	public void submit(NavMeshPathRequest request) {
+		if (request.workerPool != null) {
+			request.workerPool.cancel(request);
+		} else {
+			navMesh.pathRequestQueue.cancel(request);
+		}
+		request.generation++;
+		request.queued = true;
+		request.workerPool = this;
+		request.pathFound = false;
+		request.partial = false;
+		request.executionFrames = 0;
+
+		Job job = jobPool.obtain();
+		job.request = request;
+		job.generation = request.generation;
+		job.fromTri = request.fromTri;
+		job.toTri = request.toTri;
+		job.priority = request.priority;
+		job.sequence = sequence++;
+		job.hierarchical = navMesh.isHierarchicalPathfinding();
+		job.clusterGraph = job.hierarchical ? navMesh.getClusterGraph() : null;
+		job.heuristic = navMesh.getHeuristic();
+		job.epoch = epoch;
+		job.graphVersion = navMesh.graph.getVersion();
+		job.path.clear();
+		activeJobs.add(job);
+
+		if (!navMesh.graph.isConnected(job.fromTri, job.toTri)) {
+			// No path can exist, no need to pass it to a worker
+			job.found = false;
+			doneJobs.add(job);
+		} else if (navMesh.getPathCache().get(job.fromTri, job.toTri, job.path)) {
+			// Delivered with the searched paths
+			job.found = true;
+			doneJobs.add(job);
+		} else {
+			pendingJobs.add(job);
+		}
+	}
+
+	/**
+	 * Cancel a request. Its listener will not be called. A search which is already running is finished,
+	 * but the result is dropped.
+	 *
+	 * @param request The request
+	 */
+	public void cancel(NavMeshPathRequest request) {
+		if (request.workerPool != this) {
+			return;
+		}
+		request.generation++;
+		request.queued = false;
+		request.workerPool = null;
+	}
+
+	/**
+	 * Cancel all requests. Must be called if the graph changes.
+	 */
+	public void clear() {
+		epoch++;
+		for (Job job : activeJobs) {
+			cancel(job.request);
+		}
+		// Jobs which have not been started can be recycled right away
+		pendingJobs.drainTo(tmpDrainedJobs);
+		for (Job job : tmpDrainedJobs) {
+			free(job);
+		}
+		tmpDrainedJobs.clear();
+	}
+
+	/**
+	 * @return Number of requests which are waiting, being searched, or not yet delivered
+	 */
+	public int size() {
+		return activeJobs.size;
+	}
+
+	/**
+	 * Deliver the results of finished searches to their requests. Must be called on the game thread,
+	 * listeners are called from this method.
+	 *
+	 * @return Number of delivered requests
+	 */
+	public int deliverResults() {
+		for (Job job : activeJobs) {
+			if (job.request.workerPool == this && job.request.generation == job.generation) {
+				job.request.executionFrames++;
+			}
+		}
+		int delivered = 0;
+		Job job;
+		while ((job = doneJobs.poll()) != null) {
+			NavMeshPathRequest request = job.request;
+			boolean current = request.workerPool == this && request.generation == job.generation;
+			boolean changed = job.graphVersion != navMesh.graph.getVersion()
+					&& (job.found ? navMesh.graph.isPathChanged(job.path, job.graphVersion) : isBorderOpened(job));
+			if (changed && current) {
+				// Search again, before any requests submitted after it
+				job.graphVersion = navMesh.graph.getVersion();
+				job.found = false;
+				job.path.clear();
+				job.blockedBorder.clear();
+				pendingJobs.add(job);
+				continue;
+			}
+			if (job.found && !changed && job.epoch == epoch
+					&& job.hierarchical == navMesh.isHierarchicalPathfinding()) {
+				navMesh.getPathCache().put(job.fromTri, job.toTri, job.path);
+			}
+			if (current) {
+				request.queued = false;
+				request.workerPool = null;
+				request.pathFound = job.found;
+				if (job.found) {
+					request.path.clear();
+					request.path.nodes.addAll(job.path.nodes);
+					request.path.startTri = request.fromTri;
+					request.path.setPoints(request.fromPoint, request.toPoint);
+				}
+			}
+			free(job);
+			if (current) {
+				delivered++;
+				if (request.listener != null) {
+					request.listener.pathRequestDone(request);
+				}
+			}
+		}
+		return delivered;
+	}
+
+	/**
+	 * @return True if a search which found no path could find one now
+	 */
+	private boolean isBorderOpened(Job job) {
+		if (job.goalReachable) {
+			return true;
+		}
+		for (int i = 0; i < job.blockedBorder.size; i++) {
+			if (!navMesh.graph.isTriangleBlocked(job.blockedBorder.get(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void free(Job job) {
+		activeJobs.removeValue(job, true);
+		job.request = null;
+		job.fromTri = null;
+		job.toTri = null;
+		job.clusterGraph = null;
+		job.heuristic = null;
+		job.path.clear();
+		job.blockedBorder.clear();
+		job.goalReachable = false;
+		jobPool.free(job);
+	}
+
+	@Override
+	public void dispose() {
+		for (Worker worker : workers) {
+			worker.interrupt();
+		}
+		clear();
+	}
+
+}
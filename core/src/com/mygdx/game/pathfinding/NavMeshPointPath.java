@@ -18,10 +18,10 @@ package com.mygdx.game.pathfinding;
 
 import com.badlogic.gdx.ai.pfa.Connection;
 import com.badlogic.gdx.math.Intersector;
-import com.badlogic.gdx.math.Plane;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.math.collision.Ray;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
 import com.mygdx.game.utilities.GeometryUtils;
 
 import java.util.Iterator;
@@ -30,6 +30,12 @@ import static com.mygdx.game.utilities.Constants.V3_DOWN;
 import static com.mygdx.game.utilities.Constants.V3_UP;
 
 /**
+ * Point path through the triangles of a {@link NavMeshGraphPath}, or through the portals of a path found over
+ * {@link NavMeshPolygons}.
+ * <p/>
+ * All path data is reused between calculations, so the vectors and edge arrays returned by this class are only
+ * valid until the next call to {@link #calculateForGraphPath} or {@link #clear()}.
+ *
  * @author jsjolund
  */
 public class NavMeshPointPath implements Iterable<Vector3> {
@@ -37,7 +43,7 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 	/**
 	 * A point where an edge on the navmesh is crossed.
 	 */
-	private class EdgePoint {
+	private class EdgePoint implements Pool.Poolable {
 		/**
 		 * Triangle which must be crossed to reach the next path point.
 		 */
@@ -50,66 +56,86 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 		 * Path edges connected to this point.
 		 * Can be used for spline generation at some point perhaps...
 		 */
-		public Array<Edge> connectingEdges = new Array<Edge>();
+		public final Array<Edge> connectingEdges = new Array<Edge>();
 		/**
 		 * The point where the path crosses an edge.
 		 */
-		public Vector3 point;
+		public final Vector3 point = new Vector3();
 
-		public EdgePoint(Vector3 point, Triangle toNode) {
-			this.point = point;
+		public EdgePoint set(Vector3 point, Triangle toNode) {
+			this.point.set(point);
 			this.toNode = toNode;
+			return this;
+		}
+
+		@Override
+		public void reset() {
+			toNode = null;
+			fromNode = null;
+			connectingEdges.clear();
 		}
 	}
 
 	/**
-	 * Plane funnel for the Simple Stupid Funnel Algorithm
+	 * Funnel for the Simple Stupid Funnel Algorithm. The sides of the funnel are vertical planes through the pivot
+	 * and the portal vertices, so they are tested with cross products in the XZ plane.
 	 */
-	private class Funnel {
+	private static class Funnel {
 
-		public final Plane leftPlane = new Plane();
-		public final Plane rightPlane = new Plane();
 		public final Vector3 leftPortal = new Vector3();
 		public final Vector3 rightPortal = new Vector3();
 		public final Vector3 pivot = new Vector3();
 
-		public void setLeftPlane(Vector3 pivot, Vector3 leftEdgeVertex) {
-			leftPlane.set(pivot, tmp1.set(pivot).add(V3_UP), leftEdgeVertex);
+		public void setLeftPortal(Vector3 leftEdgeVertex) {
 			leftPortal.set(leftEdgeVertex);
 		}
 
-		public void setRightPlane(Vector3 pivot, Vector3 rightEdgeVertex) {
-			rightPlane.set(pivot, tmp1.set(pivot).add(V3_UP), rightEdgeVertex);
-			rightPlane.normal.scl(-1);
-			rightPlane.d = -rightPlane.d;
+		public void setRightPortal(Vector3 rightEdgeVertex) {
 			rightPortal.set(rightEdgeVertex);
 		}
 
-		public void setPlanes(Vector3 pivot, Edge edge) {
-			setLeftPlane(pivot, edge.leftVertex);
-			setRightPlane(pivot, edge.rightVertex);
+		public void setPortals(Edge edge) {
+			setLeftPortal(edge.leftVertex);
+			setRightPortal(edge.rightVertex);
 		}
 
-		public Plane.PlaneSide sideLeftPlane(Vector3 point) {
-			return leftPlane.testPoint(point);
+		/**
+		 * @return True if the point is outside the left side of the funnel
+		 */
+		public boolean isInFrontOfLeftPlane(Vector3 point) {
+			return sideXZ(pivot, leftPortal, point) > 0;
 		}
 
-		public Plane.PlaneSide sideRightPlane(Vector3 point) {
-			return rightPlane.testPoint(point);
+		/**
+		 * @return True if the point is outside the right side of the funnel
+		 */
+		public boolean isInFrontOfRightPlane(Vector3 point) {
+			return sideXZ(pivot, rightPortal, point) < 0;
 		}
 	}
 
-	private final Plane crossingPlane = new Plane();
-	private final Vector3 tmp1 = new Vector3();
-	private final Vector3 tmp2 = new Vector3();
+	private final Funnel funnel = new Funnel();
+	private final Pool<EdgePoint> edgePointPool = new Pool<EdgePoint>() {
+		@Override
+		protected EdgePoint newObject() {
+			return new EdgePoint();
+		}
+	};
+	private final Ray tmpRay = new Ray();
+	private final Vector3 tmpProjection = new Vector3();
+	private final Vector3 tmpNewStart = new Vector3();
+	private final Vector3 tmpCrossing = new Vector3();
 	private Array<Connection<Triangle>> nodes;
-	private Vector3 start;
-	private Vector3 end;
+	private final Vector3 start = new Vector3();
+	private final Vector3 end = new Vector3();
 	private Triangle startTri;
 	private EdgePoint lastPointAdded;
-	private Array<Vector3> vectors = new Array<Vector3>();
-	private Array<EdgePoint> pathPoints = new Array<EdgePoint>();
-	private Edge lastEdge;
+	private final Array<Vector3> vectors = new Array<Vector3>();
+	private final Array<EdgePoint> pathPoints = new Array<EdgePoint>();
+	/**
+	 * Edge from the last triangle to the end point
+	 */
+	private final Edge lastEdge = new Edge(null, null, end, end, 0);
 
 	@Override
 	public Iterator<Vector3> iterator() {
@@ -132,17 +158,18 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 	public void calculateForGraphPath(NavMeshGraphPath trianglePath) {
 		clear();
 		nodes = trianglePath.nodes;
-		this.start = new Vector3(trianglePath.start);
-		this.end = new Vector3(trianglePath.end);
+		start.set(trianglePath.start);
+		end.set(trianglePath.end);
 		this.startTri = trianglePath.startTri;
 
 		// Check that the start point is actually inside the start triangle, if not, project it to the closest
 		// triangle edge. Otherwise the funnel calculation might generate spurious path segments.
-		Ray ray = new Ray(tmp1.set(V3_UP).scl(1000).add(start), tmp2.set(V3_DOWN));
-		if (!Intersector.intersectRayTriangle(ray, startTri.a, startTri.b, startTri.c, null)) {
+		tmpRay.origin.set(V3_UP).scl(1000).add(start);
+		tmpRay.direction.set(V3_DOWN);
+		if (!Intersector.intersectRayTriangle(tmpRay, startTri.a, startTri.b, startTri.c, null)) {
 			float minDst = Float.POSITIVE_INFINITY;
-			Vector3 projection = new Vector3();
-			Vector3 newStart = new Vector3();
+			Vector3 projection = tmpProjection;
+			Vector3 newStart = tmpNewStart;
 			float dst;
 			// A-B
 			if ((dst = GeometryUtils.nearestSegmentPointSquareDistance(projection, startTri.a, startTri.b, start)) < minDst) {
@@ -165,7 +192,9 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 			addPoint(start, startTri);
 			addPoint(end, startTri);
 		} else {
-			lastEdge = new Edge(nodes.get(nodes.size - 1).getToNode(), nodes.get(nodes.size - 1).getToNode(), end, end);
+			Triangle lastTri = trianglePath.getEndTriangle();
+			lastEdge.fromNode = lastTri;
+			lastEdge.toNode = lastTri;
 			calculateEdgePoints();
 		}
 	}
@@ -175,12 +204,13 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 	 */
 	public void clear() {
 		vectors.clear();
+		edgePointPool.freeAll(pathPoints);
 		pathPoints.clear();
-		start = null;
-		end = null;
+		nodes = null;
 		startTri = null;
 		lastPointAdded = null;
-		lastEdge = null;
+		lastEdge.fromNode = null;
+		lastEdge.toNode = null;
 	}
 
 	/**
@@ -242,7 +272,7 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 	}
 
 	private void addPoint(Vector3 point, Triangle toNode) {
-		addPoint(new EdgePoint(point, toNode));
+		addPoint(edgePointPool.obtain().set(point, toNode));
 	}
 
 	private void addPoint(EdgePoint edgePoint) {
@@ -261,9 +291,8 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 		addPoint(start, edge.fromNode);
 		lastPointAdded.fromNode = edge.fromNode;
 
-		Funnel funnel = new Funnel();
 		funnel.pivot.set(start);
-		funnel.setPlanes(funnel.pivot, edge);
+		funnel.setPortals(edge);
 
 		int leftIndex = 0;
 		int rightIndex = 0;
@@ -272,15 +301,15 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 		for (int i = 1; i < numEdges(); ++i) {
 			edge = getEdge(i);
 
-			Plane.PlaneSide leftPlaneLeftDP = funnel.sideLeftPlane(edge.leftVertex);
-			Plane.PlaneSide leftPlaneRightDP = funnel.sideLeftPlane(edge.rightVertex);
-			Plane.PlaneSide rightPlaneLeftDP = funnel.sideRightPlane(edge.leftVertex);
-			Plane.PlaneSide rightPlaneRightDP = funnel.sideRightPlane(edge.rightVertex);
+			boolean leftPlaneLeftDP = funnel.isInFrontOfLeftPlane(edge.leftVertex);
+			boolean leftPlaneRightDP = funnel.isInFrontOfLeftPlane(edge.rightVertex);
+			boolean rightPlaneLeftDP = funnel.isInFrontOfRightPlane(edge.leftVertex);
+			boolean rightPlaneRightDP = funnel.isInFrontOfRightPlane(edge.rightVertex);
 
-			if (rightPlaneRightDP != Plane.PlaneSide.Front) {
-				if (leftPlaneRightDP != Plane.PlaneSide.Front) {
+			if (!rightPlaneRightDP) {
+				if (!leftPlaneRightDP) {
 					// Tighten the funnel.
-					funnel.setRightPlane(funnel.pivot, edge.rightVertex);
+					funnel.setRightPortal(edge.rightVertex);
 					rightIndex = i;
 				} else {
 					// Right over left, insert left to path and restart scan from portal left point.
@@ -290,16 +319,16 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 					rightIndex = i;
 					if (i < numEdges() - 1) {
 						lastRestart = i;
-						funnel.setPlanes(funnel.pivot, getEdge(i + 1));
+						funnel.setPortals(getEdge(i + 1));
 						continue;
 					}
 					break;
 				}
 			}
-			if (leftPlaneLeftDP != Plane.PlaneSide.Front) {
-				if (rightPlaneLeftDP != Plane.PlaneSide.Front) {
+			if (!leftPlaneLeftDP) {
+				if (!rightPlaneLeftDP) {
 					// Tighten the funnel.
-					funnel.setLeftPlane(funnel.pivot, edge.leftVertex);
+					funnel.setLeftPortal(edge.leftVertex);
 					leftIndex = i;
 				} else {
 					// Left over right, insert right to path and restart scan from portal right point.
@@ -309,7 +338,7 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 					leftIndex = i;
 					if (i < numEdges() - 1) {
 						lastRestart = i;
-						funnel.setPlanes(funnel.pivot, getEdge(i + 1));
+						funnel.setPortals(getEdge(i + 1));
 						continue;
 					}
 					break;
@@ -330,8 +359,8 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 	 * If the path crosses exactly the start or end points (which is quite likely),
 	 * store the edges in order of crossing in the EdgePoint data structure.
 	 * <p/>
-	 * Edge crossings are calculated as intersections with the plane from the
-	 * start, end and up vectors.
+	 * Edge crossings are calculated as intersections with the vertical plane through the
+	 * start and end points.
 	 *
 	 * @param startIndex
 	 * @param endIndex
@@ -344,12 +373,10 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 		if (startIndex >= numEdges() || endIndex >= numEdges()) {
 			return;
 		}
-		crossingPlane.set(startPoint, tmp1.set(startPoint).add(V3_UP), endPoint);
-
 		EdgePoint previousLast = lastPointAdded;
 
 		Edge edge = getEdge(endIndex);
-		EdgePoint end = new EdgePoint(new Vector3(endPoint), edge.toNode);
+		EdgePoint end = edgePointPool.obtain().set(endPoint, edge.toNode);
 
 		for (int i = startIndex; i < endIndex; i++) {
 			edge = getEdge(i);
@@ -365,11 +392,11 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 					end.connectingEdges.add(edge);
 				}
 
-			} else if (Intersector.intersectSegmentPlane(edge.leftVertex, edge.rightVertex, crossingPlane, tmp1)
-					&& !Float.isNaN(tmp1.x + tmp1.y + tmp1.z)) {
+			} else if (intersectSegmentVerticalPlane(edge.leftVertex, edge.rightVertex, startPoint, endPoint, tmpCrossing)
+					&& !Float.isNaN(tmpCrossing.x + tmpCrossing.y + tmpCrossing.z)) {
 				if (i != startIndex || i == 0) {
 					lastPointAdded.toNode = edge.fromNode;
-					EdgePoint crossing = new EdgePoint(new Vector3(tmp1), edge.toNode);
+					EdgePoint crossing = edgePointPool.obtain().set(tmpCrossing, edge.toNode);
 					crossing.connectingEdges.add(edge);
 					addPoint(crossing);
 				}
@@ -380,7 +407,43 @@ public class NavMeshPointPath implements Iterable<Vector3> {
 		}
 		if (!lastPointAdded.equals(end)) {
 			addPoint(end);
+		} else {
+			edgePointPool.free(end);
+		}
+	}
+
+	/**
+	 * Twice the signed area of the triangle a, b, c projected on the XZ plane. Positive if c is in front of
+	 * the vertical plane through a and b, in the same sense as a {@link com.badlogic.gdx.math.Plane} through
+	 * a, a + up and b.
+	 */
+	private static float sideXZ(Vector3 a, Vector3 b, Vector3 c) {
+		return (b.z - a.z) * (c.x - a.x) - (b.x - a.x) * (c.z - a.z);
+	}
+
+	/**
+	 * Intersect a segment with the vertical plane through two points.
+	 *
+	 * @param segmentStart
+	 * @param segmentEnd
+	 * @param planePoint1
+	 * @param planePoint2
+	 * @param out          Output for the intersection point
+	 * @return False if the segment does not reach the plane, or is parallel to it
+	 */
+	private static boolean intersectSegmentVerticalPlane(Vector3 segmentStart, Vector3 segmentEnd,
+														 Vector3 planePoint1, Vector3 planePoint2, Vector3 out) {
+		float startSide = sideXZ(planePoint1, planePoint2, segmentStart);
+		float denom = sideXZ(planePoint1, planePoint2, segmentEnd) - startSide;
+		if (denom == 0) {
+			return false;
+		}
+		float t = -startSide / denom;
+		if (t < 0 || t > 1) {
+			return false;
 		}
+		out.set(segmentEnd).sub(segmentStart).scl(t).add(segmentStart);
+		return true;
 	}
 
 }
@@ -0,0 +1,374 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.Arrays;
+
+/**
+ * Convex polygons made by merging neighbouring coplanar triangles of a {@link NavMeshGraph}, and the portals
+ * between them.
+ * <p/>
+ * Navmeshes exported from a modelling tool are usually raw triangles, where a flat floor is split into many
+ * triangles. Merging them gives far fewer nodes to search, see {@link NavMesh#setPolygonPathfinding(boolean)}.
+ * <p/>
+ * Each polygon is grown greedily from the lowest numbered triangle not yet in a polygon, adding neighbour triangles
+ * in the same mesh part as long as they are in the plane of the first triangle, and the outline of the polygon stays
+ * convex in the XZ plane and within the max vertex count.
+ * <p/>
+ * Two convex polygons can only touch along one straight segment, so the shared edges between the triangles of two
+ * polygons are joined into one portal {@link Edge}. The portals are laid out like the connections of
+ * {@link NavMeshGraphData}, so that {@link NavMeshPortalPathFinder} can search them, and a path of portals can be
+ * string pulled by {@link NavMeshPointPath} like a path of triangle edges.
+ * <p/>
+ * The cost of a polygon is that of its most expensive triangle, see {@link #getCostScale(int)}, so an obstacle on
+ * any part of a polygon raises the cost of, or blocks, the whole polygon.
+ *
+ * @author jsjolund
+ */
+public class NavMeshPolygons {
+
+	private static final String TAG = "NavMeshPolygons";
+
+	/**
+	 * Min cosine of the angle between the normals of two triangles in the same polygon.
+	 */
+	private static final float COPLANAR_COS = 0.9995f;
+	/**
+	 * Max distance of a vertex from the plane of the polygon.
+	 */
+	private static final float COPLANAR_DISTANCE = 0.01f;
+	/**
+	 * Triangles steeper than this, as the y component of the normal, are never merged, since convexity is tested
+	 * in the XZ plane.
+	 */
+	private static final float MIN_NORMAL_Y = 0.1f;
+	private static final float CONVEX_EPSILON = 1e-6f;
+
+	public final NavMeshGraph graph;
+	public final int maxVertices;
+
+	private final int[] trianglePolygons;
+	private final Array<Array<Vector3>> outlines = new Array<Array<Vector3>>();
+
+	// Graph indices of the triangles of each polygon, those of polygon i are from polygonTriangleOffsets[i]
+	// up to polygonTriangleOffsets[i + 1]
+	private int[] polygonTriangleOffsets;
+	private int[] polygonTriangles;
+
+	// Portals out of each polygon, in the same layout as the connections of NavMeshGraphData
+	int[] portalOffsets;
+	int[] portalPolygons;
+	float[] portalMidpoints;
+	private Edge[] portals;
+
+	// Temporary memory used by various methods for calculations
+	private final Vector3 tmpNormal = new Vector3();
+	private final Vector3 tmpTriNormal = new Vector3();
+	private final Array<Vector3> tmpOutline = new Array<Vector3>();
+
+	/**
+	 * @param graph       The triangle graph
+	 * @param maxVertices Max number of vertices in the outline of a polygon, at least three. Larger polygons give
+	 *                    fewer nodes, but the distance through them is estimated less accurately.
+	 */
+	public NavMeshPolygons(NavMeshGraph graph, int maxVertices) {
+		long startTime = TimeUtils.millis();
+		this.graph = graph;
+		this.maxVertices = Math.max(3, maxVertices);
+		int triCount = graph.getNodeCount();
+		trianglePolygons = new int[triCount];
+		Arrays.fill(trianglePolygons, -1);
+		IntArray open = new IntArray();
+		for (int i = 0; i < triCount; i++) {
+			if (trianglePolygons[i] == -1) {
+				createPolygon(graph.getTriangleFromGraphIndex(i), open);
+			}
+		}
+		createPolygonTriangles();
+		createPortals();
+		Gdx.app.debug(TAG, "Merged " + triCount + " triangles into " + outlines.size + " polygons with "
+				+ portals.length / 2 + " portals in " + TimeUtils.timeSinceMillis(startTime) + " ms");
+	}
+
+	private void createPolygon(Triangle seed, IntArray open) {
+		int polygonIndex = outlines.size;
+		Array<Vector3> outline = new Array<Vector3>();
+		outline.add(seed.a);
+		outline.add(seed.b);
+		outline.add(seed.c);
+		outlines.add(outline);
+		trianglePolygons[seed.triIndex] = polygonIndex;
+
+		getNormal(seed, tmpNormal);
+		if (tmpNormal.isZero() || Math.abs(tmpNormal.y) < MIN_NORMAL_Y) {
+			return;
+		}
+		// Sign of the turn at each vertex of the outline, in the XZ plane
+		float winding = Math.signum(getTurn(seed.a, seed.b, seed.c));
+		open.clear();
+		open.add(seed.triIndex);
+		while (open.size > 0) {
+			Array<Edge> edges = graph.getSharedEdges(open.pop());
+			for (int i = 0; i < edges.size; i++) {
+				Edge edge = edges.get(i);
+				Triangle tri = edge.toNode;
+				if (trianglePolygons[tri.triIndex] != -1 || tri.meshPartIndex != seed.meshPartIndex
+						|| !isCoplanar(tri, seed)) {
+					continue;
+				}
+				if (tryAdd(outline, edge, winding)) {
+					trianglePolygons[tri.triIndex] = polygonIndex;
+					open.add(tri.triIndex);
+				}
+			}
+		}
+	}
+
+	private void createPolygonTriangles() {
+		int polygonCount = outlines.size;
+		polygonTriangleOffsets = new int[polygonCount + 1];
+		for (int triIndex = 0; triIndex < trianglePolygons.length; triIndex++) {
+			polygonTriangleOffsets[trianglePolygons[triIndex] + 1]++;
+		}
+		for (int i = 0; i < polygonCount; i++) {
+			polygonTriangleOffsets[i + 1] += polygonTriangleOffsets[i];
+		}
+		polygonTriangles = new int[trianglePolygons.length];
+		int[] next = Arrays.copyOf(polygonTriangleOffsets, polygonCount);
+		for (int triIndex = 0; triIndex < trianglePolygons.length; triIndex++) {
+			polygonTriangles[next[trianglePolygons[triIndex]]++] = triIndex;
+		}
+	}
+
+	private void createPortals() {
+		int polygonCount = outlines.size;
+		portalOffsets = new int[polygonCount + 1];
+		Array<Edge> portalList = new Array<Edge>();
+		IntArray targets = new IntArray();
+		// Index of the portal to each neighbour of the current polygon
+		IntIntMap neighbourPortals = new IntIntMap();
+		for (int polygon = 0; polygon < polygonCount; polygon++) {
+			portalOffsets[polygon] = portalList.size;
+			neighbourPortals.clear();
+			for (int i = polygonTriangleOffsets[polygon]; i < polygonTriangleOffsets[polygon + 1]; i++) {
+				Array<Edge> edges = graph.getSharedEdges(polygonTriangles[i]);
+				for (int j = 0; j < edges.size; j++) {
+					Edge edge = edges.get(j);
+					int neighbour = trianglePolygons[edge.toNode.triIndex];
+					if (neighbour == polygon) {
+						continue;
+					}
+					int portalIndex = neighbourPortals.get(neighbour, -1);
+					if (portalIndex == -1) {
+						neighbourPortals.put(neighbour, portalList.size);
+						// The cost of a portal is not used, see NavMeshPortalPathFinder
+						portalList.add(new Edge(edge.fromNode, edge.toNode, edge.rightVertex, edge.leftVertex, 0));
+						targets.add(neighbour);
+					} else {
+						extendPortal(portalList.get(portalIndex), edge);
+					}
+				}
+			}
+		}
+		portalOffsets[polygonCount] = portalList.size;
+		portals = portalList.toArray(Edge.class);
+		portalPolygons = targets.toArray();
+		portalMidpoints = new float[portals.length * 3];
+		for (int i = 0; i < portals.length; i++) {
+			Edge portal = portals[i];
+			portalMidpoints[i * 3] = (portal.rightVertex.x + portal.leftVertex.x) * 0.5f;
+			portalMidpoints[i * 3 + 1] = (portal.rightVertex.y + portal.leftVertex.y) * 0.5f;
+			portalMidpoints[i * 3 + 2] = (portal.rightVertex.z + portal.leftVertex.z) * 0.5f;
+		}
+	}
+
+	/**
+	 * Extend a portal to also span another shared edge between the same two polygons. All such edges are on the
+	 * same line, and have their right and left vertices in the same order along it.
+	 */
+	private static void extendPortal(Edge portal, Edge edge) {
+		Vector3 right = portal.rightVertex;
+		Vector3 left = portal.leftVertex;
+		float dx = left.x - right.x;
+		float dy = left.y - right.y;
+		float dz = left.z - right.z;
+		Vector3 v = edge.rightVertex;
+		if ((v.x - right.x) * dx + (v.y - right.y) * dy + (v.z - right.z) * dz < 0) {
+			portal.rightVertex = v;
+		}
+		v = edge.leftVertex;
+		if ((v.x - left.x) * dx + (v.y - left.y) * dy + (v.z - left.z) * dz > 0) {
+			portal.leftVertex = v;
+		}
+	}
+
+	/**
+	 * Add the to triangle of an edge on the outline, if the outline stays convex.
+	 */
+	private boolean tryAdd(Array<Vector3> outline, Edge edge, float winding) {
+		Triangle tri = edge.toNode;
+		Vector3 vertex = tri.a;
+		if (vertex == edge.rightVertex || vertex == edge.leftVertex) {
+			vertex = (tri.b == edge.rightVertex || tri.b == edge.leftVertex) ? tri.c : tri.b;
+		}
+		if (outline.size >= maxVertices || outline.contains(vertex, true)) {
+			return false;
+		}
+		int index = -1;
+		for (int i = 0; i < outline.size; i++) {
+			if (outline.get(i) == edge.rightVertex && outline.get((i + 1) % outline.size) == edge.leftVertex) {
+				index = i + 1;
+				break;
+			}
+		}
+		if (index == -1) {
+			return false;
+		}
+		tmpOutline.clear();
+		tmpOutline.addAll(outline);
+		tmpOutline.insert(index, vertex);
+		if (!isConvex(tmpOutline, winding)) {
+			return false;
+		}
+		outline.insert(index, vertex);
+		return true;
+	}
+
+	private static boolean isConvex(Array<Vector3> outline, float winding) {
+		int n = outline.size;
+		for (int i = 0; i < n; i++) {
+			float turn = getTurn(outline.get(i), outline.get((i + 1) % n), outline.get((i + 2) % n));
+			if (turn * winding < -CONVEX_EPSILON) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The z component of the cross product of a-b and b-c in the XZ plane, positive for one turn direction
+	 */
+	private static float getTurn(Vector3 a, Vector3 b, Vector3 c) {
+		return (b.x - a.x) * (c.z - b.z) - (b.z - a.z) * (c.x - b.x);
+	}
+
+	private boolean isCoplanar(Triangle tri, Triangle seed) {
+		getNormal(tri, tmpTriNormal);
+		if (tmpTriNormal.dot(tmpNormal) < COPLANAR_COS) {
+			return false;
+		}
+		return Math.abs(tmpNormal.dot(tri.a.x - seed.a.x, tri.a.y - seed.a.y, tri.a.z - seed.a.z)) <= COPLANAR_DISTANCE
+				&& Math.abs(tmpNormal.dot(tri.b.x - seed.a.x, tri.b.y - seed.a.y, tri.b.z - seed.a.z)) <= COPLANAR_DISTANCE
+				&& Math.abs(tmpNormal.dot(tri.c.x - seed.a.x, tri.c.y - seed.a.y, tri.c.z - seed.a.z)) <= COPLANAR_DISTANCE;
+	}
+
+	private static Vector3 getNormal(Triangle tri, Vector3 out) {
+		return out.set(tri.b).sub(tri.a).crs(tri.c.x - tri.a.x, tri.c.y - tri.a.y, tri.c.z - tri.a.z).nor();
+	}
+
+	public int getPolygonCount() {
+		return outlines.size;
+	}
+
+	/**
+	 * @param triIndex Graph index of a triangle
+	 * @return Index of the polygon which the triangle belongs to
+	 */
+	public int getPolygonIndex(int triIndex) {
+		return trianglePolygons[triIndex];
+	}
+
+	/**
+	 * @param polygonIndex
+	 * @return The vertices of the polygon outline, in the winding order of its triangles. Must not be modified.
+	 */
+	public Array<Vector3> getOutline(int polygonIndex) {
+		return outlines.get(polygonIndex);
+	}
+
+	/**
+	 * @param polygonIndex
+	 * @return Number of triangles in the polygon
+	 */
+	public int getTriangleCount(int polygonIndex) {
+		return polygonTriangleOffsets[polygonIndex + 1] - polygonTriangleOffsets[polygonIndex];
+	}
+
+	/**
+	 * @param polygonIndex
+	 * @param i            Index of the triangle within the polygon, less than {@link #getTriangleCount(int)}
+	 * @return Graph index of the triangle
+	 */
+	public int getTriangleIndex(int polygonIndex, int i) {
+		return polygonTriangles[polygonTriangleOffsets[polygonIndex] + i];
+	}
+
+	/**
+	 * @return Total number of portals, two for each pair of neighbouring polygons
+	 */
+	public int getPortalCount() {
+		return portals.length;
+	}
+
+	/**
+	 * A portal out of a polygon. Its vertices are the ends of the segment shared by the two polygons, and its
+	 * triangles are two of the triangles along the segment, one in each polygon.
+	 *
+	 * @param portalIndex Index of the portal, the portals out of polygon i are from {@code portalOffsets[i]} up to
+	 *                    {@code portalOffsets[i + 1]}
+	 * @return The portal
+	 */
+	Edge getPortal(int portalIndex) {
+		return portals[portalIndex];
+	}
+
+	/**
+	 * @param polygonIndex
+	 * @return The highest cost scale of the triangles of the polygon, or positive infinity if any of them is blocked,
+	 * see {@link NavMeshGraph#getTriangleCostScale(int)}
+	 */
+	public float getCostScale(int polygonIndex) {
+		float scale = 1;
+		for (int i = polygonTriangleOffsets[polygonIndex]; i < polygonTriangleOffsets[polygonIndex + 1]; i++) {
+			scale = Math.max(scale, graph.getTriangleCostScale(polygonTriangles[i]));
+		}
+		return scale;
+	}
+
+	/**
+	 * @param polygonIndex
+	 * @param version      A graph version, see {@link NavMeshGraph#getVersion()}
+	 * @return True if the cost of any triangle of the polygon has changed after the version
+	 */
+	public boolean isChanged(int polygonIndex, int version) {
+		for (int i = polygonTriangleOffsets[polygonIndex]; i < polygonTriangleOffsets[polygonIndex + 1]; i++) {
+			if (graph.getTriangleVersion(polygonTriangles[i]) > version) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.math.Vector3;
+
+import java.util.Arrays;
+
+/**
+ * A* over the portals of a {@link NavMeshGraph}, the edges shared by two triangles, instead of over the triangles.
+ * <p/>
+ * A node of the search is a connection, placed at the midpoint of its shared edge. Moving on to another connection
+ * out of the triangle it leads to costs the distance between the two midpoints, scaled by the cost scale of the
+ * triangle. The path starts and ends at the given points. This follows the string pulled path, see
+ * {@link NavMeshPointPath}, much more closely than the cost of an {@link Edge}, which has to go through the
+ * centroids since a triangle search does not know which edge a triangle was entered through.
+ * <p/>
+ * The heuristic is the straight distance from a midpoint to the goal point. Cost scales are never less than one,
+ * so by the triangle inequality it is consistent, and the path with the lowest cost is found.
+ * <p/>
+ * The same search can be made over the portals between {@link NavMeshPolygons}, where the nodes are polygons
+ * instead of triangles. The path is then a chain of portals, which {@link NavMeshPointPath} string pulls like a chain
+ * of triangle edges.
+ * <p/>
+ * The search state is kept in arrays indexed by connection, and the open list is a binary heap of connection
+ * indices, so searches do not create any objects. An instance must only be used by one thread at a time.
+ *
+ * @author jsjolund
+ */
+public class NavMeshPortalPathFinder {
+
+	private static final int CLOSED = -1;
+
+	public final NavMeshGraph graph;
+	/**
+	 * The polygons which are searched, or null if the triangles are
+	 */
+	public final NavMeshPolygons polygons;
+
+	// Connections out of each node, in the layout of NavMeshGraphData, with the node and midpoint of each connection
+	private final int[] connectionOffsets;
+	private final int[] connectionNodes;
+	private final float[] connectionMidpoints;
+
+	// Search state of each connection, valid if its stamp is the current search id. Created on the first search.
+	private float[] costs;
+	private int[] parents;
+	private int[] heapIndices;
+	private int[] stamps;
+	private int searchId;
+
+	// Open list, a binary min heap of connection indices ordered by their estimated total cost
+	private int[] heap;
+	private float[] heapValues;
+	private int heapSize;
+
+	// Start and goal of the current search
+	private int startNode;
+	private int goalNode;
+	private float goalX;
+	private float goalY;
+	private float goalZ;
+	private float goalCost;
+	private int goalConnection;
+
+	private int visitedNodes;
+
+	/**
+	 * Search over the portals between the triangles of a graph.
+	 *
+	 * @param graph
+	 */
+	public NavMeshPortalPathFinder(NavMeshGraph graph) {
+		this.graph = graph;
+		polygons = null;
+		NavMeshGraphData data = graph.getData();
+		connectionOffsets = data.connectionOffsets;
+		connectionNodes = data.connectionTriangles;
+		connectionMidpoints = data.connectionMidpoints;
+	}
+
+	/**
+	 * Search over the portals between polygons. The paths found are marked as polygon paths,
+	 * see {@link NavMeshGraphPath#polygons}.
+	 *
+	 * @param polygons
+	 */
+	public NavMeshPortalPathFinder(NavMeshPolygons polygons) {
+		this.graph = polygons.graph;
+		this.polygons = polygons;
+		connectionOffsets = polygons.portalOffsets;
+		connectionNodes = polygons.portalPolygons;
+		connectionMidpoints = polygons.portalMidpoints;
+	}
+
+	/**
+	 * Search for the triangle or polygon path with the lowest portal cost between two points.
+	 *
+	 * @param fromTri   Start triangle
+	 * @param fromPoint Start point, in the start triangle
+	 * @param toTri     Goal triangle
+	 * @param toPoint   Goal point, in the goal triangle
+	 * @param out       Output path, which is cleared. The start and end points are not set.
+	 * @return True if a path was found
+	 */
+	public boolean searchConnectionPath(Triangle fromTri, Vector3 fromPoint, Triangle toTri, Vector3 toPoint,
+										NavMeshGraphPath out) {
+		out.clear();
+		visitedNodes = 0;
+		if (polygons != null) {
+			out.polygons = polygons;
+			out.endTri = toTri;
+			startNode = polygons.getPolygonIndex(fromTri.triIndex);
+			goalNode = polygons.getPolygonIndex(toTri.triIndex);
+		} else {
+			startNode = fromTri.triIndex;
+			goalNode = toTri.triIndex;
+		}
+		if (startNode == goalNode) {
+			return true;
+		}
+		if (stamps == null) {
+			int numConnections = connectionNodes.length;
+			costs = new float[numConnections];
+			parents = new int[numConnections];
+			heapIndices = new int[numConnections];
+			stamps = new int[numConnections];
+			heap = new int[numConnections];
+			heapValues = new float[numConnections];
+		}
+		if (++searchId == 0) {
+			// Wrapped around, old stamps could be mistaken for current ones
+			Arrays.fill(stamps, 0);
+			searchId = 1;
+		}
+		heapSize = 0;
+		goalX = toPoint.x;
+		goalY = toPoint.y;
+		goalZ = toPoint.z;
+		goalCost = Float.POSITIVE_INFINITY;
+		goalConnection = -1;
+
+		openConnections(startNode, fromPoint.x, fromPoint.y, fromPoint.z, 0, -1, -1);
+		while (heapSize > 0 && heapValues[0] < goalCost) {
+			int connection = pop();
+			visitedNodes++;
+			int node = connectionNodes[connection];
+			int m = connection * 3;
+			float[] midpoints = connectionMidpoints;
+			if (node == goalNode) {
+				float cost = costs[connection] + getCostScale(node)
+						* dst(midpoints[m], midpoints[m + 1], midpoints[m + 2], goalX, goalY, goalZ);
+				if (cost < goalCost) {
+					goalCost = cost;
+					goalConnection = connection;
+				}
+				// Leaving the goal node and coming back is never shorter than going straight to the goal point
+				continue;
+			}
+			openConnections(node, midpoints[m], midpoints[m + 1], midpoints[m + 2],
+					costs[connection], connection, getSource(connection));
+		}
+		if (goalConnection == -1) {
+			return false;
+		}
+		for (int connection = goalConnection; connection != -1; connection = parents[connection]) {
+			out.add(getConnection(getSource(connection), connection));
+		}
+		out.reverse();
+		return true;
+	}
+
+	/**
+	 * Add or update the connections out of a node in the open list.
+	 *
+	 * @param node         The triangle or polygon
+	 * @param x            The point in the node the connections are reached from
+	 * @param y            The point in the node the connections are reached from
+	 * @param z            The point in the node the connections are reached from
+	 * @param cost         Cost to reach the point
+	 * @param parent       The connection into the node, or -1 for the start node
+	 * @param previousNode The node the parent connection comes from, which is not gone back to
+	 */
+	private void openConnections(int node, float x, float y, float z, float cost, int parent, int previousNode) {
+		float scale = getCostScale(node);
+		float[] midpoints = connectionMidpoints;
+		for (int connection = connectionOffsets[node]; connection < connectionOffsets[node + 1]; connection++) {
+			int toNode = connectionNodes[connection];
+			if (toNode == previousNode || isBlocked(toNode)) {
+				continue;
+			}
+			int m = connection * 3;
+			float mx = midpoints[m];
+			float my = midpoints[m + 1];
+			float mz = midpoints[m + 2];
+			float connectionCost = cost + scale * dst(x, y, z, mx, my, mz);
+			if (stamps[connection] == searchId) {
+				// The heuristic is consistent, so a closed connection can not be reached at a lower cost
+				if (heapIndices[connection] == CLOSED || connectionCost >= costs[connection]) {
+					continue;
+				}
+			} else {
+				stamps[connection] = searchId;
+				heapIndices[connection] = heapSize++;
+				heap[heapIndices[connection]] = connection;
+			}
+			costs[connection] = connectionCost;
+			parents[connection] = parent;
+			int i = heapIndices[connection];
+			heapValues[i] = connectionCost + dst(mx, my, mz, goalX, goalY, goalZ);
+			siftUp(i);
+		}
+	}
+
+	/**
+	 * @return The node a connection on the current search path starts from
+	 */
+	private int getSource(int connection) {
+		int parent = parents[connection];
+		return (parent == -1) ? startNode : connectionNodes[parent];
+	}
+
+	private Connection<Triangle> getConnection(int source, int connection) {
+		if (polygons != null) {
+			return polygons.getPortal(connection);
+		}
+		Triangle tri = graph.getTriangleFromGraphIndex(source);
+		return tri.connections.get(connection - connectionOffsets[source]);
+	}
+
+	private boolean isBlocked(int node) {
+		return (polygons != null) ? polygons.getCostScale(node) == Float.POSITIVE_INFINITY
+				: graph.isTriangleBlocked(node);
+	}
+
+	/**
+	 * A blocked node can not be entered, but leaving it costs the same as if it was not scaled.
+	 */
+	private float getCostScale(int node) {
+		float scale = (polygons != null) ? polygons.getCostScale(node) : graph.getTriangleCostScale(node);
+		return (scale == Float.POSITIVE_INFINITY) ? 1 : scale;
+	}
+
+	private int pop() {
+		int connection = heap[0];
+		heapIndices[connection] = CLOSED;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapValues[0] = heapValues[heapSize];
+			heapIndices[heap[0]] = 0;
+			siftDown(0);
+		}
+		return connection;
+	}
+
+	private void siftUp(int i) {
+		int connection = heap[i];
+		float value = heapValues[i];
+		while (i > 0) {
+			int parent = (i - 1) >> 1;
+			if (heapValues[parent] <= value) {
+				break;
+			}
+			move(parent, i);
+			i = parent;
+		}
+		heap[i] = connection;
+		heapValues[i] = value;
+		heapIndices[connection] = i;
+	}
+
+	private void siftDown(int i) {
+		int connection = heap[i];
+		float value = heapValues[i];
+		while (true) {
+			int child = i * 2 + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && heapValues[child + 1] < heapValues[child]) {
+				child++;
+			}
+			if (heapValues[child] >= value) {
+				break;
+			}
+			move(child, i);
+			i = child;
+		}
+		heap[i] = connection;
+		heapValues[i] = value;
+		heapIndices[connection] = i;
+	}
+
+	private void move(int from, int to) {
+		heap[to] = heap[from];
+		heapValues[to] = heapValues[from];
+		heapIndices[heap[to]] = to;
+	}
+
+	private static float dst(float x1, float y1, float z1, float x2, float y2, float z2) {
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		float dz = z2 - z1;
+		return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	/**
+	 * @return Number of connections visited by the last search
+	 */
+	public int getVisitedNodes() {
+		return visitedNodes;
+	}
+
+}
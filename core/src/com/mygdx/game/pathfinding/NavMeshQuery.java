@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedGraph;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Query context for a {@link NavMesh}, holding the search and temporary state needed for path finding and ray tests.
+ * <p/>
+ * The methods of a query context only read the graph, BVH and clusters, and only use the spatial index through
+ * {@link NavMeshSpatialIndex#getTriangleBelow}, which keeps no temporary state. Any number of query contexts can
+ * therefore be used at the same time, as long as each one is only used by one thread. Other navmesh methods,
+ * such as those using {@link NavMeshSpatialIndex#getClosestTriangle} or {@link NavMeshSpatialIndex#getTrianglesInBox},
+ * must only be called from the game thread.
+ * <p/>
+ * Triangle costs are changed by the game thread, see {@link NavMeshObstacles}. A search on another thread sees all
+ * changes made before it read {@link NavMeshGraph#getVersion()}, or before its work was handed to it through a
+ * concurrent queue, but may or may not see changes made while it runs.
+ *
+ * @author jsjolund
+ */
+public class NavMeshQuery {
+
+	/**
+	 * The triangles within a sphere, for searches which are kept local.
+	 */
+	private class LocalGraph implements IndexedGraph<Triangle> {
+		final Vector3 center = new Vector3();
+		float radius2;
+		private final Array<Connection<Triangle>> connections = new Array<Connection<Triangle>>();
+
+		@Override
+		public int getIndex(Triangle node) {
+			return node.triIndex;
+		}
+
+		@Override
+		public int getNodeCount() {
+			return navMesh.graph.getNodeCount();
+		}
+
+		@Override
+		public Array<Connection<Triangle>> getConnections(Triangle fromNode) {
+			// The path finder is done with the previous connections before asking for new ones
+			connections.clear();
+			Array<Connection<Triangle>> all = navMesh.graph.getConnections(fromNode);
+			for (int i = 0; i < all.size; i++) {
+				Connection<Triangle> connection = all.get(i);
+				if (connection.getToNode().centroid.dst2(center) <= radius2) {
+					connections.add(connection);
+				}
+			}
+			return connections;
+		}
+	}
+
+	public final NavMesh navMesh;
+
+	private final IndexedAStarPathFinder<Triangle> pathFinder;
+	private NavMeshPortalPathFinder portalPathFinder;
+	private NavMeshPortalPathFinder polygonPathFinder;
+	private HierarchicalPathFinder hierarchicalPathFinder;
+	private LocalGraph localGraph;
+	private IndexedAStarPathFinder<Triangle> localPathFinder;
+	// Position of each triangle in the repaired corridor, valid if its stamp is the current one
+	private int[] corridorPositions;
+	private int[] corridorStamps;
+	private int corridorStamp;
+	// Triangles reached by the last call to getBlockedBorder, if their stamp is the current one
+	private int[] floodStamps;
+	private int floodStamp;
+
+	// Temporary memory used by various methods for calculations
+	private final NavMeshGraphPath tmpLocalPath = new NavMeshGraphPath();
+	private final Array<Connection<Triangle>> tmpCorridor = new Array<Connection<Triangle>>();
+	private final IntArray tmpFloodOpen = new IntArray();
+	private final Vector3 tmpRayTestRayFrom = new Vector3();
+	private final Vector3 tmpRayTestRayTo = new Vector3();
+
+	public NavMeshQuery(NavMesh navMesh) {
+		this.navMesh = navMesh;
+		pathFinder = new IndexedAStarPathFinder<Triangle>(navMesh.graph);
+	}
+
+	/**
+	 * Search for a triangle path between two triangles, using the current heuristic of the navmesh.
+	 * Does not use the path cache of the navmesh.
+	 *
+	 * @param fromTri      Start triangle
+	 * @param toTri        Goal triangle
+	 * @param hierarchical If true, search over the triangle clusters first, see
+	 *                     {@link NavMesh#setHierarchicalPathfinding(boolean)}. The clusters must have been created.
+	 * @param out          Output path
+	 * @return True if a path was found
+	 */
+	public boolean searchConnectionPath(Triangle fromTri, Triangle toTri, boolean hierarchical, NavMeshGraphPath out) {
+		return searchConnectionPath(fromTri, toTri, navMesh.getHeuristic(), hierarchical, out);
+	}
+
+	/**
+	 * Search for a triangle path between two triangles. Does not use the path cache of the navmesh.
+	 * <p/>
+	 * Without clusters, and with the straight distance heuristic {@link NavMeshHeuristic}, the portals are searched
+	 * with {@link NavMeshPortalPathFinder}, from the centroid of the start triangle to the centroid of the goal
+	 * triangle, so the path only depends on the triangles and can be cached. Other heuristics, such as the landmark
+	 * heuristic, are only admissible for the connection costs, so the triangles are searched then.
+	 *
+	 * @param fromTri      Start triangle
+	 * @param toTri        Goal triangle
+	 * @param heuristic    Heuristic for the search, which must be safe to use from the calling thread
+	 * @param hierarchical If true, search over the triangle clusters first, see
+	 *                     {@link NavMesh#setHierarchicalPathfinding(boolean)}. The clusters must have been created.
+	 * @param out          Output path
+	 * @return True if a path was found
+	 */
+	public boolean searchConnectionPath(Triangle fromTri, Triangle toTri, Heuristic<Triangle> heuristic,
+										boolean hierarchical, NavMeshGraphPath out) {
+		return searchConnectionPath(fromTri, toTri, heuristic, hierarchical ? navMesh.getClusterGraph() : null, out);
+	}
+
+	/**
+	 * Search for a triangle path between two triangles, over the given clusters first. Used by threads which must
+	 * not read the cluster settings of the navmesh, since they may be changed by the game thread.
+	 *
+	 * @param clusterGraph The clusters to search first, or null to only search the triangles
+	 */
+	boolean searchConnectionPath(Triangle fromTri, Triangle toTri, Heuristic<Triangle> heuristic,
+								 NavMeshClusterGraph clusterGraph, NavMeshGraphPath out) {
+		out.clear();
+		if (!navMesh.graph.isConnected(fromTri, toTri)) {
+			return false;
+		}
+		if (clusterGraph != null) {
+			if (hierarchicalPathFinder == null || hierarchicalPathFinder.clusterGraph != clusterGraph) {
+				// Created, or searching other clusters
+				hierarchicalPathFinder = new HierarchicalPathFinder(clusterGraph);
+			}
+			if (hierarchicalPathFinder.searchConnectionPath(fromTri, toTri, heuristic, out)) {
+				return true;
+			}
+			// The clusters do not know about blocked triangles, the corridor may have been blocked
+			// while a path around it exists
+			if (navMesh.graph.getBlockedTriangleCount() == 0) {
+				return false;
+			}
+			out.clear();
+		}
+		if (heuristic instanceof NavMeshHeuristic) {
+			// Landmark tables are made from the connection costs, so only the straight distance heuristic can be
+			// used with portal costs
+			if (portalPathFinder == null) {
+				portalPathFinder = new NavMeshPortalPathFinder(navMesh.graph);
+			}
+			return portalPathFinder.searchConnectionPath(fromTri, fromTri.centroid, toTri, toTri.centroid, out);
+		}
+		return pathFinder.searchConnectionPath(fromTri, toTri, heuristic, out);
+	}
+
+	/**
+	 * Search for a path over the portals between polygons, see {@link NavMesh#setPolygonPathfinding(boolean)}.
+	 * Does not use the path cache of the navmesh.
+	 * <p/>
+	 * A polygon is blocked if any of its triangles is, so if no polygon path is found while triangles are blocked,
+	 * the triangles are searched instead.
+	 *
+	 * @param fromTri   Start triangle
+	 * @param fromPoint Start point, in the start triangle
+	 * @param toTri     Goal triangle
+	 * @param toPoint   Goal point, in the goal triangle
+	 * @param polygons  The polygons to search
+	 * @param out       Output path, a polygon path unless the triangles had to be searched
+	 * @return True if a path was found
+	 */
+	public boolean searchPolygonPath(Triangle fromTri, Vector3 fromPoint, Triangle toTri, Vector3 toPoint,
+									 NavMeshPolygons polygons, NavMeshGraphPath out) {
+		out.clear();
+		if (!navMesh.graph.isConnected(fromTri, toTri)) {
+			return false;
+		}
+		if (polygonPathFinder == null || polygonPathFinder.polygons != polygons) {
+			polygonPathFinder = new NavMeshPortalPathFinder(polygons);
+		}
+		if (polygonPathFinder.searchConnectionPath(fromTri, fromPoint, toTri, toPoint, out)) {
+			return true;
+		}
+		if (navMesh.graph.getBlockedTriangleCount() == 0) {
+			return false;
+		}
+		return searchConnectionPath(fromTri, toTri, navMesh.getHeuristic(), null, out);
+	}
+
+	/**
+	 * Collect the blocked triangles around the area which can be reached from a triangle, e.g. after a search
+	 * from it found no path. As long as all of them stay blocked, the goal can still not be reached, however the
+	 * costs of other triangles change.
+	 *
+	 * @param fromTri Start triangle
+	 * @param toTri   Goal triangle
+	 * @param out     Output for the graph indices of the blocked triangles, which is cleared
+	 * @return True if the goal can be reached, in which case a new search should find a path
+	 */
+	boolean getBlockedBorder(Triangle fromTri, Triangle toTri, IntArray out) {
+		out.clear();
+		NavMeshGraph graph = navMesh.graph;
+		NavMeshGraphData data = graph.getData();
+		if (floodStamps == null) {
+			floodStamps = new int[graph.getNodeCount()];
+		}
+		if (++floodStamp == 0) {
+			// Wrapped around, old stamps could be mistaken for current ones
+			Arrays.fill(floodStamps, 0);
+			floodStamp = 1;
+		}
+		tmpFloodOpen.clear();
+		tmpFloodOpen.add(fromTri.triIndex);
+		floodStamps[fromTri.triIndex] = floodStamp;
+		while (tmpFloodOpen.size > 0) {
+			int triIndex = tmpFloodOpen.pop();
+			if (triIndex == toTri.triIndex) {
+				return true;
+			}
+			for (int c = data.connectionOffsets[triIndex]; c < data.connectionOffsets[triIndex + 1]; c++) {
+				int toTriIndex = data.connectionTriangles[c];
+				if (floodStamps[toTriIndex] == floodStamp) {
+					continue;
+				}
+				floodStamps[toTriIndex] = floodStamp;
+				if (graph.isTriangleBlocked(toTriIndex)) {
+					out.add(toTriIndex);
+				} else {
+					tmpFloodOpen.add(toTriIndex);
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Repair a path after its goal has moved a short distance, without searching from the start again.
+	 * <p/>
+	 * The part of the path which has already been passed is removed, and a path from the old goal triangle to the
+	 * new one is searched among the triangles near the two goals only. If the agent is itself near the goals, the
+	 * search starts from the agent instead. The paths are joined, and any loop where
+	 * the new part goes back through the old one is cut out. The result is usually close to the shortest path,
+	 * but is not guaranteed to be.
+	 *
+	 * @param currentTri      The triangle the agent following the path is in, which must be on the path
+	 * @param goalTri         The new goal triangle
+	 * @param goalPoint       The new goal point
+	 * @param maxGoalDistance Max distance from the old goal point, see {@link NavMeshGraphPath#end}, to the new one.
+	 *                        Also the margin around the goals within which the new part is searched.
+	 * @param path            The path to repair, only modified if it could be repaired. Polygon paths, see
+	 *                        {@link NavMeshGraphPath#polygons}, are never repaired.
+	 *                        The start and end points are not changed.
+	 * @return True if the path was repaired, otherwise a full search is needed
+	 */
+	public boolean repairPath(Triangle currentTri, Triangle goalTri, Vector3 goalPoint, float maxGoalDistance,
+							  NavMeshGraphPath path) {
+		Triangle oldGoalTri = path.getEndTriangle();
+		if (oldGoalTri == null || path.polygons != null || !navMesh.graph.isConnected(currentTri, goalTri)) {
+			return false;
+		}
+		Vector3 oldGoalPoint = (path.end != null) ? path.end : oldGoalTri.centroid;
+		float goalDistance = oldGoalPoint.dst(goalPoint);
+		if (goalDistance > maxGoalDistance) {
+			return false;
+		}
+		// Where the agent is on the path
+		int start = -1;
+		if (path.startTri == currentTri) {
+			start = 0;
+		} else {
+			for (int i = 0; i < path.nodes.size; i++) {
+				if (path.nodes.get(i).getToNode() == currentTri) {
+					start = i + 1;
+					break;
+				}
+			}
+		}
+		if (start == -1) {
+			return false;
+		}
+		tmpLocalPath.clear();
+		if (goalTri != oldGoalTri) {
+			if (localGraph == null) {
+				localGraph = new LocalGraph();
+				localPathFinder = new IndexedAStarPathFinder<Triangle>(localGraph);
+			}
+			float radius = goalDistance * 0.5f + maxGoalDistance;
+			localGraph.center.set(oldGoalPoint).add(goalPoint).scl(0.5f);
+			localGraph.radius2 = radius * radius;
+			Triangle localStartTri = oldGoalTri;
+			if (currentTri.centroid.dst2(localGraph.center) <= localGraph.radius2) {
+				// Close to the goal, the whole remaining path is searched again
+				localStartTri = currentTri;
+				start = path.nodes.size;
+			}
+			if (!localPathFinder.searchConnectionPath(localStartTri, goalTri, navMesh.getHeuristic(), tmpLocalPath)) {
+				return false;
+			}
+		}
+		spliceCorridor(currentTri, path.nodes, start, tmpLocalPath.nodes);
+		path.nodes.clear();
+		path.nodes.addAll(tmpCorridor);
+		path.startTri = currentTri;
+		tmpCorridor.clear();
+		return true;
+	}
+
+	/**
+	 * Join two paths into the temporary corridor, cutting out loops.
+	 */
+	private void spliceCorridor(Triangle startTri, Array<Connection<Triangle>> first, int firstOffset,
+								Array<Connection<Triangle>> second) {
+		if (corridorStamps == null) {
+			corridorStamps = new int[navMesh.graph.getNodeCount()];
+			corridorPositions = new int[navMesh.graph.getNodeCount()];
+		}
+		corridorStamp++;
+		tmpCorridor.clear();
+		corridorStamps[startTri.triIndex] = corridorStamp;
+		corridorPositions[startTri.triIndex] = 0;
+		for (int i = firstOffset; i < first.size + second.size; i++) {
+			Connection<Triangle> connection = (i < first.size) ? first.get(i) : second.get(i - first.size);
+			int toIndex = connection.getToNode().triIndex;
+			if (corridorStamps[toIndex] == corridorStamp) {
+				// Back to a triangle already in the corridor, remove the loop
+				int position = corridorPositions[toIndex];
+				while (tmpCorridor.size > position) {
+					corridorStamps[tmpCorridor.pop().getToNode().triIndex] = 0;
+				}
+			} else {
+				tmpCorridor.add(connection);
+				corridorStamps[toIndex] = corridorStamp;
+				corridorPositions[toIndex] = tmpCorridor.size;
+			}
+		}
+	}
+
+	/**
+	 * Get the triangle which this ray intersects, and the point of intersection.
+	 * Always uses the {@link NavMesh.RaycastEngine#JAVA} engine, since the Bullet shape may only be used
+	 * from the game thread.
+	 *
+	 * @param ray
+	 * @param distance
+	 * @param allowedMeshParts
+	 * @param out              Output for the point of intersection, can be null.
+	 * @return The triangle, or null if no triangle is intersected.
+	 */
+	public Triangle rayTest(Ray ray, float distance, Bits allowedMeshParts, Vector3 out) {
+		tmpRayTestRayFrom.set(ray.origin);
+		tmpRayTestRayTo.set(ray.direction).scl(distance).add(tmpRayTestRayFrom);
+		return navMesh.getBvh().rayTest(tmpRayTestRayFrom, tmpRayTestRayTo, allowedMeshParts, out);
+	}
+
+	/**
+	 * Make a ray test along the up/down axis using a ray with origin at the given point and spanning down toward
+	 * the ground for the specified distance.
+	 *
+	 * @param testPoint        The origin to the ray
+	 * @param distance         The length of the ray toward the ground
+	 * @param allowedMeshParts Which mesh parts to test.
+	 * @param out              Output for the point of intersection, can be null.
+	 * @return The triangle, or null if ray did not hit any triangles.
+	 */
+	public Triangle groundRayTest(Vector3 testPoint, float distance, Bits allowedMeshParts, Vector3 out) {
+		return navMesh.getSpatialIndex().getTriangleBelow(testPoint.x, testPoint.z,
+				testPoint.y - distance, testPoint.y, allowedMeshParts, out);
+	}
+
+}
@@ -34,9 +34,16 @@ public class NavMeshRaycastCallback extends btTriangleRaycastCallback {
 	private btVector3 tmpSetFrom = new btVector3();
 	private btVector3 tmpSetTo = new btVector3();
 	private Bits meshPartIndices;
+	private final NavMeshCollisionShape shape;
 
-	public NavMeshRaycastCallback(Vector3 from, Vector3 to) {
+	/**
+	 * @param shape The shape which is ray tested, used to map the reported part ids to graph mesh parts
+	 * @param from
+	 * @param to
+	 */
+	public NavMeshRaycastCallback(NavMeshCollisionShape shape, Vector3 from, Vector3 to) {
 		super(from, to);
+		this.shape = shape;
 	}
 
 	public void clearReport() {
@@ -48,7 +55,8 @@ public class NavMeshRaycastCallback extends btTriangleRaycastCallback {
 
 	@Override
 	public float reportHit(Vector3 hitNormalLocal, float hitFraction, int partId, int triangleIndex) {
-		if ((meshPartIndices == null || meshPartIndices.get(partId)) && hitFraction < this.hitFraction) {
+		if ((meshPartIndices == null || meshPartIndices.get(shape.getMeshPartIndex(partId)))
+				&& hitFraction < this.hitFraction) {
 			this.hitNormalLocal.set(hitNormalLocal);
 			this.hitFraction = hitFraction;
 			this.partId = partId;
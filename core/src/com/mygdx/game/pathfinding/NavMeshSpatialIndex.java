@@ -0,0 +1,546 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.IntArray;
+import com.mygdx.game.utilities.GeometryUtils;
+
+/**
+ * A uniform 2D grid over the XZ footprint of the navmesh triangles, one grid for each mesh part.
+ * Used to find the triangle under a point, and the closest point on the navmesh, without ray testing
+ * or scanning all triangles.
+ * <p/>
+ * Each grid cell stores the indices of the triangles whose XZ bounding box overlaps the cell, in a single
+ * array shared by all cells.
+ * <p/>
+ * {@link #getTriangleBelow} and {@link #walkToTriangleBelow} only read the index and can be called from any thread.
+ * {@link #getClosestTriangle} and {@link #getTrianglesInBox} use temporary memory of the index, and must only be
+ * called from the game thread.
+ *
+ * @author jsjolund
+ */
+public class NavMeshSpatialIndex {
+
+	/**
+	 * Grid over the triangles of a single mesh part.
+	 */
+	private static class Grid {
+		float minX;
+		float minZ;
+		float cellSize;
+		int numCellsX;
+		int numCellsZ;
+		// Index into cellTriangles where the triangles of each cell starts, the last element is the total count.
+		int[] cellStart;
+		int[] cellTriangles;
+
+		int cellX(float x) {
+			return Math.min(numCellsX - 1, Math.max(0, (int) ((x - minX) / cellSize)));
+		}
+
+		int cellZ(float z) {
+			return Math.min(numCellsZ - 1, Math.max(0, (int) ((z - minZ) / cellSize)));
+		}
+
+		boolean isEmpty() {
+			return cellTriangles.length == 0;
+		}
+
+		boolean contains(float x, float z) {
+			return !isEmpty() && x >= minX && z >= minZ
+					&& x <= minX + numCellsX * cellSize && z <= minZ + numCellsZ * cellSize;
+		}
+	}
+
+	/**
+	 * Tolerance used when testing if a point is inside a triangle, so that points exactly on an edge
+	 * are not missed due to rounding.
+	 */
+	private static final float INSIDE_EPSILON = 1e-5f;
+
+	/**
+	 * Upper bound on the number of grid cells per triangle in a mesh part.
+	 */
+	private static final int MAX_CELLS_PER_TRIANGLE = 4;
+
+	private final NavMeshGraph graph;
+	private final Grid[] grids;
+
+	private final Vector3 tmpClosestPoint = new Vector3();
+	// A triangle has been added by the current area query when its stamp equals the query id
+	private int[] triangleStamps;
+	private int queryId;
+
+	public NavMeshSpatialIndex(NavMeshGraph graph) {
+		this.graph = graph;
+		grids = new Grid[graph.getMeshPartCount()];
+		for (int i = 0; i < grids.length; i++) {
+			grids[i] = createGrid(graph, i);
+		}
+	}
+
+	private static Grid createGrid(NavMeshGraph graph, int meshPartIndex) {
+		Grid grid = new Grid();
+		int triOffset = graph.getTriangleOffset(meshPartIndex);
+		int triCount = graph.getTriangleCount(meshPartIndex);
+
+		float minX = Float.POSITIVE_INFINITY;
+		float minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY;
+		float maxZ = Float.NEGATIVE_INFINITY;
+		float footprint = 0;
+		for (int i = triOffset; i < triOffset + triCount; i++) {
+			Triangle tri = graph.getTriangleFromGraphIndex(i);
+			float triMinX = Math.min(tri.a.x, Math.min(tri.b.x, tri.c.x));
+			float triMaxX = Math.max(tri.a.x, Math.max(tri.b.x, tri.c.x));
+			float triMinZ = Math.min(tri.a.z, Math.min(tri.b.z, tri.c.z));
+			float triMaxZ = Math.max(tri.a.z, Math.max(tri.b.z, tri.c.z));
+			minX = Math.min(minX, triMinX);
+			minZ = Math.min(minZ, triMinZ);
+			maxX = Math.max(maxX, triMaxX);
+			maxZ = Math.max(maxZ, triMaxZ);
+			footprint += (triMaxX - triMinX) * (triMaxZ - triMinZ);
+		}
+		if (triCount == 0) {
+			minX = minZ = maxX = maxZ = 0;
+		}
+		float width = Math.max(maxX - minX, 1e-3f);
+		float depth = Math.max(maxZ - minZ, 1e-3f);
+
+		// Size the cells after the average triangle bounding box, but keep the number of cells bounded
+		float cellSize = (triCount > 0) ? (float) Math.sqrt(footprint / triCount) : 1;
+		float minCellSize = (float) Math.sqrt(width * depth / (Math.max(1, triCount) * MAX_CELLS_PER_TRIANGLE));
+		cellSize = Math.max(Math.max(cellSize, minCellSize), 1e-3f);
+
+		grid.minX = minX;
+		grid.minZ = minZ;
+		grid.cellSize = cellSize;
+		grid.numCellsX = Math.max(1, (int) Math.ceil(width / cellSize));
+		grid.numCellsZ = Math.max(1, (int) Math.ceil(depth / cellSize));
+		int numCells = grid.numCellsX * grid.numCellsZ;
+
+		// Count the triangles in each cell, then fill them in
+		int[] cellStart = new int[numCells + 1];
+		for (int i = triOffset; i < triOffset + triCount; i++) {
+			Triangle tri = graph.getTriangleFromGraphIndex(i);
+			int x0 = grid.cellX(Math.min(tri.a.x, Math.min(tri.b.x, tri.c.x)));
+			int x1 = grid.cellX(Math.max(tri.a.x, Math.max(tri.b.x, tri.c.x)));
+			int z0 = grid.cellZ(Math.min(tri.a.z, Math.min(tri.b.z, tri.c.z)));
+			int z1 = grid.cellZ(Math.max(tri.a.z, Math.max(tri.b.z, tri.c.z)));
+			for (int z = z0; z <= z1; z++) {
+				for (int x = x0; x <= x1; x++) {
+					cellStart[z * grid.numCellsX + x + 1]++;
+				}
+			}
+		}
+		for (int i = 0; i < numCells; i++) {
+			cellStart[i + 1] += cellStart[i];
+		}
+		int[] cellTriangles = new int[cellStart[numCells]];
+		int[] cellFill = new int[numCells];
+		for (int i = triOffset; i < triOffset + triCount; i++) {
+			Triangle tri = graph.getTriangleFromGraphIndex(i);
+			int x0 = grid.cellX(Math.min(tri.a.x, Math.min(tri.b.x, tri.c.x)));
+			int x1 = grid.cellX(Math.max(tri.a.x, Math.max(tri.b.x, tri.c.x)));
+			int z0 = grid.cellZ(Math.min(tri.a.z, Math.min(tri.b.z, tri.c.z)));
+			int z1 = grid.cellZ(Math.max(tri.a.z, Math.max(tri.b.z, tri.c.z)));
+			for (int z = z0; z <= z1; z++) {
+				for (int x = x0; x <= x1; x++) {
+					int cell = z * grid.numCellsX + x;
+					cellTriangles[cellStart[cell] + cellFill[cell]++] = i;
+				}
+			}
+		}
+		grid.cellStart = cellStart;
+		grid.cellTriangles = cellTriangles;
+		return grid;
+	}
+
+	/**
+	 * Calculates the height of the triangle at a point in the XZ plane, if the point is inside the
+	 * XZ projection of the triangle.
+	 *
+	 * @return The height, or NaN if the point is outside the triangle.
+	 */
+	static float getHeightAt(Triangle tri, float x, float z) {
+		float v0x = tri.b.x - tri.a.x;
+		float v0z = tri.b.z - tri.a.z;
+		float v1x = tri.c.x - tri.a.x;
+		float v1z = tri.c.z - tri.a.z;
+		float det = v0x * v1z - v1x * v0z;
+		if (Math.abs(det) < 1e-12f) {
+			// Vertical or degenerate triangle
+			return Float.NaN;
+		}
+		float px = x - tri.a.x;
+		float pz = z - tri.a.z;
+		float u = (px * v1z - v1x * pz) / det;
+		float v = (v0x * pz - px * v0z) / det;
+		if (u < -INSIDE_EPSILON || v < -INSIDE_EPSILON || u + v > 1 + INSIDE_EPSILON) {
+			return Float.NaN;
+		}
+		return tri.a.y + u * (tri.b.y - tri.a.y) + v * (tri.c.y - tri.a.y);
+	}
+
+	/**
+	 * Whether a downward ray hits the back of the triangle, that is, its normal (b - a) x (c - a) does not point
+	 * up. Bullet's ray test with back faces filtered does not report such triangles, and neither do the
+	 * downward tests of this index.
+	 */
+	static boolean isBackFacingDown(Triangle tri) {
+		return (tri.b.z - tri.a.z) * (tri.c.x - tri.a.x) - (tri.b.x - tri.a.x) * (tri.c.z - tri.a.z) <= 0;
+	}
+
+	/**
+	 * Find the highest triangle whose XZ projection contains the point, and whose height at the point lies
+	 * in the range [minY, maxY]. This is equivalent to a downward ray test from maxY to minY, with back faces
+	 * filtered as in {@link NavMeshRaycastCallback}.
+	 *
+	 * @param x                Point x
+	 * @param z                Point z
+	 * @param minY             Lowest allowed triangle height at the point
+	 * @param maxY             Highest allowed triangle height at the point
+	 * @param allowedMeshParts Which mesh parts to test. Null if all mesh parts should be tested.
+	 * @param out              Output for the point on the triangle, can be null.
+	 * @return The triangle, or null if no triangle was found.
+	 */
+	public Triangle getTriangleBelow(float x, float z, float minY, float maxY, Bits allowedMeshParts, Vector3 out) {
+		Triangle hitTri = null;
+		float hitY = Float.NEGATIVE_INFINITY;
+		for (int meshPartIndex = 0; meshPartIndex < grids.length; meshPartIndex++) {
+			if (allowedMeshParts != null && !allowedMeshParts.get(meshPartIndex)) {
+				continue;
+			}
+			Grid grid = grids[meshPartIndex];
+			if (!grid.contains(x, z)) {
+				continue;
+			}
+			int cell = grid.cellZ(z) * grid.numCellsX + grid.cellX(x);
+			for (int i = grid.cellStart[cell]; i < grid.cellStart[cell + 1]; i++) {
+				Triangle tri = graph.getTriangleFromGraphIndex(grid.cellTriangles[i]);
+				float y = getHeightAt(tri, x, z);
+				if (y >= minY && y <= maxY && y > hitY && !isBackFacingDown(tri)) {
+					hitY = y;
+					hitTri = tri;
+				}
+			}
+		}
+		if (hitTri != null && out != null) {
+			out.set(x, hitY, z);
+		}
+		return hitTri;
+	}
+
+	/**
+	 * Find the triangle below a point by walking across shared edges from a triangle near it, such as the triangle
+	 * an agent was on the previous frame. Each step crosses the edge which the point is farthest outside of, so
+	 * when the point is within a few triangles of the start this is much cheaper than a grid lookup.
+	 * <p/>
+	 * The walk gives up if it reaches an edge which is not shared, the point is above or below the range at the
+	 * triangle it ends on, e.g. on another floor, the triangle faces down, or the step limit is reached. A full lookup with
+	 * {@link #getTriangleBelow} is then needed.
+	 *
+	 * @param startTri Triangle to start from, which must belong to the graph of this index
+	 * @param x        Point x
+	 * @param z        Point z
+	 * @param minY     Lowest allowed triangle height at the point
+	 * @param maxY     Highest allowed triangle height at the point
+	 * @param maxSteps Max number of edges to cross
+	 * @param out      Output for the point on the triangle, can be null.
+	 * @return The triangle, or null if the walk did not find it.
+	 */
+	public Triangle walkToTriangleBelow(Triangle startTri, float x, float z, float minY, float maxY, int maxSteps,
+										Vector3 out) {
+		if (startTri.triIndex >= graph.getNodeCount() || graph.getTriangleFromGraphIndex(startTri.triIndex) != startTri) {
+			return null;
+		}
+		Triangle tri = startTri;
+		Triangle previousTri = null;
+		for (int step = 0; step <= maxSteps; step++) {
+			float y = getHeightAt(tri, x, z);
+			if (!Float.isNaN(y)) {
+				if (y < minY || y > maxY || isBackFacingDown(tri)) {
+					return null;
+				}
+				if (out != null) {
+					out.set(x, y, z);
+				}
+				return tri;
+			}
+			Triangle nextTri = null;
+			float maxOutside = 0;
+			Array<Edge> edges = graph.getSharedEdges(tri.triIndex);
+			for (int i = 0; i < edges.size; i++) {
+				Edge edge = edges.get(i);
+				if (edge.toNode == previousTri) {
+					continue;
+				}
+				float outside = getOutsideDistance(edge.rightVertex, edge.leftVertex, getOppositeVertex(tri, edge), x, z);
+				if (outside > maxOutside) {
+					maxOutside = outside;
+					nextTri = edge.toNode;
+				}
+			}
+			if (nextTri == null) {
+				return null;
+			}
+			previousTri = tri;
+			tri = nextTri;
+		}
+		return null;
+	}
+
+	private static Vector3 getOppositeVertex(Triangle tri, Edge edge) {
+		if (tri.a != edge.rightVertex && tri.a != edge.leftVertex) {
+			return tri.a;
+		}
+		return (tri.b != edge.rightVertex && tri.b != edge.leftVertex) ? tri.b : tri.c;
+	}
+
+	/**
+	 * The XZ distance from the line through the edge p-q to a point, positive if the point is on the other side of
+	 * the line from the third triangle vertex r.
+	 */
+	private static float getOutsideDistance(Vector3 p, Vector3 q, Vector3 r, float x, float z) {
+		float nx = q.z - p.z;
+		float nz = p.x - q.x;
+		float length = (float) Math.sqrt(nx * nx + nz * nz);
+		if (length == 0) {
+			return 0;
+		}
+		float side = nx * (r.x - p.x) + nz * (r.z - p.z);
+		float pointSide = (nx * (x - p.x) + nz * (z - p.z)) / length;
+		return (side > 0) ? -pointSide : pointSide;
+	}
+
+	/**
+	 * Find the closest point on any of the allowed triangles. Grid cells are searched in rings of increasing
+	 * distance from the point, until no closer triangle can be found.
+	 *
+	 * @param point            The measure point
+	 * @param allowedMeshParts Which mesh parts to search. Null if all mesh parts should be searched.
+	 * @param out              Output for the closest point
+	 * @return The closest triangle, or null if there are no triangles on the allowed mesh parts.
+	 */
+	public Triangle getClosestTriangle(Vector3 point, Bits allowedMeshParts, Vector3 out) {
+		return getClosestTriangle(point, allowedMeshParts, -1, out);
+	}
+
+	/**
+	 * Find the closest point on any of the allowed triangles within a connected component of the graph,
+	 * see {@link NavMeshGraph#getComponent(int)}.
+	 *
+	 * @param point            The measure point
+	 * @param allowedMeshParts Which mesh parts to search. Null if all mesh parts should be searched.
+	 * @param component        The connected component, or -1 to search all triangles
+	 * @param out              Output for the closest point
+	 * @return The closest triangle, or null if there are no triangles on the allowed mesh parts.
+	 */
+	public Triangle getClosestTriangle(Vector3 point, Bits allowedMeshParts, int component, Vector3 out) {
+		Triangle closestTri = null;
+		float minDst2 = Float.POSITIVE_INFINITY;
+		// Start with the closest triangle straight above or below the point. This usually bounds the search
+		// to a few cells, even when mesh parts are stacked on top of each other.
+		for (int meshPartIndex = 0; meshPartIndex < grids.length; meshPartIndex++) {
+			if (allowedMeshParts != null && !allowedMeshParts.get(meshPartIndex)) {
+				continue;
+			}
+			Grid grid = grids[meshPartIndex];
+			if (!grid.contains(point.x, point.z)) {
+				continue;
+			}
+			int cell = grid.cellZ(point.z) * grid.numCellsX + grid.cellX(point.x);
+			for (int i = grid.cellStart[cell]; i < grid.cellStart[cell + 1]; i++) {
+				if (component != -1 && graph.getComponent(grid.cellTriangles[i]) != component) {
+					continue;
+				}
+				Triangle tri = graph.getTriangleFromGraphIndex(grid.cellTriangles[i]);
+				float y = getHeightAt(tri, point.x, point.z);
+				float dst2 = (y - point.y) * (y - point.y);
+				if (dst2 < minDst2) {
+					minDst2 = dst2;
+					closestTri = tri;
+					out.set(point.x, y, point.z);
+				}
+			}
+		}
+		for (int meshPartIndex = 0; meshPartIndex < grids.length; meshPartIndex++) {
+			if (allowedMeshParts != null && !allowedMeshParts.get(meshPartIndex)) {
+				continue;
+			}
+			Grid grid = grids[meshPartIndex];
+			if (grid.isEmpty()) {
+				continue;
+			}
+			// XZ distance from the point to the grid bounds, a lower bound for all cells
+			float dx = Math.max(0, Math.max(grid.minX - point.x, point.x - (grid.minX + grid.numCellsX * grid.cellSize)));
+			float dz = Math.max(0, Math.max(grid.minZ - point.z, point.z - (grid.minZ + grid.numCellsZ * grid.cellSize)));
+			float gridDst2 = dx * dx + dz * dz;
+			if (gridDst2 > minDst2) {
+				continue;
+			}
+			int cx = grid.cellX(point.x);
+			int cz = grid.cellZ(point.z);
+			int maxRing = Math.max(Math.max(cx, grid.numCellsX - 1 - cx), Math.max(cz, grid.numCellsZ - 1 - cz));
+			for (int ring = 0; ring <= maxRing; ring++) {
+				// Any triangle first found in this or later rings is at least this far away
+				float ringDst = getRingDistance(grid, point, cx, cz, ring);
+				if (Math.max(ringDst * ringDst, gridDst2) > minDst2) {
+					break;
+				}
+				for (int z = cz - ring; z <= cz + ring; z++) {
+					if (z < 0 || z >= grid.numCellsZ) {
+						continue;
+					}
+					boolean edgeRow = (z == cz - ring || z == cz + ring);
+					for (int x = cx - ring; x <= cx + ring; x += (edgeRow || ring == 0) ? 1 : 2 * ring) {
+						if (x < 0 || x >= grid.numCellsX) {
+							continue;
+						}
+						int cell = z * grid.numCellsX + x;
+						for (int i = grid.cellStart[cell]; i < grid.cellStart[cell + 1]; i++) {
+							if (component != -1 && graph.getComponent(grid.cellTriangles[i]) != component) {
+								continue;
+							}
+							Triangle tri = graph.getTriangleFromGraphIndex(grid.cellTriangles[i]);
+							float dst2 = GeometryUtils.getClosestPointOnTriangle(tri.a, tri.b, tri.c, point, tmpClosestPoint);
+							if (dst2 < minDst2) {
+								minDst2 = dst2;
+								closestTri = tri;
+								out.set(tmpClosestPoint);
+							}
+						}
+					}
+				}
+			}
+		}
+		return closestTri;
+	}
+
+	/**
+	 * Find the triangles whose XZ projection overlaps an axis aligned box, and which are at least partly
+	 * inside its height range.
+	 *
+	 * @param minX Box minimum x
+	 * @param minY Box minimum y
+	 * @param minZ Box minimum z
+	 * @param maxX Box maximum x
+	 * @param maxY Box maximum y
+	 * @param maxZ Box maximum z
+	 * @param out  Output for the graph indices of the triangles, which are added in no particular order
+	 */
+	public void getTrianglesInBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+								  IntArray out) {
+		if (triangleStamps == null) {
+			triangleStamps = new int[graph.getNodeCount()];
+		}
+		queryId++;
+		for (Grid grid : grids) {
+			if (grid.isEmpty() || maxX < grid.minX || maxZ < grid.minZ
+					|| minX > grid.minX + grid.numCellsX * grid.cellSize
+					|| minZ > grid.minZ + grid.numCellsZ * grid.cellSize) {
+				continue;
+			}
+			int x0 = grid.cellX(minX);
+			int x1 = grid.cellX(maxX);
+			int z0 = grid.cellZ(minZ);
+			int z1 = grid.cellZ(maxZ);
+			for (int z = z0; z <= z1; z++) {
+				for (int x = x0; x <= x1; x++) {
+					int cell = z * grid.numCellsX + x;
+					for (int i = grid.cellStart[cell]; i < grid.cellStart[cell + 1]; i++) {
+						int triIndex = grid.cellTriangles[i];
+						if (triangleStamps[triIndex] == queryId) {
+							continue;
+						}
+						triangleStamps[triIndex] = queryId;
+						Triangle tri = graph.getTriangleFromGraphIndex(triIndex);
+						if (Math.max(tri.a.y, Math.max(tri.b.y, tri.c.y)) >= minY
+								&& Math.min(tri.a.y, Math.min(tri.b.y, tri.c.y)) <= maxY
+								&& overlapsXZ(tri, minX, minZ, maxX, maxZ)) {
+							out.add(triIndex);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Separating axis test between the XZ projections of a triangle and a rectangle.
+	 */
+	private static boolean overlapsXZ(Triangle tri, float minX, float minZ, float maxX, float maxZ) {
+		if (Math.max(tri.a.x, Math.max(tri.b.x, tri.c.x)) < minX
+				|| Math.min(tri.a.x, Math.min(tri.b.x, tri.c.x)) > maxX
+				|| Math.max(tri.a.z, Math.max(tri.b.z, tri.c.z)) < minZ
+				|| Math.min(tri.a.z, Math.min(tri.b.z, tri.c.z)) > maxZ) {
+			return false;
+		}
+		return !isSeparatingEdge(tri.a, tri.b, tri.c, minX, minZ, maxX, maxZ)
+				&& !isSeparatingEdge(tri.b, tri.c, tri.a, minX, minZ, maxX, maxZ)
+				&& !isSeparatingEdge(tri.c, tri.a, tri.b, minX, minZ, maxX, maxZ);
+	}
+
+	/**
+	 * Check if the line through the triangle edge p-q has the whole rectangle on the other side from the third
+	 * triangle vertex r.
+	 */
+	private static boolean isSeparatingEdge(Vector3 p, Vector3 q, Vector3 r,
+											float minX, float minZ, float maxX, float maxZ) {
+		float nx = q.z - p.z;
+		float nz = p.x - q.x;
+		float side = nx * (r.x - p.x) + nz * (r.z - p.z);
+		if (side == 0) {
+			// Degenerate triangle
+			return false;
+		}
+		// The rectangle corner farthest toward the triangle
+		float cornerX = ((nx > 0) == (side > 0)) ? maxX : minX;
+		float cornerZ = ((nz > 0) == (side > 0)) ? maxZ : minZ;
+		float cornerSide = nx * (cornerX - p.x) + nz * (cornerZ - p.z);
+		return (side > 0) ? cornerSide < 0 : cornerSide > 0;
+	}
+
+	/**
+	 * A lower bound on the XZ distance from a point to any grid cell outside the square of cells
+	 * within ring - 1 of the point's cell. Sides of the square which lie on the grid border are ignored,
+	 * since there are no cells beyond them.
+	 */
+	private static float getRingDistance(Grid grid, Vector3 point, int cx, int cz, int ring) {
+		if (ring == 0) {
+			return 0;
+		}
+		float dst = Float.POSITIVE_INFINITY;
+		if (cx - ring >= 0) {
+			dst = Math.min(dst, point.x - (grid.minX + (cx - ring + 1) * grid.cellSize));
+		}
+		if (cx + ring < grid.numCellsX) {
+			dst = Math.min(dst, grid.minX + (cx + ring) * grid.cellSize - point.x);
+		}
+		if (cz - ring >= 0) {
+			dst = Math.min(dst, point.z - (grid.minZ + (cz - ring + 1) * grid.cellSize));
+		}
+		if (cz + ring < grid.numCellsZ) {
+			dst = Math.min(dst, grid.minZ + (cz + ring) * grid.cellSize - point.z);
+		}
+		return Math.max(0, dst);
+	}
+
+}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * One tile of a {@link NavMeshTiledGraph}, holding its own {@link NavMeshGraph} and {@link NavMeshSpatialIndex}.
+ * <p/>
+ * The triangle edges which are not shared within the tile are kept by the position of their vertices, so that they
+ * can be linked to the same edge of a neighbour tile. Creating a tile does not touch any other tile, so it can be
+ * done on a loader thread, while linking is done when the tile is added to the tiled graph.
+ *
+ * @author jsjolund
+ */
+public class NavMeshTile {
+
+	public final int tileX;
+	public final int tileZ;
+	public final NavMeshGraph graph;
+	public final NavMeshSpatialIndex spatialIndex;
+	public final BoundingBox bounds = new BoundingBox();
+
+	/**
+	 * Slot in the tiled graph, or -1 if the tile has not been added to one.
+	 */
+	int slot = -1;
+	/**
+	 * Isolated edges of the tile, by the key of their vertex positions, see {@link #getEdgeKey(Vector3, Vector3)}.
+	 */
+	final LongMap<Edge> borderEdges = new LongMap<Edge>();
+	/**
+	 * Connections of the triangles which are linked to neighbour tiles, by triangle index. Holds the connections
+	 * within the tile as well, so they can be returned to the path finder as they are.
+	 */
+	private final IntMap<Array<Connection<Triangle>>> linkedConnections = new IntMap<Array<Connection<Triangle>>>();
+	private int linkCount;
+
+	/**
+	 * @param tileX Tile coordinate along the x axis
+	 * @param tileZ Tile coordinate along the z axis
+	 * @param graph The triangles of the tile
+	 */
+	public NavMeshTile(int tileX, int tileZ, NavMeshGraph graph) {
+		this.tileX = tileX;
+		this.tileZ = tileZ;
+		this.graph = graph;
+		this.spatialIndex = new NavMeshSpatialIndex(graph);
+		bounds.inf();
+		for (int i = 0; i < graph.getNodeCount(); i++) {
+			Triangle tri = graph.getTriangleFromGraphIndex(i);
+			bounds.ext(tri.a).ext(tri.b).ext(tri.c);
+			Array<Edge> edges = graph.getIsolatedEdges(i);
+			for (int j = 0; j < edges.size; j++) {
+				Edge edge = edges.get(j);
+				borderEdges.put(getEdgeKey(edge.rightVertex, edge.leftVertex), edge);
+			}
+		}
+	}
+
+	/**
+	 * A key for an edge which does not depend on the order of its vertices, so both triangles sharing the edge get the
+	 * same key. Positions must match exactly.
+	 */
+	static long getEdgeKey(Vector3 v1, Vector3 v2) {
+		long h1 = getPositionHash(v1);
+		long h2 = getPositionHash(v2);
+		return (Math.min(h1, h2) * 0x9E3779B97F4A7C15L) ^ Math.max(h1, h2);
+	}
+
+	private static long getPositionHash(Vector3 v) {
+		// Adding zero turns negative zero into positive zero
+		long hash = Float.floatToIntBits(v.x + 0f);
+		hash = hash * 0x100000001B3L ^ Float.floatToIntBits(v.y + 0f);
+		hash = hash * 0x100000001B3L ^ Float.floatToIntBits(v.z + 0f);
+		return hash * 0xC2B2AE3D27D4EB4FL;
+	}
+
+	/**
+	 * @return The slot in the tiled graph, or -1 if the tile is not part of one
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * @param tri
+	 * @return True if the triangle belongs to this tile
+	 */
+	public boolean contains(Triangle tri) {
+		return tri.triIndex < graph.getNodeCount() && graph.getTriangleFromGraphIndex(tri.triIndex) == tri;
+	}
+
+	/**
+	 * @return Number of connections from this tile into neighbour tiles
+	 */
+	public int getLinkCount() {
+		return linkCount;
+	}
+
+	/**
+	 * Get the connections of a triangle of this tile, including those into loaded neighbour tiles.
+	 *
+	 * @param tri
+	 * @return
+	 */
+	public Array<Connection<Triangle>> getConnections(Triangle tri) {
+		Array<Connection<Triangle>> connections = linkedConnections.get(tri.triIndex);
+		return (connections != null) ? connections : tri.connections;
+	}
+
+	/**
+	 * Link every border edge of this tile to the matching border edge of another tile, in both directions.
+	 *
+	 * @param other
+	 * @return Number of edges linked
+	 */
+	int link(NavMeshTile other) {
+		int linked = 0;
+		for (LongMap.Entry<Edge> entry : borderEdges) {
+			Edge edge = entry.value;
+			Edge otherEdge = other.borderEdges.get(entry.key);
+			if (otherEdge == null || !edge.rightVertex.equals(otherEdge.leftVertex)
+					|| !edge.leftVertex.equals(otherEdge.rightVertex)) {
+				continue;
+			}
+			addLink(new Edge(edge.fromNode, otherEdge.fromNode, edge.rightVertex, edge.leftVertex));
+			other.addLink(new Edge(otherEdge.fromNode, edge.fromNode, otherEdge.rightVertex, otherEdge.leftVertex));
+			linked++;
+		}
+		return linked;
+	}
+
+	private void addLink(Edge edge) {
+		Triangle tri = edge.fromNode;
+		Array<Connection<Triangle>> connections = linkedConnections.get(tri.triIndex);
+		if (connections == null) {
+			connections = new Array<Connection<Triangle>>(tri.connections.size + 1);
+			connections.addAll(tri.connections);
+			linkedConnections.put(tri.triIndex, connections);
+		}
+		connections.add(edge);
+		linkCount++;
+	}
+
+	/**
+	 * Remove the links from this tile into another tile.
+	 *
+	 * @param other
+	 */
+	void unlink(NavMeshTile other) {
+		IntMap.Entries<Array<Connection<Triangle>>> entries = linkedConnections.entries();
+		while (entries.hasNext()) {
+			IntMap.Entry<Array<Connection<Triangle>>> entry = entries.next();
+			Array<Connection<Triangle>> connections = entry.value;
+			for (int i = connections.size - 1; i >= 0; i--) {
+				if (other.contains(connections.get(i).getToNode())) {
+					connections.removeIndex(i);
+					linkCount--;
+				}
+			}
+			if (connections.size == graph.getTriangleFromGraphIndex(entry.key).connections.size) {
+				entries.remove();
+			}
+		}
+	}
+
+	/**
+	 * Remove all links into neighbour tiles.
+	 */
+	void unlinkAll() {
+		linkedConnections.clear();
+		linkCount = 0;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuffer sb = new StringBuffer("NavMeshTile{");
+		sb.append("tileX=").append(tileX);
+		sb.append(", tileZ=").append(tileZ);
+		sb.append(", triangles=").append(graph.getNodeCount());
+		sb.append(", links=").append(linkCount);
+		sb.append('}');
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.pathfinding;
+
+/**
+ * Provides the triangles of the tiles of a {@link NavMeshTiledGraph}, e.g. read from files created with
+ * {@link NavMeshTiles#write}.
+ *
+ * @author jsjolund
+ */
+public interface NavMeshTileSource {
+
+	/**
+	 * Load the graph of a tile. Called from the loader thread of a {@link NavMeshTileStreamer}, so it must not use
+	 * anything which belongs to the game thread, such as the GL context.
+	 *
+	 * @param tileX Tile coordinate along the x axis
+	 * @param tileZ Tile coordinate along the z axis
+	 * @return The graph, or null if there is no navmesh in the tile.
+	 */
+	NavMeshGraph loadTile(int tileX, int tileZ);
+
+}
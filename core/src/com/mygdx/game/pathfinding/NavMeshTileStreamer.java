@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Keeps the tiles of a {@link NavMeshTiledGraph} loaded around a set of interest points, such as the agents and
+ * the camera.
+ * <p/>
+ * Tiles within the load radius of any interest point are loaded from a {@link NavMeshTileSource} on a loader thread,
+ * nearest first, and added to the graph on the game thread in {@link #update(Array)}. Tiles are removed when they are
+ * farther than the load radius plus the unload margin from all interest points, so tiles at the edge of the radius
+ * are not loaded and removed over and over. If more tiles are wanted than the graph has slots, only the nearest ones
+ * are loaded, so memory use is bounded by the slot count regardless of the size of the world.
+ *
+ * @author jsjolund
+ */
+public class NavMeshTileStreamer implements Disposable {
+
+	private static final String TAG = "NavMeshTileStreamer";
+
+	private static class Load {
+		int tileX;
+		int tileZ;
+		NavMeshTile tile;
+		float distance;
+	}
+
+	private static final Comparator<Load> LOAD_ORDER = new Comparator<Load>() {
+		@Override
+		public int compare(Load a, Load b) {
+			return Float.compare(a.distance, b.distance);
+		}
+	};
+
+	private class Loader extends Thread {
+		Loader() {
+			super(TAG);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Load load = pendingLoads.take();
+					try {
+						NavMeshGraph graph = source.loadTile(load.tileX, load.tileZ);
+						load.tile = (graph != null) ? new NavMeshTile(load.tileX, load.tileZ, graph) : null;
+					} catch (RuntimeException e) {
+						Gdx.app.error(TAG, "Could not load tile " + load.tileX + ", " + load.tileZ, e);
+						load.tile = null;
+					}
+					doneLoads.add(load);
+				}
+			} catch (InterruptedException e) {
+				// Disposed
+			}
+		}
+	}
+
+	private static final Object MARKER = new Object();
+
+	public final NavMeshTiledGraph graph;
+	private final NavMeshTileSource source;
+	private final Loader loader;
+	private final LinkedBlockingQueue<Load> pendingLoads = new LinkedBlockingQueue<Load>();
+	private final ConcurrentLinkedQueue<Load> doneLoads = new ConcurrentLinkedQueue<Load>();
+
+	// Only used on the game thread
+	private final LongMap<Load> activeLoads = new LongMap<Load>();
+	// Tiles which the source has no navmesh for, kept while they are near an interest point
+	private final LongMap<Object> emptyTiles = new LongMap<Object>();
+	private final Pool<Load> loadPool = new Pool<Load>() {
+		@Override
+		protected Load newObject() {
+			return new Load();
+		}
+	};
+	private float loadRadius;
+	private float unloadMargin;
+
+	// Temporary memory used by various methods for calculations
+	private final Array<Load> tmpWanted = new Array<Load>();
+	private final LongMap<Object> tmpWantedKeys = new LongMap<Object>();
+	private final Array<NavMeshTile> tmpTiles = new Array<NavMeshTile>();
+
+	/**
+	 * @param graph        The graph to add and remove tiles of
+	 * @param source       Source of the tiles
+	 * @param loadRadius   Tiles within this distance from an interest point are loaded, along the x and z axes
+	 * @param unloadMargin Tiles are removed when they are farther than the load radius plus this margin
+	 */
+	public NavMeshTileStreamer(NavMeshTiledGraph graph, NavMeshTileSource source, float loadRadius,
+							   float unloadMargin) {
+		this.graph = graph;
+		this.source = source;
+		this.loadRadius = loadRadius;
+		this.unloadMargin = unloadMargin;
+		loader = new Loader();
+		loader.start();
+	}
+
+	public void setLoadRadius(float loadRadius, float unloadMargin) {
+		this.loadRadius = loadRadius;
+		this.unloadMargin = unloadMargin;
+	}
+
+	/**
+	 * @return Number of tiles which are being loaded or waiting to be added
+	 */
+	public int getLoadingCount() {
+		return activeLoads.size;
+	}
+
+	/**
+	 * Add the tiles which have been loaded, remove tiles far from all interest points and request loading of new
+	 * tiles near them. Must be called on the game thread, usually once per frame.
+	 *
+	 * @param interestPoints Positions around which tiles should be loaded
+	 * @return True if any tile was added or removed
+	 */
+	public boolean update(Array<Vector3> interestPoints) {
+		int version = graph.getVersion();
+		float unloadRadius = loadRadius + unloadMargin;
+
+		// Remove far tiles first, to make room
+		tmpTiles.clear();
+		for (NavMeshTile tile : graph.getTiles()) {
+			if (getDistance(tile.tileX, tile.tileZ, interestPoints) > unloadRadius) {
+				tmpTiles.add(tile);
+			}
+		}
+		for (NavMeshTile tile : tmpTiles) {
+			graph.removeTile(tile.tileX, tile.tileZ);
+		}
+		tmpTiles.clear();
+		LongMap.Keys emptyKeys = emptyTiles.keys();
+		while (emptyKeys.hasNext) {
+			long key = emptyKeys.next();
+			if (getDistance(NavMeshTiles.getTileX(key), NavMeshTiles.getTileZ(key), interestPoints) > unloadRadius) {
+				emptyKeys.remove();
+			}
+		}
+
+		addLoadedTiles(interestPoints, unloadRadius);
+		requestTiles(interestPoints);
+		return version != graph.getVersion();
+	}
+
+	private void addLoadedTiles(Array<Vector3> interestPoints, float unloadRadius) {
+		Load load;
+		while ((load = doneLoads.poll()) != null) {
+			activeLoads.remove(NavMeshTiles.getKey(load.tileX, load.tileZ));
+			float distance = getDistance(load.tileX, load.tileZ, interestPoints);
+			if (load.tile == null) {
+				if (distance <= unloadRadius) {
+					emptyTiles.put(NavMeshTiles.getKey(load.tileX, load.tileZ), MARKER);
+				}
+			} else if (distance <= unloadRadius && (graph.getTileCount() < graph.getMaxTileCount()
+					|| removeFarthestTile(distance, interestPoints))) {
+				graph.addTile(load.tile);
+			}
+			load.tile = null;
+			loadPool.free(load);
+		}
+	}
+
+	/**
+	 * Remove the loaded tile farthest from the interest points, if it is farther than the given distance.
+	 */
+	private boolean removeFarthestTile(float distance, Array<Vector3> interestPoints) {
+		NavMeshTile farthest = null;
+		float maxDistance = distance;
+		for (NavMeshTile tile : graph.getTiles()) {
+			float tileDistance = getDistance(tile.tileX, tile.tileZ, interestPoints);
+			if (tileDistance > maxDistance) {
+				maxDistance = tileDistance;
+				farthest = tile;
+			}
+		}
+		if (farthest == null) {
+			return false;
+		}
+		graph.removeTile(farthest.tileX, farthest.tileZ);
+		return true;
+	}
+
+	private void requestTiles(Array<Vector3> interestPoints) {
+		tmpWanted.clear();
+		tmpWantedKeys.clear();
+		for (Vector3 point : interestPoints) {
+			int minX = NavMeshTiles.getTileCoordinate(point.x - loadRadius, graph.tileSize);
+			int maxX = NavMeshTiles.getTileCoordinate(point.x + loadRadius, graph.tileSize);
+			int minZ = NavMeshTiles.getTileCoordinate(point.z - loadRadius, graph.tileSize);
+			int maxZ = NavMeshTiles.getTileCoordinate(point.z + loadRadius, graph.tileSize);
+			for (int x = minX; x <= maxX; x++) {
+				for (int z = minZ; z <= maxZ; z++) {
+					long key = NavMeshTiles.getKey(x, z);
+					if (tmpWantedKeys.containsKey(key) || graph.getTile(x, z) != null
+							|| activeLoads.containsKey(key) || emptyTiles.containsKey(key)) {
+						continue;
+					}
+					float distance = getDistance(x, z, interestPoints);
+					if (distance > loadRadius) {
+						continue;
+					}
+					tmpWantedKeys.put(key, MARKER);
+					Load load = loadPool.obtain();
+					load.tileX = x;
+					load.tileZ = z;
+					load.distance = distance;
+					tmpWanted.add(load);
+				}
+			}
+		}
+		tmpWanted.sort(LOAD_ORDER);
+		// Never more tiles in memory than the graph has room for
+		int maxLoads = graph.getMaxTileCount() - graph.getTileCount() - activeLoads.size;
+		for (int i = 0; i < tmpWanted.size; i++) {
+			Load load = tmpWanted.get(i);
+			if (i < maxLoads || (activeLoads.size == 0 && isCloserThanLoaded(load.distance, interestPoints))) {
+				activeLoads.put(NavMeshTiles.getKey(load.tileX, load.tileZ), load);
+				pendingLoads.add(load);
+			} else {
+				loadPool.free(load);
+			}
+		}
+		tmpWanted.clear();
+		tmpWantedKeys.clear();
+	}
+
+	/**
+	 * @return True if any loaded tile is farther away than the distance, so a new tile at that distance would
+	 * replace it
+	 */
+	private boolean isCloserThanLoaded(float distance, Array<Vector3> interestPoints) {
+		for (NavMeshTile tile : graph.getTiles()) {
+			if (getDistance(tile.tileX, tile.tileZ, interestPoints) > distance) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return Distance along the x and z axes from the closest interest point to the closest point of a tile
+	 */
+	private float getDistance(int tileX, int tileZ, Array<Vector3> interestPoints) {
+		float minX = tileX * graph.tileSize;
+		float minZ = tileZ * graph.tileSize;
+		float minDst2 = Float.POSITIVE_INFINITY;
+		for (int i = 0; i < interestPoints.size; i++) {
+			Vector3 point = interestPoints.get(i);
+			float dx = Math.max(0, Math.max(minX - point.x, point.x - minX - graph.tileSize));
+			float dz = Math.max(0, Math.max(minZ - point.z, point.z - minZ - graph.tileSize));
+			minDst2 = Math.min(minDst2, dx * dx + dz * dz);
+		}
+		return (float) Math.sqrt(minDst2);
+	}
+
+	@Override
+	public void dispose() {
+		loader.interrupt();
+		pendingLoads.clear();
+	}
+
+}
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedGraph;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * A navmesh made of {@link NavMeshTile}s which are added and removed while it is used, for worlds which are too
+ * large to keep in memory at once, see {@link NavMeshTileStreamer}.
+ * <p/>
+ * Each added tile gets one of a fixed number of slots, and the index of a triangle in the graph is its index in the
+ * tile plus the slot times the max triangle count of a tile. The size of the graph, and of the path finder, is
+ * therefore given by the slot count and not by the size of the world. When a tile is added, its border edges are
+ * linked to the loaded neighbour tiles, so paths are searched across all the loaded tiles. A path can not lead
+ * through a tile which is not loaded.
+ * <p/>
+ * Must only be used from one thread, usually the game thread.
+ *
+ * @author jsjolund
+ */
+public class NavMeshTiledGraph implements IndexedGraph<Triangle> {
+
+	private static final String TAG = "NavMeshTiledGraph";
+
+	public final float tileSize;
+
+	private final int maxTrianglesPerTile;
+	private final NavMeshTile[] slots;
+	/**
+	 * Slots which have held a tile since the path finder was created
+	 */
+	private final boolean[] usedSlots;
+	private final LongMap<NavMeshTile> tiles = new LongMap<NavMeshTile>();
+	private IndexedAStarPathFinder<Triangle> pathFinder;
+	/**
+	 * The path finder keeps the triangle of each graph index from the first search which visits it, so it must be
+	 * created again when a slot gets another tile.
+	 */
+	private boolean pathFinderStale;
+	private Heuristic<Triangle> heuristic = new NavMeshHeuristic();
+	private int version;
+
+	// Temporary memory used by various methods for calculations
+	private final Vector3 tmpPoint = new Vector3();
+
+	/**
+	 * @param tileSize            Size of the tiles along the x and z axes
+	 * @param maxTiles            Max number of tiles loaded at the same time
+	 * @param maxTrianglesPerTile Max number of triangles in a tile
+	 */
+	public NavMeshTiledGraph(float tileSize, int maxTiles, int maxTrianglesPerTile) {
+		this.tileSize = tileSize;
+		this.maxTrianglesPerTile = maxTrianglesPerTile;
+		slots = new NavMeshTile[maxTiles];
+		usedSlots = new boolean[maxTiles];
+		pathFinder = new IndexedAStarPathFinder<Triangle>(this);
+	}
+
+	/**
+	 * Add a tile and link it to the loaded neighbour tiles.
+	 *
+	 * @param tile The tile, which must not be part of a graph
+	 * @return False if there is no free slot, the tile has too many triangles or a tile with the same coordinates
+	 * is already loaded.
+	 */
+	public boolean addTile(NavMeshTile tile) {
+		long key = NavMeshTiles.getKey(tile.tileX, tile.tileZ);
+		if (tile.slot != -1 || tiles.containsKey(key)) {
+			return false;
+		}
+		if (tile.graph.getNodeCount() > maxTrianglesPerTile) {
+			Gdx.app.error(TAG, "Too many triangles in " + tile + ", max is " + maxTrianglesPerTile);
+			return false;
+		}
+		int slot = getFreeSlot();
+		if (slot == -1) {
+			return false;
+		}
+		tile.slot = slot;
+		slots[slot] = tile;
+		pathFinderStale |= usedSlots[slot];
+		usedSlots[slot] = true;
+		tiles.put(key, tile);
+		for (int i = 0; i < tile.graph.getNodeCount(); i++) {
+			tile.graph.getTriangleFromGraphIndex(i).tileSlot = slot;
+		}
+		// Triangles are put in tiles by their centroid, so they may share edges with diagonal neighbours too
+		for (int dx = -1; dx <= 1; dx++) {
+			for (int dz = -1; dz <= 1; dz++) {
+				NavMeshTile neighbour = getTile(tile.tileX + dx, tile.tileZ + dz);
+				if (neighbour != null && neighbour != tile) {
+					tile.link(neighbour);
+				}
+			}
+		}
+		version++;
+		return true;
+	}
+
+	private int getFreeSlot() {
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i] == null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Remove a tile and the links into it from its neighbours. Paths through the tile are no longer valid,
+	 * see {@link #getVersion()}.
+	 *
+	 * @param tileX
+	 * @param tileZ
+	 * @return The removed tile, or null if it was not loaded.
+	 */
+	public NavMeshTile removeTile(int tileX, int tileZ) {
+		NavMeshTile tile = tiles.remove(NavMeshTiles.getKey(tileX, tileZ));
+		if (tile == null) {
+			return null;
+		}
+		for (int dx = -1; dx <= 1; dx++) {
+			for (int dz = -1; dz <= 1; dz++) {
+				NavMeshTile neighbour = getTile(tileX + dx, tileZ + dz);
+				if (neighbour != null) {
+					neighbour.unlink(tile);
+				}
+			}
+		}
+		tile.unlinkAll();
+		slots[tile.slot] = null;
+		tile.slot = -1;
+		version++;
+		return tile;
+	}
+
+	/**
+	 * @return The loaded tile, or null
+	 */
+	public NavMeshTile getTile(int tileX, int tileZ) {
+		return tiles.get(NavMeshTiles.getKey(tileX, tileZ));
+	}
+
+	/**
+	 * @return The loaded tile which the triangle belongs to, or null if the tile is not loaded.
+	 */
+	public NavMeshTile getTile(Triangle tri) {
+		NavMeshTile tile = slots[tri.tileSlot];
+		return (tile != null && tile.contains(tri)) ? tile : null;
+	}
+
+	/**
+	 * @return The loaded tiles, which must not be modified
+	 */
+	public LongMap.Values<NavMeshTile> getTiles() {
+		return tiles.values();
+	}
+
+	public int getTileCount() {
+		return tiles.size;
+	}
+
+	public int getMaxTileCount() {
+		return slots.length;
+	}
+
+	/**
+	 * @return Incremented each time a tile is added or removed
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	public void setHeuristic(Heuristic<Triangle> heuristic) {
+		this.heuristic = heuristic;
+	}
+
+	@Override
+	public int getIndex(Triangle node) {
+		return node.tileSlot * maxTrianglesPerTile + node.triIndex;
+	}
+
+	@Override
+	public int getNodeCount() {
+		return slots.length * maxTrianglesPerTile;
+	}
+
+	@Override
+	public Array<Connection<Triangle>> getConnections(Triangle fromNode) {
+		return slots[fromNode.tileSlot].getConnections(fromNode);
+	}
+
+	/**
+	 * Find the highest triangle straight below a point, within a distance, in the loaded tiles.
+	 *
+	 * @param point    The point
+	 * @param distance Max distance below the point
+	 * @param out      Output for the point on the triangle, can be null.
+	 * @return The triangle, or null if there is no triangle below the point.
+	 */
+	public Triangle getTriangleBelow(Vector3 point, float distance, Vector3 out) {
+		int tileX = NavMeshTiles.getTileCoordinate(point.x, tileSize);
+		int tileZ = NavMeshTiles.getTileCoordinate(point.z, tileSize);
+		Triangle hitTri = null;
+		float hitY = Float.NEGATIVE_INFINITY;
+		// Triangles may reach into the neighbour tiles
+		for (int dx = -1; dx <= 1; dx++) {
+			for (int dz = -1; dz <= 1; dz++) {
+				NavMeshTile tile = getTile(tileX + dx, tileZ + dz);
+				if (tile == null) {
+					continue;
+				}
+				Triangle tri = tile.spatialIndex.getTriangleBelow(point.x, point.z,
+						point.y - distance, point.y, null, tmpPoint);
+				if (tri != null && tmpPoint.y > hitY) {
+					hitY = tmpPoint.y;
+					hitTri = tri;
+				}
+			}
+		}
+		if (hitTri != null && out != null) {
+			out.set(point.x, hitY, point.z);
+		}
+		return hitTri;
+	}
+
+	/**
+	 * Find the closest point on any triangle in the tile containing the point and its neighbour tiles.
+	 *
+	 * @param point The measure point
+	 * @param out   Output for the closest point
+	 * @return The closest triangle, or null if none of the tiles are loaded.
+	 */
+	public Triangle getClosestTriangle(Vector3 point, Vector3 out) {
+		int tileX = NavMeshTiles.getTileCoordinate(point.x, tileSize);
+		int tileZ = NavMeshTiles.getTileCoordinate(point.z, tileSize);
+		Triangle closestTri = null;
+		float minDst2 = Float.POSITIVE_INFINITY;
+		for (int dx = -1; dx <= 1; dx++) {
+			for (int dz = -1; dz <= 1; dz++) {
+				NavMeshTile tile = getTile(tileX + dx, tileZ + dz);
+				if (tile == null) {
+					continue;
+				}
+				Triangle tri = tile.spatialIndex.getClosestTriangle(point, null, tmpPoint);
+				float dst2 = (tri != null) ? tmpPoint.dst2(point) : Float.POSITIVE_INFINITY;
+				if (dst2 < minDst2) {
+					minDst2 = dst2;
+					closestTri = tri;
+					out.set(tmpPoint);
+				}
+			}
+		}
+		return closestTri;
+	}
+
+	/**
+	 * Search for a triangle path between two triangles in loaded tiles.
+	 *
+	 * @param fromTri Start triangle
+	 * @param toTri   Goal triangle
+	 * @param out     Output path
+	 * @return True if a path was found
+	 */
+	public boolean searchConnectionPath(Triangle fromTri, Triangle toTri, NavMeshGraphPath out) {
+		out.clear();
+		if (getTile(fromTri) == null || getTile(toTri) == null) {
+			return false;
+		}
+		if (pathFinderStale) {
+			pathFinder = new IndexedAStarPathFinder<Triangle>(this);
+			pathFinderStale = false;
+			for (int i = 0; i < slots.length; i++) {
+				usedSlots[i] = slots[i] != null;
+			}
+		}
+		return pathFinder.searchConnectionPath(fromTri, toTri, heuristic, out);
+	}
+
+	/**
+	 * Search for a path between two points in loaded tiles, which can be turned into a point path with
+	 * {@link NavMeshPointPath#calculateForGraphPath(NavMeshGraphPath)}.
+	 *
+	 * @param fromTri   Start triangle
+	 * @param fromPoint Start point
+	 * @param toTri     Goal triangle
+	 * @param toPoint   Goal point
+	 * @param out       Output path
+	 * @return True if a path was found
+	 */
+	public boolean getPath(Triangle fromTri, Vector3 fromPoint, Triangle toTri, Vector3 toPoint,
+						   NavMeshGraphPath out) {
+		if (!searchConnectionPath(fromTri, toTri, out)) {
+			return false;
+		}
+		out.setPoints(fromPoint, toPoint);
+		out.startTri = fromTri;
+		return true;
+	}
+
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Splits a navmesh into square tiles for a {@link NavMeshTiledGraph}, and reads and writes the tiles as
+ * {@link NavMeshCache} files.
+ * <p/>
+ * Each triangle is put in the tile which contains its centroid, so the triangles are never cut, and the border
+ * between two tiles follows the triangle edges. Vertices are welded before the mesh is split, so an edge shared
+ * by triangles in two tiles has exactly the same vertex positions in both, which is how the tiles are linked.
+ *
+ * @author jsjolund
+ */
+public final class NavMeshTiles {
+
+	private static final String TAG = "NavMeshTiles";
+
+	/**
+	 * Reads tiles from a directory of files written by {@link NavMeshTiles#write}.
+	 */
+	public static class FileSource implements NavMeshTileSource {
+		public final FileHandle directory;
+		public final long sourceHash;
+
+		/**
+		 * @param directory  Directory of the tile files
+		 * @param sourceHash Hash of the source data the tiles were created from, see {@link NavMeshCache#hash}
+		 */
+		public FileSource(FileHandle directory, long sourceHash) {
+			this.directory = directory;
+			this.sourceHash = sourceHash;
+		}
+
+		@Override
+		public NavMeshGraph loadTile(int tileX, int tileZ) {
+			return NavMeshCache.read(directory.child(getFileName(tileX, tileZ)), sourceHash);
+		}
+	}
+
+	private NavMeshTiles() {
+	}
+
+	/**
+	 * @return A key for a tile in a {@link LongMap}
+	 */
+	public static long getKey(int tileX, int tileZ) {
+		return ((long) tileX << 32) | (tileZ & 0xFFFFFFFFL);
+	}
+
+	public static int getTileX(long key) {
+		return (int) (key >> 32);
+	}
+
+	public static int getTileZ(long key) {
+		return (int) key;
+	}
+
+	/**
+	 * @return Name of the file of a tile, within the directory of the tiles
+	 */
+	public static String getFileName(int tileX, int tileZ) {
+		return "tile_" + tileX + "_" + tileZ + ".navmesh";
+	}
+
+	/**
+	 * Split a triangle mesh into tiles. The tiles have a single mesh part each.
+	 *
+	 * @param vertexPositions The packed vertex positions
+	 * @param indices         Three vertex indices for each triangle
+	 * @param tileSize        Size of the tiles along the x and z axes
+	 * @param weldEpsilon     Vertices closer to each other than this distance are welded, see
+	 *                        {@link NavMeshGraph#NavMeshGraph(float[], int[], int[], float)}
+	 * @return The graph of each tile which has any triangles, by key, see {@link #getKey(int, int)}
+	 */
+	public static LongMap<NavMeshGraph> split(float[] vertexPositions, int[] indices, float tileSize,
+											  float weldEpsilon) {
+		long startTime = TimeUtils.millis();
+		int[] welded = indices.clone();
+		NavMeshGraph.weldUniquePositionVertexIndices(vertexPositions, welded, weldEpsilon);
+
+		LongMap<IntArray> tileIndices = new LongMap<IntArray>();
+		for (int i = 0; i < welded.length; i += 3) {
+			float x = 0;
+			float z = 0;
+			for (int k = 0; k < 3; k++) {
+				x += vertexPositions[welded[i + k] * 3];
+				z += vertexPositions[welded[i + k] * 3 + 2];
+			}
+			long key = getKey(getTileCoordinate(x / 3, tileSize), getTileCoordinate(z / 3, tileSize));
+			IntArray triIndices = tileIndices.get(key);
+			if (triIndices == null) {
+				triIndices = new IntArray();
+				tileIndices.put(key, triIndices);
+			}
+			triIndices.addAll(welded, i, 3);
+		}
+
+		LongMap<NavMeshGraph> tiles = new LongMap<NavMeshGraph>(tileIndices.size);
+		IntIntMap vertexRemap = new IntIntMap();
+		FloatArray tileVertices = new FloatArray();
+		for (LongMap.Entry<IntArray> entry : tileIndices) {
+			// Copy the vertices used by the tile, so that each tile graph does not have to look through all of them
+			int[] triIndices = entry.value.toArray();
+			vertexRemap.clear();
+			tileVertices.clear();
+			for (int i = 0; i < triIndices.length; i++) {
+				int index = vertexRemap.get(triIndices[i], -1);
+				if (index == -1) {
+					index = tileVertices.size / 3;
+					vertexRemap.put(triIndices[i], index);
+					tileVertices.addAll(vertexPositions, triIndices[i] * 3, 3);
+				}
+				triIndices[i] = index;
+			}
+			// Already welded
+			tiles.put(entry.key, new NavMeshGraph(tileVertices.toArray(), triIndices, new int[]{0}, 0));
+		}
+		Gdx.app.debug(TAG, "Split " + welded.length / 3 + " triangles into " + tiles.size + " tiles in "
+				+ TimeUtils.timeSinceMillis(startTime) + " ms");
+		return tiles;
+	}
+
+	/**
+	 * @return The coordinate of the tile containing a position along the x or z axis
+	 */
+	public static int getTileCoordinate(float position, float tileSize) {
+		return (int) Math.floor(position / tileSize);
+	}
+
+	/**
+	 * Write tiles to a directory, one file per tile.
+	 *
+	 * @param tiles      The graph of each tile, by key
+	 * @param sourceHash Hash of the source data the tiles were created from
+	 * @param directory  Output directory
+	 */
+	public static void write(LongMap<NavMeshGraph> tiles, long sourceHash, FileHandle directory) {
+		for (LongMap.Entry<NavMeshGraph> entry : tiles) {
+			NavMeshCache.write(entry.value, sourceHash,
+					directory.child(getFileName(getTileX(entry.key), getTileZ(entry.key))));
+		}
+	}
+
+}
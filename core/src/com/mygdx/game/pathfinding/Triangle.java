@@ -35,15 +35,24 @@ public class Triangle {
 	public Vector3 c;
 	public Vector3 centroid;
 	public Array<Connection<Triangle>> connections;
+	/**
+	 * Slot of the tile this triangle belongs to, if it is part of a {@link NavMeshTiledGraph}.
+	 */
+	int tileSlot;
 
 	public Triangle(Vector3 a, Vector3 b, Vector3 c, int triIndex, int meshPartIndex) {
+		this(a, b, c, triIndex, meshPartIndex, new Vector3(a).add(b).add(c).scl(1f / 3f), 16);
+	}
+
+	Triangle(Vector3 a, Vector3 b, Vector3 c, int triIndex, int meshPartIndex, Vector3 centroid,
+			 int connectionCapacity) {
 		this.a = a;
 		this.b = b;
 		this.c = c;
 		this.triIndex = triIndex;
 		this.meshPartIndex = meshPartIndex;
-		this.centroid = new Vector3(a).add(b).add(c).scl(1f / 3f);
-		this.connections = new Array<Connection<Triangle>>();
+		this.centroid = centroid;
+		this.connections = new Array<Connection<Triangle>>(connectionCapacity);
 	}
 
 	@Override
@@ -104,12 +113,21 @@ public class Triangle {
 	 * @return
 	 */
 	public float area() {
-		final float abx = b.x - a.x;
-		final float aby = b.y - a.y;
-		final float abz = b.z - a.z;
-		final float acx = c.x - a.x;
-		final float acy = c.y - a.y;
-		final float acz = c.z - a.z;
+		return area(a.x, a.y, a.z, b.x, b.y, b.z, c.x, c.y, c.z);
+	}
+
+	/**
+	 * Calculates the area of a triangle given by the coordinates of its vertices.
+	 *
+	 * @return
+	 */
+	static float area(float ax, float ay, float az, float bx, float by, float bz, float cx, float cy, float cz) {
+		final float abx = bx - ax;
+		final float aby = by - ay;
+		final float abz = bz - az;
+		final float acx = cx - ax;
+		final float acy = cy - ay;
+		final float acz = cz - az;
 		final float r = aby * acz - abz * acy;
 		final float s = abz * acx - abx * acz;
 		final float t = abx * acy - aby * acx;
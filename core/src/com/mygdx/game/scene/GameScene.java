@@ -19,6 +19,7 @@ package com.mygdx.game.scene;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.assets.loaders.ModelLoader;
 import com.badlogic.gdx.assets.loaders.TextureLoader;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.g3d.Model;
 import com.badlogic.gdx.graphics.g3d.attributes.TextureAttribute;
@@ -35,6 +36,7 @@ import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.physics.bullet.Bullet;
 import com.badlogic.gdx.physics.bullet.collision.btCollisionShape;
 import com.badlogic.gdx.physics.bullet.dynamics.btHingeConstraint;
 import com.badlogic.gdx.utils.*;
@@ -46,6 +48,11 @@ import com.mygdx.game.blender.objects.BlenderLight;
 import com.mygdx.game.blender.objects.BlenderModel;
 import com.mygdx.game.objects.*;
 import com.mygdx.game.pathfinding.NavMesh;
+import com.mygdx.game.pathfinding.NavMeshCache;
+import com.mygdx.game.pathfinding.NavMeshGraph;
+import com.mygdx.game.pathfinding.NavMeshLandmarks;
+import com.mygdx.game.pathfinding.NavMeshObstacle;
+import com.mygdx.game.settings.GameSettings;
 import com.mygdx.game.utilities.Constants;
 import com.mygdx.game.utilities.Entity;
 import com.mygdx.game.utilities.GhostCamera;
@@ -74,6 +81,9 @@ public class GameScene implements Disposable {
 	}
 
 	private final static String TAG = "GameScene";
+	private final static String NAVMESH_CACHE_PATH = "cache/";
+	private final static String NAVMESH_CACHE_EXT = ".navmesh";
+	private final static String NAVMESH_LANDMARKS_EXT = ".landmarks";
 	public final BlenderAssetManager assets;
 	private final ArrayMap<String, Array<GameObject>> gameObjects = new ArrayMap<String, Array<GameObject>>();
 	private final ObjectMap<String, GameObjectBlueprint> sharedBlueprints;
@@ -84,6 +94,8 @@ public class GameScene implements Disposable {
 	public Vector3 shadowCameraDirection = new Vector3(V3_DOWN);
 	private BlenderCamera sceneCamera;
 	private final Array<ParticleEffect> particleEffects = new Array<ParticleEffect>();
+	// Static shape of a generated level, shared by the ground and the navmesh body
+	private btCollisionShape levelShape;
 
 	public GameScene(ModelLoader.ModelParameters modelParameters,
 					 TextureLoader.TextureParameter textureParameter,
@@ -242,6 +254,45 @@ public class GameScene implements Disposable {
 		}
 	}
 
+	/**
+	 * Creates the navmesh and the static geometry of this scene from a generated level, instead of from Blender
+	 * placeholders. The Bullet shape of the navmesh is created from the graph data, since generated navmeshes
+	 * may have too many vertices for a libGDX mesh.
+	 *
+	 * @param level The level
+	 */
+	public void spawnGameObjectsFromLevel(SceneGenerator.Level level) {
+		Gdx.app.debug(TAG, "Spawning generated level " + level);
+		Model model = level.createStaticModel();
+		assets.manageDisposable(level.name, model, Model.class);
+		levelShape = Bullet.obtainStaticNodeShape(model.nodes);
+
+		GameObjectBlueprint bp = new GameObjectBlueprint();
+		bp.name = level.name;
+		bp.model = model;
+		bp.position = new Vector3();
+		bp.rotation = new Vector3();
+		bp.scale = new Vector3(1, 1, 1);
+		bp.shape = levelShape;
+		bp.shapeType = "static_node_shape_" + level.name;
+		bp.mass = 0;
+		bp.belongsToFlag = GameEngine.GROUND_FLAG;
+		bp.collidesWithFlag = (short) (GameEngine.OBJECT_FLAG | GameEngine.PC_FLAG);
+		bp.visibleOnLayers = new Bits();
+		for (int i = 0; i < level.getMeshPartCount(); i++) {
+			bp.visibleOnLayers.set(i);
+		}
+		spawnGameModelBody(bp, bp.position);
+
+		navMesh = new NavMesh(level.createGraph(0), true);
+		if (GameSettings.NAVMESH_LANDMARKS > 0) {
+			navMesh.setLandmarks(NavMeshLandmarks.create(navMesh.graph, GameSettings.NAVMESH_LANDMARKS));
+		}
+		navmeshBody = new InvisibleBody("navmesh",
+				navMesh.getShape(), 0, new Matrix4(), GameEngine.NAVMESH_FLAG, GameEngine.NAVMESH_FLAG, false, false);
+		worldBounds.set(level.bounds);
+	}
+
 	public HumanCharacter spawnHuman(String sharedBlueprintId, Vector3 initialPosition) {
 		return spawnHuman(sharedBlueprintId, initialPosition, Float.NaN);
 	}
@@ -314,6 +365,9 @@ public class GameScene implements Disposable {
 					obj.body, new Vector3(0, 0, -obj.halfExtents.z), Vector3.Y);
 			hinge.enableAngularMotor(true, 0, 0.1f);
 			obj.constraints.add(hinge);
+			obj.navMeshObstacle = new NavMeshObstacle(GameSettings.NAVMESH_DOOR_COST_SCALE);
+		} else if (bp.mass > 0) {
+			obj.navMeshObstacle = new NavMeshObstacle(GameSettings.NAVMESH_OBSTACLE_COST_SCALE);
 		}
 		addGameObject(obj);
 		return obj;
@@ -391,6 +445,9 @@ public class GameScene implements Disposable {
 			}
 		}
 		gameObjects.clear();
+		if (levelShape != null) {
+			levelShape.dispose();
+		}
 		assets.dispose();
 	}
 
@@ -414,7 +471,10 @@ public class GameScene implements Disposable {
 				nodePart.meshPart.mesh.transform(transform);
 			}
 		}
-		navMesh = new NavMesh(gameModel.modelInstance.model);
+		navMesh = new NavMesh(loadNavMeshGraph(bp, gameModel.modelInstance.model), true);
+		if (GameSettings.NAVMESH_LANDMARKS > 0) {
+			navMesh.setLandmarks(loadNavMeshLandmarks(bp, navMesh.graph));
+		}
 		btCollisionShape shape = navMesh.getShape();
 
 		navmeshBody = new InvisibleBody("navmesh",
@@ -424,6 +484,70 @@ public class GameScene implements Disposable {
 	}
 
 
+	/**
+	 * Reads the navmesh graph from the local navmesh cache if it was created from the same model and transform,
+	 * otherwise creates the graph from the model and writes it to the cache.
+	 */
+	private NavMeshGraph loadNavMeshGraph(GameObjectBlueprint bp, Model model) {
+		if (!Gdx.files.isLocalStorageAvailable()) {
+			return new NavMeshGraph(model);
+		}
+		long hash = getNavMeshCacheHash(bp);
+		FileHandle cacheFile = getNavMeshCacheFile(bp, NAVMESH_CACHE_EXT);
+
+		NavMeshGraph graph = NavMeshCache.read(cacheFile, hash);
+		if (graph != null) {
+			Gdx.app.debug(TAG, "Read navmesh graph from " + cacheFile.path());
+			return graph;
+		}
+		graph = new NavMeshGraph(model);
+		try {
+			NavMeshCache.write(graph, hash, cacheFile);
+			Gdx.app.debug(TAG, "Wrote navmesh graph to " + cacheFile.path());
+		} catch (GdxRuntimeException e) {
+			Gdx.app.error(TAG, "Could not write navmesh cache " + cacheFile.path(), e);
+		}
+		return graph;
+	}
+
+	/**
+	 * Reads the landmark tables of the navmesh graph from the local navmesh cache, or creates them and writes
+	 * them to the cache.
+	 */
+	private NavMeshLandmarks loadNavMeshLandmarks(GameObjectBlueprint bp, NavMeshGraph graph) {
+		if (!Gdx.files.isLocalStorageAvailable()) {
+			return NavMeshLandmarks.create(graph, GameSettings.NAVMESH_LANDMARKS);
+		}
+		long hash = getNavMeshCacheHash(bp);
+		FileHandle cacheFile = getNavMeshCacheFile(bp, NAVMESH_LANDMARKS_EXT);
+
+		NavMeshLandmarks landmarks = NavMeshCache.readLandmarks(cacheFile, hash, graph, GameSettings.NAVMESH_LANDMARKS);
+		if (landmarks != null) {
+			Gdx.app.debug(TAG, "Read navmesh landmarks from " + cacheFile.path());
+			return landmarks;
+		}
+		landmarks = NavMeshLandmarks.create(graph, GameSettings.NAVMESH_LANDMARKS);
+		try {
+			NavMeshCache.write(landmarks, hash, cacheFile);
+			Gdx.app.debug(TAG, "Wrote navmesh landmarks to " + cacheFile.path());
+		} catch (GdxRuntimeException e) {
+			Gdx.app.error(TAG, "Could not write navmesh cache " + cacheFile.path(), e);
+		}
+		return landmarks;
+	}
+
+	private long getNavMeshCacheHash(GameObjectBlueprint bp) {
+		return NavMeshCache.hash(Gdx.files.internal(assets.getModelFilePath(bp.name)),
+				bp.position.x, bp.position.y, bp.position.z,
+				bp.rotation.x, bp.rotation.y, bp.rotation.z,
+				bp.scale.x, bp.scale.y, bp.scale.z);
+	}
+
+	private FileHandle getNavMeshCacheFile(GameObjectBlueprint bp, String extension) {
+		FileHandle source = Gdx.files.internal(assets.getModelFilePath(bp.name));
+		return Gdx.files.local(NAVMESH_CACHE_PATH + source.nameWithoutExtension() + extension);
+	}
+
 	private void spawnLight(BlenderLight bLight) {
 		Vector3 direction = new Vector3(V3_DOWN);
 		direction.rotate(Vector3.X, bLight.rotation.x);
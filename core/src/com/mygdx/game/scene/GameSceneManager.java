@@ -71,9 +71,15 @@ public class GameSceneManager implements Disposable {
 		Gdx.app.debug(TAG, "Added shared blueprint '" + blueprintId + "'");
 	}
 
+	/**
+	 * Dispose a scene and forget it, so that it is not disposed again with the manager. Opening the scene again
+	 * creates a new one.
+	 *
+	 * @param sceneId
+	 */
 	public void dispose(String sceneId) {
 		Gdx.app.debug(TAG, "Disposing scene '" + sceneId + "'");
-		sceneMap.get(sceneId).dispose();
+		sceneMap.remove(sceneId).dispose();
 	}
 
 	@Override
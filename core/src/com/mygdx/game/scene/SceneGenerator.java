@@ -0,0 +1,695 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.scene;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.utils.MeshPartBuilder;
+import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
+import com.badlogic.gdx.graphics.g3d.utils.shapebuilders.BoxShapeBuilder;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.mygdx.game.pathfinding.NavMesh;
+import com.mygdx.game.pathfinding.NavMeshGraph;
+
+import java.util.Arrays;
+
+/**
+ * Generates levels for scaling tests in memory, instead of exporting them from Blender: a navigation mesh, and
+ * static geometry which matches it, at about any number of triangles.
+ * <p/>
+ * Levels are built from square cells, two triangles each. A cell is either walkable floor, floor covered by a box,
+ * or empty. Walkable cells become the navmesh, all floor cells and boxes become the static geometry, so the navmesh
+ * goes around the boxes the characters collide with. Buildings are made of floors stacked on top of each other,
+ * connected by stair ramps. Each floor and each stair is a mesh part of the navmesh.
+ * <p/>
+ * The navmesh data is kept in plain arrays, so that graphs larger than a 16-bit index {@link Mesh} can be created
+ * without a GL context, see {@link Level#createGraph(float)}. The same levels are always generated from the same
+ * arguments.
+ *
+ * @author jsjolund
+ */
+public final class SceneGenerator {
+
+	private static final String TAG = "SceneGenerator";
+
+	/**
+	 * Width of a cell
+	 */
+	public static final float CELL_SIZE = 1;
+	/**
+	 * Height between the floors of a building
+	 */
+	public static final float FLOOR_HEIGHT = 3;
+	/**
+	 * Height of maze walls, lower than the floor height so that walls fit inside a building
+	 */
+	public static final float WALL_HEIGHT = 2.5f;
+	/**
+	 * Number of floats which describe a box, the center followed by the half extents
+	 */
+	public static final int BOX_SIZE = 6;
+
+	private static final float HILL_HEIGHT = 2;
+	private static final float MIN_OBSTACLE_HEIGHT = 0.5f;
+	private static final float MAX_OBSTACLE_HEIGHT = 2;
+	private static final int MAX_OBSTACLE_CELLS = 4;
+	/**
+	 * Fraction of the cells of each building floor covered by obstacles
+	 */
+	private static final float BUILDING_OBSTACLE_FRACTION = 0.1f;
+	private static final int MAZE_CORRIDOR_CELLS = 2;
+	private static final int STAIR_LENGTH_CELLS = 6;
+	private static final int STAIR_WIDTH_CELLS = 2;
+	/**
+	 * Cell where the stairs start along z
+	 */
+	private static final int STAIR_Z = 2;
+	/**
+	 * Models index vertices with 16 bits, read as unsigned by the navmesh
+	 */
+	private static final int MAX_MESH_VERTICES = 1 << 16;
+	/**
+	 * Vertices in each part of the static model. The model builder starts a new mesh when the current one
+	 * holds a quarter of the vertices a mesh can index, so parts must stay below that.
+	 */
+	private static final int MAX_PART_VERTICES = 1 << 14;
+	private static final int BOX_VERTICES = 24;
+
+	private static final byte EMPTY = 0;
+	private static final byte FLOOR = 1;
+	private static final byte BLOCKED = 2;
+	/**
+	 * Walkable floor which must not be blocked, e.g. in front of stairs
+	 */
+	private static final byte RESERVED = 3;
+
+	/**
+	 * A generated level. The arrays must not be modified.
+	 */
+	public static class Level {
+
+		public final String name;
+		/**
+		 * The x, y and z coordinates of each navmesh vertex, packed
+		 */
+		public final float[] vertexPositions;
+		/**
+		 * Navmesh vertex indices, three for each triangle
+		 */
+		public final int[] indices;
+		/**
+		 * The offset in the navmesh index array where each mesh part starts
+		 */
+		public final int[] meshPartIndexOffsets;
+		/**
+		 * Vertices of the static floor geometry, which covers the navmesh and the floor under the boxes
+		 */
+		public final float[] groundVertexPositions;
+		public final int[] groundIndices;
+		/**
+		 * The static boxes, see {@link #BOX_SIZE}
+		 */
+		public final float[] boxes;
+		public final BoundingBox bounds = new BoundingBox();
+
+		Level(String name, float[] vertexPositions, int[] indices, int[] meshPartIndexOffsets,
+			  float[] groundVertexPositions, int[] groundIndices, float[] boxes) {
+			this.name = name;
+			this.vertexPositions = vertexPositions;
+			this.indices = indices;
+			this.meshPartIndexOffsets = meshPartIndexOffsets;
+			this.groundVertexPositions = groundVertexPositions;
+			this.groundIndices = groundIndices;
+			this.boxes = boxes;
+
+			bounds.inf();
+			for (int i = 0; i < groundVertexPositions.length; i += 3) {
+				bounds.ext(groundVertexPositions[i], groundVertexPositions[i + 1], groundVertexPositions[i + 2]);
+			}
+			for (int i = 0; i < boxes.length; i += BOX_SIZE) {
+				bounds.ext(boxes[i] + boxes[i + 3], boxes[i + 1] + boxes[i + 4], boxes[i + 2] + boxes[i + 5]);
+				bounds.ext(boxes[i] - boxes[i + 3], boxes[i + 1] - boxes[i + 4], boxes[i + 2] - boxes[i + 5]);
+			}
+		}
+
+		public int getTriangleCount() {
+			return indices.length / 3;
+		}
+
+		public int getMeshPartCount() {
+			return meshPartIndexOffsets.length;
+		}
+
+		public int getBoxCount() {
+			return boxes.length / BOX_SIZE;
+		}
+
+		/**
+		 * Create the navmesh graph, of any size. Does not need a GL context.
+		 *
+		 * @param weldEpsilon See {@link NavMeshGraph#NavMeshGraph(float[], int[], int[], float)}
+		 * @return
+		 */
+		public NavMeshGraph createGraph(float weldEpsilon) {
+			// The graph welds the indices in place
+			return new NavMeshGraph(vertexPositions, indices.clone(), meshPartIndexOffsets, weldEpsilon);
+		}
+
+		/**
+		 * Create a navmesh model, with a single mesh and one mesh part for each part of the navmesh, which can be
+		 * passed to {@link NavMesh#NavMesh(Model)}. Needs a GL context.
+		 *
+		 * @return The model, which must be disposed by the caller
+		 * @throws GdxRuntimeException If the navmesh has too many vertices to fit in a mesh, in which case
+		 *                             {@link #createGraph(float)} can be used instead
+		 */
+		public Model createNavMeshModel() {
+			int numVertices = vertexPositions.length / 3;
+			if (numVertices > MAX_MESH_VERTICES) {
+				throw new GdxRuntimeException("Navmesh of level " + name + " has " + numVertices
+						+ " vertices, more than a mesh can index");
+			}
+			short[] shortIndices = new short[indices.length];
+			for (int i = 0; i < indices.length; i++) {
+				shortIndices[i] = (short) indices[i];
+			}
+			Mesh mesh = new Mesh(true, numVertices, indices.length, VertexAttribute.Position());
+			mesh.setVertices(vertexPositions);
+			mesh.setIndices(shortIndices);
+
+			Material material = new Material("navmesh");
+			ModelBuilder modelBuilder = new ModelBuilder();
+			modelBuilder.begin();
+			modelBuilder.node().id = "navmesh";
+			for (int i = 0; i < meshPartIndexOffsets.length; i++) {
+				int offset = meshPartIndexOffsets[i];
+				int end = (i + 1 < meshPartIndexOffsets.length) ? meshPartIndexOffsets[i + 1] : indices.length;
+				modelBuilder.part("navmesh_" + i, mesh, GL20.GL_TRIANGLES, offset, end - offset, material);
+			}
+			return modelBuilder.end();
+		}
+
+		/**
+		 * Create a model of the static geometry, the floors and the boxes, e.g. for a static Bullet shape from
+		 * its nodes. The geometry is split into as many meshes as needed. Needs a GL context.
+		 *
+		 * @return The model, which must be disposed by the caller
+		 */
+		public Model createStaticModel() {
+			long attributes = VertexAttributes.Usage.Position | VertexAttributes.Usage.Normal;
+			Material groundMaterial = new Material("ground", ColorAttribute.createDiffuse(Color.LIGHT_GRAY));
+			Material boxMaterial = new Material("box", ColorAttribute.createDiffuse(Color.GRAY));
+			Vector3 position = new Vector3();
+
+			ModelBuilder modelBuilder = new ModelBuilder();
+			modelBuilder.begin();
+			modelBuilder.node().id = "ground";
+			MeshPartBuilder builder = null;
+			IntIntMap partVertices = new IntIntMap();
+			int numParts = 0;
+			for (int i = 0; i < groundIndices.length; i += 3) {
+				if (builder == null || partVertices.size + 3 > MAX_PART_VERTICES) {
+					builder = modelBuilder.part("ground_" + numParts++, GL20.GL_TRIANGLES, attributes, groundMaterial);
+					partVertices.clear();
+				}
+				short a = getPartVertex(builder, partVertices, groundIndices[i], position);
+				short b = getPartVertex(builder, partVertices, groundIndices[i + 1], position);
+				short c = getPartVertex(builder, partVertices, groundIndices[i + 2], position);
+				builder.triangle(a, b, c);
+			}
+			if (boxes.length > 0) {
+				modelBuilder.node().id = "boxes";
+				int boxesPerPart = MAX_PART_VERTICES / BOX_VERTICES;
+				for (int i = 0; i < getBoxCount(); i++) {
+					if (i % boxesPerPart == 0) {
+						builder = modelBuilder.part("boxes_" + i / boxesPerPart, GL20.GL_TRIANGLES, attributes,
+								boxMaterial);
+					}
+					int j = i * BOX_SIZE;
+					BoxShapeBuilder.build(builder, boxes[j], boxes[j + 1], boxes[j + 2],
+							boxes[j + 3] * 2, boxes[j + 4] * 2, boxes[j + 5] * 2);
+				}
+			}
+			return modelBuilder.end();
+		}
+
+		/**
+		 * Get the index of a ground vertex in the current part, adding it to the part the first time. The floors
+		 * are mostly flat, so all vertices get an up normal.
+		 */
+		private short getPartVertex(MeshPartBuilder builder, IntIntMap partVertices, int index, Vector3 tmp) {
+			int partIndex = partVertices.get(index, -1);
+			if (partIndex == -1) {
+				tmp.set(groundVertexPositions[index * 3], groundVertexPositions[index * 3 + 1],
+						groundVertexPositions[index * 3 + 2]);
+				partIndex = builder.vertex(tmp, Vector3.Y, null, null);
+				partVertices.put(index, partIndex);
+			}
+			return (short) partIndex;
+		}
+
+		@Override
+		public String toString() {
+			final StringBuffer sb = new StringBuffer("Level{");
+			sb.append("name='").append(name).append('\'');
+			sb.append(", triangles=").append(getTriangleCount());
+			sb.append(", meshParts=").append(getMeshPartCount());
+			sb.append(", boxes=").append(getBoxCount());
+			sb.append('}');
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Collects the cells, stairs and boxes of a level. Floors and stairs share vertices where they meet, so that
+	 * the navmesh graph connects them.
+	 */
+	private static class LevelBuilder {
+		final String name;
+		final long startTime = TimeUtils.millis();
+		final FloatArray vertices = new FloatArray();
+		final IntArray navMeshIndices = new IntArray();
+		final IntArray meshPartIndexOffsets = new IntArray();
+		final IntArray groundIndices = new IntArray();
+		final FloatArray boxes = new FloatArray();
+
+		LevelBuilder(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Add the vertices of a grid of cells.
+		 *
+		 * @return Index of the first vertex, at the lowest x and z
+		 */
+		int addGridVertices(int sizeX, int sizeZ, float y, boolean hills) {
+			int first = vertices.size / 3;
+			vertices.ensureCapacity((sizeX + 1) * (sizeZ + 1) * 3);
+			for (int z = 0; z <= sizeZ; z++) {
+				for (int x = 0; x <= sizeX; x++) {
+					float height = hills ? HILL_HEIGHT * MathUtils.sin(x * 0.1f) * MathUtils.cos(z * 0.07f) : 0;
+					vertices.add(x * CELL_SIZE);
+					vertices.add(y + height);
+					vertices.add(z * CELL_SIZE);
+				}
+			}
+			return first;
+		}
+
+		int addVertex(float x, float y, float z) {
+			vertices.add(x);
+			vertices.add(y);
+			vertices.add(z);
+			return vertices.size / 3 - 1;
+		}
+
+		void beginMeshPart() {
+			meshPartIndexOffsets.add(navMeshIndices.size);
+		}
+
+		/**
+		 * Add the navmesh and ground triangles of a grid of cells, as a new mesh part.
+		 */
+		void addCells(byte[] cells, int sizeX, int sizeZ, int firstVertex) {
+			beginMeshPart();
+			for (int z = 0; z < sizeZ; z++) {
+				for (int x = 0; x < sizeX; x++) {
+					byte cell = cells[z * sizeX + x];
+					if (cell == EMPTY) {
+						continue;
+					}
+					int a = firstVertex + z * (sizeX + 1) + x;
+					int c = a + sizeX + 1;
+					if (cell != BLOCKED) {
+						addQuad(navMeshIndices, a, a + 1, c, c + 1);
+					}
+					addQuad(groundIndices, a, a + 1, c, c + 1);
+				}
+			}
+		}
+
+		/**
+		 * Add two triangles facing up, given the corners at the lowest and highest x for the lowest z,
+		 * then the same for the highest z.
+		 */
+		static void addQuad(IntArray out, int a, int b, int c, int d) {
+			out.add(a);
+			out.add(c);
+			out.add(b);
+			out.add(b);
+			out.add(c);
+			out.add(d);
+		}
+
+		void addBox(float centerX, float centerY, float centerZ, float halfX, float halfY, float halfZ) {
+			boxes.add(centerX);
+			boxes.add(centerY);
+			boxes.add(centerZ);
+			boxes.add(halfX);
+			boxes.add(halfY);
+			boxes.add(halfZ);
+		}
+
+		Level build() {
+			IntArray navMeshVertices = new IntArray();
+			int[] indices = compact(navMeshIndices, navMeshVertices);
+			IntArray groundVertices = new IntArray();
+			int[] ground = compact(groundIndices, groundVertices);
+			Level level = new Level(name, getPositions(navMeshVertices), indices, meshPartIndexOffsets.toArray(),
+					getPositions(groundVertices), ground, boxes.toArray());
+			Gdx.app.debug(TAG, "Generated " + level + " in " + TimeUtils.timeSinceMillis(startTime) + " ms");
+			return level;
+		}
+
+		/**
+		 * Renumber the vertices used by some indices from zero, in the order they are first used.
+		 *
+		 * @param indices Indices into all vertices
+		 * @param out     Output for the original index of each used vertex
+		 * @return The renumbered indices
+		 */
+		int[] compact(IntArray indices, IntArray out) {
+			int[] newIndices = new int[vertices.size / 3];
+			int[] result = new int[indices.size];
+			for (int i = 0; i < indices.size; i++) {
+				int index = indices.get(i);
+				if (newIndices[index] == 0) {
+					out.add(index);
+					// Stored plus one, zero means not used yet
+					newIndices[index] = out.size;
+				}
+				result[i] = newIndices[index] - 1;
+			}
+			return result;
+		}
+
+		float[] getPositions(IntArray vertexIndices) {
+			float[] positions = new float[vertexIndices.size * 3];
+			for (int i = 0; i < vertexIndices.size; i++) {
+				System.arraycopy(vertices.items, vertexIndices.get(i) * 3, positions, i * 3, 3);
+			}
+			return positions;
+		}
+	}
+
+	private SceneGenerator() {
+	}
+
+	/**
+	 * Generate a square grid of cells over gentle hills, with no obstacles.
+	 *
+	 * @param triangleCount Approximate number of navmesh triangles
+	 * @return
+	 */
+	public static Level createGrid(int triangleCount) {
+		int size = getGridSize(triangleCount / 2f);
+		LevelBuilder builder = new LevelBuilder("grid_" + triangleCount);
+		byte[] cells = new byte[size * size];
+		Arrays.fill(cells, FLOOR);
+		builder.addCells(cells, size, size, builder.addGridVertices(size, size, 0, true));
+		return builder.build();
+	}
+
+	/**
+	 * Generate a flat square floor with boxes of random size placed at random on it.
+	 *
+	 * @param triangleCount    Approximate number of navmesh triangles, after the boxes are placed
+	 * @param obstacleFraction Fraction of the floor covered by boxes, less than one
+	 * @param seed             Random seed
+	 * @return
+	 */
+	public static Level createObstacleField(int triangleCount, float obstacleFraction, long seed) {
+		int size = getGridSize(triangleCount / 2f / (1 - obstacleFraction));
+		RandomXS128 random = new RandomXS128(seed);
+		LevelBuilder builder = new LevelBuilder("obstacles_" + triangleCount);
+		byte[] cells = new byte[size * size];
+		Arrays.fill(cells, FLOOR);
+		placeObstacles(builder, cells, size, size, 0, obstacleFraction, random);
+		builder.addCells(cells, size, size, builder.addGridVertices(size, size, 0, false));
+		return builder.build();
+	}
+
+	/**
+	 * Generate a maze, with a single path between any two points. The corridors are two cells wide, and the walls
+	 * are boxes.
+	 *
+	 * @param triangleCount Approximate number of navmesh triangles
+	 * @param seed          Random seed
+	 * @return
+	 */
+	public static Level createMaze(int triangleCount, long seed) {
+		// About half of the maze blocks are corridors
+		int corridorCells = MAZE_CORRIDOR_CELLS * MAZE_CORRIDOR_CELLS;
+		int rooms = getGridSize(triangleCount / 4f / corridorCells);
+		int blocks = rooms * 2 + 1;
+		boolean[] open = carveMaze(rooms, new RandomXS128(seed));
+
+		int size = blocks * MAZE_CORRIDOR_CELLS;
+		LevelBuilder builder = new LevelBuilder("maze_" + triangleCount);
+		byte[] cells = new byte[size * size];
+		for (int z = 0; z < size; z++) {
+			for (int x = 0; x < size; x++) {
+				int block = (z / MAZE_CORRIDOR_CELLS) * blocks + x / MAZE_CORRIDOR_CELLS;
+				cells[z * size + x] = open[block] ? FLOOR : BLOCKED;
+			}
+		}
+		// One box for each run of wall blocks along x
+		float blockSize = MAZE_CORRIDOR_CELLS * CELL_SIZE;
+		for (int z = 0; z < blocks; z++) {
+			int x = 0;
+			while (x < blocks) {
+				if (open[z * blocks + x]) {
+					x++;
+					continue;
+				}
+				int start = x;
+				while (x < blocks && !open[z * blocks + x]) {
+					x++;
+				}
+				builder.addBox((start + x) * blockSize * 0.5f, WALL_HEIGHT * 0.5f, (z + 0.5f) * blockSize,
+						(x - start) * blockSize * 0.5f, WALL_HEIGHT * 0.5f, blockSize * 0.5f);
+			}
+		}
+		builder.addCells(cells, size, size, builder.addGridVertices(size, size, 0, false));
+		return builder.build();
+	}
+
+	/**
+	 * Carve a maze of rooms by a randomized depth first search. The maze is a square of blocks, with rooms at odd
+	 * block coordinates and walls between them. A wall is opened for each step of the search.
+	 *
+	 * @return For each block, true if it is open
+	 */
+	private static boolean[] carveMaze(int rooms, RandomXS128 random) {
+		int blocks = rooms * 2 + 1;
+		boolean[] open = new boolean[blocks * blocks];
+		boolean[] visited = new boolean[rooms * rooms];
+		int[] neighbours = new int[4];
+		IntArray stack = new IntArray();
+		stack.add(0);
+		visited[0] = true;
+		open[blocks + 1] = true;
+		while (stack.size > 0) {
+			int room = stack.peek();
+			int roomX = room % rooms;
+			int roomZ = room / rooms;
+			int numNeighbours = 0;
+			if (roomX > 0 && !visited[room - 1]) neighbours[numNeighbours++] = room - 1;
+			if (roomX < rooms - 1 && !visited[room + 1]) neighbours[numNeighbours++] = room + 1;
+			if (roomZ > 0 && !visited[room - rooms]) neighbours[numNeighbours++] = room - rooms;
+			if (roomZ < rooms - 1 && !visited[room + rooms]) neighbours[numNeighbours++] = room + rooms;
+			if (numNeighbours == 0) {
+				stack.pop();
+				continue;
+			}
+			int next = neighbours[random.nextInt(numNeighbours)];
+			int nextX = next % rooms;
+			int nextZ = next / rooms;
+			visited[next] = true;
+			// The room, and the wall between it and the previous room
+			open[(nextZ * 2 + 1) * blocks + nextX * 2 + 1] = true;
+			open[(roomZ + nextZ + 1) * blocks + roomX + nextX + 1] = true;
+			stack.add(next);
+		}
+		return open;
+	}
+
+	/**
+	 * Generate a building of square floors stacked on top of each other, with boxes placed at random on each
+	 * floor. Each floor is connected to the one above by a stair ramp, on alternating sides of the building.
+	 * The floors are the first mesh parts of the navmesh, in order from the ground up, followed by the stairs.
+	 *
+	 * @param floorCount    Number of floors
+	 * @param triangleCount Approximate number of navmesh triangles of all floors
+	 * @param seed          Random seed
+	 * @return
+	 */
+	public static Level createBuilding(int floorCount, int triangleCount, long seed) {
+		// Room for a stair on each side, and for the stair and the cells in front of it along z
+		int minSize = Math.max(STAIR_WIDTH_CELLS * 2 + 4, STAIR_Z + STAIR_LENGTH_CELLS + 2);
+		int size = Math.max(minSize,
+				getGridSize(triangleCount / 2f / floorCount / (1 - BUILDING_OBSTACLE_FRACTION)));
+		RandomXS128 random = new RandomXS128(seed);
+		LevelBuilder builder = new LevelBuilder("building_" + floorCount + "_" + triangleCount);
+
+		byte[][] floorCells = new byte[floorCount][size * size];
+		int[] floorVertices = new int[floorCount];
+		for (int floor = 0; floor < floorCount; floor++) {
+			Arrays.fill(floorCells[floor], FLOOR);
+			floorVertices[floor] = builder.addGridVertices(size, size, floor * FLOOR_HEIGHT, false);
+		}
+		// The ramps go along z, from the floor below to the floor above
+		int stairZ = STAIR_Z;
+		for (int floor = 0; floor < floorCount - 1; floor++) {
+			int stairX = getStairX(floor, size);
+			for (int x = stairX; x < stairX + STAIR_WIDTH_CELLS; x++) {
+				floorCells[floor][(stairZ - 1) * size + x] = RESERVED;
+				floorCells[floor + 1][(stairZ + STAIR_LENGTH_CELLS) * size + x] = RESERVED;
+				for (int z = stairZ; z < stairZ + STAIR_LENGTH_CELLS; z++) {
+					// Under the ramp, and the hole it comes up through
+					floorCells[floor][z * size + x] = BLOCKED;
+					floorCells[floor + 1][z * size + x] = EMPTY;
+				}
+			}
+		}
+		for (int floor = 0; floor < floorCount; floor++) {
+			placeObstacles(builder, floorCells[floor], size, size, floor * FLOOR_HEIGHT,
+					BUILDING_OBSTACLE_FRACTION, random);
+		}
+		for (int floor = 0; floor < floorCount; floor++) {
+			builder.addCells(floorCells[floor], size, size, floorVertices[floor]);
+		}
+		for (int floor = 0; floor < floorCount - 1; floor++) {
+			addStair(builder, size, getStairX(floor, size), stairZ, floor, floorVertices[floor],
+					floorVertices[floor + 1]);
+		}
+		return builder.build();
+	}
+
+	private static int getStairX(int floor, int size) {
+		return (floor % 2 == 0) ? 1 : size - 1 - STAIR_WIDTH_CELLS;
+	}
+
+	/**
+	 * Add a stair ramp as a new mesh part. The lowest row of ramp vertices is shared with the floor below,
+	 * and the highest row with the floor above.
+	 */
+	private static void addStair(LevelBuilder builder, int size, int stairX, int stairZ, int floor,
+								 int lowerFloorVertices, int upperFloorVertices) {
+		int rowSize = STAIR_WIDTH_CELLS + 1;
+		int[] rampVertices = new int[(STAIR_LENGTH_CELLS + 1) * rowSize];
+		for (int row = 0; row <= STAIR_LENGTH_CELLS; row++) {
+			int z = stairZ + row;
+			for (int i = 0; i < rowSize; i++) {
+				int x = stairX + i;
+				int vertex;
+				if (row == 0) {
+					vertex = lowerFloorVertices + z * (size + 1) + x;
+				} else if (row == STAIR_LENGTH_CELLS) {
+					vertex = upperFloorVertices + z * (size + 1) + x;
+				} else {
+					float y = (floor + (float) row / STAIR_LENGTH_CELLS) * FLOOR_HEIGHT;
+					vertex = builder.addVertex(x * CELL_SIZE, y, z * CELL_SIZE);
+				}
+				rampVertices[row * rowSize + i] = vertex;
+			}
+		}
+		builder.beginMeshPart();
+		for (int row = 0; row < STAIR_LENGTH_CELLS; row++) {
+			for (int i = 0; i < STAIR_WIDTH_CELLS; i++) {
+				int a = rampVertices[row * rowSize + i];
+				int b = rampVertices[row * rowSize + i + 1];
+				int c = rampVertices[(row + 1) * rowSize + i];
+				int d = rampVertices[(row + 1) * rowSize + i + 1];
+				LevelBuilder.addQuad(builder.navMeshIndices, a, b, c, d);
+				LevelBuilder.addQuad(builder.groundIndices, a, b, c, d);
+			}
+		}
+	}
+
+	/**
+	 * Cover a fraction of the walkable cells of a floor with boxes of random size and height. Gives up after
+	 * a number of failed attempts, e.g. when the floor is too crowded.
+	 */
+	private static void placeObstacles(LevelBuilder builder, byte[] cells, int sizeX, int sizeZ, float y,
+									   float fraction, RandomXS128 random) {
+		int walkable = 0;
+		for (byte cell : cells) {
+			if (cell == FLOOR || cell == RESERVED) {
+				walkable++;
+			}
+		}
+		int target = (int) (walkable * fraction);
+		int blocked = 0;
+		int failures = 0;
+		int maxFailures = Math.max(100, target);
+		while (blocked < target && failures < maxFailures) {
+			int width = 1 + random.nextInt(Math.min(MAX_OBSTACLE_CELLS, sizeX));
+			int depth = 1 + random.nextInt(Math.min(MAX_OBSTACLE_CELLS, sizeZ));
+			int startX = random.nextInt(sizeX - width + 1);
+			int startZ = random.nextInt(sizeZ - depth + 1);
+			if (!isFree(cells, sizeX, startX, startZ, width, depth)) {
+				failures++;
+				continue;
+			}
+			for (int z = startZ; z < startZ + depth; z++) {
+				for (int x = startX; x < startX + width; x++) {
+					cells[z * sizeX + x] = BLOCKED;
+				}
+			}
+			blocked += width * depth;
+			float halfHeight = MathUtils.lerp(MIN_OBSTACLE_HEIGHT, MAX_OBSTACLE_HEIGHT, random.nextFloat()) * 0.5f;
+			builder.addBox((startX + width * 0.5f) * CELL_SIZE, y + halfHeight, (startZ + depth * 0.5f) * CELL_SIZE,
+					width * CELL_SIZE * 0.5f, halfHeight, depth * CELL_SIZE * 0.5f);
+		}
+	}
+
+	private static boolean isFree(byte[] cells, int sizeX, int startX, int startZ, int width, int depth) {
+		for (int z = startZ; z < startZ + depth; z++) {
+			for (int x = startX; x < startX + width; x++) {
+				if (cells[z * sizeX + x] != FLOOR) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return Side of a square grid with about the given number of cells
+	 */
+	private static int getGridSize(float cellCount) {
+		return Math.max(1, Math.round((float) Math.sqrt(cellCount)));
+	}
+
+}
@@ -49,6 +49,18 @@ public class GameSettings {
 	public static float GAME_SPEED_PLAY = 1;
 	public static float GAME_SPEED_SLOW = 0.05f;
 
+	public static long PATH_REQUEST_TIME_BUDGET_MICROS = 1000;
+	// Landmarks for the navmesh path finding heuristic, 0 to use the straight distance only
+	public static int NAVMESH_LANDMARKS = 8;
+	// Cost scale of the navmesh below doors, which can be pushed open, NavMeshObstacle.BLOCKED to never path through them
+	public static float NAVMESH_DOOR_COST_SCALE = 20;
+	// Cost scale of the navmesh below other dynamic objects
+	public static float NAVMESH_OBSTACLE_COST_SCALE = 4;
+	// Bounds of dynamic objects must move this far before the navmesh obstacles are updated
+	public static float NAVMESH_OBSTACLE_UPDATE_DISTANCE = 0.1f;
+	// Paths to a moving target are repaired, instead of searched again, if the target moved less than this
+	public static float PATH_REPAIR_MAX_GOAL_DISTANCE = 4;
+
 	public static float MOUSE_SENSITIVITY = 0.1f;
 	public static float MOUSE_DRAG_THRESHOLD = 10f;
 
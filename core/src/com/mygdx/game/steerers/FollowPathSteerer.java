@@ -19,8 +19,6 @@ package com.mygdx.game.steerers;
 import com.badlogic.gdx.ai.GdxAI;
 import com.badlogic.gdx.ai.steer.SteeringAcceleration;
 import com.badlogic.gdx.ai.steer.behaviors.FollowPath;
-import com.badlogic.gdx.ai.steer.utils.paths.LinePath;
-import com.badlogic.gdx.ai.steer.utils.paths.LinePath.LinePathParam;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.math.collision.Ray;
@@ -31,7 +29,12 @@ import com.mygdx.game.GameRenderer;
 import com.mygdx.game.GameScreen;
 import com.mygdx.game.objects.GameObject;
 import com.mygdx.game.objects.SteerableBody;
+import com.mygdx.game.pathfinding.NavMesh;
+import com.mygdx.game.pathfinding.NavMeshFlowField;
+import com.mygdx.game.pathfinding.NavMeshFlowFields;
+import com.mygdx.game.pathfinding.NavMeshGraph;
 import com.mygdx.game.pathfinding.NavMeshGraphPath;
+import com.mygdx.game.pathfinding.NavMeshPathRequest;
 import com.mygdx.game.pathfinding.NavMeshPointPath;
 import com.mygdx.game.pathfinding.Triangle;
 import com.mygdx.game.settings.GameSettings;
@@ -44,7 +47,12 @@ import com.mygdx.game.utilities.MyShapeRenderer;
  * @author jsjolund
  * @author davebaol
  */
-public class FollowPathSteerer extends CollisionAvoidanceSteererBase {
+public class FollowPathSteerer extends CollisionAvoidanceSteererBase implements NavMeshPathRequest.Listener {
+
+	/**
+	 * Priority of path requests made by the player, see {@link #requestNewPath(Ray, Bits)}
+	 */
+	private static final int PLAYER_PATH_REQUEST_PRIORITY = 1;
 
 	/**
 	 * Path of triangles on the navigation mesh. Used to construct path points.
@@ -64,12 +72,12 @@ public class FollowPathSteerer extends CollisionAvoidanceSteererBase {
 	/**
 	 * Steering behaviour for path following
 	 */
-	public final FollowPath<Vector3, LinePath.LinePathParam> followPathSB;
+	public final FollowPath<Vector3, ReusableLinePath.LinePathParam> followPathSB;
 
 	/**
-	 * Holds the path segments for steering behaviour
+	 * Holds the path segments for steering behaviour, reused for each new path
 	 */
-	protected final LinePath<Vector3> linePath;
+	protected final ReusableLinePath linePath;
 
 	/**
 	 * Path segment index the steerable is currently following.
@@ -80,8 +88,30 @@ public class FollowPathSteerer extends CollisionAvoidanceSteererBase {
 	 * Points from which to construct the path segments the steerable should follow
 	 */
 	private final Array<Vector3> centerOfMassPath = new Array<Vector3>();
+	/**
+	 * Vectors reused for the center of mass path, grown to the longest path so far
+	 */
+	private final Array<Vector3> centerOfMassPoints = new Array<Vector3>();
+
+	/**
+	 * Request for paths which are searched over several frames
+	 */
+	private final NavMeshPathRequest pathRequest = new NavMeshPathRequest(navMeshGraphPath, this);
+
+	/**
+	 * Flow field toward the target of the path, or null. The path is only taken from it if it has been created.
+	 */
+	private NavMeshFlowField flowField;
+
+	/**
+	 * Navmesh graph version when the path was found, see {@link NavMeshGraph#isPathChanged}
+	 */
+	private int pathVersion;
+
+	private final Vector3 reachableTargetPoint = new Vector3();
 
 	private Vector3 tmpVec1 = new Vector3();
+	private Vector3 tmpVec2 = new Vector3();
 	private Ray stationarityRayLow = new Ray();
 	private Ray stationarityRayHigh = new Ray();
 	private float stationarityRayLength;
@@ -92,13 +122,15 @@ public class FollowPathSteerer extends CollisionAvoidanceSteererBase {
 
 		// At least two points are needed to construct a line path
 		Array<Vector3> waypoints = new Array<Vector3>(new Vector3[]{new Vector3(), new Vector3(1, 0, 1)});
-		this.linePath = new LinePath<Vector3>(waypoints, true);
-		this.followPathSB = new FollowPath<Vector3, LinePath.LinePathParam>(steerableBody, linePath, 1);
+		this.linePath = new ReusableLinePath(waypoints);
+		this.followPathSB = new FollowPath<Vector3, ReusableLinePath.LinePathParam>(steerableBody, linePath, 1);
 
 		this.prioritySteering.add(followPathSB);
 	}
 
 	public boolean calculateNewPath(Ray ray, Bits visibleLayers) {
+		cancelPathRequest();
+		releaseFlowField();
 		if (GameScreen.screen.engine.getScene().navMesh.getPath(
 				steerableBody.getCurrentTriangle(),
 				steerableBody.getGroundPosition(tmpVec1),
@@ -112,12 +144,146 @@ public class FollowPathSteerer extends CollisionAvoidanceSteererBase {
 		return false;
 	}
 
+	/**
+	 * Queue a path request to the navmesh point intersected by the ray. The path is searched within the per frame
+	 * time budget of the navmesh path request queue, and followed as soon as it, or a partial path, is found.
+	 * If the point can not be reached, the path leads to the closest point which can.
+	 *
+	 * @return False if the ray did not hit the navmesh
+	 */
+	public boolean requestNewPath(Ray ray, Bits visibleLayers) {
+		NavMesh navMesh = GameScreen.screen.engine.getScene().navMesh;
+		Triangle targetTriangle = navMesh.rayTest(ray, GameSettings.CAMERA_PICK_RAY_DST, visibleLayers, tmpVec2);
+		if (targetTriangle == null) {
+			return false;
+		}
+		targetTriangle = getReachableTarget(navMesh, targetTriangle, tmpVec2);
+		pathRequest.set(steerableBody.getCurrentTriangle(), steerableBody.getGroundPosition(tmpVec1),
+				targetTriangle, reachableTargetPoint);
+		pathRequest.priority = PLAYER_PATH_REQUEST_PRIORITY;
+		pathRequest.allowPartialPath = true;
+		releaseFlowField();
+		navMesh.pathRequestQueue.submit(pathRequest);
+		return true;
+	}
+
+	@Override
+	public void pathRequestDone(NavMeshPathRequest request) {
+		if (request.pathFound) {
+			calculateNewPath0();
+		}
+	}
+
+	/**
+	 * Submit a path request to the navmesh path worker pool, to be searched on another thread.
+	 * The path is followed when the result is delivered, at most one frame after the search finished.
+	 * If the target can not be reached, the path leads to the closest point which can.
+	 */
+	public void requestNewPath(Triangle targetTriangle, Vector3 targetPoint) {
+		NavMesh navMesh = GameScreen.screen.engine.getScene().navMesh;
+		targetTriangle = getReachableTarget(navMesh, targetTriangle, targetPoint);
+		pathRequest.set(steerableBody.getCurrentTriangle(), steerableBody.getGroundPosition(tmpVec1),
+				targetTriangle, reachableTargetPoint);
+		pathRequest.priority = 0;
+		releaseFlowField();
+		navMesh.getPathWorkerPool().submit(pathRequest);
+	}
+
+	/**
+	 * Follow a flow field toward a target, shared with other steerers with nearby targets in the same triangle.
+	 * No search is needed if a field toward the target already exists. The field is kept while following it
+	 * to the same target, until the target moves farther than the goal tolerance of
+	 * {@link NavMeshFlowFields}.
+	 * <p/>
+	 * Until enough steerers head for the target for the field to be created, see
+	 * {@link NavMeshFlowFields#getMinReferences()}, the path is searched as by {@link #calculateNewPath}.
+	 *
+	 * @return False if the target can not be reached
+	 */
+	public boolean followFlowField(Triangle targetTriangle, Vector3 targetPoint) {
+		cancelPathRequest();
+		NavMesh navMesh = GameScreen.screen.engine.getScene().navMesh;
+		targetTriangle = getReachableTarget(navMesh, targetTriangle, targetPoint);
+		flowField = navMesh.flowFields.update(flowField, targetTriangle, reachableTargetPoint);
+		Triangle currentTriangle = steerableBody.getCurrentTriangle();
+		boolean found;
+		if (flowField.isCreated()) {
+			found = flowField.getPath(currentTriangle, navMeshGraphPath);
+			if (found) {
+				navMeshGraphPath.setPoints(steerableBody.getGroundPosition(tmpVec1), reachableTargetPoint);
+			}
+		} else {
+			found = navMesh.getPath(currentTriangle, steerableBody.getGroundPosition(tmpVec1),
+					targetTriangle, reachableTargetPoint, navMeshGraphPath);
+		}
+		if (!found) {
+			releaseFlowField();
+			return false;
+		}
+		calculateNewPath0();
+		return true;
+	}
+
+	/**
+	 * Repair the path being followed after the target has moved a short distance, which is much faster than
+	 * searching the whole path again.
+	 *
+	 * @return False if no path is being followed, or it could not be repaired, in which case a new path should be
+	 * calculated.
+	 */
+	public boolean repairPath(Triangle targetTriangle, Vector3 targetPoint) {
+		if (steerableBody.steerer != this || navMeshGraphPath.end == null || pathRequest.isQueued()) {
+			return false;
+		}
+		NavMesh navMesh = GameScreen.screen.engine.getScene().navMesh;
+		if (navMesh.graph.isPathChanged(navMeshGraphPath, pathVersion)
+				|| !navMesh.repairPath(steerableBody.getCurrentTriangle(), steerableBody.getGroundPosition(tmpVec1),
+				targetTriangle, targetPoint, GameSettings.PATH_REPAIR_MAX_GOAL_DISTANCE, navMeshGraphPath)) {
+			return false;
+		}
+		releaseFlowField();
+		calculateNewPath0();
+		return true;
+	}
+
+	/**
+	 * Move a target which can not be reached from the current triangle, e.g. on a disconnected part of the navmesh,
+	 * to the closest point which can.
+	 *
+	 * @return The target triangle. The target point is set in {@link #reachableTargetPoint}.
+	 */
+	private Triangle getReachableTarget(NavMesh navMesh, Triangle targetTriangle, Vector3 targetPoint) {
+		reachableTargetPoint.set(targetPoint);
+		Triangle currentTriangle = steerableBody.getCurrentTriangle();
+		if (currentTriangle == null || navMesh.graph.isConnected(currentTriangle, targetTriangle)) {
+			return targetTriangle;
+		}
+		return navMesh.getClosestReachablePoint(currentTriangle, targetPoint, reachableTargetPoint);
+	}
+
+	private void releaseFlowField() {
+		if (flowField != null) {
+			GameScreen.screen.engine.getScene().navMesh.flowFields.release(flowField);
+			flowField = null;
+		}
+	}
+
+	private void cancelPathRequest() {
+		if (pathRequest.isQueued()) {
+			GameScreen.screen.engine.getScene().navMesh.cancelPathRequest(pathRequest);
+		}
+	}
+
 	public boolean calculateNewPath(Triangle targetTriangle, Vector3 targetPoint) {
-		if (GameScreen.screen.engine.getScene().navMesh.getPath(
+		cancelPathRequest();
+		releaseFlowField();
+		NavMesh navMesh = GameScreen.screen.engine.getScene().navMesh;
+		targetTriangle = getReachableTarget(navMesh, targetTriangle, targetPoint);
+		if (navMesh.getPath(
 				steerableBody.getCurrentTriangle(),
 				steerableBody.getGroundPosition(tmpVec1),
 				targetTriangle,
-				targetPoint,
+				reachableTargetPoint,
 				navMeshGraphPath)) {
 
 			calculateNewPath0();
@@ -130,6 +296,7 @@ public class FollowPathSteerer extends CollisionAvoidanceSteererBase {
 	 * Calculate the navigation mesh point path, then assign this steering provider to the owner
 	 */
 	private void calculateNewPath0() {
+		pathVersion = GameScreen.screen.engine.getScene().navMesh.graph.getVersion();
 		navMeshPointPath.calculateForGraphPath(navMeshGraphPath);
 
 		pathToRender.clear();
@@ -138,8 +305,12 @@ public class FollowPathSteerer extends CollisionAvoidanceSteererBase {
 		centerOfMassPath.clear();
 		// Since the navmesh path is on the ground, we need to translate
 		// it to align with body origin
-		for (Vector3 v : navMeshPointPath) {
-			centerOfMassPath.add(new Vector3(v).add(0, steerableBody.halfExtents.y, 0));
+		for (int i = 0; i < navMeshPointPath.getSize(); i++) {
+			if (i == centerOfMassPoints.size) {
+				centerOfMassPoints.add(new Vector3());
+			}
+			centerOfMassPath.add(centerOfMassPoints.get(i).set(navMeshPointPath.getVector(i))
+					.add(0, steerableBody.halfExtents.y, 0));
 		}
 		linePath.createPath(centerOfMassPath);
 		
@@ -176,6 +347,7 @@ public class FollowPathSteerer extends CollisionAvoidanceSteererBase {
 		pathToRender.clear();
 		navMeshPointPath.clear();
 		navMeshGraphPath.clear();
+		releaseFlowField();
 		return false;
 	}
 
@@ -188,8 +360,21 @@ public class FollowPathSteerer extends CollisionAvoidanceSteererBase {
 	@Override
 	public boolean processSteering(SteeringAcceleration<Vector3> steering) {
 
+		// Search again if an obstacle has changed the navmesh along the path. If no path is found,
+		// the old one is followed.
+		NavMeshGraph graph = GameScreen.screen.engine.getScene().navMesh.graph;
+		if (!pathRequest.isQueued() && navMeshGraphPath.end != null
+				&& graph.isPathChanged(navMeshGraphPath, pathVersion)) {
+			pathVersion = graph.getVersion();
+			if (flowField != null) {
+				followFlowField(navMeshGraphPath.getEndTriangle(), tmpVec2.set(navMeshGraphPath.end));
+			} else {
+				requestNewPath(navMeshGraphPath.getEndTriangle(), tmpVec2.set(navMeshGraphPath.end));
+			}
+		}
+
 		// Check if steering target path segment changed.
-		LinePathParam pathParam = followPathSB.getPathParam();
+		ReusableLinePath.LinePathParam pathParam = followPathSB.getPathParam();
 		int traversedSegment = pathParam.getSegmentIndex();
 		if (traversedSegment > currentSegmentIndex) {
 			currentSegmentIndex = traversedSegment;
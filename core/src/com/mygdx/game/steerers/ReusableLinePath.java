@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.steerers;
+
+import com.badlogic.gdx.ai.steer.utils.Path;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * An open path of line segments through a list of waypoints, which works like gdx-ai's
+ * {@link com.badlogic.gdx.ai.steer.utils.paths.LinePath} but can be created again without allocating.
+ * <p/>
+ * {@code LinePath.createPath} creates a new segment array and a segment object for each waypoint every time,
+ * which happens whenever a character gets a new path. Here the waypoints are copied into vectors owned by the
+ * path, which are only added to when a path is longer than any before it.
+ *
+ * @author jsjolund
+ */
+public class ReusableLinePath implements Path<Vector3, ReusableLinePath.LinePathParam> {
+
+	/**
+	 * The distance along the path, and the segment which it is on.
+	 */
+	public static class LinePathParam implements Path.PathParam {
+		int segmentIndex;
+		float distance;
+
+		@Override
+		public float getDistance() {
+			return distance;
+		}
+
+		@Override
+		public void setDistance(float distance) {
+			this.distance = distance;
+		}
+
+		/**
+		 * @return Index of the segment the last calculated distance is on
+		 */
+		public int getSegmentIndex() {
+			return segmentIndex;
+		}
+	}
+
+	// The waypoints, of which the first size are used
+	private final Array<Vector3> points = new Array<Vector3>();
+	private int size;
+	// Path length at the end of each segment
+	private final FloatArray cumulativeLengths = new FloatArray();
+	private float pathLength;
+
+	// Temporary memory used by various methods for calculations
+	private final Vector3 tmpNearestPointOnSegment = new Vector3();
+	private final Vector3 tmpNearestPointOnPath = new Vector3();
+	private final Vector3 tmpB = new Vector3();
+	private final Vector3 tmpC = new Vector3();
+
+	/**
+	 * @param waypoints At least two waypoints
+	 */
+	public ReusableLinePath(Array<Vector3> waypoints) {
+		createPath(waypoints);
+	}
+
+	/**
+	 * Replace the waypoints of the path. The waypoints are copied.
+	 *
+	 * @param waypoints At least two waypoints
+	 */
+	public void createPath(Array<Vector3> waypoints) {
+		if (waypoints == null || waypoints.size < 2) {
+			throw new GdxRuntimeException("waypoints cannot be null and must contain at least two (2) waypoints");
+		}
+		while (points.size < waypoints.size) {
+			points.add(new Vector3());
+		}
+		size = waypoints.size;
+		cumulativeLengths.clear();
+		pathLength = 0;
+		points.get(0).set(waypoints.get(0));
+		for (int i = 1; i < size; i++) {
+			points.get(i).set(waypoints.get(i));
+			pathLength += points.get(i - 1).dst(points.get(i));
+			cumulativeLengths.add(pathLength);
+		}
+	}
+
+	/**
+	 * @return Number of line segments, one less than the number of waypoints
+	 */
+	public int getSegmentCount() {
+		return size - 1;
+	}
+
+	@Override
+	public LinePathParam createParam() {
+		return new LinePathParam();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return true;
+	}
+
+	@Override
+	public float getLength() {
+		return pathLength;
+	}
+
+	@Override
+	public Vector3 getStartPoint() {
+		return points.get(0);
+	}
+
+	@Override
+	public Vector3 getEndPoint() {
+		return points.get(size - 1);
+	}
+
+	/**
+	 * Find the point on segment ab closest to c.
+	 *
+	 * @param out Output for the closest point
+	 * @param a   Segment start
+	 * @param b   Segment end
+	 * @param c   The point
+	 * @return The square distance between c and the closest point
+	 */
+	public float calculatePointSegmentSquareDistance(Vector3 out, Vector3 a, Vector3 b, Vector3 c) {
+		out.set(a);
+		Vector3 ab = tmpB.set(b).sub(a);
+		float abLen2 = ab.len2();
+		if (abLen2 != 0) {
+			float t = tmpC.set(c).sub(a).dot(ab) / abLen2;
+			out.mulAdd(ab, MathUtils.clamp(t, 0, 1));
+		}
+		return out.dst2(c);
+	}
+
+	@Override
+	public float calculateDistance(Vector3 agentCurrPos, LinePathParam parameter) {
+		// Find the nearest segment
+		float smallestDistance2 = Float.POSITIVE_INFINITY;
+		int nearestSegment = 0;
+		for (int i = 0; i < size - 1; i++) {
+			float distance2 = calculatePointSegmentSquareDistance(tmpNearestPointOnSegment,
+					points.get(i), points.get(i + 1), agentCurrPos);
+			if (distance2 < smallestDistance2) {
+				tmpNearestPointOnPath.set(tmpNearestPointOnSegment);
+				smallestDistance2 = distance2;
+				nearestSegment = i;
+			}
+		}
+		parameter.segmentIndex = nearestSegment;
+		// Distance from path start
+		float lengthOnPath = cumulativeLengths.get(nearestSegment)
+				- tmpNearestPointOnPath.dst(points.get(nearestSegment + 1));
+		parameter.setDistance(lengthOnPath);
+		return lengthOnPath;
+	}
+
+	@Override
+	public void calculateTargetPosition(Vector3 out, LinePathParam param, float targetDistance) {
+		targetDistance = MathUtils.clamp(targetDistance, 0, pathLength);
+		// Walk through the segments to find the one the distance is on
+		int segment = size - 2;
+		for (int i = 0; i < size - 1; i++) {
+			if (cumulativeLengths.get(i) >= targetDistance) {
+				segment = i;
+				break;
+			}
+		}
+		// begin-------targetPos-------end
+		Vector3 begin = points.get(segment);
+		Vector3 end = points.get(segment + 1);
+		float segmentLength = begin.dst(end);
+		float distance = cumulativeLengths.get(segment) - targetDistance;
+		if (segmentLength == 0) {
+			out.set(end);
+		} else {
+			out.set(begin).sub(end).scl(distance / segmentLength).add(end);
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Counts the bytes allocated on the calling thread, for tests of code which should not create garbage. Tests using
+ * it are skipped on virtual machines which can not count allocations.
+ *
+ * @author jsjolund
+ */
+public final class AllocationCounter {
+
+	private AllocationCounter() {
+	}
+
+	private static com.sun.management.ThreadMXBean getThreadBean() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue("Allocations can not be counted", bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue("Allocations can not be counted", threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+		return threadBean;
+	}
+
+	/**
+	 * Run a task and count the bytes it allocates. The task is run a number of times first, so that lazily created
+	 * objects and class loading are not counted.
+	 *
+	 * @param task       The task
+	 * @param iterations Times to run the task while counting
+	 * @return The bytes allocated per iteration, on average
+	 */
+	public static long countBytes(Runnable task, int iterations) {
+		com.sun.management.ThreadMXBean bean = getThreadBean();
+		long threadId = Thread.currentThread().getId();
+		for (int i = 0; i < iterations; i++) {
+			task.run();
+		}
+		long before = bean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < iterations; i++) {
+			task.run();
+		}
+		long after = bean.getThreadAllocatedBytes(threadId);
+		return (after - before) / iterations;
+	}
+}
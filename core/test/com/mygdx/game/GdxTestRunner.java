@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.physics.bullet.Bullet;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.InitializationError;
+
+/**
+ * Runs tests with a headless application, so that {@link Gdx#app} and the native libraries of libGDX and Bullet
+ * are available. The application is created once and shared by all test classes. There is no GL context.
+ *
+ * @author jsjolund
+ */
+public class GdxTestRunner extends BlockJUnit4ClassRunner {
+
+	private static HeadlessApplication application;
+
+	public GdxTestRunner(Class<?> testClass) throws InitializationError {
+		super(testClass);
+		synchronized (GdxTestRunner.class) {
+			if (application == null) {
+				HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+				// Nothing is rendered, the tests run on the test thread
+				config.renderInterval = -1;
+				application = new HeadlessApplication(new ApplicationAdapter() {
+				}, config);
+				Gdx.app.setLogLevel(Application.LOG_ERROR);
+				Bullet.init();
+			}
+		}
+	}
+}
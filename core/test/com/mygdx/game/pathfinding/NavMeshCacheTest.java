@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.mygdx.game.GdxTestRunner;
+import com.mygdx.game.scene.SceneGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class NavMeshCacheTest {
+
+	private static final long SOURCE_HASH = 0x1234567890abcdefL;
+
+	private NavMeshGraph graph;
+	private FileHandle file;
+
+	@Before
+	public void setUp() throws IOException {
+		graph = SceneGenerator.createMaze(2000, 1).createGraph(0);
+		file = new FileHandle(File.createTempFile("navmesh", ".bin"));
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testRoundTrip() {
+		NavMeshCache.write(graph, SOURCE_HASH, file);
+		NavMeshGraph read = NavMeshCache.read(file, SOURCE_HASH);
+		assertNotNull(read);
+
+		NavMeshGraphData expected = graph.getData();
+		NavMeshGraphData actual = read.getData();
+		assertArrayEquals(expected.vertices, actual.vertices, 0);
+		assertArrayEquals(expected.triangleVertices, actual.triangleVertices);
+		assertArrayEquals(expected.centroids, actual.centroids, 0);
+		assertArrayEquals(expected.areas, actual.areas, 0);
+		assertArrayEquals(expected.meshPartTriIndexOffsets, actual.meshPartTriIndexOffsets);
+		assertArrayEquals(expected.meshPartTriCounts, actual.meshPartTriCounts);
+		assertArrayEquals(expected.connectionOffsets, actual.connectionOffsets);
+		assertArrayEquals(expected.connectionTriangles, actual.connectionTriangles);
+		assertArrayEquals(expected.connectionVertices, actual.connectionVertices);
+		assertArrayEquals(expected.connectionCosts, actual.connectionCosts, 0);
+		assertEquals(graph.getEdgeCountShared(), read.getEdgeCountShared());
+		assertEquals(graph.getComponentCount(), read.getComponentCount());
+	}
+
+	@Test
+	public void testOtherSource() {
+		NavMeshCache.write(graph, SOURCE_HASH, file);
+		assertNull(NavMeshCache.read(file, SOURCE_HASH + 1));
+	}
+
+	@Test
+	public void testMissingFile() {
+		file.delete();
+		assertNull(NavMeshCache.read(file, SOURCE_HASH));
+	}
+
+	@Test
+	public void testCorruptFile() {
+		NavMeshCache.write(graph, SOURCE_HASH, file);
+		byte[] bytes = file.readBytes();
+		bytes[bytes.length / 2] ^= 1;
+		file.writeBytes(bytes, false);
+		assertNull(NavMeshCache.read(file, SOURCE_HASH));
+	}
+
+	@Test
+	public void testTruncatedFile() {
+		NavMeshCache.write(graph, SOURCE_HASH, file);
+		byte[] bytes = file.readBytes();
+		file.writeBytes(bytes, 0, bytes.length - 4, false);
+		assertNull(NavMeshCache.read(file, SOURCE_HASH));
+	}
+
+	@Test
+	public void testLandmarksRoundTrip() {
+		NavMeshLandmarks landmarks = NavMeshLandmarks.create(graph, 4);
+		NavMeshCache.write(landmarks, SOURCE_HASH, file);
+
+		NavMeshLandmarks read = NavMeshCache.readLandmarks(file, SOURCE_HASH, graph, 4);
+		assertNotNull(read);
+		assertArrayEquals(landmarks.landmarks, read.landmarks);
+		assertArrayEquals(landmarks.distances, read.distances, 0);
+		assertNull(NavMeshCache.readLandmarks(file, SOURCE_HASH, graph, 5));
+		assertNull(NavMeshCache.readLandmarks(file, SOURCE_HASH + 1, graph, 4));
+	}
+
+	@Test
+	public void testSourceHash() {
+		FileHandle source = file;
+		source.writeString("model", false);
+		long hash = NavMeshCache.hash(source, 1, 2, 3);
+		assertEquals(hash, NavMeshCache.hash(source, 1, 2, 3));
+		assertTrue(hash != NavMeshCache.hash(source, 1, 2, 4));
+		source.writeString("longer model", false);
+		assertTrue(hash != NavMeshCache.hash(source, 1, 2, 3));
+	}
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.mygdx.game.GdxTestRunner;
+import com.mygdx.game.scene.SceneGenerator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class NavMeshFlowFieldTest {
+
+	private static final int START_COUNT = 100;
+
+	/**
+	 * Turns A* into Dijkstra, so that the reference costs are the lowest ones whatever the graph costs are
+	 */
+	private static final Heuristic<Triangle> NO_HEURISTIC = new Heuristic<Triangle>() {
+		@Override
+		public float estimate(Triangle node, Triangle endNode) {
+			return 0;
+		}
+	};
+
+	private static String row(int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append('.');
+		}
+		return sb.toString();
+	}
+
+	private static float getPathCost(NavMeshGraphPath path) {
+		float cost = 0;
+		for (int i = 0; i < path.getCount(); i++) {
+			cost += path.get(i).getCost();
+		}
+		return cost;
+	}
+
+	@Test
+	public void testLowestCostWithScaledAndBlockedTriangles() {
+		NavMeshGraph graph = SceneGenerator.createObstacleField(4000, 0.1f, 3).createGraph(0);
+		Random random = new Random(6);
+		for (int i = 0; i < graph.getNodeCount() / 10; i++) {
+			graph.setTriangleCostScale(random.nextInt(graph.getNodeCount()),
+					random.nextBoolean() ? Float.POSITIVE_INFINITY : 1 + random.nextFloat() * 4);
+		}
+		Triangle goalTri;
+		do {
+			goalTri = graph.getTriangleFromGraphIndex(random.nextInt(graph.getNodeCount()));
+		} while (graph.isTriangleBlocked(goalTri.triIndex));
+
+		NavMeshFlowFields fields = new NavMeshFlowFields(graph);
+		fields.setMinReferences(1);
+		NavMeshFlowField field = fields.acquire(goalTri, goalTri.centroid);
+		assertTrue(field.isCreated());
+
+		IndexedAStarPathFinder<Triangle> pathFinder = new IndexedAStarPathFinder<Triangle>(graph);
+		DefaultGraphPath<Connection<Triangle>> referencePath = new DefaultGraphPath<Connection<Triangle>>();
+		NavMeshGraphPath path = new NavMeshGraphPath();
+		int reachableCount = 0;
+		for (int i = 0; i < START_COUNT; i++) {
+			Triangle fromTri = graph.getTriangleFromGraphIndex(random.nextInt(graph.getNodeCount()));
+			if (graph.isTriangleBlocked(fromTri.triIndex)) {
+				// Agents may leave a blocked triangle, but A* never does
+				continue;
+			}
+			referencePath.clear();
+			boolean reachable = pathFinder.searchConnectionPath(fromTri, goalTri, NO_HEURISTIC, referencePath);
+			assertEquals(reachable, field.isReachable(fromTri));
+			assertEquals(reachable, field.getPath(fromTri, path));
+			if (!reachable) {
+				continue;
+			}
+			reachableCount++;
+			float expected = 0;
+			for (int j = 0; j < referencePath.getCount(); j++) {
+				expected += referencePath.get(j).getCost();
+			}
+			assertEquals(expected, field.getCost(fromTri), expected * 1e-4f);
+			assertEquals(expected, getPathCost(path), expected * 1e-4f);
+			assertSame(fromTri, path.startTri);
+			assertSame(goalTri, path.getEndTriangle());
+			for (int j = 0; j < path.getCount(); j++) {
+				assertFalse(graph.isTriangleBlocked(path.get(j).getToNode().triIndex));
+			}
+		}
+		// Most starts are reachable, so the costs were actually compared
+		assertTrue(reachableCount > START_COUNT / 2);
+		assertEquals(0, field.getCost(goalTri), 0);
+	}
+
+	@Test
+	public void testCreatedWhenEnoughAgentsShareTheGoal() {
+		NavMeshGraph graph = TestGraphs.createCells(row(10));
+		NavMeshFlowFields fields = new NavMeshFlowFields(graph);
+		fields.setMinReferences(3);
+		Triangle goalTri = TestGraphs.getCellTriangle(graph, 9, 0, 0);
+		Triangle fromTri = TestGraphs.getCellTriangle(graph, 0, 0, 0);
+
+		NavMeshFlowField field = fields.acquire(goalTri, goalTri.centroid);
+		assertFalse(field.isCreated());
+		assertTrue(field.isValid());
+		// Nearby goals in the same triangle share the field
+		assertSame(field, fields.acquire(goalTri, goalTri.a));
+		assertFalse(field.isCreated());
+		assertSame(field, fields.update(field, goalTri, goalTri.centroid));
+		assertEquals(2, field.getReferenceCount());
+
+		assertSame(field, fields.acquire(goalTri, goalTri.centroid));
+		assertTrue(field.isCreated());
+		assertEquals(3, field.getReferenceCount());
+		assertEquals(1, fields.size());
+		NavMeshGraphPath path = new NavMeshGraphPath();
+		assertTrue(field.getPath(fromTri, path));
+		assertSame(goalTri, path.getEndTriangle());
+
+		// Other goals get their own field
+		Triangle otherGoalTri = TestGraphs.getCellTriangle(graph, 5, 0, 0);
+		NavMeshFlowField otherField = fields.acquire(otherGoalTri, otherGoalTri.centroid);
+		assertNotSame(field, otherField);
+		assertFalse(otherField.isCreated());
+		assertEquals(2, fields.size());
+
+		// Released fields are recycled, and are not created until enough agents use them again
+		fields.release(otherField);
+		assertEquals(1, fields.size());
+		assertSame(otherField, fields.acquire(otherGoalTri, otherGoalTri.centroid));
+		assertFalse(otherField.isCreated());
+	}
+
+	@Test
+	public void testCreatedAgainAfterCostChange() {
+		NavMeshGraph graph = TestGraphs.createCells(row(10), row(10));
+		NavMeshFlowFields fields = new NavMeshFlowFields(graph);
+		fields.setMinReferences(2);
+		Triangle goalTri = TestGraphs.getCellTriangle(graph, 9, 0, 0);
+		Triangle fromTri = TestGraphs.getCellTriangle(graph, 0, 0, 0);
+		NavMeshFlowField field = fields.acquire(goalTri, goalTri.centroid);
+		fields.acquire(goalTri, goalTri.centroid);
+		assertTrue(field.isCreated());
+		float cost = field.getCost(fromTri);
+
+		// Make the straight row expensive, so the path goes around it
+		for (int x = 1; x < 9; x++) {
+			graph.setTriangleCostScale(TestGraphs.getCellTriangle(graph, x, 0, 0).triIndex, 10);
+			graph.setTriangleCostScale(TestGraphs.getCellTriangle(graph, x, 0, 1).triIndex, 10);
+		}
+		assertFalse(field.isValid());
+		assertSame(field, fields.update(field, goalTri, goalTri.centroid));
+		assertTrue(field.isCreated());
+		assertTrue(field.isValid());
+		assertTrue(field.getCost(fromTri) > cost);
+
+		// A stale field with too few agents left is not searched again
+		fields.release(field);
+		graph.setTriangleCostScale(TestGraphs.getCellTriangle(graph, 1, 1, 0).triIndex, 10);
+		assertSame(field, fields.update(field, goalTri, goalTri.centroid));
+		assertFalse(field.isCreated());
+		assertEquals(1, field.getReferenceCount());
+	}
+}
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+import com.mygdx.game.GdxTestRunner;
+import com.mygdx.game.scene.SceneGenerator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class NavMeshGraphTest {
+
+	/**
+	 * Two triangles sharing the edge between (1,0,0) and (0,0,1), with the shared vertices duplicated
+	 * as in a mesh with per-face vertex attributes.
+	 */
+	private static final float[] QUAD_VERTICES = {
+			0, 0, 0,
+			0, 0, 1,
+			1, 0, 0,
+			1, 0, 0,
+			0, 0, 1,
+			1, 0, 1,
+	};
+	private static final int[] QUAD_INDICES = {0, 1, 2, 3, 4, 5};
+
+	@Test
+	public void testWeldExactPositions() {
+		int[] indices = QUAD_INDICES.clone();
+		NavMeshGraph.weldUniquePositionVertexIndices(QUAD_VERTICES, indices, 0);
+		assertArrayEquals(new int[]{0, 1, 2, 2, 1, 5}, indices);
+	}
+
+	@Test
+	public void testWeldEpsilon() {
+		float[] vertices = QUAD_VERTICES.clone();
+		// Move the duplicates slightly, as with rounding errors from an exporter
+		vertices[3 * 3] += 0.001f;
+		vertices[4 * 3 + 2] -= 0.001f;
+
+		int[] indices = QUAD_INDICES.clone();
+		NavMeshGraph.weldUniquePositionVertexIndices(vertices, indices, 0);
+		assertArrayEquals(QUAD_INDICES, indices);
+
+		indices = QUAD_INDICES.clone();
+		NavMeshGraph.weldUniquePositionVertexIndices(vertices, indices, 0.01f);
+		assertArrayEquals(new int[]{0, 1, 2, 2, 1, 5}, indices);
+	}
+
+	@Test
+	public void testBuildQuad() {
+		NavMeshGraph graph = new NavMeshGraph(QUAD_VERTICES, QUAD_INDICES.clone(), new int[]{0}, 0);
+		assertEquals(2, graph.getNodeCount());
+		assertEquals(1, graph.getEdgeCountShared());
+		assertEquals(4, graph.getEdgeCountIsolated());
+		assertEquals(1, graph.getComponentCount());
+
+		Triangle a = graph.getTriangleFromGraphIndex(0);
+		Triangle b = graph.getTriangleFromGraphIndex(1);
+		assertEquals(1, graph.getConnections(a).size);
+		assertSame(b, graph.getConnections(a).first().getToNode());
+		assertSame(a, graph.getConnections(b).first().getToNode());
+		// The vectors of the shared vertices are shared as well
+		Edge edge = (Edge) graph.getConnections(a).first();
+		assertTrue(edge.rightVertex == a.b || edge.rightVertex == a.c);
+		assertTrue(edge.leftVertex == a.b || edge.leftVertex == a.c);
+	}
+
+	@Test
+	public void testBuildDisconnectedMeshParts() {
+		// The same quad in two mesh parts, moved apart
+		float[] vertices = new float[QUAD_VERTICES.length * 2];
+		System.arraycopy(QUAD_VERTICES, 0, vertices, 0, QUAD_VERTICES.length);
+		for (int i = 0; i < QUAD_VERTICES.length; i++) {
+			vertices[QUAD_VERTICES.length + i] = QUAD_VERTICES[i] + ((i % 3 == 1) ? 5 : 0);
+		}
+		int[] indices = new int[12];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = i;
+		}
+		NavMeshGraph graph = new NavMeshGraph(vertices, indices, new int[]{0, 6}, 0);
+		assertEquals(4, graph.getNodeCount());
+		assertEquals(2, graph.getMeshPartCount());
+		assertEquals(2, graph.getTriangleCount(1));
+		assertEquals(2, graph.getTriangleOffset(1));
+		assertEquals(2, graph.getComponentCount());
+		assertTrue(graph.isConnected(graph.getTriangleFromMeshPart(0, 0), graph.getTriangleFromMeshPart(0, 1)));
+		assertTrue(!graph.isConnected(graph.getTriangleFromMeshPart(0, 0), graph.getTriangleFromMeshPart(1, 0)));
+	}
+
+	/**
+	 * A graph with far more than 65536 vertices, which cannot be indexed by a libGDX mesh, with a Bullet shape
+	 * created from the graph data.
+	 */
+	@Test
+	public void testBuildLargeGraph() {
+		SceneGenerator.Level level = SceneGenerator.createGrid(200000);
+		int size = (int) Math.sqrt(level.getTriangleCount() / 2);
+		assertEquals(size * size * 2, level.getTriangleCount());
+
+		NavMeshGraph graph = level.createGraph(0);
+		assertEquals(level.getTriangleCount(), graph.getNodeCount());
+		assertEquals((size + 1) * (size + 1), graph.getData().getVertexCount());
+		assertTrue(graph.getData().getVertexCount() > NavMeshCollisionShape.MAX_CHUNK_VERTICES);
+		// Two triangles per cell, connected by the diagonal and to the neighbour cells
+		assertEquals(size * size + 2 * size * (size - 1), graph.getEdgeCountShared());
+		assertEquals(4 * size, graph.getEdgeCountIsolated());
+		assertEquals(1, graph.getComponentCount());
+
+		NavMesh navMesh = new NavMesh(graph, true);
+		NavMeshCollisionShape shape = new NavMeshCollisionShape(graph.getData());
+		assertTrue(shape.getChunkCount() > 1);
+		shape.dispose();
+
+		// Both ray test engines must hit the same triangles, also in the chunks after the first
+		RandomXS128 random = new RandomXS128(1);
+		Ray ray = new Ray(new Vector3(), new Vector3(0, -1, 0));
+		Vector3 bulletHit = new Vector3();
+		Vector3 javaHit = new Vector3();
+		for (int i = 0; i < 1000; i++) {
+			ray.origin.set(MathUtils.lerp(level.bounds.min.x, level.bounds.max.x, random.nextFloat()),
+					level.bounds.max.y + 1,
+					MathUtils.lerp(level.bounds.min.z, level.bounds.max.z, random.nextFloat()));
+			navMesh.setRaycastEngine(NavMesh.RaycastEngine.BULLET);
+			Triangle bulletTri = navMesh.rayTest(ray, 100, null, bulletHit);
+			navMesh.setRaycastEngine(NavMesh.RaycastEngine.JAVA);
+			Triangle javaTri = navMesh.rayTest(ray, 100, null, javaHit);
+			assertNotNull(bulletTri);
+			assertSame(javaTri, bulletTri);
+			assertTrue(bulletHit.epsilonEquals(javaHit, 0.001f));
+		}
+		navMesh.dispose();
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.utils.Bits;
+import com.mygdx.game.GdxTestRunner;
+import com.mygdx.game.scene.SceneGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class NavMeshPathCacheTest {
+
+	private NavMeshGraph graph;
+	private NavMeshGraphPath path;
+
+	@Before
+	public void setUp() {
+		graph = SceneGenerator.createGrid(200).createGraph(0);
+		path = new NavMeshGraphPath();
+	}
+
+	private Triangle tri(int triIndex) {
+		return graph.getTriangleFromGraphIndex(triIndex);
+	}
+
+	/**
+	 * A path of one connection from a triangle to its first neighbour
+	 */
+	private NavMeshGraphPath pathFrom(int triIndex) {
+		path.clear();
+		path.add(graph.getConnections(tri(triIndex)).first());
+		return path;
+	}
+
+	@Test
+	public void testGetAndPut() {
+		NavMeshPathCache cache = new NavMeshPathCache(4);
+		assertFalse(cache.get(tri(0), tri(1), path));
+		cache.put(tri(0), tri(1), pathFrom(0));
+
+		NavMeshGraphPath out = new NavMeshGraphPath();
+		assertTrue(cache.get(tri(0), tri(1), out));
+		assertEquals(1, out.getCount());
+		assertSame(graph.getConnections(tri(0)).first(), out.get(0));
+		// Pairs are ordered
+		assertFalse(cache.get(tri(1), tri(0), out));
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		NavMeshPathCache cache = new NavMeshPathCache(2);
+		cache.put(tri(0), tri(10), pathFrom(0));
+		cache.put(tri(1), tri(10), pathFrom(1));
+		// Use the first path, so the second is the least recently used one
+		assertTrue(cache.get(tri(0), tri(10), path));
+		cache.put(tri(2), tri(10), pathFrom(2));
+
+		assertEquals(2, cache.size());
+		assertTrue(cache.get(tri(0), tri(10), path));
+		assertFalse(cache.get(tri(1), tri(10), path));
+		assertTrue(cache.get(tri(2), tri(10), path));
+
+		// Replacing a path does not evict anything
+		cache.put(tri(2), tri(10), pathFrom(3));
+		assertEquals(2, cache.size());
+		assertTrue(cache.get(tri(0), tri(10), path));
+		assertTrue(cache.get(tri(2), tri(10), path));
+		assertSame(graph.getConnections(tri(3)).first(), path.get(0));
+	}
+
+	@Test
+	public void testZeroCapacity() {
+		NavMeshPathCache cache = new NavMeshPathCache(0);
+		cache.put(tri(0), tri(1), pathFrom(0));
+		assertEquals(0, cache.size());
+		assertFalse(cache.get(tri(0), tri(1), path));
+	}
+
+	@Test
+	public void testRemovePaths() {
+		NavMeshPathCache cache = new NavMeshPathCache(8);
+		// Paths in cells far apart on the 10 by 10 grid
+		cache.put(tri(0), tri(10), pathFrom(0));
+		cache.put(tri(100), tri(10), pathFrom(100));
+		cache.put(tri(150), tri(10), pathFrom(150));
+
+		Bits triangles = new Bits();
+		// The start triangle of the first path
+		triangles.set(0);
+		// A triangle the second path passes through
+		triangles.set(graph.getConnections(tri(100)).first().getToNode().triIndex);
+		assertEquals(2, cache.removePaths(triangles));
+		assertEquals(1, cache.size());
+		assertFalse(cache.get(tri(0), tri(10), path));
+		assertFalse(cache.get(tri(100), tri(10), path));
+		assertTrue(cache.get(tri(150), tri(10), path));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertFalse(cache.get(tri(150), tri(10), path));
+		// The cache is still usable after being cleared
+		cache.put(tri(150), tri(10), pathFrom(150));
+		assertTrue(cache.get(tri(150), tri(10), path));
+	}
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.utils.Array;
+import com.mygdx.game.GdxTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class NavMeshPathRequestQueueTest {
+
+	/**
+	 * Enough time for any search on the test graphs
+	 */
+	private static final long UNLIMITED_MICROS = 10000000;
+
+	/**
+	 * Records the state of the request each time its listener is called.
+	 */
+	private static class RecordingListener implements NavMeshPathRequest.Listener {
+		final Array<Boolean> partials = new Array<Boolean>();
+		final Array<Integer> pathCounts = new Array<Integer>();
+
+		@Override
+		public void pathRequestDone(NavMeshPathRequest request) {
+			assertTrue(request.pathFound);
+			partials.add(request.partial);
+			pathCounts.add(request.path.getCount());
+		}
+	}
+
+	private static String row(int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append('.');
+		}
+		return sb.toString();
+	}
+
+	private static NavMeshPathRequest createRequest(Triangle fromTri, Triangle toTri, RecordingListener listener) {
+		NavMeshPathRequest request = new NavMeshPathRequest(new NavMeshGraphPath(), listener);
+		request.set(fromTri, fromTri.centroid, toTri, toTri.centroid);
+		return request;
+	}
+
+	@Test
+	public void testCompletePath() {
+		NavMeshGraph graph = TestGraphs.createCells(row(20));
+		NavMeshPathRequestQueue queue = new NavMeshPathRequestQueue(graph, new NavMeshHeuristic(), null);
+		RecordingListener listener = new RecordingListener();
+		Triangle fromTri = TestGraphs.getCellTriangle(graph, 0, 0, 0);
+		Triangle toTri = TestGraphs.getCellTriangle(graph, 19, 0, 1);
+		NavMeshPathRequest request = createRequest(fromTri, toTri, listener);
+
+		queue.submit(request);
+		queue.process(UNLIMITED_MICROS);
+		assertEquals(1, listener.partials.size);
+		assertFalse(listener.partials.first());
+		assertFalse(request.isQueued());
+		assertSame(toTri, request.path.getEndTriangle());
+		assertSame(fromTri, request.path.startTri);
+
+		// The path owns its points, reusing the request does not move them
+		assertTrue(request.path.end.epsilonEquals(toTri.centroid, 0));
+		assertNotSame(request.toPoint, request.path.end);
+		assertNotSame(request.fromPoint, request.path.start);
+		request.set(toTri, toTri.centroid, fromTri, fromTri.centroid);
+		assertTrue(request.path.start.epsilonEquals(fromTri.centroid, 0));
+		assertTrue(request.path.end.epsilonEquals(toTri.centroid, 0));
+	}
+
+	@Test
+	public void testPartialPath() {
+		NavMeshGraph graph = TestGraphs.createCells(row(100));
+		NavMeshPathRequestQueue queue = new NavMeshPathRequestQueue(graph, new NavMeshHeuristic(), null);
+		RecordingListener listener = new RecordingListener();
+		Triangle fromTri = TestGraphs.getCellTriangle(graph, 0, 0, 0);
+		Triangle toTri = TestGraphs.getCellTriangle(graph, 99, 0, 1);
+		NavMeshPathRequest request = createRequest(fromTri, toTri, listener);
+		request.allowPartialPath = true;
+
+		queue.submit(request);
+		// Out of time right away, after the first few triangles are expanded
+		queue.process(0);
+		assertEquals(1, listener.partials.size);
+		assertTrue(listener.partials.first());
+		assertTrue(request.isQueued());
+		assertTrue(listener.pathCounts.first() > 0);
+		assertSame(fromTri, request.path.startTri);
+		Triangle endTri = request.path.getEndTriangle();
+		assertTrue(request.path.end.epsilonEquals(endTri.centroid, 0));
+		assertNotSame(endTri.centroid, request.path.end);
+
+		// Only one partial path is delivered
+		queue.process(0);
+		assertEquals(1, listener.partials.size);
+
+		queue.process(UNLIMITED_MICROS);
+		assertEquals(2, listener.partials.size);
+		assertFalse(listener.partials.get(1));
+		assertSame(toTri, request.path.getEndTriangle());
+		assertTrue(request.path.end.epsilonEquals(toTri.centroid, 0));
+	}
+
+	/**
+	 * When the goal can only be reached by first moving away from it, no triangle searched in the first frame is
+	 * closer to the goal than the start. No partial path is delivered then, since it would be empty.
+	 */
+	@Test
+	public void testNoEmptyPartialPath() {
+		NavMeshGraph graph = TestGraphs.createCells(
+				row(20),
+				"###################.",
+				row(20));
+		NavMeshPathRequestQueue queue = new NavMeshPathRequestQueue(graph, new NavMeshHeuristic(), null);
+		RecordingListener listener = new RecordingListener();
+		Triangle fromTri = TestGraphs.getCellTriangle(graph, 0, 0, 1);
+		Triangle toTri = TestGraphs.getCellTriangle(graph, 0, 2, 0);
+		NavMeshPathRequest request = createRequest(fromTri, toTri, listener);
+		request.allowPartialPath = true;
+
+		queue.submit(request);
+		queue.process(0);
+		assertEquals(0, listener.partials.size);
+		assertTrue(request.isQueued());
+
+		queue.process(UNLIMITED_MICROS);
+		assertEquals(1, listener.partials.size);
+		assertFalse(listener.partials.first());
+		assertSame(toTri, request.path.getEndTriangle());
+	}
+
+	@Test
+	public void testPriority() {
+		NavMeshGraph graph = TestGraphs.createCells(row(10));
+		NavMeshPathRequestQueue queue = new NavMeshPathRequestQueue(graph, new NavMeshHeuristic(), null);
+		final Array<NavMeshPathRequest> done = new Array<NavMeshPathRequest>();
+		NavMeshPathRequest.Listener listener = new NavMeshPathRequest.Listener() {
+			@Override
+			public void pathRequestDone(NavMeshPathRequest request) {
+				done.add(request);
+			}
+		};
+		Triangle fromTri = TestGraphs.getCellTriangle(graph, 0, 0, 0);
+		Triangle toTri = TestGraphs.getCellTriangle(graph, 9, 0, 0);
+		NavMeshPathRequest low = new NavMeshPathRequest(new NavMeshGraphPath(), listener)
+				.set(fromTri, fromTri.centroid, toTri, toTri.centroid);
+		NavMeshPathRequest high = new NavMeshPathRequest(new NavMeshGraphPath(), listener)
+				.set(toTri, toTri.centroid, fromTri, fromTri.centroid);
+		NavMeshPathRequest cancelled = new NavMeshPathRequest(new NavMeshGraphPath(), listener)
+				.set(fromTri, fromTri.centroid, toTri, toTri.centroid);
+		high.priority = 1;
+
+		queue.submit(low);
+		queue.submit(cancelled);
+		queue.submit(high);
+		queue.cancel(cancelled);
+		assertEquals(2, queue.size());
+		queue.process(UNLIMITED_MICROS);
+		assertEquals(2, done.size);
+		assertSame(high, done.get(0));
+		assertSame(low, done.get(1));
+		assertEquals(0, queue.size());
+	}
+}
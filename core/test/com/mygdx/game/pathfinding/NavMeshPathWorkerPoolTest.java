@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Bits;
+import com.mygdx.game.GdxTestRunner;
+import com.mygdx.game.scene.SceneGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class NavMeshPathWorkerPoolTest {
+
+	private static final int REQUEST_COUNT = 64;
+	private static final long TIMEOUT_MILLIS = 30000;
+
+	private NavMesh navMesh;
+	private NavMeshPathWorkerPool pool;
+	private final Array<NavMeshPathRequest> done = new Array<NavMeshPathRequest>();
+	private final NavMeshPathRequest.Listener listener = new NavMeshPathRequest.Listener() {
+		@Override
+		public void pathRequestDone(NavMeshPathRequest request) {
+			done.add(request);
+		}
+	};
+
+	@Before
+	public void setUp() {
+		navMesh = new NavMesh(SceneGenerator.createGrid(400).createGraph(0));
+		pool = new NavMeshPathWorkerPool(navMesh, 4);
+	}
+
+	@After
+	public void tearDown() {
+		pool.dispose();
+		navMesh.dispose();
+	}
+
+	private Array<NavMeshPathRequest> submitRequests() {
+		NavMeshGraph graph = navMesh.graph;
+		Array<NavMeshPathRequest> requests = new Array<NavMeshPathRequest>();
+		for (int i = 0; i < REQUEST_COUNT; i++) {
+			Triangle fromTri = graph.getTriangleFromGraphIndex((i * 7919) % graph.getNodeCount());
+			Triangle toTri = graph.getTriangleFromGraphIndex((i * 104729 + 13) % graph.getNodeCount());
+			NavMeshPathRequest request = new NavMeshPathRequest(new NavMeshGraphPath(), listener)
+					.set(fromTri, fromTri.centroid, toTri, toTri.centroid);
+			pool.submit(request);
+			requests.add(request);
+		}
+		return requests;
+	}
+
+	private void waitForResults(Runnable eachFrame) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (pool.size() > 0) {
+			assertTrue("Timed out", System.currentTimeMillis() < deadline);
+			if (eachFrame != null) {
+				eachFrame.run();
+			}
+			pool.deliverResults();
+			Thread.sleep(1);
+		}
+	}
+
+	@Test
+	public void testSameCostAsGameThread() throws InterruptedException {
+		Array<NavMeshPathRequest> requests = submitRequests();
+		waitForResults(null);
+		assertEquals(REQUEST_COUNT, done.size);
+
+		NavMeshQuery query = new NavMeshQuery(navMesh);
+		NavMeshGraphPath expected = new NavMeshGraphPath();
+		for (NavMeshPathRequest request : requests) {
+			assertTrue(request.pathFound);
+			assertFalse(request.isQueued());
+			assertTrue(query.searchConnectionPath(request.fromTri, request.toTri, false, expected));
+			assertEquals(getCost(expected), getCost(request.path), 1e-3f);
+			assertSame(request.fromTri, request.path.startTri);
+			// The path owns its points
+			assertNotSame(request.fromPoint, request.path.start);
+			assertNotSame(request.toPoint, request.path.end);
+			assertTrue(request.path.end.epsilonEquals(request.toTri.centroid, 0));
+		}
+	}
+
+	/**
+	 * Triangles are blocked and unblocked on the game thread while the workers search. No delivered path may pass
+	 * through a triangle which is blocked when it is delivered.
+	 */
+	@Test
+	public void testCostChangesWhileSearching() throws InterruptedException {
+		final NavMeshGraph graph = navMesh.graph;
+		final NavMeshPathRequest.Listener checkingListener = new NavMeshPathRequest.Listener() {
+			@Override
+			public void pathRequestDone(NavMeshPathRequest request) {
+				done.add(request);
+				if (!request.pathFound) {
+					return;
+				}
+				for (int i = 0; i < request.path.getCount(); i++) {
+					int triIndex = request.path.get(i).getToNode().triIndex;
+					assertFalse("Path through blocked triangle " + triIndex, graph.isTriangleBlocked(triIndex));
+				}
+			}
+		};
+		Array<NavMeshPathRequest> requests = submitRequests();
+		final Bits endpoints = new Bits();
+		for (NavMeshPathRequest request : requests) {
+			request.listener = checkingListener;
+			endpoints.set(request.fromTri.triIndex);
+			endpoints.set(request.toTri.triIndex);
+		}
+		waitForResults(new Runnable() {
+			int frame;
+
+			@Override
+			public void run() {
+				// Block a band of triangles, moving each frame, without touching the start or goal triangles
+				for (int i = 0; i < graph.getNodeCount(); i += 97) {
+					int triIndex = (i + frame * 31) % graph.getNodeCount();
+					if (!endpoints.get(triIndex)) {
+						graph.setTriangleCostScale(triIndex, (frame % 2 == 0) ? Float.POSITIVE_INFINITY : 4);
+					}
+				}
+				frame++;
+			}
+		});
+		assertEquals(REQUEST_COUNT, done.size);
+	}
+
+	/**
+	 * A request which finds no path because of blocked triangles is delivered while the costs of other triangles
+	 * keep changing, and is searched again once one of the blocked triangles is unblocked.
+	 */
+	@Test
+	public void testBlockedRequestDelivered() throws InterruptedException {
+		pool.dispose();
+		navMesh.dispose();
+		// Large enough that a search takes longer than delivering the results of a frame
+		String[] rows = new String[80];
+		Arrays.fill(rows, new String(new char[120]).replace('\0', '.'));
+		navMesh = new NavMesh(TestGraphs.createCells(rows));
+		pool = new NavMeshPathWorkerPool(navMesh, 2);
+		final NavMeshGraph graph = navMesh.graph;
+		Array<Triangle> wall = new Array<Triangle>();
+		for (int z = 0; z < rows.length; z++) {
+			wall.add(TestGraphs.getCellTriangle(graph, 60, z, 0));
+			wall.add(TestGraphs.getCellTriangle(graph, 60, z, 1));
+		}
+		for (Triangle tri : wall) {
+			graph.setTriangleCostScale(tri.triIndex, Float.POSITIVE_INFINITY);
+		}
+		Triangle fromTri = TestGraphs.getCellTriangle(graph, 0, 40, 0);
+		Triangle toTri = TestGraphs.getCellTriangle(graph, 119, 40, 0);
+		final int changingTriIndex = TestGraphs.getCellTriangle(graph, 1, 0, 0).triIndex;
+		Runnable changeCosts = new Runnable() {
+			int frame;
+
+			@Override
+			public void run() {
+				graph.setTriangleCostScale(changingTriIndex, (frame++ % 2 == 0) ? 2 : 3);
+			}
+		};
+		NavMeshPathRequest request = new NavMeshPathRequest(new NavMeshGraphPath(), listener)
+				.set(fromTri, fromTri.centroid, toTri, toTri.centroid);
+		pool.submit(request);
+		waitForResults(changeCosts);
+		assertEquals(1, done.size);
+		assertFalse(request.pathFound);
+
+		pool.submit(request);
+		graph.setTriangleCostScale(wall.get(10).triIndex, 1);
+		graph.setTriangleCostScale(wall.get(11).triIndex, 1);
+		waitForResults(changeCosts);
+		assertEquals(2, done.size);
+		assertTrue(request.pathFound);
+	}
+
+	private static float getCost(NavMeshGraphPath path) {
+		float cost = 0;
+		for (int i = 0; i < path.getCount(); i++) {
+			cost += path.get(i).getCost();
+		}
+		return cost;
+	}
+}
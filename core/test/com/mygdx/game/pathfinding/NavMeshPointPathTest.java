@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.pathfinding;
+
+import com.mygdx.game.AllocationCounter;
+import com.mygdx.game.GdxTestRunner;
+import com.mygdx.game.scene.SceneGenerator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class NavMeshPointPathTest {
+
+	/**
+	 * Searching a path and string pulling it allocates nothing once the search and the point path have been
+	 * used for as long a path.
+	 */
+	@Test
+	public void testNoAllocation() {
+		final NavMesh navMesh = new NavMesh(SceneGenerator.createMaze(4000, 1).createGraph(0));
+		final NavMeshGraphPath path = new NavMeshGraphPath();
+		final NavMeshPointPath pointPath = new NavMeshPointPath();
+		final Triangle fromTri = navMesh.graph.getTriangleFromGraphIndex(0);
+		Triangle farthestTri = fromTri;
+		for (int i = 0; i < navMesh.graph.getNodeCount(); i++) {
+			Triangle tri = navMesh.graph.getTriangleFromGraphIndex(i);
+			if (navMesh.graph.isConnected(fromTri, tri)
+					&& tri.centroid.dst2(fromTri.centroid) > farthestTri.centroid.dst2(fromTri.centroid)) {
+				farthestTri = tri;
+			}
+		}
+		final Triangle toTri = farthestTri;
+		final NavMeshQuery query = new NavMeshQuery(navMesh);
+		long bytes = AllocationCounter.countBytes(new Runnable() {
+			@Override
+			public void run() {
+				query.searchConnectionPath(fromTri, toTri, false, path);
+				path.startTri = fromTri;
+				path.setPoints(fromTri.centroid, toTri.centroid);
+				pointPath.calculateForGraphPath(path);
+			}
+		}, 200);
+		assertTrue(path.getCount() > 10);
+		assertTrue(pointPath.getSize() > 2);
+		assertEquals(0, bytes);
+		navMesh.dispose();
+	}
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.mygdx.game.GdxTestRunner;
+import com.mygdx.game.scene.SceneGenerator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class NavMeshPolygonsTest {
+
+	private static final int PAIR_COUNT = 50;
+
+	private static float getLength(NavMeshPointPath pointPath) {
+		float length = 0;
+		for (int i = 1; i < pointPath.getSize(); i++) {
+			length += pointPath.getVector(i - 1).dst(pointPath.getVector(i));
+		}
+		return length;
+	}
+
+	/**
+	 * Check that the segments of a point path stay on the navmesh.
+	 */
+	private static void assertOnNavMesh(NavMesh navMesh, NavMeshPointPath pointPath) {
+		Vector3 point = new Vector3();
+		Vector3 closest = new Vector3();
+		for (int i = 1; i < pointPath.getSize(); i++) {
+			for (int j = 1; j < 10; j++) {
+				point.set(pointPath.getVector(i - 1)).lerp(pointPath.getVector(i), j / 10f);
+				navMesh.getClosestTriangle(point, closest, null);
+				assertEquals(0, closest.dst(point), 1e-3f);
+			}
+		}
+	}
+
+	@Test
+	public void testConvexPolygons() {
+		NavMeshGraph graph = SceneGenerator.createMaze(4000, 1).createGraph(0);
+		NavMeshPolygons polygons = new NavMeshPolygons(graph, 6);
+		assertTrue(polygons.getPolygonCount() < graph.getNodeCount() / 2);
+		int triangleCount = 0;
+		for (int polygon = 0; polygon < polygons.getPolygonCount(); polygon++) {
+			Array<Vector3> outline = polygons.getOutline(polygon);
+			assertTrue(outline.size <= 6);
+			float winding = 0;
+			for (int i = 0; i < outline.size; i++) {
+				Vector3 a = outline.get(i);
+				Vector3 b = outline.get((i + 1) % outline.size);
+				Vector3 c = outline.get((i + 2) % outline.size);
+				float turn = (b.x - a.x) * (c.z - b.z) - (b.z - a.z) * (c.x - b.x);
+				assertTrue(turn * winding >= -1e-6f);
+				if (winding == 0) {
+					winding = Math.signum(turn);
+				}
+			}
+			for (int i = 0; i < polygons.getTriangleCount(polygon); i++) {
+				assertEquals(polygon, polygons.getPolygonIndex(polygons.getTriangleIndex(polygon, i)));
+				triangleCount++;
+			}
+		}
+		assertEquals(graph.getNodeCount(), triangleCount);
+	}
+
+	@Test
+	public void testPortals() {
+		NavMeshGraph graph = SceneGenerator.createObstacleField(4000, 0.1f, 3).createGraph(0);
+		NavMeshPolygons polygons = new NavMeshPolygons(graph, 6);
+		assertEquals(0, polygons.getPortalCount() % 2);
+		for (int polygon = 0; polygon < polygons.getPolygonCount(); polygon++) {
+			for (int i = polygons.portalOffsets[polygon]; i < polygons.portalOffsets[polygon + 1]; i++) {
+				Edge portal = polygons.getPortal(i);
+				int neighbour = polygons.portalPolygons[i];
+				assertEquals(polygon, polygons.getPolygonIndex(portal.fromNode.triIndex));
+				assertEquals(neighbour, polygons.getPolygonIndex(portal.toNode.triIndex));
+				// The neighbour has the same portal back, seen from the other side
+				Edge back = null;
+				for (int j = polygons.portalOffsets[neighbour]; j < polygons.portalOffsets[neighbour + 1]; j++) {
+					if (polygons.portalPolygons[j] == polygon) {
+						back = polygons.getPortal(j);
+					}
+				}
+				assertNotNull(back);
+				assertSame(portal.rightVertex, back.leftVertex);
+				assertSame(portal.leftVertex, back.rightVertex);
+			}
+		}
+	}
+
+	/**
+	 * Polygon paths are string pulled along the navmesh, about as short as triangle paths.
+	 */
+	@Test
+	public void testPathsOverPolygons() {
+		NavMesh navMesh = new NavMesh(SceneGenerator.createMaze(4000, 2).createGraph(0));
+		NavMeshGraph graph = navMesh.graph;
+		NavMeshGraphPath path = new NavMeshGraphPath();
+		NavMeshPointPath pointPath = new NavMeshPointPath();
+		Random random = new Random(3);
+		float triangleLength = 0;
+		float polygonLength = 0;
+		for (int i = 0; i < PAIR_COUNT; i++) {
+			Triangle fromTri = graph.getTriangleFromGraphIndex(random.nextInt(graph.getNodeCount()));
+			Triangle toTri = graph.getTriangleFromGraphIndex(random.nextInt(graph.getNodeCount()));
+			if (!graph.isConnected(fromTri, toTri)) {
+				continue;
+			}
+			navMesh.setPolygonPathfinding(false);
+			assertTrue(navMesh.getPath(fromTri, fromTri.centroid, toTri, toTri.centroid, path));
+			pointPath.calculateForGraphPath(path);
+			triangleLength += getLength(pointPath);
+
+			navMesh.setPolygonPathfinding(true);
+			assertTrue(navMesh.getPath(fromTri, fromTri.centroid, toTri, toTri.centroid, path));
+			assertSame(navMesh.getPolygons(), path.polygons);
+			assertSame(toTri, path.getEndTriangle());
+			pointPath.calculateForGraphPath(path);
+			assertOnNavMesh(navMesh, pointPath);
+			assertEquals(0, pointPath.getVector(pointPath.getSize() - 1).dst(toTri.centroid), 1e-4f);
+			polygonLength += getLength(pointPath);
+		}
+		assertTrue(triangleLength > 0);
+		assertEquals(1, polygonLength / triangleLength, 0.05f);
+		navMesh.dispose();
+	}
+
+	@Test
+	public void testBlockedPolygons() {
+		NavMesh navMesh = new NavMesh(TestGraphs.createCells(
+				"..........",
+				".########.",
+				".########.",
+				".........."));
+		NavMeshGraph graph = navMesh.graph;
+		navMesh.setPolygonPathfinding(true);
+		NavMeshPolygons polygons = navMesh.getPolygons();
+		Triangle fromTri = TestGraphs.getCellTriangle(graph, 0, 1, 0);
+		Triangle toTri = TestGraphs.getCellTriangle(graph, 9, 2, 0);
+		NavMeshGraphPath path = new NavMeshGraphPath();
+		assertTrue(navMesh.getPath(fromTri, fromTri.centroid, toTri, toTri.centroid, path));
+		int version = graph.getVersion();
+		assertFalse(graph.isPathChanged(path, version));
+
+		// Block a triangle in the middle of the polygon the path takes across the top or bottom row
+		int crossing = polygons.getPolygonIndex(path.get(path.getCount() / 2).getToNode().triIndex);
+		graph.setTriangleCostScale(polygons.getTriangleIndex(crossing, polygons.getTriangleCount(crossing) / 2),
+				Float.POSITIVE_INFINITY);
+		assertTrue(graph.isPathChanged(path, version));
+
+		assertTrue(navMesh.getPath(fromTri, fromTri.centroid, toTri, toTri.centroid, path));
+		assertSame(polygons, path.polygons);
+		for (int i = 0; i < path.getCount(); i++) {
+			int polygon = polygons.getPolygonIndex(path.get(i).getToNode().triIndex);
+			assertTrue(polygons.getCostScale(polygon) < Float.POSITIVE_INFINITY);
+		}
+
+		// Repairing a polygon path is left to a new search
+		assertFalse(navMesh.repairPath(fromTri, fromTri.centroid, toTri, toTri.centroid, 1, path));
+		navMesh.dispose();
+	}
+
+	@Test
+	public void testSamePolygon() {
+		NavMesh navMesh = new NavMesh(TestGraphs.createCells(".."));
+		navMesh.setPolygonPathfinding(true);
+		Triangle fromTri = TestGraphs.getCellTriangle(navMesh.graph, 0, 0, 0);
+		Triangle toTri = TestGraphs.getCellTriangle(navMesh.graph, 1, 0, 1);
+		assertEquals(1, navMesh.getPolygons().getPolygonCount());
+		NavMeshGraphPath path = new NavMeshGraphPath();
+		assertTrue(navMesh.getPath(fromTri, fromTri.centroid, toTri, toTri.centroid, path));
+		assertEquals(0, path.getCount());
+		assertSame(toTri, path.getEndTriangle());
+		NavMeshPointPath pointPath = new NavMeshPointPath();
+		pointPath.calculateForGraphPath(path);
+		assertEquals(2, pointPath.getSize());
+
+		path.clear();
+		assertNull(path.polygons);
+		assertNull(path.endTri);
+		navMesh.dispose();
+	}
+}
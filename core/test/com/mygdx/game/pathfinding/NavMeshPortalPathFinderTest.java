@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.math.Vector3;
+import com.mygdx.game.GdxTestRunner;
+import com.mygdx.game.scene.SceneGenerator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class NavMeshPortalPathFinderTest {
+
+	private static final int PAIR_COUNT = 50;
+
+	/**
+	 * The portal cost of a path, see {@link NavMeshPortalPathFinder}.
+	 */
+	private static float getPortalCost(NavMeshGraph graph, NavMeshGraphPath path, Vector3 fromPoint, Vector3 toPoint) {
+		NavMeshGraphData data = graph.getData();
+		Vector3 point = new Vector3(fromPoint);
+		Vector3 midpoint = new Vector3();
+		Triangle tri = path.startTri;
+		float cost = 0;
+		for (int i = 0; i < path.getCount(); i++) {
+			Connection<Triangle> connection = path.get(i);
+			assertSame(tri, connection.getFromNode());
+			data.getConnectionMidpoint(getConnectionIndex(graph, connection), midpoint);
+			cost += point.dst(midpoint) * graph.getTriangleCostScale(tri.triIndex);
+			point.set(midpoint);
+			tri = connection.getToNode();
+		}
+		return cost + point.dst(toPoint) * graph.getTriangleCostScale(tri.triIndex);
+	}
+
+	private static int getConnectionIndex(NavMeshGraph graph, Connection<Triangle> connection) {
+		Triangle fromTri = connection.getFromNode();
+		return graph.getData().connectionOffsets[fromTri.triIndex] + fromTri.connections.indexOf(connection, true);
+	}
+
+	/**
+	 * Plain Dijkstra over the portals, without a heuristic or any of the shortcuts of the path finder.
+	 *
+	 * @return The lowest portal cost, or positive infinity if the goal can not be reached
+	 */
+	private static float searchReferenceCost(NavMeshGraph graph, Triangle fromTri, Vector3 fromPoint,
+											 Triangle toTri, Vector3 toPoint) {
+		if (fromTri == toTri) {
+			return 0;
+		}
+		final NavMeshGraphData data = graph.getData();
+		final float[] costs = new float[data.connectionTriangles.length];
+		Arrays.fill(costs, Float.POSITIVE_INFINITY);
+		PriorityQueue<float[]> open = new PriorityQueue<float[]>(16, new Comparator<float[]>() {
+			@Override
+			public int compare(float[] a, float[] b) {
+				return Float.compare(a[0], b[0]);
+			}
+		});
+		Vector3 midpoint = new Vector3();
+		Vector3 nextMidpoint = new Vector3();
+		for (int c = data.connectionOffsets[fromTri.triIndex]; c < data.connectionOffsets[fromTri.triIndex + 1]; c++) {
+			if (!graph.isTriangleBlocked(data.connectionTriangles[c])) {
+				costs[c] = fromPoint.dst(data.getConnectionMidpoint(c, midpoint));
+				open.add(new float[]{costs[c], c});
+			}
+		}
+		float best = Float.POSITIVE_INFINITY;
+		while (!open.isEmpty()) {
+			float[] entry = open.poll();
+			int c = (int) entry[1];
+			if (entry[0] > costs[c]) {
+				continue;
+			}
+			int triIndex = data.connectionTriangles[c];
+			data.getConnectionMidpoint(c, midpoint);
+			float scale = graph.getTriangleCostScale(triIndex);
+			if (triIndex == toTri.triIndex) {
+				best = Math.min(best, costs[c] + midpoint.dst(toPoint) * scale);
+			}
+			for (int d = data.connectionOffsets[triIndex]; d < data.connectionOffsets[triIndex + 1]; d++) {
+				if (graph.isTriangleBlocked(data.connectionTriangles[d])) {
+					continue;
+				}
+				float cost = costs[c] + midpoint.dst(data.getConnectionMidpoint(d, nextMidpoint)) * scale;
+				if (cost < costs[d]) {
+					costs[d] = cost;
+					open.add(new float[]{cost, d});
+				}
+			}
+		}
+		return best;
+	}
+
+	private static void assertLowestCost(NavMeshGraph graph, NavMeshPortalPathFinder pathFinder, long seed) {
+		Random random = new Random(seed);
+		NavMeshGraphPath path = new NavMeshGraphPath();
+		for (int i = 0; i < PAIR_COUNT; i++) {
+			Triangle fromTri = graph.getTriangleFromGraphIndex(random.nextInt(graph.getNodeCount()));
+			Triangle toTri = graph.getTriangleFromGraphIndex(random.nextInt(graph.getNodeCount()));
+			if (graph.isTriangleBlocked(fromTri.triIndex) || graph.isTriangleBlocked(toTri.triIndex)) {
+				continue;
+			}
+			float expected = searchReferenceCost(graph, fromTri, fromTri.centroid, toTri, toTri.centroid);
+			boolean found = pathFinder.searchConnectionPath(fromTri, fromTri.centroid, toTri, toTri.centroid, path);
+			assertEquals(expected != Float.POSITIVE_INFINITY, found);
+			if (found) {
+				path.startTri = fromTri;
+				assertSame(toTri, path.getEndTriangle());
+				assertEquals(expected, getPortalCost(graph, path, fromTri.centroid, toTri.centroid), expected * 1e-4f);
+			}
+		}
+	}
+
+	@Test
+	public void testLowestCost() {
+		NavMeshGraph graph = SceneGenerator.createMaze(4000, 1).createGraph(0);
+		assertLowestCost(graph, new NavMeshPortalPathFinder(graph), 2);
+	}
+
+	@Test
+	public void testLowestCostWithScaledAndBlockedTriangles() {
+		NavMeshGraph graph = SceneGenerator.createObstacleField(4000, 0.1f, 3).createGraph(0);
+		Random random = new Random(4);
+		for (int i = 0; i < graph.getNodeCount() / 10; i++) {
+			graph.setTriangleCostScale(random.nextInt(graph.getNodeCount()),
+					random.nextBoolean() ? Float.POSITIVE_INFINITY : 1 + random.nextFloat() * 4);
+		}
+		assertLowestCost(graph, new NavMeshPortalPathFinder(graph), 5);
+	}
+
+	@Test
+	public void testSameAndUnreachableTriangles() {
+		NavMeshGraph graph = TestGraphs.createCells("..#..");
+		NavMeshPortalPathFinder pathFinder = new NavMeshPortalPathFinder(graph);
+		NavMeshGraphPath path = new NavMeshGraphPath();
+		Triangle tri = TestGraphs.getCellTriangle(graph, 0, 0, 0);
+		assertTrue(pathFinder.searchConnectionPath(tri, tri.centroid, tri, tri.centroid, path));
+		assertEquals(0, path.getCount());
+
+		Triangle otherSide = TestGraphs.getCellTriangle(graph, 4, 0, 0);
+		assertFalse(pathFinder.searchConnectionPath(tri, tri.centroid, otherSide, otherSide.centroid, path));
+		assertEquals(0, path.getCount());
+
+		Triangle neighbour = TestGraphs.getCellTriangle(graph, 1, 0, 1);
+		assertTrue(pathFinder.searchConnectionPath(tri, tri.centroid, neighbour, neighbour.centroid, path));
+		// Through the second triangle of the first cell, then into the second cell
+		assertEquals(3, path.getCount());
+	}
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+import com.mygdx.game.GdxTestRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that the Bullet and Java ray tests, and the downward tests of the spatial index, agree on which
+ * triangles are hit, including back faces.
+ *
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class NavMeshRayTest {
+
+	/**
+	 * A quad split into two triangles, where the first faces up and the second faces down.
+	 */
+	private static final float[] VERTICES = {
+			0, 0, 0,
+			0, 0, 1,
+			1, 0, 0,
+			1, 0, 1,
+	};
+	private static final int[] INDICES = {0, 1, 2, 2, 3, 1};
+
+	private NavMesh navMesh;
+	private Triangle upTri;
+	private final Vector3 abovePoint = new Vector3();
+	private final Vector3 belowPoint = new Vector3();
+	private final Vector3 out = new Vector3();
+
+	@Before
+	public void setUp() {
+		navMesh = new NavMesh(new NavMeshGraph(VERTICES, INDICES.clone(), new int[]{0}, 0), true);
+		upTri = navMesh.graph.getTriangleFromGraphIndex(0);
+	}
+
+	@After
+	public void tearDown() {
+		navMesh.dispose();
+	}
+
+	@Test
+	public void testDefaultEngine() {
+		assertSame(NavMesh.RaycastEngine.BULLET, navMesh.getRaycastEngine());
+		NavMesh withoutShape = new NavMesh(navMesh.graph);
+		assertSame(NavMesh.RaycastEngine.JAVA, withoutShape.getRaycastEngine());
+		withoutShape.dispose();
+	}
+
+	@Test
+	public void testFrontFace() {
+		abovePoint.set(0.25f, 1, 0.25f);
+		for (NavMesh.RaycastEngine engine : NavMesh.RaycastEngine.values()) {
+			navMesh.setRaycastEngine(engine);
+			assertSame(engine.name(), upTri, navMesh.rayTest(new Ray(abovePoint, new Vector3(0, -1, 0)), 2, null, out));
+			assertEquals(0, out.y, 1e-6f);
+		}
+		assertSame(upTri, navMesh.groundRayTest(abovePoint, 2, null));
+		assertSame(upTri, navMesh.verticalRayTest(abovePoint, out, null));
+		assertSame(upTri, navMesh.groundWalkTest(upTri, abovePoint, 2, 4));
+	}
+
+	@Test
+	public void testBackFace() {
+		abovePoint.set(0.75f, 1, 0.75f);
+		belowPoint.set(0.75f, -1, 0.75f);
+		for (NavMesh.RaycastEngine engine : NavMesh.RaycastEngine.values()) {
+			navMesh.setRaycastEngine(engine);
+			assertNull(engine.name(), navMesh.rayTest(new Ray(abovePoint, new Vector3(0, -1, 0)), 2, null));
+			// The front of the down facing triangle is hit from below
+			assertSame(engine.name(), navMesh.graph.getTriangleFromGraphIndex(1),
+					navMesh.rayTest(new Ray(belowPoint, new Vector3(0, 1, 0)), 2, null));
+		}
+		assertNull(navMesh.groundRayTest(abovePoint, 2, null));
+		assertNull(navMesh.verticalRayTest(abovePoint, out, null));
+		assertNull(navMesh.groundWalkTest(upTri, abovePoint, 2, 4));
+	}
+
+	/**
+	 * The batched walk finds the same triangles as a lookup of each point, whether the walk starts near the point,
+	 * far from it, or not at all.
+	 */
+	@Test
+	public void testBatchedGroundWalk() {
+		NavMesh cells = new NavMesh(TestGraphs.createCells(
+				"..........",
+				"..........",
+				"...####...",
+				"..........",
+				".........."));
+		int count = 100;
+		float[] points = new float[count * 3];
+		float[] distances = new float[count];
+		int[] startTriIndices = new int[count];
+		int[] triIndices = new int[count];
+		Random random = new Random(1);
+		for (int i = 0; i < count; i++) {
+			points[i * 3] = random.nextFloat() * 10;
+			points[i * 3 + 1] = 1;
+			points[i * 3 + 2] = random.nextFloat() * 5;
+			distances[i] = 2;
+			startTriIndices[i] = (i % 3 == 0) ? -1 : random.nextInt(cells.graph.getNodeCount());
+		}
+		int hits = cells.groundWalkTest(startTriIndices, points, distances, count, 4, triIndices);
+		int expectedHits = 0;
+		for (int i = 0; i < count; i++) {
+			Triangle tri = cells.groundRayTest(new Vector3(points[i * 3], points[i * 3 + 1], points[i * 3 + 2]),
+					distances[i], null);
+			assertEquals((tri == null) ? -1 : tri.triIndex, triIndices[i]);
+			if (tri != null) {
+				expectedHits++;
+			}
+		}
+		assertEquals(expectedHits, hits);
+		cells.dispose();
+	}
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+import com.mygdx.game.AllocationCounter;
+import com.mygdx.game.GdxTestRunner;
+import com.mygdx.game.scene.SceneGenerator;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Splits a generated level into tiles, writes them as files and streams them back in around a moving point.
+ *
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class NavMeshTiledGraphTest {
+
+	private static final float TILE_SIZE = 8;
+	private static final long SOURCE_HASH = 42;
+	private static final int QUERY_COUNT = 100;
+	/**
+	 * Max time to wait for the loader thread to load the requested tiles
+	 */
+	private static final long LOAD_TIMEOUT_MILLIS = 10000;
+
+	private SceneGenerator.Level level;
+	private LongMap<NavMeshGraph> tileGraphs;
+	private FileHandle directory;
+	private NavMeshTileStreamer streamer;
+
+	@After
+	public void tearDown() {
+		if (streamer != null) {
+			streamer.dispose();
+		}
+		if (directory != null) {
+			directory.deleteDirectory();
+		}
+	}
+
+	/**
+	 * Split a level into tiles and write them to a temporary directory.
+	 */
+	private void createTiles(SceneGenerator.Level level) {
+		this.level = level;
+		tileGraphs = NavMeshTiles.split(level.vertexPositions, level.indices, TILE_SIZE, 0);
+		directory = FileHandle.tempDirectory("navmesh_tiles");
+		NavMeshTiles.write(tileGraphs, SOURCE_HASH, directory);
+	}
+
+	private int getMaxTriangleCount() {
+		int max = 0;
+		for (NavMeshGraph graph : tileGraphs.values()) {
+			max = Math.max(max, graph.getNodeCount());
+		}
+		return max;
+	}
+
+	private static float getPathCost(Array<Connection<Triangle>> path) {
+		float cost = 0;
+		for (int i = 0; i < path.size; i++) {
+			cost += path.get(i).getCost();
+		}
+		return cost;
+	}
+
+	/**
+	 * Update the streamer until no more tiles are loaded, added or removed. When the graph is full, the streamer
+	 * only loads one tile at a time, so this may take several loads.
+	 */
+	private void updateUntilLoaded(Array<Vector3> interestPoints) throws InterruptedException {
+		long startTime = System.currentTimeMillis();
+		while (streamer.update(interestPoints) || streamer.getLoadingCount() > 0) {
+			assertTrue("Tiles not loaded in time", System.currentTimeMillis() - startTime < LOAD_TIMEOUT_MILLIS);
+			Thread.sleep(1);
+		}
+	}
+
+	@Test
+	public void testPathCostsMatchUntiledGraph() {
+		createTiles(SceneGenerator.createObstacleField(6000, 0.1f, 7));
+		NavMeshTiledGraph tiledGraph = new NavMeshTiledGraph(TILE_SIZE, tileGraphs.size, getMaxTriangleCount());
+		for (LongMap.Entry<NavMeshGraph> entry : tileGraphs) {
+			assertTrue(tiledGraph.addTile(new NavMeshTile(NavMeshTiles.getTileX(entry.key),
+					NavMeshTiles.getTileZ(entry.key), entry.value)));
+		}
+		NavMeshGraph flatGraph = level.createGraph(0);
+		IndexedAStarPathFinder<Triangle> flatPathFinder = new IndexedAStarPathFinder<Triangle>(flatGraph);
+		NavMeshHeuristic heuristic = new NavMeshHeuristic();
+		NavMeshGraphPath flatPath = new NavMeshGraphPath();
+		NavMeshGraphPath tiledPath = new NavMeshGraphPath();
+		Vector3 point = new Vector3();
+		Random random = new Random(8);
+		for (int i = 0; i < QUERY_COUNT; i++) {
+			Triangle fromTri = flatGraph.getTriangleFromGraphIndex(random.nextInt(flatGraph.getNodeCount()));
+			Triangle toTri = flatGraph.getTriangleFromGraphIndex(random.nextInt(flatGraph.getNodeCount()));
+			Triangle tiledFromTri = tiledGraph.getTriangleBelow(point.set(fromTri.centroid).add(0, 0.1f, 0), 1, null);
+			Triangle tiledToTri = tiledGraph.getTriangleBelow(point.set(toTri.centroid).add(0, 0.1f, 0), 1, null);
+			assertNotNull(tiledFromTri);
+			assertTrue(tiledFromTri.centroid.epsilonEquals(fromTri.centroid, 1e-4f));
+
+			flatPath.clear();
+			boolean found = flatPathFinder.searchConnectionPath(fromTri, toTri, heuristic, flatPath);
+			assertEquals(found, tiledGraph.getPath(tiledFromTri, fromTri.centroid, tiledToTri, toTri.centroid,
+					tiledPath));
+			if (found) {
+				assertSame(tiledToTri, tiledPath.getEndTriangle());
+				assertEquals(getPathCost(flatPath.nodes), getPathCost(tiledPath.nodes), 1e-3f);
+			}
+		}
+
+		// Removing and adding a tile back restores its links
+		NavMeshTile tile = tiledGraph.getTiles().next();
+		int linkCount = tile.getLinkCount();
+		assertTrue(linkCount > 0);
+		assertSame(tile, tiledGraph.removeTile(tile.tileX, tile.tileZ));
+		assertEquals(0, tile.getLinkCount());
+		assertTrue(tiledGraph.addTile(tile));
+		assertEquals(linkCount, tile.getLinkCount());
+	}
+
+	@Test
+	public void testGetPathDoesNotAllocate() {
+		createTiles(SceneGenerator.createObstacleField(6000, 0.1f, 7));
+		NavMeshTiledGraph tiledGraph = new NavMeshTiledGraph(TILE_SIZE, tileGraphs.size, getMaxTriangleCount());
+		for (LongMap.Entry<NavMeshGraph> entry : tileGraphs) {
+			tiledGraph.addTile(new NavMeshTile(NavMeshTiles.getTileX(entry.key),
+					NavMeshTiles.getTileZ(entry.key), entry.value));
+		}
+		final Triangle fromTri = tiledGraph.getClosestTriangle(level.bounds.min, new Vector3());
+		final Triangle toTri = tiledGraph.getClosestTriangle(level.bounds.max, new Vector3());
+		final NavMeshGraphPath path = new NavMeshGraphPath();
+		assertEquals(0, AllocationCounter.countBytes(new Runnable() {
+			@Override
+			public void run() {
+				tiledGraph.getPath(fromTri, fromTri.centroid, toTri, toTri.centroid, path);
+			}
+		}, 20));
+	}
+
+	@Test
+	public void testStreaming() throws InterruptedException {
+		// Without obstacles, so any two points near each other are connected within the loaded tiles
+		createTiles(SceneGenerator.createGrid(6000));
+		int maxTiles = 9;
+		NavMeshTiledGraph tiledGraph = new NavMeshTiledGraph(TILE_SIZE, maxTiles, getMaxTriangleCount());
+		streamer = new NavMeshTileStreamer(tiledGraph, new NavMeshTiles.FileSource(directory, SOURCE_HASH),
+				TILE_SIZE / 2, TILE_SIZE / 2);
+		Vector3 agent = new Vector3();
+		Array<Vector3> interestPoints = new Array<Vector3>();
+		interestPoints.add(agent);
+		NavMeshGraphPath path = new NavMeshGraphPath();
+		Vector3 target = new Vector3();
+		Vector3 out = new Vector3();
+
+		// Walk across the level, through more tiles than fit at once
+		float z = (level.bounds.min.z + level.bounds.max.z) / 2;
+		Array<NavMeshTile> seenTiles = new Array<NavMeshTile>();
+		for (float x = level.bounds.min.x + 1; x < level.bounds.max.x - 1; x += TILE_SIZE / 4) {
+			agent.set(x, level.bounds.max.y + 1, z);
+			updateUntilLoaded(interestPoints);
+			assertTrue(tiledGraph.getTileCount() <= maxTiles);
+			for (NavMeshTile tile : tiledGraph.getTiles()) {
+				if (!seenTiles.contains(tile, true)) {
+					seenTiles.add(tile);
+				}
+			}
+
+			// The tile of the agent and its neighbours are loaded, so paths within the load radius are found
+			Triangle fromTri = tiledGraph.getClosestTriangle(agent, out);
+			assertNotNull(fromTri);
+			target.set(agent).add(TILE_SIZE / 2, 0, 0);
+			if (target.x < level.bounds.max.x - 1) {
+				Triangle toTri = tiledGraph.getClosestTriangle(target, target);
+				assertNotNull(toTri);
+				assertTrue(tiledGraph.getPath(fromTri, out, toTri, target, path));
+			}
+		}
+		assertTrue(seenTiles.size > maxTiles);
+
+		// Far from the level, all tiles are removed
+		agent.set(level.bounds.max).add(10 * TILE_SIZE, 0, 10 * TILE_SIZE);
+		updateUntilLoaded(interestPoints);
+		assertEquals(0, tiledGraph.getTileCount());
+		assertNull(tiledGraph.getClosestTriangle(agent, out));
+		assertFalse(streamer.update(interestPoints));
+	}
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.mygdx.game.pathfinding;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Small flat navmesh graphs for tests, drawn as text.
+ *
+ * @author jsjolund
+ */
+final class TestGraphs {
+
+	private TestGraphs() {
+	}
+
+	/**
+	 * Create a flat graph of unit cells, two triangles for each cell, from rows of text. A '.' is a floor cell
+	 * and any other character is a hole. The characters of a row are along the x axis, and the rows along z.
+	 * <p/>
+	 * The first triangle of the cell at (x, z) has its centroid at (x + 1/3, z + 1/3), and the second one at
+	 * (x + 2/3, z + 2/3). Both face up.
+	 *
+	 * @param rows The rows of cells, all of the same length
+	 * @return The graph
+	 */
+	static NavMeshGraph createCells(String... rows) {
+		int width = rows[0].length();
+		int depth = rows.length;
+		float[] vertices = new float[(width + 1) * (depth + 1) * 3];
+		for (int z = 0; z <= depth; z++) {
+			for (int x = 0; x <= width; x++) {
+				int i = (z * (width + 1) + x) * 3;
+				vertices[i] = x;
+				vertices[i + 2] = z;
+			}
+		}
+		IntArray indices = new IntArray();
+		for (int z = 0; z < depth; z++) {
+			for (int x = 0; x < width; x++) {
+				if (rows[z].charAt(x) != '.') {
+					continue;
+				}
+				int a = z * (width + 1) + x;
+				int b = a + 1;
+				int c = a + width + 1;
+				int d = c + 1;
+				indices.addAll(a, c, b, b, c, d);
+			}
+		}
+		return new NavMeshGraph(vertices, indices.toArray(), new int[]{0}, 0);
+	}
+
+	/**
+	 * Find the first or second triangle of a cell in a graph created by {@link #createCells(String...)}.
+	 */
+	static Triangle getCellTriangle(NavMeshGraph graph, int x, int z, int second) {
+		float cx = x + (second + 1) / 3f;
+		float cz = z + (second + 1) / 3f;
+		for (int i = 0; i < graph.getNodeCount(); i++) {
+			Triangle tri = graph.getTriangleFromGraphIndex(i);
+			if (Math.abs(tri.centroid.x - cx) < 1e-4f && Math.abs(tri.centroid.z - cz) < 1e-4f) {
+				return tri;
+			}
+		}
+		throw new IllegalArgumentException("No triangle in cell " + x + ", " + z);
+	}
+}
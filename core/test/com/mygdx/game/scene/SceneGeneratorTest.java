@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.scene;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+import com.mygdx.game.GdxTestRunner;
+import com.mygdx.game.pathfinding.NavMesh;
+import com.mygdx.game.pathfinding.NavMeshGraphPath;
+import com.mygdx.game.pathfinding.Triangle;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Creates the Bullet navmesh shape of each kind of generated level, and checks that rays and paths find the
+ * generated triangles. The static ground shape needs a GL context for its model, it is exercised by the crowd
+ * simulation in the benchmarks.
+ *
+ * @author jsjolund
+ */
+@RunWith(GdxTestRunner.class)
+public class SceneGeneratorTest {
+
+	private static final int TRIANGLE_COUNT = 4000;
+	private static final int QUERY_COUNT = 50;
+	private static final long SEED = 9;
+
+	private static void assertNavMeshWorks(SceneGenerator.Level level) {
+		NavMesh navMesh = new NavMesh(level.createGraph(0), true);
+		try {
+			assertSame(NavMesh.RaycastEngine.BULLET, navMesh.getRaycastEngine());
+			Random random = new Random(SEED);
+			Ray ray = new Ray(new Vector3(), new Vector3(0, -1, 0));
+			NavMeshGraphPath path = new NavMeshGraphPath();
+			Triangle first = navMesh.graph.getTriangleFromGraphIndex(0);
+			for (int i = 0; i < QUERY_COUNT; i++) {
+				Triangle tri = navMesh.graph.getTriangleFromGraphIndex(random.nextInt(navMesh.graph.getNodeCount()));
+				ray.origin.set(tri.centroid).add(0, 0.5f, 0);
+				assertSame(level.name, tri, navMesh.rayTest(ray, 1, null));
+				// The levels are fully connected
+				assertTrue(level.name, navMesh.getPath(first, first.centroid, tri, tri.centroid, path));
+			}
+		} finally {
+			navMesh.dispose();
+		}
+	}
+
+	@Test
+	public void testGrid() {
+		assertNavMeshWorks(SceneGenerator.createGrid(TRIANGLE_COUNT));
+	}
+
+	@Test
+	public void testObstacleField() {
+		assertNavMeshWorks(SceneGenerator.createObstacleField(TRIANGLE_COUNT, 0.1f, SEED));
+	}
+
+	@Test
+	public void testMaze() {
+		assertNavMeshWorks(SceneGenerator.createMaze(TRIANGLE_COUNT, SEED));
+	}
+
+	@Test
+	public void testBuilding() {
+		assertNavMeshWorks(SceneGenerator.createBuilding(3, TRIANGLE_COUNT, SEED));
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright 2015 See AUTHORS file.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.mygdx.game.steerers;
+
+import com.badlogic.gdx.ai.steer.utils.paths.LinePath;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.mygdx.game.AllocationCounter;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jsjolund
+ */
+public class ReusableLinePathTest {
+
+	private static Array<Vector3> createWaypoints(Random random, int count) {
+		Array<Vector3> waypoints = new Array<Vector3>();
+		for (int i = 0; i < count; i++) {
+			waypoints.add(new Vector3(random.nextFloat() * 20, random.nextFloat(), random.nextFloat() * 20));
+		}
+		return waypoints;
+	}
+
+	@Test
+	public void testSameAsLinePath() {
+		Random random = new Random(1);
+		ReusableLinePath path = new ReusableLinePath(createWaypoints(random, 2));
+		ReusableLinePath.LinePathParam param = path.createParam();
+		Vector3 point = new Vector3();
+		Vector3 target = new Vector3();
+		Vector3 expectedTarget = new Vector3();
+		for (int n = 0; n < 100; n++) {
+			Array<Vector3> waypoints = createWaypoints(random, 2 + random.nextInt(10));
+			LinePath<Vector3> expected = new LinePath<Vector3>(waypoints, true);
+			LinePath.LinePathParam expectedParam = expected.createParam();
+			path.createPath(waypoints);
+			assertEquals(expected.getLength(), path.getLength(), 1e-3f);
+			assertEquals(waypoints.size - 1, path.getSegmentCount());
+			assertTrue(expected.getStartPoint().epsilonEquals(path.getStartPoint(), 0));
+			assertTrue(expected.getEndPoint().epsilonEquals(path.getEndPoint(), 0));
+
+			point.set(random.nextFloat() * 20, random.nextFloat(), random.nextFloat() * 20);
+			assertEquals(expected.calculateDistance(point, expectedParam), path.calculateDistance(point, param), 1e-3f);
+			assertEquals(expectedParam.getSegmentIndex(), param.getSegmentIndex());
+
+			float distance = (random.nextFloat() * 1.2f - 0.1f) * path.getLength();
+			expected.calculateTargetPosition(expectedTarget, expectedParam, distance);
+			path.calculateTargetPosition(target, param, distance);
+			assertTrue(expectedTarget + " != " + target, expectedTarget.epsilonEquals(target, 1e-3f));
+		}
+	}
+
+	/**
+	 * Creating a path, and following it, allocates nothing once the path has held as many waypoints.
+	 */
+	@Test
+	public void testNoAllocation() {
+		final Array<Vector3> waypoints = createWaypoints(new Random(2), 16);
+		final ReusableLinePath path = new ReusableLinePath(waypoints);
+		final ReusableLinePath.LinePathParam param = path.createParam();
+		final Vector3 point = new Vector3(5, 0, 5);
+		final Vector3 target = new Vector3();
+		long bytes = AllocationCounter.countBytes(new Runnable() {
+			@Override
+			public void run() {
+				path.createPath(waypoints);
+				float distance = path.calculateDistance(point, param);
+				path.calculateTargetPosition(target, param, distance + 1);
+			}
+		}, 10000);
+		assertEquals(0, bytes);
+
+		// The gdx-ai line path allocates a segment for each waypoint
+		final LinePath<Vector3> linePath = new LinePath<Vector3>(waypoints, true);
+		assertTrue(AllocationCounter.countBytes(new Runnable() {
+			@Override
+			public void run() {
+				linePath.createPath(waypoints);
+			}
+		}, 10000) >= waypoints.size * 16);
+	}
+}